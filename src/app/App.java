@@ -1,12 +1,17 @@
 package app;
 
 import data.repository.*;
+import model.dto.DataUpdate;
 import service.StudyService;
 import service.session.SessionManager;
 import ui.MainFrame;
 import ui.ThemeManager;
+import ui.dialogs.DialogFactory;
+import util.EventBus;
+import util.StartupMetrics;
 
 import javax.swing.*;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -19,13 +24,19 @@ import java.util.logging.Logger;
  * </ol>
  * Также здесь настраивается внешний вид (Look and Feel) Swing
  * </p>
+ * <p>
+ * Запуск поэтапный: окно показывается сразу с пустой сессией, колоды читаются в фоновом
+ * потоке, и первая карточка появляется, как только прочитано достаточно колод
+ * ({@link StudyService#loadSessionProgressively()}). Время до первой карточки - {@link StartupMetrics}
+ * </p>
  */
 public class App {
     /** Логгер для записи основных событий жизненного цикла приложения */
     private static final Logger LOGGER = Logger.getLogger(App.class.getName());
 
     /**
-     * Запускает инициализацию интерфейса в потоке обработки событий
+     * Запускает инициализацию интерфейса в потоке обработки событий,
+     * затем загрузку колод в фоновом потоке
      */
     @SuppressWarnings("unused")
     static void main(String[] args) {
@@ -48,9 +59,35 @@ public class App {
             mainFrame.setVisible(true);
 
             LOGGER.info("Главное окно успешно отображено");
+            StartupMetrics.mark(StartupMetrics.Stage.FRAME_SHOWN);
+
+            // колоды - в фоне, панели обновятся по событию DATA_UPDATED
+            Thread.ofPlatform().name("session-loader").start(() -> loadSession(studyService, mainFrame));
         });
     }
 
+    /**
+     * Загрузка колод (в фоновом потоке)
+     * <p>
+     * При ошибке панели все равно получают {@code DATA_UPDATED} - загрузка закончена, вместо
+     * заглушки "Загрузка колод..." показывается то, что успело загрузиться (или "Карт нет"),
+     * а причина - в окне сообщения
+     * </p>
+     */
+    private static void loadSession(StudyService studyService, MainFrame mainFrame) {
+        try {
+            studyService.loadSessionProgressively();
+            StartupMetrics.mark(StartupMetrics.Stage.FULL_LOAD);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Ошибка загрузки колод", e);
+            EventBus.publish(EventBus.Topic.DATA_UPDATED,
+                    new DataUpdate(DataUpdate.Kind.RELOAD, studyService.getAllCards().size(), 0));
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            SwingUtilities.invokeLater(() -> DialogFactory.showInfo(mainFrame.getContentPane(),
+                    "Не удалось загрузить колоды: " + cause.getMessage()));
+        }
+    }
+
     private static StudyService getStudyService() {
         CardRepository cardRepo = new FileDeckRepository();
         StatsRepository statsRepo = new FileStatsRepository();
@@ -63,7 +100,8 @@ public class App {
 
         // сервисный слой
         // StudyService выступает фасадом для UI, скрывая сложность SessionManager'а
-        // и предоставляя упрощенный интерфейс для контроллеров или форм
-        return new StudyService(sessionManager);
+        // и предоставляя упрощенный интерфейс для контроллеров или форм.
+        // данные еще не загружены - см. loadSession
+        return new StudyService(sessionManager, false);
     }
 }
\ No newline at end of file
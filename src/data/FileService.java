@@ -1,9 +1,20 @@
 package data;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.Collections;
 import java.util.List;
@@ -12,10 +23,19 @@ import java.util.logging.Logger;
 
 /**
  * Низкоуровневых операций ввода-вывода (I/O) с файловой системой
+ * <p>
+ * Кроме чтения/записи файлов целиком есть потоковые операции ({@link #openReader},
+ * {@link #openChannelReader}, {@link #openWriter}, {@link #replace}) для файлов, которые не помещаются в память
+ * (массовый импорт). В отличие от остальных методов они не скрывают ошибки,
+ * а выбрасывают {@link IOException}: при потоковой обработке частичный результат хуже явной ошибки
+ * </p>
  */
 public abstract class FileService {
     private static final Logger LOGGER = Logger.getLogger(FileService.class.getName());
 
+    /** Размер буфера потокового чтения/записи */
+    private static final int STREAM_BUFFER = 64 * 1024;
+
     /**
      * Читает все строки текстового файла в кодировке UTF-8
      *
@@ -63,6 +83,28 @@ public abstract class FileService {
         }
     }
 
+    /**
+     * Дописывает несколько строк в конец файла (UTF-8) за одно открытие
+     * (опции и разделитель строк - как в {@link #appendLine})
+     *
+     * @param path путь к целевому файлу
+     * @param lines строки для записи (без переносов строк)
+     */
+    public void appendLines(Path path, List<String> lines){
+        if (lines.isEmpty()) return;
+        try {
+            Files.write(
+                    path,
+                    lines,
+                    StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND
+            );
+        } catch (IOException e){
+            LOGGER.log(Level.SEVERE, "Ошибка записи в файл: " + path, e);
+        }
+    }
+
     /**
      * Гарантирует существование указанной директории
      * <p>
@@ -93,6 +135,80 @@ public abstract class FileService {
             // Логирование
         }
     }
+    /**
+     * Размер файла в байтах (заодно проверка существования)
+     *
+     * @param path путь к файлу
+     * @return размер или {@code -1}, если файла нет или его размер не прочитать
+     */
+    public long size(Path path) {
+        if (!Files.isRegularFile(path)) return -1;
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Ошибка чтения размера файла: " + path, e);
+            return -1;
+        }
+    }
+
+    /**
+     * Открывает файл для построчного чтения (UTF-8, буфер 64 КБ)
+     *
+     * @param path путь к файлу
+     * @return читатель (закрывает вызывающий)
+     * @throws IOException если файл нельзя открыть
+     */
+    public BufferedReader openReader(Path path) throws IOException {
+        return new BufferedReader(
+                new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8), STREAM_BUFFER);
+    }
+
+    /**
+     * Открывает файл для чтения кусками прямо из {@link FileChannel} (UTF-8, без построчного буфера):
+     * для разборщиков, которые сами читают блоками (например, {@link service.importer.CsvReader}).
+     * Некорректные байты заменяются символом {@code U+FFFD}
+     *
+     * @param path путь к файлу
+     * @return читатель (закрывает вызывающий, вместе с каналом)
+     * @throws IOException если файл нельзя открыть
+     */
+    public Reader openChannelReader(Path path) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        return Channels.newReader(FileChannel.open(path, StandardOpenOption.READ), decoder, STREAM_BUFFER);
+    }
+
+    /**
+     * Открывает файл для потоковой записи (UTF-8, буфер 64 КБ). Файл создается, если его нет
+     *
+     * @param path путь к файлу
+     * @param append {@code true} - дописывать в конец, {@code false} - перезаписать
+     * @return писатель (закрывает вызывающий)
+     * @throws IOException если файл нельзя открыть
+     */
+    public BufferedWriter openWriter(Path path, boolean append) throws IOException {
+        var mode = append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+        return new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode),
+                StandardCharsets.UTF_8), STREAM_BUFFER);
+    }
+
+    /**
+     * Заменяет файл другим (перемещение с заменой, атомарно, если ФС это поддерживает)
+     *
+     * @param source готовый новый файл
+     * @param target заменяемый файл
+     * @throws IOException при ошибке перемещения
+     */
+    public void replace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     // Переопределяем метод записи из ImportService для совместимости
     public abstract void write(Path path, Iterable<? extends CharSequence> lines, java.nio.file.OpenOption... options);
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package data.repository;
 
 import model.Card;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Интерфейс репозитория для управления данными карточек,
@@ -16,6 +17,19 @@ public interface CardRepository {
      */
     List<Card> loadAllCards();
 
+    /**
+     * Загружает карточки порциями: по одной колоде (файлу) за раз, в порядке чтения
+     * <p>
+     * Позволяет начать работу с первыми колодами, не дожидаясь чтения остальных.
+     * По умолчанию - одна порция из {@link #loadAllCards()}
+     * </p>
+     *
+     * @param deckConsumer получает карточки очередной колоды (вызывается в потоке загрузки)
+     */
+    default void loadDecks(Consumer<List<Card>> deckConsumer) {
+        deckConsumer.accept(loadAllCards());
+    }
+
     /**
      * Сохраняет список карточек в конкретный файл (или таблицу)
      *
@@ -9,6 +9,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
@@ -25,12 +26,18 @@ public class FileDeckRepository implements CardRepository {
     /** Папка, в которой хранятся файлы колод */
     private static final String DECKS_DIR = "decks";
 
+    /** Суффикс временного файла сохраняемой колоды (не {@code .txt} - при загрузке пропускается) */
+    private static final String SAVING_SUFFIX = ".saving";
+
     /** Низкоуровневые операции с файлами (чтение строк, проверка путей) */
     private final FileService fileService;
 
     /** Парсер, преобразующий текст в объекты Card */
     private final TxtDeckParser parser;
 
+    /** Папка колод */
+    private final Path decksDir;
+
     /**
      * Конструктор репозитория.
      * <p>
@@ -39,13 +46,23 @@ public class FileDeckRepository implements CardRepository {
      * </p>
      */
     public FileDeckRepository() {
+        this(Paths.get(DECKS_DIR));
+    }
+
+    /**
+     * Конструктор репозитория с колодами в указанной папке (создается, если ее нет)
+     *
+     * @param decksDir папка с файлами колод
+     */
+    public FileDeckRepository(Path decksDir) {
+        this.decksDir = decksDir;
         this.fileService = new FileService() {
             @Override
             public void write(Path path, Iterable<? extends CharSequence> lines, OpenOption... options) {
 
             }
         };
-        this.fileService.ensureDirectory(Paths.get(DECKS_DIR));
+        this.fileService.ensureDirectory(decksDir);
         this.parser = new TxtDeckParser();
     }
 
@@ -56,35 +73,58 @@ public class FileDeckRepository implements CardRepository {
      */
     @Override
     public List<Card> loadAllCards() {
-        LOGGER.info(">>>>>> НАЧАЛО ЗАГРУЗКИ КОЛОД <<<<<<");
         List<Card> allCards = new ArrayList<>();
+        loadDecks(allCards::addAll);
+        return allCards;
+    }
+
+    /**
+     * Читает файлы колод по одному и отдает карточки каждого файла сразу после разбора
+     * <p>
+     * Файл, который не удалось разобрать, пропускается (с записью в лог), остальные читаются дальше
+     * </p>
+     */
+    @Override
+    public void loadDecks(Consumer<List<Card>> deckConsumer) {
+        LOGGER.info(">>>>>> НАЧАЛО ЗАГРУЗКИ КОЛОД <<<<<<");
 
         // Files.walk для рекурсивного обхода (если вдруг будут подпапки)
-        try (Stream<Path> paths = Files.walk(Paths.get(DECKS_DIR))) {
-            List<Path> fileList = paths
+        List<Path> fileList;
+        try (Stream<Path> paths = Files.walk(decksDir)) {
+            fileList = paths
                     .filter(Files::isRegularFile)
                     // ахтунг! поменять если другой формат файла
                     .filter(p -> p.toString().endsWith(".txt"))
                     .toList();
-
-            for (Path path : fileList) {
-                // строки из файла через FileService
-                List<String> lines = fileService.readAllLines(path);
-                String fileName = path.getFileName().toString();
-
-                List<Card> cardsFromFile = parser.parse(lines, fileName);
-                if (cardsFromFile.isEmpty()) {
-                    LOGGER.warning("Файл пуст или имеет неверный формат: " + fileName);
-                } else {
-                    // Level.INFO, чтобы не захламлять лог, если много файлов
-                    LOGGER.info("Файл загружен: " + fileName + " (Найдено карт: " + cardsFromFile.size() + ")");
-                }
-                allCards.addAll(cardsFromFile);
-            }
-            return allCards;
         } catch (Exception e) {
             LOGGER.severe("Критическая ошибка чтения папки decks: " + e.getMessage());
-            return new ArrayList<>();
+            return;
+        }
+
+        for (Path path : fileList) {
+            // загрузку отменили (ошибка параллельной подзадачи перезагрузки) - дальше не читаем
+            if (Thread.currentThread().isInterrupted()) {
+                LOGGER.info("Загрузка колод прервана");
+                return;
+            }
+            // строки из файла через FileService
+            List<String> lines = fileService.readAllLines(path);
+            String fileName = path.getFileName().toString();
+
+            List<Card> cardsFromFile;
+            try {
+                cardsFromFile = parser.parse(lines, fileName);
+            } catch (RuntimeException e) {
+                LOGGER.severe("Ошибка разбора файла " + fileName + ": " + e.getMessage());
+                continue;
+            }
+            if (cardsFromFile.isEmpty()) {
+                LOGGER.warning("Файл пуст или имеет неверный формат: " + fileName);
+                continue;
+            }
+            // Level.INFO, чтобы не захламлять лог, если много файлов
+            LOGGER.info("Файл загружен: " + fileName + " (Найдено карт: " + cardsFromFile.size() + ")");
+            deckConsumer.accept(cardsFromFile);
         }
     }
 
@@ -99,7 +139,9 @@ public class FileDeckRepository implements CardRepository {
      * ANSWER: блабла
      * ===
      * </pre>
-     * И перезаписывает файл целиком.
+     * И перезаписывает файл целиком: текст пишется во временный файл рядом, который затем
+     * заменяет колоду ({@link FileService#replace}, атомарно, если ФС это поддерживает).
+     * Прерванная или неудачная запись не оставляет колоду обрезанной - на диске прежняя версия
      * </p>
      *
      * @param fileName имя файла (например, "OPP.txt")
@@ -107,7 +149,7 @@ public class FileDeckRepository implements CardRepository {
      */
     @Override
     public void saveDeck(String fileName, List<Card> cards) {
-        Path path = Paths.get(DECKS_DIR, fileName);
+        Path path = decksDir.resolve(fileName);
         StringBuilder sb = new StringBuilder();
 
         // формирование текстового содержимого файла
@@ -121,12 +163,19 @@ public class FileDeckRepository implements CardRepository {
             sb.append("===").append(System.lineSeparator());
         }
 
+        Path saving = path.resolveSibling(path.getFileName() + SAVING_SUFFIX);
         try {
-            // запись в файл
-            Files.writeString(path, sb.toString(), StandardCharsets.UTF_8,
+            // запись во временный файл и замена колоды
+            Files.writeString(saving, sb.toString(), StandardCharsets.UTF_8,
                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            fileService.replace(saving, path);
         } catch (IOException e) {
             LOGGER.severe("Ошибка записи файла " + fileName + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(saving);
+            } catch (IOException ignored) {
+                // останется до следующего сохранения колоды
+            }
         }
     }
 }
\ No newline at end of file
@@ -1,7 +1,6 @@
 package data.repository;
 
 import data.FileService;
-import model.Card;
 
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
@@ -31,7 +30,23 @@ public class FileStatsRepository implements StatsRepository {
 
         }
     };
-    private final Path path = Paths.get(STATS_FILE);
+    private final Path path;
+
+    /**
+     * Репозиторий с файлом {@code anki_stats.txt} в корне приложения
+     */
+    public FileStatsRepository() {
+        this(Paths.get(STATS_FILE));
+    }
+
+    /**
+     * Репозиторий с файлом статистики по указанному пути (например, отдельный файл пользователя)
+     *
+     * @param path путь к файлу статистики
+     */
+    public FileStatsRepository(Path path) {
+        this.path = path;
+    }
 
     /**
      * Загружает статистику из файла в память.
@@ -64,23 +79,24 @@ public class FileStatsRepository implements StatsRepository {
     }
 
     /**
-     * Сохраняет текущее состояние прогресса для переданного списка карточек
+     * Сохраняет прогресс в файл: строка {@code ID|уровень} на карточку
      * <p>
-     * Метод фильтрует только те карточки, которые уже находятся в процессе изучения (не {@code isNew()}).
-     * Новые карточки (уровень 0) не сохраняются, чтобы экономить место, так как 0 - это значение по умолчанию
+     * Новые карточки (уровень 0) не передаются и не сохраняются, чтобы экономить место,
+     * так как 0 - это значение по умолчанию
      * </p>
      *
-     * @param cards список карточек приложения (с актуальными уровнями)
+     * @param levels идентификатор карточки - > уровень (только карточки не в статусе "новая")
      */
     @Override
-    public void saveStats(List<Card> cards) {
-        // список карточек в строку формата CSV (pipe-separated)
-        String content = cards.stream()
-                // сохраняем только карточки, прогресс по которым отличается от начального
-                .filter(c -> !c.isNew())
-                .map(c -> c.getId() + "|" + c.getLevel())
+    public void saveLevels(Map<String, Integer> levels) {
+        // в строку формата CSV (pipe-separated)
+        String content = levels.entrySet().stream()
+                .map(e -> e.getKey() + "|" + e.getValue())
                 .collect(Collectors.joining(System.lineSeparator()));
+        write(content);
+    }
 
+    private void write(String content) {
         try {
             // перезапись файла статистики
             java.nio.file.Files.writeString(path, content);
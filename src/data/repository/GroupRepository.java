@@ -42,10 +42,23 @@ public class GroupRepository {
      */
     private final Map<String, List<String>> groups = new HashMap<>();
 
+    /** Файл структуры групп */
+    private final Path structureFile;
+
     /**
      * Создает репозиторий и пытается загрузить конфигурацию
      */
     public GroupRepository() {
+        this(Paths.get(STRUCTURE_FILE));
+    }
+
+    /**
+     * Создает репозиторий с файлом структуры по указанному пути и пытается загрузить конфигурацию
+     *
+     * @param structureFile файл структуры групп
+     */
+    public GroupRepository(Path structureFile) {
+        this.structureFile = structureFile;
         loadStructure();
     }
 
@@ -59,7 +72,7 @@ public class GroupRepository {
      */
     public void loadStructure() {
         groups.clear();
-        Path path = Paths.get(STRUCTURE_FILE);
+        Path path = structureFile;
 
         // FileService вернет пустой список, если файла нет, не выбрасывая исключение
         List<String> lines = fileService.readAllLines(path);
@@ -37,13 +37,22 @@ public class HistoryRepository {
      * Создаёт репозиторий и инициализирует путь к файлу лога
      */
     public HistoryRepository() {
+        this(Paths.get(HISTORY_FILE));
+    }
+
+    /**
+     * Создаёт репозиторий с журналом в указанном файле (например, отдельный журнал пользователя)
+     *
+     * @param filePath путь к файлу журнала
+     */
+    public HistoryRepository(Path filePath) {
         this.fileService = new FileService() {
             @Override
             public void write(Path path, Iterable<? extends CharSequence> lines, OpenOption... options) {
 
             }
         };
-        this.filePath = Paths.get(HISTORY_FILE);
+        this.filePath = filePath;
     }
 
     /**
@@ -54,6 +63,28 @@ public class HistoryRepository {
      * @param isCorrect результат проверки
      */
     public void saveEntry(String question, String userAnswer, boolean isCorrect) {
+        fileService.appendLine(filePath, formatEntry(question, userAnswer, isCorrect));
+    }
+
+    /**
+     * Дописывает в файл несколько уже сформированных записей ({@link #formatEntry}) за одно открытие.
+     * Для журналов, которые копят записи в памяти и сбрасывают их пачкой
+     *
+     * @param lines строки журнала
+     */
+    public void saveEntries(List<String> lines) {
+        fileService.appendLines(filePath, lines);
+    }
+
+    /**
+     * Строка журнала для ответа (с текущим временем)
+     *
+     * @param question текст вопроса карточки
+     * @param userAnswer текст, который ввел пользователь
+     * @param isCorrect результат проверки
+     * @return строка в формате файла журнала
+     */
+    public String formatEntry(String question, String userAnswer, boolean isCorrect) {
         var date = LocalDateTime.now().format(DNF);
         var result = isCorrect ? "ВЕРНО" : "ОШИБКА";
 
@@ -62,9 +93,7 @@ public class HistoryRepository {
         var safeA = userAnswer.replace("\n", " ").trim();
 
         // формирование строки с разделителями " | "
-        var line = String.format("%s | %s | %s | %s", date, safeQ, safeA, result);
-
-        fileService.appendLine(filePath, line);
+        return String.format("%s | %s | %s | %s", date, safeQ, safeA, result);
     }
 
     /**
@@ -1,8 +1,5 @@
 package data.repository;
 
-import model.Card;
-
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -26,13 +23,13 @@ public interface StatsRepository {
     Map<String, Integer> loadStats();
 
     /**
-     * Сохраняет текущий прогресс обучения для списка карточек.
+     * Сохраняет текущий прогресс обучения (заменяет сохраненный целиком).
      * <p>
-     * Реализация должна пройтись по списку, извлечь из каждой карточки её ID и текущий Level,
-     * и сохранить эту связь
+     * Уровни передаются отдельно от карточек: текущий уровень хранится в снимке сессии,
+     * а не в объектах {@link model.Card}
      * </p>
      *
-     * @param cards список карточек, состояние которых нужно сохранить
+     * @param levels ID карточки - > уровень (только карточки не в статусе "новая")
      */
-    void saveStats(List<Card> cards);
+    void saveLevels(Map<String, Integer> levels);
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package model.dto;
+
+/**
+ * Данные события {@code DATA_UPDATED} (см. {@link util.EventBus.Topic#DATA_UPDATED})
+ * <p>
+ * При слиянии серии событий (окно слияния подписки в {@link util.EventBus}) подписчик получает данные последнего
+ * </p>
+ *
+ * @param kind что изменилось
+ * @param totalCards карточек в сессии после изменения
+ * @param addedCards сколько карточек добавлено (для {@link Kind#MERGE} и {@link Kind#PARTIAL})
+ */
+public record DataUpdate(Kind kind, int totalCards, int addedCards) {
+
+    /** Вид изменения */
+    public enum Kind {
+        /** Сессия перечитана из файлов целиком */
+        RELOAD,
+        /** Поэтапная загрузка: в сессии часть колод, остальные еще читаются (в конце будет {@link #RELOAD}) */
+        PARTIAL,
+        /** В сессию добавлены импортированные карточки */
+        MERGE
+    }
+}
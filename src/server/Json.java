@@ -0,0 +1,286 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Минимальный JSON для API сервера (без внешних библиотек)
+ * <p>
+ * Запись: {@link Map} (объект, порядок ключей сохраняется), {@link Collection} (массив),
+ * {@link String}, {@link Number}, {@link Boolean}, {@code null}.
+ * Чтение: строгий синтаксис JSON (RFC 8259: числа без {@code +} и без точки в начале и конце,
+ * управляющие символы в строках - только через escape); объекты - {@link LinkedHashMap},
+ * массивы - {@link ArrayList}, числа - {@link Double}. Вложенность ограничена {@link #MAX_DEPTH}:
+ * разбор рекурсивный, и глубокий текст из сети иначе переполнил бы стек
+ * </p>
+ */
+public final class Json {
+
+    /** Наибольшая вложенность объектов и массивов при чтении */
+    public static final int MAX_DEPTH = 64;
+
+    /**
+     * Значение в JSON
+     *
+     * @param value значение поддерживаемого типа
+     * @return JSON-текст
+     * @throws IllegalArgumentException если тип не поддерживается
+     */
+    public static String write(Object value) {
+        StringBuilder sb = new StringBuilder();
+        write(sb, value);
+        return sb.toString();
+    }
+
+    /**
+     * Разбирает JSON-объект
+     *
+     * @param text JSON-текст
+     * @return ключи и значения объекта
+     * @throws IllegalArgumentException если текст - не JSON-объект
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parseObject(String text) {
+        Object value = parse(text);
+        if (!(value instanceof Map)) throw new IllegalArgumentException("Ожидался JSON-объект");
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * Разбирает JSON-значение
+     *
+     * @param text JSON-текст
+     * @return значение (см. описание класса)
+     * @throws IllegalArgumentException если текст - не JSON или вложенность больше {@link #MAX_DEPTH}
+     */
+    public static Object parse(String text) {
+        Parser p = new Parser(text);
+        Object value = p.value();
+        p.skipSpaces();
+        if (p.pos != text.length()) throw p.error("лишние символы");
+        return value;
+    }
+
+    private static void write(StringBuilder sb, Object value) {
+        switch (value) {
+            case null -> sb.append("null");
+            case String s -> writeString(sb, s);
+            case Boolean b -> sb.append(b);
+            case Double d when d.isNaN() || d.isInfinite() -> sb.append("null");
+            case Float f when f.isNaN() || f.isInfinite() -> sb.append("null");
+            case Number n -> sb.append(n);
+            case Map<?, ?> map -> {
+                sb.append('{');
+                boolean first = true;
+                for (var entry : map.entrySet()) {
+                    if (!first) sb.append(',');
+                    first = false;
+                    writeString(sb, String.valueOf(entry.getKey()));
+                    sb.append(':');
+                    write(sb, entry.getValue());
+                }
+                sb.append('}');
+            }
+            case Collection<?> list -> {
+                sb.append('[');
+                boolean first = true;
+                for (Object item : list) {
+                    if (!first) sb.append(',');
+                    first = false;
+                    write(sb, item);
+                }
+                sb.append(']');
+            }
+            default -> throw new IllegalArgumentException("Тип не поддерживается: " + value.getClass().getName());
+        }
+    }
+
+    private static void writeString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    /** Рекурсивный разбор */
+    private static final class Parser {
+        private final String s;
+        private int pos;
+
+        /** Текущая вложенность объектов и массивов */
+        private int depth;
+
+        Parser(String s) {
+            this.s = s;
+        }
+
+        Object value() {
+            skipSpaces();
+            if (pos >= s.length()) throw error("неожиданный конец");
+            char c = s.charAt(pos);
+            return switch (c) {
+                case '{' -> object();
+                case '[' -> array();
+                case '"' -> string();
+                case 't' -> literal("true", Boolean.TRUE);
+                case 'f' -> literal("false", Boolean.FALSE);
+                case 'n' -> literal("null", null);
+                default -> number();
+            };
+        }
+
+        private Map<String, Object> object() {
+            enter();
+            Map<String, Object> map = new LinkedHashMap<>();
+            pos++;
+            skipSpaces();
+            if (peek('}')) {
+                depth--;
+                return map;
+            }
+            while (true) {
+                skipSpaces();
+                if (pos >= s.length() || s.charAt(pos) != '"') throw error("ожидался ключ");
+                String key = string();
+                skipSpaces();
+                expect(':');
+                map.put(key, value());
+                skipSpaces();
+                if (peek('}')) {
+                    depth--;
+                    return map;
+                }
+                expect(',');
+            }
+        }
+
+        private List<Object> array() {
+            enter();
+            List<Object> list = new ArrayList<>();
+            pos++;
+            skipSpaces();
+            if (peek(']')) {
+                depth--;
+                return list;
+            }
+            while (true) {
+                list.add(value());
+                skipSpaces();
+                if (peek(']')) {
+                    depth--;
+                    return list;
+                }
+                expect(',');
+            }
+        }
+
+        private void enter() {
+            if (++depth > MAX_DEPTH) throw error("вложенность больше " + MAX_DEPTH);
+        }
+
+        private String string() {
+            pos++;
+            StringBuilder sb = new StringBuilder();
+            while (pos < s.length()) {
+                char c = s.charAt(pos++);
+                if (c == '"') return sb.toString();
+                if (c < 0x20) throw error("управляющий символ в строке");
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= s.length()) break;
+                char e = s.charAt(pos++);
+                switch (e) {
+                    case '"', '\\', '/' -> sb.append(e);
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > s.length()) throw error("неполный \\u");
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(s.charAt(pos++), 16);
+                            if (digit < 0) throw error("неверный \\u");
+                            code = code * 16 + digit;
+                        }
+                        sb.append((char) code);
+                    }
+                    default -> throw error("неверная escape-последовательность");
+                }
+            }
+            throw error("незакрытая строка");
+        }
+
+        /** Число по грамматике JSON: {@code -? (0 | [1-9][0-9]*) (.[0-9]+)? ([eE][+-]?[0-9]+)?} */
+        private Double number() {
+            int start = pos;
+            peek('-');
+            if (!peek('0')) {
+                if (digits() == 0) {
+                    if (start == pos) throw error("неожиданный символ '" + s.charAt(pos) + "'");
+                    throw error("неверное число");
+                }
+            }
+            if (peek('.') && digits() == 0) throw error("неверное число: нет цифр после точки");
+            if (peek('e') || peek('E')) {
+                if (!peek('+')) peek('-');
+                if (digits() == 0) throw error("неверное число: нет цифр в показателе");
+            }
+            return Double.valueOf(s.substring(start, pos));
+        }
+
+        /** Пропускает цифры, возвращает их количество */
+        private int digits() {
+            int start = pos;
+            while (pos < s.length() && s.charAt(pos) >= '0' && s.charAt(pos) <= '9') pos++;
+            return pos - start;
+        }
+
+        private Object literal(String word, Object value) {
+            if (!s.startsWith(word, pos)) throw error("неожиданный символ");
+            pos += word.length();
+            return value;
+        }
+
+        private boolean peek(char c) {
+            if (pos < s.length() && s.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!peek(c)) throw error("ожидался '" + c + "'");
+        }
+
+        /** Пробельные символы JSON: пробел, табуляция, перевод строки, возврат каретки */
+        void skipSpaces() {
+            while (pos < s.length() && " \t\n\r".indexOf(s.charAt(pos)) >= 0) pos++;
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Неверный JSON (позиция " + pos + "): " + message);
+        }
+    }
+
+    private Json() {}
+}
@@ -0,0 +1,327 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import data.repository.*;
+import model.Card;
+import model.dto.StatsRow;
+import service.StudyService;
+import service.session.SessionManager;
+import service.session.SessionPool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serial;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * HTTP API повторения без интерфейса (headless-режим)
+ * <p>
+ * Сервер на {@code com.sun.net.httpserver} из JDK, каждый запрос - в своем виртуальном потоке:
+ * запрос в основном ждет диск и блокировки, тысячи одновременных клиентов не требуют
+ * тысяч потоков ОС. Операции {@link StudyService} доступны в JSON:
+ * </p>
+ * <ul>
+ *     <li>{@code GET /api/categories} - темы (группы и категории)</li>
+ *     <li>{@code GET /api/next?category=...&shuffle=true} - следующая карточка ({@code 204}, если колода пуста)</li>
+ *     <li>{@code POST /api/check} {@code {"answer": "..."}} - оценка ответа без сохранения</li>
+ *     <li>{@code POST /api/submit} {@code {"answer": "...", "correct": true}} - запись результата</li>
+ *     <li>{@code GET /api/stats} - статистика по категориям</li>
+ * </ul>
+ * <p>
+ * Пользователь определяется заголовком {@value #USER_HEADER} (или параметром {@code user}).
+ * Сессии пользователей - в {@link SessionPool}: общий каталог карточек, у каждого свои прогресс
+ * (папка {@code users/<id>/}), тема и текущая карточка; запросы одного пользователя выполняются
+ * по очереди. Ошибки - {@code {"error": "..."}} с кодом 400 / 404 / 405 / 409 / 413
+ * </p>
+ * <p>
+ * Вход из сети ограничен: тело запроса - не больше {@link #MAX_BODY} байт (иначе 413),
+ * вложенность JSON - не больше {@link Json#MAX_DEPTH} (иначе 400)
+ * </p>
+ */
+public final class ReviewServer implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ReviewServer.class.getName());
+
+    /** Заголовок с идентификатором пользователя */
+    public static final String USER_HEADER = "X-User";
+
+    /** Порт по умолчанию ({@code --port} в командной строке) */
+    private static final int DEFAULT_PORT = 8080;
+
+    /** Сколько пользователей держать в памяти ({@code --resident}) */
+    private static final int DEFAULT_RESIDENT = 10_000;
+
+    /** Период записи прогресса на диск */
+    private static final Duration FLUSH_INTERVAL = Duration.ofSeconds(30);
+
+    /** Наибольший размер тела запроса в байтах (ответы API - короткие строки) */
+    static final int MAX_BODY = 64 * 1024;
+
+    private final HttpServer http;
+
+    /** Виртуальный поток на каждый запрос */
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /** Сессии пользователей */
+    private final SessionPool pool;
+
+    /** Ответ с кодом ошибки */
+    private static final class ApiException extends Exception {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /** Обработчик операции: тело ответа (JSON-значение) или {@code null} для {@code 204} */
+    @FunctionalInterface
+    private interface Operation {
+        Object apply(StudyService service, Map<String, String> query, Map<String, Object> body) throws ApiException;
+    }
+
+    /**
+     * Создает сервер (не запущен, см. {@link #start()})
+     *
+     * @param pool сессии пользователей (закрывает вызывающий)
+     * @param address адрес; порт {@code 0} - любой свободный ({@link #getPort()})
+     * @throws IOException если порт занят
+     */
+    public ReviewServer(SessionPool pool, InetSocketAddress address) throws IOException {
+        this.pool = pool;
+        this.http = HttpServer.create(address, 0);
+        http.setExecutor(executor);
+
+        route("/api/categories", "GET", this::categories);
+        route("/api/next", "GET", this::next);
+        route("/api/check", "POST", this::check);
+        route("/api/submit", "POST", this::submit);
+        route("/api/stats", "GET", this::stats);
+    }
+
+    /** Начинает принимать запросы */
+    public void start() {
+        http.start();
+        LOGGER.info("HTTP API запущен на порту " + getPort());
+    }
+
+    /** Фактический порт сервера */
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    /**
+     * Останавливает прием запросов и ждет завершения текущих
+     */
+    @Override
+    public void close() {
+        http.stop(0);
+        executor.close();
+        LOGGER.info("HTTP API остановлен");
+    }
+
+    private Object categories(StudyService service, Map<String, String> query, Map<String, Object> body) {
+        return service.getAvailableCategories();
+    }
+
+    private Object next(StudyService service, Map<String, String> query, Map<String, Object> body) {
+        // та же тема - колода не пересобирается
+        service.setFilter(query.get("category"));
+        Card card = service.nextCard(Boolean.parseBoolean(query.get("shuffle")));
+        if (card == null) return null;
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", card.getId());
+        json.put("category", card.getCategory());
+        json.put("question", card.getQuestion());
+        json.put("level", service.levelOf(card));
+        json.put("new", service.isNewCard(card));
+        return json;
+    }
+
+    private Object check(StudyService service, Map<String, String> query, Map<String, Object> body) throws ApiException {
+        Card card = requireCard(service);
+        StudyService.GradingResult result = service.checkAnswer(stringField(body, "answer"));
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("score", result.score());
+        json.put("passed", result.passed());
+        json.put("answer", card.getAnswer());
+        return json;
+    }
+
+    private Object submit(StudyService service, Map<String, String> query, Map<String, Object> body) throws ApiException {
+        Card card = requireCard(service);
+        String answer = stringField(body, "answer");
+        if (!(body.get("correct") instanceof Boolean correct)) {
+            throw new ApiException(400, "Поле 'correct' обязательно (true / false)");
+        }
+        service.submitResult(answer, correct);
+        return Map.of("level", service.levelOf(card));
+    }
+
+    private Object stats(StudyService service, Map<String, String> query, Map<String, Object> body) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (StatsRow row : service.getStatistics()) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("category", row.getCategory());
+            json.put("total", row.getTotal());
+            json.put("new", row.getNewCards());
+            json.put("learning", row.getLearning());
+            json.put("master", row.getMaster());
+            rows.add(json);
+        }
+        return rows;
+    }
+
+    private static Card requireCard(StudyService service) throws ApiException {
+        Card card = service.getCurrentCard();
+        if (card == null) throw new ApiException(409, "Нет текущей карточки: сначала GET /api/next");
+        return card;
+    }
+
+    private static String stringField(Map<String, Object> body, String name) throws ApiException {
+        Object value = body.get(name);
+        if (value == null) return "";
+        if (!(value instanceof String s)) throw new ApiException(400, "Поле '" + name + "' должно быть строкой");
+        return s;
+    }
+
+    private void route(String path, String method, Operation operation) {
+        http.createContext(path, exchange -> {
+            try (exchange) {
+                handle(exchange, path, method, operation);
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Клиент отключился: " + path, e);
+            }
+        });
+    }
+
+    private void handle(HttpExchange exchange, String path, String method, Operation operation) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        try {
+            // createContext сопоставляет по префиксу
+            if (!exchange.getRequestURI().getPath().equals(path)) throw new ApiException(404, "Нет такого метода");
+            if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+                exchange.getResponseHeaders().set("Allow", method);
+                throw new ApiException(405, "Ожидался " + method);
+            }
+            String user = user(exchange, query);
+            Map<String, Object> body = method.equals("POST") ? readBody(exchange) : Map.of();
+
+            Object result = pool.withSession(user, service -> operation.apply(service, query, body));
+            if (result == null) {
+                exchange.sendResponseHeaders(204, -1);
+            } else {
+                send(exchange, 200, result);
+            }
+        } catch (ApiException e) {
+            send(exchange, e.status, Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Ошибка обработки " + path, e);
+            send(exchange, 500, Map.of("error", "Внутренняя ошибка сервера"));
+        }
+    }
+
+    private static String user(HttpExchange exchange, Map<String, String> query) throws ApiException {
+        String user = exchange.getRequestHeaders().getFirst(USER_HEADER);
+        if (user == null) user = query.get("user");
+        if (!SessionPool.isValidUserId(user)) {
+            throw new ApiException(400, "Нужен идентификатор пользователя: заголовок " + USER_HEADER
+                    + " (латиница, цифры, '_', '.', '-', до 64 символов, не с точки)");
+        }
+        return user;
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException, ApiException {
+        String text;
+        try (InputStream in = exchange.getRequestBody()) {
+            // не больше лимита плюс один байт - чтобы отличить тело ровно в лимит от большего
+            byte[] bytes = in.readNBytes(MAX_BODY + 1);
+            if (bytes.length > MAX_BODY) {
+                throw new ApiException(413, "Тело запроса больше " + MAX_BODY + " байт");
+            }
+            text = new String(bytes, StandardCharsets.UTF_8);
+        }
+        if (text.isBlank()) return Map.of();
+        try {
+            return Json.parseObject(text);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, e.getMessage());
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, Object value) throws IOException {
+        byte[] bytes = Json.write(value).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return query;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    /**
+     * Запуск сервера без интерфейса: {@code java server.ReviewServer [--port N] [--resident N]}
+     */
+    static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int resident = DEFAULT_RESIDENT;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--port")) port = Integer.parseInt(args[i + 1]);
+            if (args[i].equals("--resident")) resident = Integer.parseInt(args[i + 1]);
+        }
+
+        LOGGER.info("<<<<<< ЗАПУСК HTTP API >>>>>>");
+        // каталог: колоды без прогресса, прогресс - у каждого пользователя свой (users/<id>/)
+        SessionManager sessionManager = new SessionManager(new FileDeckRepository(), new StatsRepository() {
+            @Override
+            public Map<String, Integer> loadStats() {
+                return Map.of();
+            }
+
+            @Override
+            public void saveLevels(Map<String, Integer> levels) {
+                // у каталога нет своего прогресса
+            }
+        }, new HistoryRepository(), new GroupRepository());
+        sessionManager.reload();
+
+        SessionPool pool = new SessionPool(sessionManager, Paths.get("users"), resident, FLUSH_INTERVAL);
+        ReviewServer server = new ReviewServer(pool, new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            pool.close();
+        }));
+        server.start();
+    }
+}
@@ -0,0 +1,131 @@
+package service;
+
+import model.Card;
+import service.StudyService.GradingResult;
+import service.session.SessionManager;
+import service.session.SessionSnapshot;
+
+import java.io.Serial;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Logger;
+
+/**
+ * Пакетная проверка ответов
+ * <p>
+ * Проверяет сразу много пар (карточка, ответ пользователя) параллельно на {@link ForkJoinPool}.
+ * Используется для повторной проверки всей истории ответов (после настройки алгоритма оценки)
+ * и для проверки больших листов ответов
+ * </p>
+ * <p>
+ * Эталонные ответы берутся из общего кеша токенов сессии ({@link SessionSnapshot#answerTokensOf}),
+ * поэтому карточка, встречающаяся в пакете много раз, разбирается один раз, а повторяющиеся пары
+ * берутся из общего кеша оценок ({@link service.grading.GradingCache}).
+ * Оценка и порог зачета те же, что и при обычной проверке ({@link GradingService})
+ * </p>
+ */
+public class BatchGradingService {
+    private static final Logger LOGGER = Logger.getLogger(BatchGradingService.class.getName());
+
+    /** Размер порции, которую поток проверяет без дальнейшего деления */
+    private static final int CHUNK_SIZE = 64;
+
+    private final SessionManager sessionManager;
+    private final GradingService gradingService;
+    private final ForkJoinPool pool;
+
+    /**
+     * Сервис на общем пуле {@link ForkJoinPool#commonPool()}
+     *
+     * @param sessionManager менеджер сессии (источник токенов эталонов)
+     */
+    public BatchGradingService(SessionManager sessionManager) {
+        this(sessionManager, new GradingService(sessionManager.getGradingCache()), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param sessionManager менеджер сессии (источник токенов эталонов)
+     * @param gradingService алгоритм оценки
+     * @param pool пул, на котором выполняется проверка
+     */
+    public BatchGradingService(SessionManager sessionManager, GradingService gradingService, ForkJoinPool pool) {
+        this.sessionManager = sessionManager;
+        this.gradingService = gradingService;
+        this.pool = pool;
+    }
+
+    /**
+     * Проверяет пакет ответов
+     *
+     * @param submissions пары (карточка, ответ пользователя)
+     * @return результаты в том же порядке, что и ответы
+     */
+    public List<GradingResult> gradeAll(List<Submission> submissions) {
+        GradingResult[] results = new GradingResult[submissions.size()];
+        if (results.length == 0) return List.of();
+
+        long start = System.nanoTime();
+        pool.invoke(new GradeTask(submissions, results, 0, results.length));
+        LOGGER.info(String.format("Пакетная проверка: %d ответов за %d мс",
+                results.length, (System.nanoTime() - start) / 1_000_000));
+        return List.of(results);
+    }
+
+    /**
+     * Проверка одного ответа (выполняется в потоках пула)
+     */
+    private GradingResult grade(Submission submission) {
+        Card card = submission.card();
+        if (card == null) return new GradingResult(0, false);
+
+        // токены и словарь - из одного снимка сессии
+        SessionSnapshot session = sessionManager.getSnapshot();
+        double score = gradingService.calculateSimilarity(card.getId(),
+                submission.userAnswer(), session.answerTokensOf(card), session.getVocabulary());
+        return new GradingResult(score, GradingService.isPassed(score));
+    }
+
+    /**
+     * Задача Fork/Join: делит диапазон пополам, пока он больше {@link #CHUNK_SIZE}
+     */
+    private final class GradeTask extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        // задача не сериализуется (RecursiveAction - Serializable только формально)
+        private final transient List<Submission> submissions;
+        private final transient GradingResult[] results;
+        private final int from;
+        private final int to;
+
+        GradeTask(List<Submission> submissions, GradingResult[] results, int from, int to) {
+            this.submissions = submissions;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                for (int i = from; i < to; i++) {
+                    results[i] = grade(submissions.get(i));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new GradeTask(submissions, results, from, mid),
+                    new GradeTask(submissions, results, mid, to));
+        }
+    }
+
+    /**
+     * Ответ для проверки
+     *
+     * @param card карточка (эталон)
+     * @param userAnswer текст ответа пользователя
+     */
+    public record Submission(Card card, String userAnswer) {
+    }
+}
@@ -0,0 +1,215 @@
+package service;
+
+import data.FileService;
+import model.Card;
+import service.importer.CsvFormat;
+import service.importer.CsvReader;
+import service.importer.DeckEntries;
+import service.importer.ImportListener;
+import service.importer.ImportSink;
+import service.importer.NearDuplicateFilter;
+import service.importer.ProgressReporter;
+import util.CardFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Сервис массового импорта карточек из CSV/TSV (выгрузки таблиц, других программ карточек)
+ * <p>
+ * Дополняет {@link ImportService}: та же проверка дубликатов (точных и похожих), та же раскладка
+ * по файлам {@code decks/[CATEGORY].txt} ({@link ImportSink}) и то же добавление в текущую сессию.
+ * Колонки задаются {@link CsvFormat}
+ * </p>
+ * <p>
+ * Файл читается потоково ({@link FileService#openChannelReader}, {@link CsvReader}): в памяти -
+ * только текущая запись, поэтому файлы на миллионы строк импортируются в постоянной памяти
+ * (кроме отпечатков добавленных вопросов и самих новых карточек, которые попадают в сессию)
+ * </p>
+ */
+public record CsvImportService(StudyService studyService, FileService fileService) {
+    private static final Logger LOGGER = Logger.getLogger(CsvImportService.class.getName());
+
+    /**
+     * Целевая директория, куда будут разложены новые карточки
+     */
+    private static final String DECKS_DIR = "decks";
+
+    /**
+     * Суффикс файла отклоненных записей (рядом с исходным файлом)
+     */
+    private static final String REJECTED_SUFFIX = ".rejected";
+
+    /**
+     * Конструктор с внедрением зависимостей
+     *
+     * @param studyService проверка дубликатов и добавление новых карточек в сессию
+     * @param fileService работа с файловой системой
+     */
+    public CsvImportService {
+    }
+
+    /**
+     * Импортирует карточки из CSV/TSV файла
+     * <p>
+     * Исходный файл не изменяется (в отличие от {@code import.txt} - это обычно чужая выгрузка).
+     * Записи, из которых не получилась карточка (нет вопроса, ответа или категории, текст ломает
+     * разметку колоды, незакрытая кавычка), пишутся в {@code <файл>.rejected} в том же формате,
+     * с заголовком, если он был. Повторный импорт того же файла пропустит уже добавленное как дубликаты
+     * </p>
+     *
+     * @param csvPath файл для импорта
+     * @param format разделитель и колонки
+     * @return текстовый отчет о результатах (сколько добавлено, пропущено, ошибок)
+     */
+    public String performImport(Path csvPath, CsvFormat format) {
+        return performImport(csvPath, format, ImportListener.NONE);
+    }
+
+    /**
+     * Импорт с отчетами о ходе и возможностью отмены (для запуска в фоновом потоке)
+     * <p>
+     * После отмены остаток файла не читается; добавленные до отмены карточки остаются
+     * в колодах и попадают в сессию. Исходный файл не меняется, поэтому повторный импорт
+     * продолжит с места остановки (уже добавленное пропустится как дубликаты)
+     * </p>
+     *
+     * @param listener наблюдатель (вызывается из потока импорта)
+     * @see #performImport(Path, CsvFormat)
+     */
+    public String performImport(Path csvPath, CsvFormat format, ImportListener listener) {
+        long size = fileService.size(csvPath);
+        if (size < 0) return "Файл " + csvPath.getFileName() + " не найден";
+
+        fileService.ensureDirectory(Paths.get(DECKS_DIR));
+        Path rejectedPath = csvPath.resolveSibling(csvPath.getFileName() + REJECTED_SUFFIX);
+
+        NearDuplicateFilter near = new NearDuplicateFilter(studyService.getNearDuplicatePolicy(),
+                studyService::findNearDuplicate);
+
+        List<Card> imported = new ArrayList<>();
+        ImportSink sink = new ImportSink(fileService, Paths.get(DECKS_DIR),
+                studyService::containsQuestion, near, imported::add);
+        Writer rejected = null;
+        int errors = 0;
+        long processed = 0;
+        boolean cancelled = false;
+        try (CsvReader csv = new CsvReader(fileService.openChannelReader(csvPath), format.delimiter())) {
+            List<String> header = format.header() ? csv.next() : null;
+            if (format.header() && header == null) return "Файл " + csvPath.getFileName() + " пуст";
+
+            CsvFormat.Columns columns;
+            try {
+                columns = format.resolve(header);
+            } catch (IllegalArgumentException e) {
+                return "Ошибка импорта: " + e.getMessage();
+            }
+
+            ProgressReporter progress = new ProgressReporter(listener, size);
+            for (List<String> record = csv.next(); record != null; record = csv.next()) {
+                if (progress.isCancelled()) {
+                    cancelled = true;
+                    break;
+                }
+                processed++;
+                Card card = csv.isMalformed() ? null : toCard(record, columns, format);
+                if (card == null) {
+                    LOGGER.warning(String.format("Запись со строки %d не импортирована: %s",
+                            csv.getRecordLine(), preview(record)));
+                    if (rejected == null) {
+                        rejected = fileService.openWriter(rejectedPath, false);
+                        if (header != null) writeRecord(rejected, header, format.delimiter());
+                    }
+                    writeRecord(rejected, record, format.delimiter());
+                    errors++;
+                } else {
+                    sink.accept(card);
+                }
+                progress.report(processed, sink.getAdded(), sink.getSkipped(), errors, csv.getBytesRead(), false);
+            }
+            sink.close();
+            progress.report(processed, sink.getAdded(), sink.getSkipped(), errors, csv.getBytesRead(), true);
+            if (rejected != null) rejected.close();
+        } catch (IOException | UncheckedIOException e) {
+            // неизвестно, какие карточки дошли до диска - сессия перечитывается целиком
+            LOGGER.severe("Ошибка импорта " + csvPath + ": " + e.getMessage());
+            sink.closeQuietly();
+            closeQuietly(rejected);
+            studyService.reloadSession();
+            return "Ошибка импорта: " + e.getMessage();
+        }
+
+        // новые карточки - сразу в сессию, без перечитывания всех колод
+        studyService.mergeImportedCards(imported);
+
+        String report = String.format("%s\nДобавлено: %d\nПропущено (дубликаты): %d\nОшибок: %d",
+                cancelled ? "Импорт отменен (остаток файла не обработан)." : "Импорт завершен.",
+                sink.getAdded(), sink.getSkipped(), errors);
+        if (errors > 0) report += " (сохранены в " + rejectedPath.getFileName() + ")";
+        if (sink.getFlagged() > 0) {
+            report += String.format("\nИз них с похожими вопросами (см. лог): %d", sink.getFlagged());
+        }
+        return report;
+    }
+
+    /**
+     * Карточка из записи файла (те же правила, что и для блока {@code import.txt}:
+     * обязательны категория, вопрос и ответ; с ID - восстановление, без - новая карточка)
+     *
+     * @return карточка или {@code null}, если запись невалидна
+     */
+    static Card toCard(List<String> record, CsvFormat.Columns columns, CsvFormat format) {
+        String question = CsvFormat.Columns.value(record, columns.question());
+        String answer = CsvFormat.Columns.value(record, columns.answer());
+        String category = CsvFormat.Columns.value(record, columns.category());
+        if (category.isEmpty() && format.defaultCategory() != null) category = format.defaultCategory().trim();
+        String id = CsvFormat.Columns.value(record, columns.id());
+
+        if (question.isEmpty() || answer.isEmpty() || category.isEmpty()) return null;
+        // текст, который разбор колоды прочитает иначе, чем он записан
+        if (!DeckEntries.fits(question, true) || !DeckEntries.fits(answer, true)
+                || !DeckEntries.fits(category, false) || !DeckEntries.fits(id, false)) {
+            return null;
+        }
+
+        return id.isEmpty()
+                ? CardFactory.createNew(category, question, answer, "import_temp")
+                : CardFactory.restore(id, category, question, answer, "import_temp");
+    }
+
+    /** Запись обратно в CSV (кавычки - только где нужно) */
+    private static void writeRecord(Writer w, List<String> record, char delimiter) throws IOException {
+        for (int i = 0; i < record.size(); i++) {
+            if (i > 0) w.write(delimiter);
+            String v = record.get(i);
+            if (v.indexOf(delimiter) >= 0 || v.indexOf('"') >= 0 || v.indexOf('\n') >= 0 || v.indexOf('\r') >= 0) {
+                w.write('"');
+                w.write(v.replace("\"", "\"\""));
+                w.write('"');
+            } else {
+                w.write(v);
+            }
+        }
+        DeckEntries.writeLine(w, "");
+    }
+
+    private static String preview(List<String> record) {
+        String s = String.join(" | ", record).replace('\n', ' ');
+        return s.length() > 120 ? s.substring(0, 120) + "..." : s;
+    }
+
+    private static void closeQuietly(Writer w) {
+        if (w == null) return;
+        try {
+            w.close();
+        } catch (IOException e) {
+            LOGGER.warning("Не удалось закрыть файл отклоненных записей: " + e.getMessage());
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package service;
 
+import service.grading.EditDistance;
+import service.grading.GradingCache;
+import service.grading.TokenMatcher;
+import service.grading.TokenVocabulary;
 import util.TextUtil;
+import util.TokenBuffer;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -13,12 +17,46 @@ import java.util.List;
  * <ul>
  *     <li>Игнорирует регистр и знаки препинания (через {@link TextUtil})</li>
  *     <li>Игнорирует порядок слов (подход "Bag of Words")</li>
- *     <li>Прощает мелкие опечатки (используя расстояние Левенштейна)</li>
+ *     <li>Прощает мелкие опечатки (используя ограниченное расстояние Левенштейна, {@link EditDistance})</li>
  * </ul>
  * </p>
+ * <p>
+ * Может работать с {@link GradingCache}: повторная проверка того же ответа для той же карточки
+ * берет готовую оценку
+ * </p>
  */
 public class GradingService {
 
+    /** Буфер токенов ответа пользователя на поток (для проверки с кешем) */
+    private static final ThreadLocal<TokenBuffer> BUFFER = ThreadLocal.withInitial(TokenBuffer::new);
+
+    /** Кеш оценок ({@code null} - без кеша) */
+    private final GradingCache cache;
+
+    /** Сервис без кеша */
+    public GradingService() {
+        this(null);
+    }
+
+    /**
+     * @param cache кеш оценок (может быть {@code null})
+     */
+    public GradingService(GradingCache cache) {
+        this.cache = cache;
+    }
+
+    /** Порог зачета: ответ засчитывается, если сходство строго больше 65% */
+    public static final double PASS_THRESHOLD = 65.0;
+
+    /**
+     * Зачтен ли ответ с таким процентом сходства
+     *
+     * @param score процент сходства (0.0 - 100.0)
+     */
+    public static boolean isPassed(double score) {
+        return score > PASS_THRESHOLD;
+    }
+
     /**
      * Вычисляет процент сходства между ответом пользователя и эталоном.
      *
@@ -30,83 +68,81 @@ public class GradingService {
         if (correctRaw == null || userRaw == null) return 0.0;
 
         // токенизация: разбиваем на слова, чистим от мусора, приводим к нижнему регистру
-        List<String> userTokens = TextUtil.tokenize(userRaw);
-        List<String> correctTokens = TextUtil.tokenize(correctRaw);
+        return calculateSimilarity(userRaw, TextUtil.tokenize(correctRaw));
+    }
 
+    /**
+     * Вычисляет процент сходства с заранее разобранным эталоном.
+     * Токенизируется только ответ пользователя
+     *
+     * @param userRaw ответ пользователя
+     * @param correctTokens токены правильного ответа (см. {@link TextUtil#tokenize})
+     * @return число от 0.0 до 100.0 (процент совпадения)
+     */
+    public double calculateSimilarity(String userRaw, List<String> correctTokens){
+        if (correctTokens == null || userRaw == null) return 0.0;
         if (correctTokens.isEmpty()) return 0.0;
 
-        int matches = 0;
-        // создаем изменяемый пул слов пользователя, чтобы одно слово не засчитывалось дважды
-        List<String> userPool = new ArrayList<>(userTokens);
-
-        // жадный поиск совпадений
-        for (String correctWord : correctTokens){
-            for (int i = 0; i < userPool.size(); i++){
-                String userWord = userPool.get(i);
-
-                // сравниваем слова с учетом допустимых опечаток
-                if (isSimilar(correctWord, userWord)){
-                    matches++;
-                    // удаляем использованное слово, уникальность
-                    userPool.remove(i);
-                    break;
-                }
-            }
-        }
+        List<String> userTokens = TextUtil.tokenize(userRaw);
+
+        // точные совпадения через мультимножество, затем нечеткие - только по остаткам
+        int matches = TokenMatcher.countMatches(correctTokens, userTokens);
 
         // расчет процента: (совпавшие / всего) * 100
         return (double) matches / correctTokens.size() * 100.0;
     }
 
     /**
-     * Проверяет, являются ли два слова "похожими".
-     * Использует эвристику на основе длины слова
+     * Вычисляет процент сходства с эталоном, закодированным номерами словаря.
+     * <p>
+     * Слова пользователя сначала сравниваются с эталоном по номерам,
+     * расстояние Левенштейна считается только для несовпавших
+     * </p>
+     *
+     * @param userRaw ответ пользователя
+     * @param correctIds номера токенов правильного ответа
+     * @param vocabulary словарь, которым закодирован эталон
+     * @return число от 0.0 до 100.0 (процент совпадения)
      */
-    private boolean isSimilar(String a, String b){
-        // полное совпадение
-        if (a.equals(b)) return true;
+    public double calculateSimilarity(String userRaw, int[] correctIds, TokenVocabulary vocabulary){
+        if (correctIds == null || userRaw == null) return 0.0;
+        if (correctIds.length == 0) return 0.0;
 
-        // оптимизация: если разница в длине > 2, то слова точно разные
-        if (Math.abs(a.length() - b.length()) > 2) return false;
-
-        // адаптивный порог ошибок:
-        // для длинных слов (> 6 букв) допускаем 2 ошибки / опечатки
-        // для коротких слов - только 1 ошибку
-        int limit = a.length() > 6 ? 2 : 1;
+        List<String> userTokens = TextUtil.tokenize(userRaw);
+        int matches = TokenMatcher.countMatches(correctIds, userTokens, vocabulary);
 
-        return levenstein(a, b) <= limit;
+        return (double) matches / correctIds.length * 100.0;
     }
 
     /**
-     * Алгоритм Расстояния Левенштейна (Levenshtein Distance)
+     * Вычисляет процент сходства с эталоном карточки через кеш оценок.
      * <p>
-     * Вычисляет минимальное количество операций (вставка, удаление, замена символа),
-     * необходимых для превращения одной строки в другую
-     * Реализовано через Динамическое Программирование (матрица {@code dp})
+     * Ключ кеша - ID карточки и отпечаток токенов ответа, поэтому ответы, отличающиеся только
+     * регистром, пунктуацией или стоп-словами, считаются один раз
      * </p>
      *
-     * @return Количество правок (int)
+     * @param cardId ID карточки (без ID кеш не используется)
+     * @param userRaw ответ пользователя
+     * @param correctIds номера токенов правильного ответа
+     * @param vocabulary словарь, которым закодирован эталон
+     * @return число от 0.0 до 100.0 (процент совпадения)
      */
-    private int levenstein(String a, String b){
-        int[][] dp = new int[a.length() + 1][b.length() + 1];
-
-        // первоя строка и первого столбца
-        for (int i = 0; i <= a.length(); i++) dp[i][0] = i;
-        for (int j = 0; j <= b.length(); j++) dp[0][j] = j;
-
-        // заполнение матрицы
-        for (int i = 1; i <= a.length(); i++){
-            for (int j = 1; j <= b.length(); j++){
-                // буквы равны, стоимость замены = 0, иначе = 1
-                int cost = (a.charAt(i - 1) == b.charAt(j - 1)) ? 0 : 1;
-
-                dp[i][j] = Math.min(
-                        Math.min(dp[i - 1][j] + 1, // удаление
-                                dp[i][j - 1] + 1), // вставка
-                        dp[i - 1][j - 1] + cost // замена
-                );
-            }
-        }
-        return dp[a.length()][b.length()];
+    public double calculateSimilarity(String cardId, String userRaw, int[] correctIds, TokenVocabulary vocabulary){
+        if (cache == null || cardId == null) return calculateSimilarity(userRaw, correctIds, vocabulary);
+        if (correctIds == null || userRaw == null) return 0.0;
+        if (correctIds.length == 0) return 0.0;
+
+        TokenBuffer buffer = BUFFER.get();
+        TextUtil.tokenize(userRaw, buffer);
+        long fingerprint = buffer.fingerprint();
+        long reference = vocabulary.fingerprint(correctIds);
+
+        double cached = cache.get(cardId, reference, fingerprint);
+        if (!Double.isNaN(cached)) return cached;
+
+        int matches = TokenMatcher.countMatches(correctIds, buffer.toList(), vocabulary);
+        double score = (double) matches / correctIds.length * 100.0;
+        cache.put(cardId, reference, fingerprint, score);
+        return score;
     }
-}
\ No newline at end of file
+}
@@ -2,13 +2,24 @@ package service;
 
 import data.FileService;
 import model.Card;
+import service.importer.BlockReader;
+import service.importer.DeckEntries;
+import service.importer.ImportListener;
+import service.importer.ImportPipeline;
+import service.importer.ImportSink;
+import service.importer.NearDuplicateFilter;
+import service.importer.ProgressReporter;
 import util.CardParser;
-import util.TextUtil;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.Files;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -19,6 +30,10 @@ import java.util.stream.Collectors;
  * Разберет их, проверит на дубликаты и разложит по нужным файлам
  * в папке {@code decks/}, основываясь на поле {@code CATEGORY}
  * </p>
+ * <p>
+ * Два режима с одинаковым результатом: последовательный (один поток) и конвейерный
+ * ({@link ImportPipeline}: разбор в пуле потоков, запись колод параллельно)
+ * </p>
  */
 public record ImportService(StudyService studyService, FileService fileService) {
     private static final Logger LOGGER = Logger.getLogger(ImportService.class.getName());
@@ -33,10 +48,15 @@ public record ImportService(StudyService studyService, FileService fileService)
      */
     private static final String DECKS_DIR = "decks";
 
+    /**
+     * Суффикс временного файла отклоненных блоков (рядом с {@code import.txt})
+     */
+    private static final String SPILL_SUFFIX = ".rejected";
+
     /**
      * Конструктор с внедрением зависимостей
      *
-     * @param studyService перезагрузка сессии после импорта и проверки дубликатов
+     * @param studyService проверка дубликатов и добавление новых карточек в сессию
      * @param fileService работа с файловой системой
      */
     public ImportService {
@@ -45,119 +65,212 @@ public record ImportService(StudyService studyService, FileService fileService)
     /**
      * Выполняет процедуру импорта.
      * <p>
-     * Алгоритм работы:
+     * Алгоритм работы (потоковый: память не зависит от размера {@code import.txt}):
      * <ol>
-     *     <li>Считывает все карточки из {@code import.txt}</li>
-     *     <li>Загружает текущие карточки приложения для проверки на дубликаты</li>
-     *     <li>Проходит по блокам из файла импорта:
+     *     <li>Дубликаты проверяются по индексу текущей сессии ({@link StudyService#containsQuestion}),
+     *     без перезагрузки и повторного хеширования всех карточек</li>
+     *     <li>Читает {@code import.txt} построчно, в памяти держится только текущий блок:
      *         <ul>
-     *             <li>Если блок некорректен (ошибка парсинга) - оставляет его в списке {@code linesToKeep}</li>
+     *             <li>Если блок некорректен (ошибка парсинга) - он сразу пишется во временный файл
+     *             отклоненных блоков ({@code import.txt.rejected})</li>
      *             <li>Если это дубликат - пропускает (считает как {@code skipped})</li>
-     *             <li>Если карточка валидна и уникальна - записывает её (append)
-     *             в соответствующий файл {@code decks/[CATEGORY].txt}</li>
+     *             <li>Если есть похожий вопрос (в сессии или выше по файлу) - пропускает
+     *             или добавляет с предупреждением, в зависимости от
+     *             {@link service.session.NearDuplicatePolicy}</li>
+     *             <li>Если карточка валидна и уникальна - записывает её в соответствующий файл
+     *             {@code decks/[CATEGORY].txt}. Файлы колод остаются открытыми (буферизованными)
+     *             до конца импорта, а не открываются заново на каждую карточку</li>
      *         </ul>
      *     </li>
-     *     <li>Перезаписывает файл {@code import.txt}, оставляя в нем только те блоки,
-     *     которые НЕ удалось импортировать (ошибки). Успешные удаляются</li>
-     *     <li>Перезагружает сессию {@code studyService}, чтобы новые карты появились в интерфейсе</li>
+     *     <li>Заменяет {@code import.txt} файлом отклоненных блоков (или очищает, если ошибок нет).
+     *     Успешные блоки удаляются</li>
+     *     <li>Добавляет новые карточки в текущую сессию ({@link StudyService#mergeImportedCards}):
+     *     остальные колоды не перечитываются и не перезаписываются, интерфейс получает
+     *     одно событие {@code DATA_UPDATED}. Время импорта зависит от размера импорта,
+     *     а не от размера коллекции</li>
      * </ol>
      * </p>
      *
      * @return текстовый отчет о результатах (сколько добавлено, пропущено, ошибок)
      */
     public String performImport() {
-        // актуализируем данные перед проверкой дубликатов
-        studyService.reloadSession();
+        return performImport(1);
+    }
 
+    /**
+     * Выполняет импорт в указанное число потоков разбора
+     * <p>
+     * При {@code workers > 1} используется {@link ImportPipeline}. Итоги, содержимое колод
+     * и порядок карточек в них те же, что и у последовательного {@link #performImport()}
+     * </p>
+     *
+     * @param workers количество потоков разбора (1 - последовательный импорт)
+     * @return текстовый отчет о результатах (сколько добавлено, пропущено, ошибок)
+     */
+    public String performImport(int workers) {
+        return performImport(workers, ImportListener.NONE);
+    }
+
+    /**
+     * Выполняет импорт с отчетами о ходе и возможностью отмены (для запуска в фоновом потоке)
+     * <p>
+     * Отмена ({@link ImportListener#isCancelled()}) проверяется перед каждым блоком. Файлы остаются
+     * согласованными: обработанные блоки записаны в колоды и удалены из {@code import.txt}
+     * (как при полном импорте), необработанные остаются в {@code import.txt} вместе с ошибочными,
+     * добавленные карточки попадают в сессию
+     * </p>
+     *
+     * @param workers количество потоков разбора (1 - последовательный импорт)
+     * @param listener наблюдатель (вызывается из потока импорта)
+     * @return текстовый отчет о результатах (сколько добавлено, пропущено, ошибок)
+     */
+    public String performImport(int workers, ImportListener listener) {
         Path importPath = Paths.get(IMPORT_FILE);
-        if (!Files.exists(importPath)) return "Файл import.txt не найден";
-
-        List<String> lines = fileService.readAllLines(importPath);
-        if (lines.isEmpty()) return "Файл import.txt пуст";
-
-        // хеш-сет существующих вопросов для быстрой O(1) проверки на дубликаты
-        Set<String> existingContentHashes = new HashSet<>();
-        studyService.getAllCards().forEach(c ->
-                existingContentHashes.add(TextUtil.normalizeForId(c.getQuestion()))
-        );
-
-        List<String> linesToKeep = new ArrayList<>(); // блоки с ошибками, чтобы вернуть их в файл
-        List<String> currentBlock = new ArrayList<>(); // буфер текущей карточки
-
-        int added = 0;
-        int skipped = 0;
-        int errors = 0;
-
-        // парсинг файла построчно
-        for (String line : lines) {
-            if (line.trim().equals("===")) {
-                // конец блока
-                if (!currentBlock.isEmpty()) {
-                    int res = processBlock(currentBlock, existingContentHashes);
-                    if (res == 1) {
-                        added++; // успех, блок не сохраняем в linesToKeep (удаляем из файла)
-                    } else if (res == 2) {
-                        skipped++; // дубликат, тоже удаляем из файла ( дубликат в импорте не нужон)
-                    } else {
-                        // ошибка парсинга (0). Сохраняем блок обратно в файл, для исправления
-                        linesToKeep.addAll(currentBlock);
-                        linesToKeep.add("===");
-                        errors++;
+        long size = fileService.size(importPath);
+        if (size < 0) return "Файл import.txt не найден";
+
+        // дубликаты ищутся в индексе сессии (O(1) по отпечатку вопроса)
+        LongPredicate existing = studyService::containsQuestion;
+
+        fileService.ensureDirectory(Paths.get(DECKS_DIR));
+        Path spillPath = importPath.resolveSibling(IMPORT_FILE + SPILL_SUFFIX);
+
+        NearDuplicateFilter near = new NearDuplicateFilter(studyService.getNearDuplicatePolicy(),
+                studyService::findNearDuplicate);
+
+        List<Card> imported = new ArrayList<>();
+        ImportRun run = new ImportRun(existing, near, spillPath, imported::add);
+        ImportPipeline.Result result;
+        try (BufferedReader reader = fileService.openReader(importPath)) {
+            BlockReader blocks = new BlockReader(reader);
+            blocks.peek();
+            if (blocks.getLinesRead() == 0) return "Файл import.txt пуст";
+            ProgressReporter progress = new ProgressReporter(listener, size);
+
+            if (workers > 1) {
+                result = new ImportPipeline(fileService, Paths.get(DECKS_DIR), spillPath, workers)
+                        .run(blocks, existing, near, imported::add, progress);
+            } else {
+                // парсинг файла поблочно
+                for (BlockReader.Block b = blocks.next(); b != null; b = blocks.next()) {
+                    if (!run.cancelled && progress.isCancelled()) run.cancelled = true;
+                    if (run.cancelled) {
+                        run.keep(b); // остаток файла - без обработки обратно в import.txt
+                        continue;
                     }
+                    run.accept(b);
+                    progress.report(run.processed, run.sink.getAdded(), run.sink.getSkipped(), run.errors,
+                            blocks.getBytesRead(), false);
                 }
-                currentBlock.clear();
+                run.close();
+                result = run.result();
+                progress.report(run.processed, result.added(), result.skipped(), result.errors(),
+                        blocks.getBytesRead(), true);
+            }
+
+            // обновление файла import.txt: остаются только ошибочные (и необработанные) блоки
+            if (result.errors() > 0 || result.unprocessed() > 0) {
+                fileService.replace(spillPath, importPath);
             } else {
-                currentBlock.add(line);
+                fileService.overwrite(importPath, new ArrayList<>());
             }
+        } catch (IOException | UncheckedIOException e) {
+            // import.txt не изменен: повторный импорт пропустит уже добавленное как дубликаты.
+            // неизвестно, какие карточки дошли до диска - сессия перечитывается целиком
+            LOGGER.severe("Ошибка импорта: " + e.getMessage());
+            run.closeQuietly();
+            studyService.reloadSession();
+            return "Ошибка импорта: " + e.getMessage();
         }
 
-        // последний блока (если файл кончился не на "===")
-        if (!currentBlock.isEmpty()) {
-            if (currentBlock.stream().anyMatch(s -> !s.trim().isEmpty())) {
-                int res = processBlock(currentBlock, existingContentHashes);
-                if (res == 1) added++;
-                else if (res == 2) skipped++;
-                else {
-                    linesToKeep.addAll(currentBlock);
-                    errors++;
-                }
-            }
+        // новые карточки - сразу в сессию, без перечитывания всех колод
+        studyService.mergeImportedCards(imported);
+
+        String report = String.format("%s\nДобавлено: %d\nПропущено (дубликаты): %d\nОшибок (остались в файле): %d",
+                result.cancelled() ? "Импорт отменен." : "Импорт завершен.",
+                result.added(), result.skipped(), result.errors());
+        if (result.unprocessed() > 0) {
+            report += String.format("\nНе обработано (остались в файле): %d", result.unprocessed());
         }
+        if (result.flagged() > 0) {
+            report += String.format("\nИз них с похожими вопросами (см. лог): %d", result.flagged());
+        }
+        return report;
+    }
 
-        fileService.ensureDirectory(Paths.get(DECKS_DIR));
+    /**
+     * Состояние одного прогона импорта: запись карточек ({@link ImportSink}) и файл отклоненных блоков
+     */
+    private final class ImportRun {
+        private final ImportSink sink;
+        private final Path spillPath;
 
-        // обновление файла import.txt (удаляем обработанное)
-        try {
-            if (linesToKeep.isEmpty()) {
-                // очищаем файл
-                fileService.overwrite(importPath, new ArrayList<>());
-            } else {
-                // перезаписываем файл, оставляя только ошибочные блоки
-                fileService.overwrite(importPath, linesToKeep);
+        /** Файл отклоненных блоков, открывается при первой ошибке */
+        private Writer spill;
+
+        long processed;
+        int errors;
+        int unprocessed;
+        boolean cancelled;
+
+        ImportRun(LongPredicate existing, NearDuplicateFilter near, Path spillPath, Consumer<Card> onAdded) {
+            this.sink = new ImportSink(fileService, Paths.get(DECKS_DIR), existing, near, onAdded);
+            this.spillPath = spillPath;
+        }
+
+        void accept(BlockReader.Block block) throws IOException {
+            Card card = parseBlock(block.lines());
+            if (card == null) {
+                // ошибка парсинга. Сохраняем блок обратно в файл, для исправления
+                if (spill == null) spill = fileService.openWriter(spillPath, false);
+                DeckEntries.writeBlock(spill, block);
+                errors++;
+                processed++;
+                return;
             }
-        } catch (Exception e) {
-            LOGGER.severe("Ошибка обновления import.txt: " + e.getMessage());
+            // успех или дубликат - блок не возвращается в import.txt ( дубликат в импорте не нужон)
+            sink.accept(card);
+            processed++;
         }
 
-        // финальная перезагрузка, чтобы подтянуть новые файлы
-        studyService.reloadSession();
+        /** Блок после отмены: возвращается в import.txt как есть */
+        void keep(BlockReader.Block block) throws IOException {
+            if (spill == null) spill = fileService.openWriter(spillPath, false);
+            DeckEntries.writeBlock(spill, block);
+            unprocessed++;
+        }
+
+        ImportPipeline.Result result() {
+            return new ImportPipeline.Result(sink.getAdded(), sink.getSkipped(), errors, sink.getFlagged(),
+                    unprocessed, cancelled);
+        }
 
-        return String.format("Импорт завершен.\nДобавлено: %d\nПропущено (дубликаты): %d\nОшибок (остались в файле): %d", added, skipped, errors);
+        /** Сбрасывает и закрывает все файлы */
+        void close() throws IOException {
+            try {
+                sink.close();
+            } finally {
+                if (spill != null) spill.close();
+            }
+        }
+
+        void closeQuietly() {
+            sink.closeQuietly();
+            try {
+                if (spill != null) spill.close();
+            } catch (IOException e) {
+                LOGGER.warning("Не удалось закрыть файл отклоненных блоков: " + e.getMessage());
+            }
+        }
     }
 
     /**
-     * Обрабатывает один блок текста (потенциальную карточку).
+     * Разбирает один блок текста (потенциальную карточку).
      *
      * @param buffer список строк блока
-     * @param existingHashes множество хешей уже существующих вопросов
-     * @return код результата:
-     * <ul>
-     *     <li>0 - Ошибка парсинга (невалидный блок)</li>
-     *     <li>1 - Успешно добавлено</li>
-     *     <li>2 - Пропущено как дубликат</li>
-     * </ul>
+     * @return карточка или {@code null}, если блок невалиден (ошибка парсинга)
      */
-    private int processBlock(List<String> buffer, Set<String> existingHashes) {
+    private static Card parseBlock(List<String> buffer) {
         // парсим блок
         Card tempCard = CardParser.parseSingleBlock(buffer, "import_temp");
 
@@ -165,31 +278,7 @@ public record ImportService(StudyService studyService, FileService fileService)
             // вывод первых строк блока, чтобы понять, что там сломалось
             String preview = buffer.stream().limit(3).collect(Collectors.joining(" | "));
             LOGGER.warning("Ошибка парсинга блока в импорте. Содержимое: " + preview);
-            return 0;
         }
-
-        // дубликат?
-        String contentHash = TextUtil.normalizeForId(tempCard.getQuestion());
-        if (existingHashes.contains(contentHash)) return 2;
-
-        // целевой файл на основе категории
-        String cat = tempCard.getCategory();
-        // очистка имени файла от недопустимых символов
-        String safeName = cat.replaceAll("[^a-zA-Z0-9а-яА-Я ._-]", "");
-        Path deckPath = Paths.get(DECKS_DIR, safeName + ".txt");
-
-        // формирование текста для записи в целевой файл
-        String entry = String.format("ID: %s%nCATEGORY: %s%nQUESTION:%n%s%nANSWER:%n%s%n===%n",
-                tempCard.getId(),
-                tempCard.getCategory(),
-                tempCard.getQuestion(),
-                tempCard.getAnswer());
-
-        fileService.appendLine(deckPath, entry);
-
-        // хеш в локальный сет, чтобы внутри одного импорта тоже ловить дубликаты
-        existingHashes.add(contentHash);
-
-        return 1;
+        return tempCard;
     }
-}
\ No newline at end of file
+}
@@ -6,13 +6,19 @@ import model.Card;
 import model.HistoryRecord;
 import model.dto.StatsRow;
 import service.algorithm.SpacedRepetitionAlgorithm;
+import service.session.CardIndex;
+import service.session.NearDuplicatePolicy;
+import service.session.ProgressStore;
 import service.session.SessionManager;
+import service.session.SessionSnapshot;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
  * Основной сервис приложения (Business Logic Layer)
@@ -26,19 +32,44 @@ import java.util.stream.Collectors;
  * </ol>
  * Класс хранит состояние текущей сессии (активная колода, текущая карта)
  * </p>
+ * <p>
+ * Прогресс (уровни карточек, журнал ответов) - в {@link ProgressStore}: в приложении это сам
+ * {@link SessionManager}, на сервере - прогресс конкретного пользователя поверх общих карточек
+ * </p>
  */
 public class StudyService {
     private static final Logger LOGGER = Logger.getLogger(StudyService.class.getName());
 
+    /**
+     * Сколько карточек достаточно, чтобы начать обучение при поэтапной загрузке
+     * ({@link #loadSessionProgressively()})
+     */
+    private static final int FIRST_BATCH_CARDS = 200;
+
     private final SessionManager sessionManager;
+    private final ProgressStore progress;
     private final SpacedRepetitionAlgorithm algorithm;
     private final GradingService gradingService;
 
     /**
      * Текущая активная колода.
-     * Может содержать все карты или только отфильтрованные по теме
+     * Может содержать все карты или только отфильтрованные по теме.
+     * Это представление (view) поверх карт сессии, а не копия.
+     * {@code volatile}: после фонового импорта заменяется из потока импорта
+     */
+    private volatile List<Card> activeDeck = List.of();
+
+    /**
+     * Индекс снимка сессии, по которому собрана {@link #activeDeck}. Если сессия с тех пор
+     * сменилась (загрузка, импорт, перезагрузка из другого места), колода пересобирается
+     * по {@link #activeFilters} перед выбором карты
+     */
+    private volatile CardIndex deckIndex;
+
+    /**
+     * Темы активной колоды ({@code null} - все карты)
      */
-    private List<Card> activeDeck = new ArrayList<>();
+    private Collection<String> activeFilters;
 
     /**
      * Карточка, которая сейчас отображается на экране
@@ -52,11 +83,32 @@ public class StudyService {
      * @param sessionManager менеджер сессии
      */
     public StudyService(SessionManager sessionManager) {
+        this(sessionManager, true);
+    }
+
+    /**
+     * Конструктор сервиса
+     *
+     * @param sessionManager менеджер сессии
+     * @param load {@code true} - сразу загрузить сессию ({@link #reloadSession()}),
+     *             {@code false} - сессия пуста до {@link #loadSessionProgressively()}
+     */
+    public StudyService(SessionManager sessionManager, boolean load) {
+        this(sessionManager, sessionManager);
+        if (load) reloadSession();
+    }
+
+    /**
+     * Конструктор сервиса для одного из многих пользователей общей, уже загруженной сессии
+     *
+     * @param sessionManager менеджер сессии (карточки, индексы, кеш оценок)
+     * @param progress прогресс этого пользователя
+     */
+    public StudyService(SessionManager sessionManager, ProgressStore progress) {
         this.sessionManager = sessionManager;
+        this.progress = progress;
         this.algorithm = new SpacedRepetitionAlgorithm();
-        this.gradingService = new GradingService();
-
-        reloadSession();
+        this.gradingService = new GradingService(sessionManager != null ? sessionManager.getGradingCache() : null);
     }
 
     /**
@@ -68,12 +120,67 @@ public class StudyService {
         resetFilter();
     }
 
+    /**
+     * Поэтапная загрузка при старте ({@link SessionManager#reloadProgressively}).
+     * Выполняется в фоновом потоке и возвращается после загрузки всех колод;
+     * активная колода догоняет пополнение сессии сама, с сохранением фильтра (см. {@link #deckIndex})
+     */
+    public void loadSessionProgressively() {
+        sessionManager.reloadProgressively(FIRST_BATCH_CARDS);
+    }
+
+    /**
+     * Идет ли еще поэтапная загрузка (в сессии пока не все колоды)
+     */
+    public boolean isSessionLoading() {
+        return sessionManager != null && sessionManager.isLoading();
+    }
+
     /**
      * Получить полный список всех карточек (без фильтров)
      */
     public List<Card> getAllCards() {
         return sessionManager.getAllCards();
     }
+
+    /**
+     * Есть ли в сессии карточка с таким вопросом (проверка дубликатов при импорте)
+     *
+     * @param fingerprint отпечаток вопроса ({@link util.TextUtil#fingerprintForId})
+     */
+    public boolean containsQuestion(long fingerprint) {
+        return sessionManager.getIndex().containsQuestion(fingerprint);
+    }
+
+    /**
+     * Что делать с похожими вопросами ({@link SessionManager#getNearDuplicatePolicy})
+     */
+    public NearDuplicatePolicy getNearDuplicatePolicy() {
+        return sessionManager.getNearDuplicatePolicy();
+    }
+
+    /**
+     * Похожий вопрос в сессии (проверка при импорте)
+     *
+     * @param shingles слова вопроса ({@link service.session.NearDuplicateIndex#shingles})
+     * @return похожая карточка или {@code null}
+     */
+    public Card findNearDuplicate(long[] shingles) {
+        return sessionManager.findNearDuplicate(shingles);
+    }
+
+    /**
+     * Добавляет импортированные карточки в текущую сессию без перезагрузки всех колод
+     * и сбрасывает фильтр (как {@link #reloadSession()})
+     *
+     * @param cards новые карточки, уже записанные в файлы колод
+     * @return сколько карточек добавлено
+     */
+    public int mergeImportedCards(List<Card> cards) {
+        int added = sessionManager.mergeCards(cards).size();
+        resetFilter();
+        return added;
+    }
     /**
      * Загружает журнал истории ответов.
      * Создает экземпляр репозитория "на лету", так как это редкая операция
@@ -83,44 +190,53 @@ public class StudyService {
     }
 
     /**
-     * Вычисляет сводную статистику по категориям.
+     * Заново проверяет все ответы из журнала истории текущим алгоритмом оценки.
      * <p>
-     * Группирует карты по категориям и считает для каждой:
-     * Всего / Новые / В процессе / Выученные.
+     * Нужна после настройки алгоритма: показывает, как изменились бы вердикты.
+     * Запись связывается с карточкой по тексту вопроса (так он сохраняется в журнал),
+     * записи без карточки в текущей сессии пропускаются. Проверка пакетная, параллельная
+     * ({@link BatchGradingService})
      * </p>
      *
-     * @return DTO {@link StatsRow} для отображения в таблице
+     * @return записи истории с новыми результатами (в порядке журнала: от новых к старым)
      */
-    public List<StatsRow> getStatistics() {
-        List<Card> all = sessionManager.getAllCards();
-        List<StatsRow> rows = new ArrayList<>();
-
-        // группировка по полю Category
-        Map<String, List<Card>> grouped = all.stream()
-                .collect(Collectors.groupingBy(Card::getCategory));
+    public List<RegradedRecord> regradeHistory() {
+        // вопрос в журнале записан в одну строку, ключ строим так же
+        Map<String, Card> byQuestion = new HashMap<>();
+        for (Card c : sessionManager.getAllCards()) {
+            byQuestion.putIfAbsent(c.getQuestion().replace("\n", " ").trim(), c);
+        }
 
-        // расчет статистики для каждой группы
-        for (var entry : grouped.entrySet()) {
-            rows.add(calculateRow(entry.getKey(), entry.getValue()));
+        List<HistoryRecord> matched = new ArrayList<>();
+        List<BatchGradingService.Submission> submissions = new ArrayList<>();
+        for (HistoryRecord record : getHistory()) {
+            Card card = byQuestion.get(record.question());
+            if (card == null) continue;
+            matched.add(record);
+            submissions.add(new BatchGradingService.Submission(card, record.userAnswer()));
         }
 
-        // расчет итоговой строки
-        rows.add(calculateRow("<<<<<< ИТОГО >>>>>>", all));
-        return rows;
+        List<GradingResult> results = new BatchGradingService(sessionManager).gradeAll(submissions);
+        List<RegradedRecord> regraded = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            regraded.add(new RegradedRecord(matched.get(i), results.get(i)));
+        }
+        LOGGER.info("История перепроверена: " + regraded.size() + " записей");
+        return regraded;
     }
 
     /**
-     * Вспомогательный метод подсчета статистики для списка карт
+     * Вычисляет сводную статистику по категориям.
+     * <p>
+     * Для каждой категории: Всего / Новые / В процессе / Выученные (карта "выученная",
+     * если ее уровень >= 8). Считает хранилище прогресса ({@link ProgressStore#statistics}):
+     * в приложении - из снимка сессии, без прохода по карточкам
+     * </p>
+     *
+     * @return DTO {@link StatsRow} для отображения в таблице (последняя строка - итог)
      */
-    private StatsRow calculateRow(String name, List<Card> list) {
-        long total = list.size();
-        long cntNew = list.stream().filter(Card::isNew).count();
-        // карта "Выученная" (Master), если ее уровень >= 8 (максимум 10)
-        long cntMaster = list.stream().filter(c -> !c.isNew() && c.getLevel() >= 8).count();
-        // остальные - в процессе (Learning)
-        long cntLearn = total - cntNew - cntMaster;
-
-        return new StatsRow(name, total, cntNew, cntLearn, cntMaster);
+    public List<StatsRow> getStatistics() {
+        return progress.statistics("<<<<<< ИТОГО >>>>>>");
     }
     /**
      * Устанавливает активную колоду (Active Deck) на основе выбора пользователя
@@ -131,19 +247,52 @@ public class StudyService {
         if (filter == null || filter.equals("ВСЕ ТЕМЫ")) {
             resetFilter();
         } else {
-            // проверка вхождения
-            activeDeck = sessionManager.getAllCards().stream()
-                    .filter(c -> sessionManager.isCardInGroup(c, filter))
-                    .collect(Collectors.toList());
-            LOGGER.info("Фильтр установлен [" + filter + "]. Карт отобрано: " + activeDeck.size());
+            setFilter(List.of(filter));
         }
     }
 
+    /**
+     * Устанавливает активную колоду как объединение нескольких тем (групп и/или категорий)
+     *
+     * @param filters названия групп или категорий
+     */
+    public synchronized void setFilter(Collection<String> filters) {
+        // тот же фильтр по той же сессии - колода уже собрана
+        if (Objects.equals(filters, activeFilters) && deckIndex == sessionManager.getIndex()) return;
+        activeFilters = filters;
+        rebuildActiveDeck();
+        LOGGER.info("Фильтр установлен " + filters + ". Карт отобрано: " + activeDeck.size());
+    }
+
     /**
      * Сбрасывает фильтр, делая доступными для изучения абсолютно все карты
      */
-    public void resetFilter() {
-        this.activeDeck = new ArrayList<>(sessionManager.getAllCards());
+    public synchronized void resetFilter() {
+        activeFilters = null;
+        rebuildActiveDeck();
+    }
+
+    /**
+     * Активная колода по текущему снимку сессии (пересобирается, если снимок сменился)
+     */
+    private List<Card> currentDeck() {
+        if (deckIndex != sessionManager.getIndex()) {
+            synchronized (this) {
+                if (deckIndex != sessionManager.getIndex()) rebuildActiveDeck();
+            }
+        }
+        return activeDeck;
+    }
+
+    /**
+     * Собирает активную колоду по {@link #activeFilters} из одного снимка сессии
+     */
+    private void rebuildActiveDeck() {
+        SessionSnapshot snapshot = sessionManager.getSnapshot();
+        CardIndex index = snapshot.getIndex();
+        // выборка по битовым маскам индекса сессии
+        activeDeck = activeFilters == null ? snapshot.getCards() : index.view(index.select(activeFilters));
+        deckIndex = index;
     }
 
     /**
@@ -160,10 +309,24 @@ public class StudyService {
      * @return объект Card или null, если колода пуста
      */
     public Card nextCard(boolean isShuffle) {
-        currentCard = algorithm.selectNextCard(activeDeck, currentCard, isShuffle);
+        currentCard = algorithm.selectNextCard(currentDeck(), currentCard, isShuffle, progress);
         return currentCard;
     }
 
+    /**
+     * Уровень карточки в прогрессе этого ученика
+     */
+    public int levelOf(Card card) {
+        return progress.levelOf(card);
+    }
+
+    /**
+     * Новая ли карточка для этого ученика
+     */
+    public boolean isNewCard(Card card) {
+        return progress.isNew(card);
+    }
+
     /**
      * Проверяет ответ пользователя БЕЗ сохранения результата.
      * Используется для предпросмотра оценки (показать пользователю процент совпадения)
@@ -174,18 +337,21 @@ public class StudyService {
     public GradingResult checkAnswer(String userAnswer) {
         if (currentCard == null) return new GradingResult(0, false);
 
-        // процент сходства (0..100)
-        double score = gradingService.calculateSimilarity(userAnswer, currentCard.getAnswer());
+        // процент сходства (0..100), эталон уже разобран на токены в кеше сессии;
+        // токены и словарь - из одного снимка (перезагрузка может сменить его между чтениями)
+        SessionSnapshot session = sessionManager.getSnapshot();
+        double score = gradingService.calculateSimilarity(currentCard.getId(),
+                userAnswer, session.answerTokensOf(currentCard), session.getVocabulary());
 
         // порог прохождения: 65% сходства
-        return new GradingResult(score, score > 65.0);
+        return new GradingResult(score, GradingService.isPassed(score));
     }
 
     /**
      * Фиксирует результат ответа.
      * <ol>
      *     <li>Обновляет математическую модель (уровень карты)</li>
-     *     <li>Сохраняет данные на диск (история + статистика)</li>
+     *     <li>Записывает ответ в хранилище прогресса (история + статистика)</li>
      * </ol>
      *
      * @param userAnswer ответ пользователя (для лога)
@@ -194,11 +360,10 @@ public class StudyService {
     public void submitResult(String userAnswer, boolean correct) {
         if (currentCard == null) return;
 
-        int oldLevel = currentCard.getLevel(); // старый уровень
-        algorithm.updateCardProgress(currentCard, correct);
-        int newLevel = currentCard.getLevel(); // новый уровень
+        int oldLevel = progress.levelOf(currentCard); // старый уровень
+        int newLevel = SpacedRepetitionAlgorithm.nextLevel(oldLevel, correct); // новый уровень
 
-        algorithm.updateCardProgress(currentCard, correct);
+        int stored = SpacedRepetitionAlgorithm.nextLevel(newLevel, correct);
         LOGGER.info(String.format(
                 "SRS ОБНОВЛЕН | idКАРТЫ: %s | ВЕРДИКТ: %s | УРОВЕНЬ: %d -> %d | КАТЕГОРИЯ: %s",
                 currentCard.getId(),
@@ -208,7 +373,7 @@ public class StudyService {
                 currentCard.getCategory()
         ));
 
-        sessionManager.saveProgress(currentCard, userAnswer, correct);
+        progress.record(currentCard, stored, userAnswer, correct);
     }
 
     /**
@@ -219,4 +384,13 @@ public class StudyService {
      */
         public record GradingResult(double score, boolean passed) {
     }
+
+    /**
+     * Запись истории с результатом повторной проверки
+     *
+     * @param record исходная запись журнала (с прежним вердиктом)
+     * @param result новый результат проверки
+     */
+    public record RegradedRecord(HistoryRecord record, GradingResult result) {
+    }
 }
\ No newline at end of file
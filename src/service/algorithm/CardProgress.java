@@ -0,0 +1,38 @@
+package service.algorithm;
+
+import model.Card;
+
+/**
+ * Откуда алгоритм берет прогресс карточки (уровень и флаг "новая")
+ * <p>
+ * Поля самой карточки ({@link #OWN}) - прогресс на момент ее загрузки: для карточек вне сессии.
+ * В приложении текущий прогресс хранится в снимке сессии ({@link service.session.SessionManager}),
+ * а когда одни и те же карточки повторяют несколько пользователей - у каждого свой,
+ * отдельно от содержимого карточек ({@link service.session.UserProgress})
+ * </p>
+ */
+public interface CardProgress {
+
+    /** Прогресс из полей самой карточки */
+    CardProgress OWN = new CardProgress() {
+        @Override
+        public int levelOf(Card card) {
+            return card.getLevel();
+        }
+
+        @Override
+        public boolean isNew(Card card) {
+            return card.isNew();
+        }
+    };
+
+    /**
+     * Уровень карточки (0 - 10)
+     */
+    int levelOf(Card card);
+
+    /**
+     * Новая ли карточка (на нее еще не отвечали)
+     */
+    boolean isNew(Card card);
+}
@@ -36,29 +36,34 @@ public class SpacedRepetitionAlgorithm {
      * @return объект следующей {@link Card} или {@code null}, если колода пуста
      */
     public Card selectNextCard(List<Card> deck, Card currentCard, boolean isShuffle) {
+        return selectNextCard(deck, currentCard, isShuffle, CardProgress.OWN);
+    }
+
+    /**
+     * Выбирает следующую карту из колоды по прогрессу из отдельного хранилища
+     * (см. {@link #selectNextCard(List, Card, boolean)})
+     *
+     * @param deck текущая колода
+     * @param currentCard карточка
+     * @param isShuffle режим работы ({@code true} - Shuffle, {@code false} - Smart)
+     * @param progress уровни карточек (например, прогресс одного пользователя)
+     * @return объект следующей {@link Card} или {@code null}, если колода пуста
+     */
+    public Card selectNextCard(List<Card> deck, Card currentCard, boolean isShuffle, CardProgress progress) {
         if (deck.isEmpty()) return null;
         if (deck.size() == 1) return deck.getFirst();
 
-        // временный пул кандидатов, исключая текущую карточку
-        // не получаем один и тот же вопрос сразу же после ответа
-        List<Card> pool = new java.util.ArrayList<>(deck);
-        if (currentCard != null) pool.remove(currentCard);
-
-        // после удаления текущей карточки пул пуст (в колоде всего 1 карта)? используем исходную
-        if (pool.isEmpty()) pool = deck;
+        // текущая карточка пропускается (по ссылке): не получаем один и тот же вопрос сразу же после ответа.
+        // колода не копируется - выбор по номеру прямо в общем неизменяемом списке
+        Card selected = getWeightedRandomCard(deck, currentCard, progress);
 
         // Если выбран режим Smart (не Shuffle)
         if (!isShuffle) {
-            Card selected = getWeightedRandomCard(pool);
-            List<Card> finalPool = pool;
             LOGGER.fine(() -> String.format(
-                    "ВЫБОР АЛГОРИТМА: Selected ID=%s (Level=%d) from pool of size %d",
-                    selected.getId(), selected.getLevel(), finalPool.size()));
-            return selected;
-        } else {
-            // алгоритм на основе весов
-            return getWeightedRandomCard(pool);
+                    "ВЫБОР АЛГОРИТМА: Selected ID=%s (Level=%d) from deck of size %d",
+                    selected.getId(), progress.levelOf(selected), deck.size()));
         }
+        return selected;
     }
 
     /**
@@ -79,18 +84,26 @@ public class SpacedRepetitionAlgorithm {
     public void updateCardProgress(Card card, boolean isCorrect) {
         // ответили на карту, она теряет флаг New
         card.setNew(false);
+        card.setLevel(nextLevel(card.getLevel(), isCorrect));
+    }
 
+    /**
+     * Новый уровень после ответа (правила - {@link #updateCardProgress})
+     *
+     * @param level текущий уровень
+     * @param isCorrect ответ верный или нет
+     * @return уровень после ответа
+     */
+    public static int nextLevel(int level, boolean isCorrect) {
         if (isCorrect) {
             // лимит уровня = 10
-            if (card.getLevel() < 10) card.setLevel(card.getLevel() + 1);
-        } else {
-            // штраф за ошибку
-            if (card.getLevel() > 5) {
-                card.setLevel(2); // мягкое падение
-            } else {
-                card.setLevel(0); // жесткое падение в начало
-            }
+            return level < 10 ? level + 1 : level;
         }
+        // штраф за ошибку
+        if (level > 5) {
+            return 2; // мягкое падение
+        }
+        return 0; // жесткое падение в начало
     }
 
     /**
@@ -100,17 +113,29 @@ public class SpacedRepetitionAlgorithm {
      * 2. Выбираем случайное число от 0 до Sum<br>
      * 3. Идем по списку, вычитая вес текущей карты. Где остановились - ту и берем
      * </p>
+     * Карточка {@code skip} в выборе не участвует; если кроме нее в колоде ничего нет - берется она
+     *
+     * @param deck колода (список с быстрым доступом по номеру, не копируется)
+     * @param skip карточка, которую пропустить ({@code null} - никакую)
      */
-    private Card getWeightedRandomCard(List<Card> pool) {
+    private Card getWeightedRandomCard(List<Card> deck, Card skip, CardProgress progress) {
+        int n = deck.size();
         double totalWeight = 0.0;
-        for (Card c : pool) totalWeight += calculateWeight(c);
+        for (int i = 0; i < n; i++) {
+            Card c = deck.get(i);
+            if (c != skip) totalWeight += calculateWeight(c, progress);
+        }
 
         double value = random.nextDouble() * totalWeight;
-        for (Card c : pool) {
-            value -= calculateWeight(c);
+        int last = -1;
+        for (int i = 0; i < n; i++) {
+            Card c = deck.get(i);
+            if (c == skip) continue;
+            last = i;
+            value -= calculateWeight(c, progress);
             if (value <= 0) return c;
         }
-        return pool.getLast();
+        return last >= 0 ? deck.get(last) : deck.getFirst();
     }
 
     /**
@@ -118,20 +143,24 @@ public class SpacedRepetitionAlgorithm {
      * Выше вес - > чаще будет появляться
      *
      * @param c карточка
+     * @param progress откуда брать уровень карточки
      * @return вес (double)
      */
-    private double calculateWeight(Card c) {
+    private double calculateWeight(Card c, CardProgress progress) {
+        boolean isNew = progress.isNew(c);
+        int level = progress.levelOf(c);
+
         // самый высокий приоритет: карты, которые мы учили, но забыли (ошиблись, и уровень сбросился в 0)
-        if (!c.isNew() && c.getLevel() == 0) return 150.0;
+        if (!isNew && level == 0) return 150.0;
 
         // высокий приоритет: абсолютно новые карты
-        if (c.isNew()) return 100.0;
+        if (isNew) return 100.0;
 
         // остальные: Экспоненциальное затухание частоты, чё-то такое
         // Level 1: 100 * 0.7^1 = 70
         // Level 2: 100 * 0.7^2 = 49
         // Level 5: 100 * 0.7^5 = ~16
         // Level 10: ~2.8
-        return 100.0 * Math.pow(0.7, c.getLevel());
+        return 100.0 * Math.pow(0.7, level);
     }
 }
\ No newline at end of file
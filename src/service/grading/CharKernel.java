@@ -0,0 +1,37 @@
+package service.grading;
+
+/**
+ * Низкоуровневые операции сравнения символов для {@link EditDistance}
+ * <p>
+ * Две реализации: скалярная ({@link ScalarCharKernel}, работает всегда) и векторная
+ * ({@link VectorCharKernel}, на {@code jdk.incubator.vector}). Выбор - {@link CharKernels#current()}
+ * </p>
+ */
+interface CharKernel {
+
+    /**
+     * Длина общего префикса двух участков массивов
+     *
+     * @param len сколько символов сравнивать (не больше длины обоих участков)
+     * @return количество совпавших символов с начала (0..len)
+     */
+    int commonPrefix(char[] a, int aFrom, char[] b, int bFrom, int len);
+
+    /**
+     * Длина общего суффикса: участки заканчиваются перед позициями {@code aEnd} и {@code bEnd}
+     *
+     * @param len сколько символов сравнивать (не больше длины обоих участков)
+     * @return количество совпавших символов с конца (0..len)
+     */
+    int commonSuffix(char[] a, int aEnd, char[] b, int bEnd, int len);
+
+    /**
+     * Маска совпадений символа с шаблоном: бит {@code i} установлен, если {@code pattern[from + i] == c}
+     *
+     * @param len длина шаблона (не больше 64)
+     */
+    long equalityMask(char[] pattern, int from, int len, char c);
+
+    /** Векторная ли реализация */
+    boolean isVectorized();
+}
@@ -0,0 +1,65 @@
+package service.grading;
+
+import java.util.logging.Logger;
+
+/**
+ * Выбор реализации {@link CharKernel}
+ * <p>
+ * Векторное ядро включается явно: JVM запущена с {@code --add-modules jdk.incubator.vector}
+ * и задано свойство {@code -Djavaanki.grading.vector=true}. Иначе (и при любой ошибке загрузки)
+ * используется скалярное ядро
+ * </p>
+ * <p>
+ * По умолчанию ядро выключено: на словах до 64 символов и порогах 1-2 оно не быстрее ленточного DP,
+ * выигрыш (~5-10%) только на очень длинных строках. Замер - {@code CharKernelBenchmark} в тестах
+ * </p>
+ */
+final class CharKernels {
+    private static final Logger LOGGER = Logger.getLogger(CharKernels.class.getName());
+
+    /** Системное свойство для включения векторного ядра */
+    static final String VECTOR_PROPERTY = "javaanki.grading.vector";
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final CharKernel CURRENT = load();
+
+    /** Ядро, выбранное при старте */
+    static CharKernel current() {
+        return CURRENT;
+    }
+
+    /** Скалярное ядро (всегда доступно) */
+    static CharKernel scalar() {
+        return ScalarCharKernel.INSTANCE;
+    }
+
+    /**
+     * Векторное ядро, если модуль доступен
+     *
+     * @return ядро или {@code null}
+     */
+    static CharKernel vector() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) return null;
+        try {
+            // загрузка по имени: без модуля класс не должен даже линковаться
+            return (CharKernel) Class.forName("service.grading.VectorCharKernel")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOGGER.warning("Векторное ядро недоступно: " + e);
+            return null;
+        }
+    }
+
+    private static CharKernel load() {
+        if (!Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "false"))) return scalar();
+
+        CharKernel vector = vector();
+        if (vector == null) return scalar();
+        LOGGER.info("Проверка ответов: используется векторное ядро (" + VECTOR_MODULE + ")");
+        return vector;
+    }
+
+    private CharKernels() {}
+}
@@ -0,0 +1,183 @@
+package service.grading;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Индекс удалений (Symmetric Delete, как в SymSpell) для поиска слов с опечатками
+ * <p>
+ * Для каждого токена словаря заранее перечисляются все варианты с удалением 0, 1 и 2 символов.
+ * Если расстояние Левенштейна между двумя словами не больше 2, то у них обязательно есть
+ * общий вариант удаления. Поэтому поиск похожих слов для слова пользователя - это
+ * перечисление его собственных вариантов удаления и несколько поисков по индексу,
+ * вместо расчета расстояния со всеми кандидатами
+ * </p>
+ * <p>
+ * Порог опечаток зависит от длины слова эталона ({@link TokenMatcher#typoLimit}): 2 правки
+ * допускаются только для слов длиннее 6 символов. Поэтому варианты с удалением двух символов
+ * строятся только для таких токенов (а у слова пользователя - начиная с длины 5), это в разы
+ * уменьшает индекс без потери полноты
+ * </p>
+ * <p>
+ * Найденные кандидаты - надмножество ответа: их нужно проверить точным
+ * (ограниченным) расстоянием, см. {@link EditDistance}
+ * </p>
+ * <p>
+ * <b>Хранение:</b> варианты не хранятся строками. Каждая запись - один {@code long}:
+ * старшие 44 бита - хеш варианта, младшие 20 бит - номер токена. Массив отсортирован,
+ * поиск - двоичный. Коллизии хешей лишь добавляют кандидатов, которые отсеются проверкой
+ * </p>
+ */
+public final class DeletionIndex {
+
+    /** Максимальное число правок, которое гарантированно находит индекс */
+    public static final int MAX_EDITS = 2;
+
+    /** Слишком длинные токены не индексируются (число вариантов растет квадратично) */
+    public static final int MAX_INDEXED_LENGTH = 24;
+
+    /** Минимальная длина слова эталона, для которого допускаются 2 правки */
+    private static final int TWO_EDITS_MIN_LENGTH = 7;
+
+    private static final int ID_BITS = 20;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+
+    /** Записи (хеш варианта | номер токена), отсортированы */
+    private final long[] entries;
+
+    /** Токены с номерами меньше этого числа (и не длиннее лимита) есть в индексе */
+    private final int indexedSize;
+
+    private DeletionIndex(long[] entries, int indexedSize) {
+        this.entries = entries;
+        this.indexedSize = indexedSize;
+    }
+
+    /**
+     * Строит индекс по всем токенам словаря, добавленным к этому моменту
+     *
+     * @param vocabulary словарь токенов эталонных ответов
+     * @return готовый индекс
+     */
+    public static DeletionIndex build(TokenVocabulary vocabulary) {
+        int size = (int) Math.min(vocabulary.size(), ID_MASK + 1);
+
+        long[] buf = new long[Math.max(16, size * 16)];
+        int count = 0;
+        for (int id = 0; id < size; id++) {
+            String token = vocabulary.text(id);
+            if (token.length() > MAX_INDEXED_LENGTH) continue;
+
+            int deletes = token.length() >= TWO_EDITS_MIN_LENGTH ? 2 : 1;
+            int needed = variantCount(token.length(), deletes);
+            if (count + needed > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + needed));
+            }
+            long[] target = buf;
+            int[] pos = {count};
+            long tokenId = id;
+            forEachVariant(token, deletes, h -> target[pos[0]++] = (h << ID_BITS) | tokenId);
+            count = pos[0];
+        }
+
+        long[] entries = Arrays.copyOf(buf, count);
+        Arrays.sort(entries);
+        return new DeletionIndex(entries, size);
+    }
+
+    /**
+     * Построен ли индекс по словарю в его текущем размере (новых токенов с тех пор не добавлялось)
+     */
+    public boolean isCurrent(TokenVocabulary vocabulary) {
+        return indexedSize == vocabulary.size();
+    }
+
+    /**
+     * Покрывает ли индекс токен (можно ли найти его через {@link #forEachCandidate})
+     */
+    public boolean covers(int id, TokenVocabulary vocabulary) {
+        return id < indexedSize && vocabulary.length(id) <= MAX_INDEXED_LENGTH;
+    }
+
+    /**
+     * Перечисляет номера токенов, которые могут быть похожи на слово (в пределах порога опечаток
+     * эталона). Один и тот же номер может встретиться несколько раз
+     *
+     * @param word слово пользователя
+     * @param consumer получатель номеров кандидатов
+     */
+    public void forEachCandidate(String word, IntConsumer consumer) {
+        if (word.length() > MAX_INDEXED_LENGTH + MAX_EDITS) return;
+        // 2 правки возможны только с эталоном длины >= 7, то есть для слов длины >= 5
+        int deletes = word.length() >= TWO_EDITS_MIN_LENGTH - MAX_EDITS ? 2 : 1;
+        forEachVariant(word, deletes, h -> {
+            int i = lowerBound(h << ID_BITS);
+            while (i < entries.length && (entries[i] >>> ID_BITS) == h) {
+                consumer.accept((int) (entries[i] & ID_MASK));
+                i++;
+            }
+        });
+    }
+
+    /** Количество записей в индексе */
+    public int entryCount() {
+        return entries.length;
+    }
+
+    private int lowerBound(long key) {
+        int lo = 0;
+        int hi = entries.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (entries[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Количество вариантов удаления (до deletes символов) для слова длины len */
+    private static int variantCount(int len, int deletes) {
+        return 1 + len + (deletes >= 2 ? len * (len - 1) / 2 : 0);
+    }
+
+    /**
+     * Перечисляет 44-битные хеши всех вариантов слова с удалением до deletes символов
+     * (сами строки вариантов не создаются)
+     */
+    private static void forEachVariant(String w, int deletes, LongSink sink) {
+        int len = w.length();
+        sink.accept(hashSkipping(w, -1, -1));
+        for (int i = 0; i < len; i++) {
+            sink.accept(hashSkipping(w, i, -1));
+            if (deletes < 2) continue;
+            for (int j = i + 1; j < len; j++) {
+                sink.accept(hashSkipping(w, i, j));
+            }
+        }
+    }
+
+    /**
+     * FNV-1a по символам слова, кроме позиций skipA и skipB, с перемешиванием (fmix64 из Murmur3)
+     *
+     * @return 44-битный хеш (старшие 20 бит нулевые)
+     */
+    private static long hashSkipping(String w, int skipA, int skipB) {
+        long h = 0xcbf29ce484222325L;
+        for (int k = 0; k < w.length(); k++) {
+            if (k == skipA || k == skipB) continue;
+            h ^= w.charAt(k);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h >>> ID_BITS;
+    }
+
+    @FunctionalInterface
+    private interface LongSink {
+        void accept(long value);
+    }
+}
@@ -0,0 +1,310 @@
+package service.grading;
+
+/**
+ * Ограниченное расстояние Левенштейна (Bounded Edit Distance)
+ * <p>
+ * Для проверки ответов не нужно точное расстояние между словами - достаточно знать,
+ * укладывается ли оно в порог (1 или 2 опечатки). Поэтому здесь два движка, оба без
+ * выделения памяти на каждое сравнение:
+ * <ul>
+ *     <li><b>Ленточный (banded) DP:</b> заполняется только диагональная полоса ширины {@code 2k+1},
+ *     строки матрицы берутся из переиспользуемых буферов потока ({@link ThreadLocal}),
+ *     расчет прерывается, как только минимум строки превысил порог</li>
+ *     <li><b>Бит-параллельный Myers/Hyyrö:</b> для слов до 64 символов из латиницы, цифр и
+ *     строчной кириллицы - одна строка матрицы целиком помещается в {@code long}</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Для длинных слов (идентификаторы, фрагменты кода) сравнение символов может выполнять
+ * векторное ядро ({@link CharKernels}): отбрасывание общих префикса и суффикса и маски
+ * совпадений для бит-параллельного режима, которому тогда подходит любой алфавит
+ * </p>
+ */
+public final class EditDistance {
+
+    /** Максимальная длина шаблона для бит-параллельного алгоритма (разрядность long) */
+    static final int MAX_BIT_PARALLEL = 64;
+
+    /** Минимальная длина слов, с которой используется векторное ядро (короче - копирование не окупается) */
+    static final int VECTOR_MIN_LENGTH = 32;
+
+    /** Размер алфавита для таблицы масок: ASCII (128) + строчная кириллица а-я (32) */
+    private static final int ALPHABET = 160;
+
+    /** Две строки ленточной матрицы на поток, растут по необходимости */
+    private static final ThreadLocal<int[][]> ROWS = ThreadLocal.withInitial(() -> new int[][]{new int[32], new int[32]});
+
+    /** Таблица масок совпадений (Peq) на поток. После использования всегда обнуляется */
+    private static final ThreadLocal<long[]> PEQ = ThreadLocal.withInitial(() -> new long[ALPHABET]);
+
+    /** Копии сравниваемых строк для векторного ядра на поток, растут по необходимости */
+    private static final ThreadLocal<char[][]> CHARS = ThreadLocal.withInitial(() -> new char[][]{new char[64], new char[64]});
+
+    /**
+     * Проверяет, что расстояние между строками не больше порога
+     *
+     * @param a первое слово
+     * @param b второе слово
+     * @param k допустимое число правок (вставка, удаление, замена)
+     * @return {@code true}, если расстояние &lt;= k
+     */
+    public static boolean withinDistance(CharSequence a, CharSequence b, int k) {
+        return bounded(a, b, k) <= k;
+    }
+
+    /**
+     * Расстояние Левенштейна с отсечкой по порогу
+     * <p>
+     * Общие префикс и суффикс отбрасываются сразу (они не влияют на расстояние),
+     * затем выбирается бит-параллельный или ленточный движок
+     * </p>
+     *
+     * @param a первое слово
+     * @param b второе слово
+     * @param k порог
+     * @return точное расстояние, если оно &lt;= k, иначе {@code k + 1}
+     */
+    public static int bounded(CharSequence a, CharSequence b, int k) {
+        if (k < 0) return 0;
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > k) return k + 1;
+
+        CharKernel kernel = CharKernels.current();
+        if (kernel.isVectorized() && Math.min(n, m) >= VECTOR_MIN_LENGTH) return bounded(a, b, k, kernel);
+
+        // общий префикс
+        int start = 0;
+        int limit = Math.min(n, m);
+        while (start < limit && a.charAt(start) == b.charAt(start)) start++;
+
+        // общий суффикс
+        int endA = n;
+        int endB = m;
+        while (endA > start && endB > start && a.charAt(endA - 1) == b.charAt(endB - 1)) {
+            endA--;
+            endB--;
+        }
+
+        int lenA = endA - start;
+        int lenB = endB - start;
+        if (lenA == 0) return Math.min(lenB, k + 1);
+        if (lenB == 0) return Math.min(lenA, k + 1);
+
+        // шаблон (по вертикали) - более короткая строка
+        if (lenA <= lenB) {
+            if (isBitParallelPattern(a, start, endA)) return myers(a, start, endA, b, start, endB, k, null, null);
+            return banded(a, start, endA, b, start, endB, k);
+        } else {
+            if (isBitParallelPattern(b, start, endB)) return myers(b, start, endB, a, start, endA, k, null, null);
+            return banded(b, start, endB, a, start, endA, k);
+        }
+    }
+
+    /**
+     * То же, что {@link #bounded(CharSequence, CharSequence, int)}, но сравнение символов
+     * выполняет заданное ядро. Строки копируются в буферы потока
+     *
+     * @param kernel скалярное или векторное ядро
+     */
+    static int bounded(CharSequence a, CharSequence b, int k, CharKernel kernel) {
+        if (k < 0) return 0;
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > k) return k + 1;
+
+        char[][] buffers = CHARS.get();
+        char[] ca = toArray(a, buffers, 0);
+        char[] cb = toArray(b, buffers, 1);
+
+        int start = kernel.commonPrefix(ca, 0, cb, 0, Math.min(n, m));
+        int suffix = kernel.commonSuffix(ca, n, cb, m, Math.min(n, m) - start);
+        int endA = n - suffix;
+        int endB = m - suffix;
+
+        int lenA = endA - start;
+        int lenB = endB - start;
+        if (lenA == 0) return Math.min(lenB, k + 1);
+        if (lenB == 0) return Math.min(lenA, k + 1);
+
+        if (lenA <= lenB) return withKernel(a, ca, start, endA, b, start, endB, k, kernel);
+        return withKernel(b, cb, start, endB, a, start, endA, k, kernel);
+    }
+
+    /**
+     * Выбор движка после отбрасывания префикса и суффикса.
+     * Маски совпадений из векторного ядра снимают ограничение на алфавит шаблона;
+     * скалярно они дороже ленточного DP, поэтому без векторов остается прежний выбор
+     */
+    private static int withKernel(CharSequence p, char[] pChars, int pFrom, int pTo,
+                                  CharSequence t, int tFrom, int tTo, int k, CharKernel kernel) {
+        if (pTo - pFrom > MAX_BIT_PARALLEL) return banded(p, pFrom, pTo, t, tFrom, tTo, k);
+        if (isBitParallelPattern(p, pFrom, pTo)) return myers(p, pFrom, pTo, t, tFrom, tTo, k, null, null);
+        if (kernel.isVectorized()) return myers(p, pFrom, pTo, t, tFrom, tTo, k, pChars, kernel);
+        return banded(p, pFrom, pTo, t, tFrom, tTo, k);
+    }
+
+    /** Копирует строку в буфер потока с номером slot */
+    private static char[] toArray(CharSequence s, char[][] buffers, int slot) {
+        int len = s.length();
+        if (buffers[slot].length < len) buffers[slot] = new char[Math.max(len, buffers[slot].length * 2)];
+        char[] dst = buffers[slot];
+        if (s instanceof String str) {
+            str.getChars(0, len, dst, 0);
+        } else {
+            for (int i = 0; i < len; i++) dst[i] = s.charAt(i);
+        }
+        return dst;
+    }
+
+    /**
+     * Бит-параллельное расстояние Левенштейна (Myers 1999, вариант Hyyrö для полной строки)
+     *
+     * @param pattern слово длиной до 64 символов из поддерживаемого алфавита
+     * @param text второе слово (любые символы)
+     * @return точное расстояние
+     * @throws IllegalArgumentException если шаблон не подходит для бит-параллельного режима
+     */
+    public static int myers(CharSequence pattern, CharSequence text) {
+        if (!isBitParallelPattern(pattern, 0, pattern.length())) {
+            throw new IllegalArgumentException("Шаблон не подходит для бит-параллельного режима: " + pattern);
+        }
+        if (pattern.isEmpty()) return text.length();
+        return myers(pattern, 0, pattern.length(), text, 0, text.length(), Integer.MAX_VALUE - 1, null, null);
+    }
+
+    /**
+     * Шаблон подходит для бит-параллельного режима: не длиннее 64 символов и
+     * все символы есть в таблице масок
+     */
+    static boolean isBitParallelPattern(CharSequence s, int from, int to) {
+        if (to - from > MAX_BIT_PARALLEL) return false;
+        for (int i = from; i < to; i++) {
+            if (slot(s.charAt(i)) < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Номер символа в таблице масок или -1, если символ не поддерживается
+     */
+    private static int slot(char c) {
+        if (c < 128) return c;
+        if (c >= 'а' && c <= 'я') return 128 + (c - 'а');
+        return -1;
+    }
+
+    /**
+     * @param pChars копия шаблона в массиве (только вместе с kernel)
+     * @param kernel ядро для масок совпадений; {@code null} - таблица масок по алфавиту
+     */
+    private static int myers(CharSequence p, int pFrom, int pTo, CharSequence t, int tFrom, int tTo, int k,
+                             char[] pChars, CharKernel kernel) {
+        int m = pTo - pFrom;
+        long[] peq = PEQ.get();
+
+        // маски позиций каждого символа в шаблоне
+        if (kernel == null) {
+            for (int i = 0; i < m; i++) {
+                peq[slot(p.charAt(pFrom + i))] |= 1L << i;
+            }
+        }
+
+        long pv = -1L;
+        long mv = 0L;
+        long last = 1L << (m - 1);
+        int score = m;
+        int remaining = tTo - tFrom;
+
+        try {
+            for (int j = tFrom; j < tTo; j++) {
+                long eq;
+                if (kernel == null) {
+                    int s = slot(t.charAt(j));
+                    eq = s >= 0 ? peq[s] : 0L;
+                } else {
+                    eq = kernel.equalityMask(pChars, pFrom, m, t.charAt(j));
+                }
+
+                long xv = eq | mv;
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+
+                if ((ph & last) != 0) score++;
+                else if ((mh & last) != 0) score--;
+
+                // верхняя строка матрицы растет на +1 на каждом шаге (полное, а не поисковое расстояние)
+                ph = (ph << 1) | 1L;
+                mh <<= 1;
+                pv = mh | ~(xv | ph);
+                mv = ph & xv;
+
+                // каждый следующий символ уменьшает счет максимум на 1
+                remaining--;
+                if (score - remaining > k) return k + 1;
+            }
+            return Math.min(score, k + 1);
+        } finally {
+            // таблица переиспользуется: чистим только то, что заполнили
+            if (kernel == null) {
+                for (int i = pFrom; i < pTo; i++) {
+                    peq[slot(p.charAt(i))] = 0L;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ленточный DP (алгоритм Укконена): считаются только клетки {@code |i - j| <= k}
+     */
+    private static int banded(CharSequence a, int aFrom, int aTo, CharSequence b, int bFrom, int bTo, int k) {
+        int n = aTo - aFrom;
+        int m = bTo - bFrom;
+        int inf = k + 1;
+
+        int[][] rows = ROWS.get();
+        if (rows[0].length < m + 2) {
+            int size = Math.max(m + 2, rows[0].length * 2);
+            rows[0] = new int[size];
+            rows[1] = new int[size];
+        }
+        int[] prev = rows[0];
+        int[] cur = rows[1];
+
+        // нулевая строка: расстояние от пустого префикса
+        for (int j = 0; j <= Math.min(m, k); j++) prev[j] = j;
+        if (k + 1 <= m) prev[k + 1] = inf;
+
+        for (int i = 1; i <= n; i++) {
+            int lo = Math.max(1, i - k);
+            int hi = Math.min(m, i + k);
+
+            cur[lo - 1] = lo == 1 ? Math.min(i, inf) : inf;
+            int rowMin = cur[lo - 1];
+            char ca = a.charAt(aFrom + i - 1);
+
+            for (int j = lo; j <= hi; j++) {
+                int cost = ca == b.charAt(bFrom + j - 1) ? 0 : 1;
+                int v = prev[j - 1] + cost;               // замена
+                v = Math.min(v, prev[j] + 1);             // удаление
+                v = Math.min(v, cur[j - 1] + 1);          // вставка
+                if (v > inf) v = inf;
+                cur[j] = v;
+                if (v < rowMin) rowMin = v;
+            }
+            // правая граница полосы для следующей строки
+            if (hi + 1 <= m) cur[hi + 1] = inf;
+
+            // вся полоса уже за порогом - дальше будет только хуже
+            if (rowMin > k) return inf;
+
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return Math.min(prev[m], inf);
+    }
+
+    private EditDistance() {}
+}
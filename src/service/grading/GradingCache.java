@@ -0,0 +1,148 @@
+package service.grading;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кеш результатов проверки (LRU)
+ * <p>
+ * Пользователь часто отправляет для одной карточки один и тот же ответ, а перепроверка истории
+ * повторяет пары целиком. Ключ - ID карточки, отпечаток ее эталона
+ * ({@link TokenVocabulary#fingerprint(int[])}) и отпечаток нормализованного ответа
+ * ({@link util.TokenBuffer#fingerprint()}): ответы, которые после токенизации совпадают,
+ * получают одну и ту же оценку
+ * </p>
+ * <p>
+ * Ограничен и по числу записей, и по приблизительному объему памяти; при превышении
+ * вытесняются давно не использованные записи. Потокобезопасен (доступ под монитором).
+ * Оценка по старому эталону не совпадает с новым ключом, даже если ее сохранила проверка,
+ * начатая до перезагрузки; {@link #invalidateCards} только освобождает место
+ * </p>
+ */
+public final class GradingCache {
+
+    /** Ограничения по умолчанию */
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    public static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+
+    /** Приблизительный размер записи без строки ID: узел карты, ключ, два long, Double */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final int maxEntries;
+    private final long maxBytes;
+
+    /** Порядок доступа: первая запись - самая давняя */
+    private final LinkedHashMap<Key, Double> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    /** Текущий приблизительный объем (изменяется под монитором) */
+    private long weight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /** Кеш с ограничениями по умолчанию */
+    public GradingCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxEntries максимум записей
+     * @param maxBytes максимум приблизительного объема в байтах
+     */
+    public GradingCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Ищет сохраненную оценку
+     *
+     * @param cardId ID карточки
+     * @param referenceFingerprint отпечаток эталонного ответа
+     * @param answerFingerprint отпечаток нормализованного ответа
+     * @return оценка или {@link Double#NaN}, если записи нет
+     */
+    public double get(String cardId, long referenceFingerprint, long answerFingerprint) {
+        Double score;
+        synchronized (this) {
+            score = entries.get(new Key(cardId, referenceFingerprint, answerFingerprint));
+        }
+        if (score == null) {
+            misses.incrementAndGet();
+            return Double.NaN;
+        }
+        hits.incrementAndGet();
+        return score;
+    }
+
+    /**
+     * Сохраняет оценку, при необходимости вытесняя давние записи
+     */
+    public synchronized void put(String cardId, long referenceFingerprint, long answerFingerprint, double score) {
+        Key key = new Key(cardId, referenceFingerprint, answerFingerprint);
+        if (entries.put(key, score) == null) weight += weightOf(key);
+
+        Iterator<Key> eldest = entries.keySet().iterator();
+        while ((entries.size() > maxEntries || weight > maxBytes) && eldest.hasNext()) {
+            weight -= weightOf(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Сбрасывает все записи указанных карточек
+     *
+     * @param cardIds ID карточек, у которых изменился ответ (или которые удалены)
+     */
+    public synchronized void invalidateCards(Collection<String> cardIds) {
+        if (cardIds.isEmpty() || entries.isEmpty()) return;
+        Set<String> ids = cardIds instanceof Set<String> set ? set : new HashSet<>(cardIds);
+
+        Iterator<Key> it = entries.keySet().iterator();
+        while (it.hasNext()) {
+            Key key = it.next();
+            if (ids.contains(key.cardId())) {
+                weight -= weightOf(key);
+                it.remove();
+            }
+        }
+    }
+
+    /** Полная очистка (например, после настройки алгоритма оценки) */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /** Количество записей */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Приблизительный объем в байтах */
+    public synchronized long weightBytes() {
+        return weight;
+    }
+
+    /** Количество попаданий */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** Количество промахов */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static long weightOf(Key key) {
+        return ENTRY_OVERHEAD + 2L * key.cardId().length();
+    }
+
+    private record Key(String cardId, long reference, long answer) {
+    }
+}
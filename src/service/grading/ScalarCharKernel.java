@@ -0,0 +1,40 @@
+package service.grading;
+
+/**
+ * Скалярная реализация {@link CharKernel}: обычные циклы по символам.
+ * Используется, когда модуль {@code jdk.incubator.vector} не подключен
+ */
+final class ScalarCharKernel implements CharKernel {
+
+    static final ScalarCharKernel INSTANCE = new ScalarCharKernel();
+
+    @Override
+    public int commonPrefix(char[] a, int aFrom, char[] b, int bFrom, int len) {
+        int i = 0;
+        while (i < len && a[aFrom + i] == b[bFrom + i]) i++;
+        return i;
+    }
+
+    @Override
+    public int commonSuffix(char[] a, int aEnd, char[] b, int bEnd, int len) {
+        int i = 0;
+        while (i < len && a[aEnd - 1 - i] == b[bEnd - 1 - i]) i++;
+        return i;
+    }
+
+    @Override
+    public long equalityMask(char[] pattern, int from, int len, char c) {
+        long mask = 0L;
+        for (int i = 0; i < len; i++) {
+            if (pattern[from + i] == c) mask |= 1L << i;
+        }
+        return mask;
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return false;
+    }
+
+    private ScalarCharKernel() {}
+}
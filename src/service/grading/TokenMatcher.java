@@ -0,0 +1,319 @@
+package service.grading;
+
+import util.LongList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сопоставление слов ответа пользователя со словами эталона ("Bag of Words")
+ * <p>
+ * Работает в две фазы:
+ * <ol>
+ *     <li><b>Точные совпадения:</b> слова пользователя складываются в мультимножество (хеш-карта
+ *     слово - > количество), каждое слово эталона ищется в нем за O(1)</li>
+ *     <li><b>Нечеткие совпадения:</b> только для оставшихся слов. Остатки пользователя разложены
+ *     по корзинам длины, поэтому пары с разницей длины больше порога даже не сравниваются,
+ *     а перед расчетом расстояния пары отсеиваются по маске символов ({@link TokenVocabulary#mayBeWithin})</li>
+ * </ol>
+ * Каждое слово пользователя засчитывается не более одного раза.
+ * Для длинных ответов (код, эссе) время работы близко к линейному
+ * </p>
+ * <p>
+ * Если для словаря построен {@link DeletionIndex}, а остатков много, пары-кандидаты для
+ * нечеткой фазы находятся поиском по индексу, и расстояние считается только для них.
+ * Порядок перебора при этом тот же, поэтому результат не зависит от того, построен ли индекс
+ * </p>
+ */
+public final class TokenMatcher {
+
+    /** Минимальное число пар (остаток эталона x остаток пользователя), при котором выгоден индекс */
+    static final int INDEX_MIN_PAIRS = 256;
+
+    /** Обычная проверка: ограниченное расстояние Левенштейна */
+    private static final SimilarityCheck DISTANCE_CHECK =
+            (correct, user, _, limit) -> EditDistance.withinDistance(correct, user, limit);
+
+    /**
+     * Считает количество слов эталона, для которых нашлась пара в ответе пользователя
+     *
+     * @param correctTokens слова эталона
+     * @param userTokens слова пользователя
+     * @return количество совпавших слов эталона (0..correctTokens.size())
+     */
+    public static int countMatches(List<String> correctTokens, List<String> userTokens) {
+        if (correctTokens.isEmpty() || userTokens.isEmpty()) return 0;
+
+        // фаза 1: мультимножество слов пользователя
+        Map<String, int[]> userPool = new HashMap<>(userTokens.size() * 2);
+        for (String w : userTokens) {
+            userPool.computeIfAbsent(w, _ -> new int[1])[0]++;
+        }
+
+        int matches = 0;
+        List<String> leftover = null;
+        for (String w : correctTokens) {
+            int[] count = userPool.get(w);
+            if (count != null && count[0] > 0) {
+                count[0]--;
+                matches++;
+            } else {
+                if (leftover == null) leftover = new ArrayList<>();
+                leftover.add(w);
+            }
+        }
+        if (leftover == null) return matches;
+
+        // фаза 2: нечеткий поиск только по остаткам
+        LengthBuckets buckets = new LengthBuckets();
+        for (var entry : userPool.entrySet()) {
+            for (int i = 0; i < entry.getValue()[0]; i++) buckets.add(entry.getKey());
+        }
+        for (String w : leftover) {
+            if (buckets.takeSimilar(w, TokenVocabulary.charMask(w), DISTANCE_CHECK)) matches++;
+        }
+        return matches;
+    }
+
+    /**
+     * Вариант для эталона, закодированного номерами словаря
+     * <p>
+     * Точная фаза сравнивает числа: номера слов пользователя сортируются,
+     * каждое слово эталона ищется двоичным поиском. Слова пользователя, которых нет в словаре,
+     * точно не совпадают ни с одним словом эталона и сразу идут в нечеткую фазу
+     * </p>
+     *
+     * @param correctIds номера слов эталона
+     * @param userTokens слова пользователя
+     * @param vocabulary словарь, которым закодирован эталон
+     * @return количество совпавших слов эталона (0..correctIds.length)
+     */
+    public static int countMatches(int[] correctIds, List<String> userTokens, TokenVocabulary vocabulary) {
+        if (correctIds.length == 0 || userTokens.isEmpty()) return 0;
+
+        // фаза 1: отсортированные номера слов пользователя
+        int[] userIds = new int[userTokens.size()];
+        int known = 0;
+        List<String> unknown = new ArrayList<>();
+        for (String w : userTokens) {
+            int id = vocabulary.idOf(w);
+            if (id >= 0) userIds[known++] = id;
+            else unknown.add(w);
+        }
+        Arrays.sort(userIds, 0, known);
+
+        // taken[start] - сколько слов уже использовано в серии одинаковых номеров, начинающейся в start
+        int[] taken = new int[known];
+        boolean[] used = new boolean[known];
+
+        int matches = 0;
+        int[] leftover = new int[correctIds.length];
+        int leftCount = 0;
+        for (int id : correctIds) {
+            int start = lowerBound(userIds, known, id);
+            int pos = start + (start < known ? taken[start] : 0);
+            if (pos < known && userIds[pos] == id) {
+                taken[start]++;
+                used[pos] = true;
+                matches++;
+            } else {
+                leftover[leftCount++] = id;
+            }
+        }
+        if (leftCount == 0) return matches;
+
+        // фаза 2: нечеткий поиск только по остаткам
+        LengthBuckets buckets = new LengthBuckets();
+        for (int i = 0; i < known; i++) {
+            if (!used[i]) buckets.add(vocabulary.text(userIds[i]), vocabulary.mask(userIds[i]));
+        }
+        for (String w : unknown) buckets.add(w);
+
+        SimilarityCheck check = DISTANCE_CHECK;
+        DeletionIndex index = vocabulary.getDeletionIndex();
+        if (index != null && (long) leftCount * buckets.size() >= INDEX_MIN_PAIRS
+                && coversAll(index, leftover, leftCount, vocabulary)) {
+            check = indexedCheck(index, leftover, leftCount, buckets, vocabulary);
+        }
+
+        for (int i = 0; i < leftCount; i++) {
+            int id = leftover[i];
+            if (buckets.takeSimilar(vocabulary.text(id), vocabulary.mask(id), check)) matches++;
+        }
+        return matches;
+    }
+
+    private static boolean coversAll(DeletionIndex index, int[] ids, int count, TokenVocabulary vocabulary) {
+        for (int i = 0; i < count; i++) {
+            if (!index.covers(ids[i], vocabulary)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Заранее находит все похожие пары (слово эталона, слово пользователя) через индекс удалений.
+     * Для каждого оставшегося слова пользователя перебираются кандидаты из индекса, и расстояние
+     * считается только для тех, что есть среди остатков эталона
+     */
+    private static SimilarityCheck indexedCheck(DeletionIndex index, int[] leftover, int leftCount,
+                                                LengthBuckets buckets, TokenVocabulary vocabulary) {
+        int[] refIds = Arrays.copyOf(leftover, leftCount);
+        Arrays.sort(refIds);
+        int distinct = 0;
+        for (int i = 0; i < refIds.length; i++) {
+            if (distinct == 0 || refIds[distinct - 1] != refIds[i]) refIds[distinct++] = refIds[i];
+        }
+        int refCount = distinct;
+
+        // similar[slot] - порядковые номера слов пользователя, похожих на слово эталона refIds[slot]
+        BitSet[] similar = new BitSet[refCount];
+        // checkedBy[slot] - слово пользователя, для которого пара уже проверена (кандидаты повторяются)
+        int[] checkedBy = new int[refCount];
+        Arrays.fill(checkedBy, -1);
+
+        buckets.forEach((user, ordinal) -> index.forEachCandidate(user, id -> {
+            int slot = Arrays.binarySearch(refIds, 0, refCount, id);
+            if (slot < 0 || checkedBy[slot] == ordinal) return;
+            checkedBy[slot] = ordinal;
+
+            String correct = vocabulary.text(id);
+            int limit = typoLimit(correct);
+            if (Math.abs(correct.length() - user.length()) > limit) return;
+            if (!TokenVocabulary.mayBeWithin(vocabulary.mask(id), TokenVocabulary.charMask(user), limit)) return;
+            if (EditDistance.withinDistance(correct, user, limit)) {
+                if (similar[slot] == null) similar[slot] = new BitSet();
+                similar[slot].set(ordinal);
+            }
+        }));
+
+        return (correct, _, ordinal, _) -> {
+            int slot = Arrays.binarySearch(refIds, 0, refCount, vocabulary.idOf(correct));
+            return slot >= 0 && similar[slot] != null && similar[slot].get(ordinal);
+        };
+    }
+
+    /**
+     * Адаптивный порог опечаток: для длинных слов (&gt; 6 букв) допускаем 2 ошибки, для коротких - 1
+     *
+     * @param correctWord слово эталона
+     */
+    public static int typoLimit(String correctWord) {
+        return correctWord.length() > 6 ? 2 : 1;
+    }
+
+    /** Первая позиция со значением {@code >= key} в отсортированном префиксе массива */
+    private static int lowerBound(int[] a, int len, int key) {
+        int lo = 0;
+        int hi = len;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Проверка "слово пользователя похоже на слово эталона" */
+    @FunctionalInterface
+    private interface SimilarityCheck {
+        /**
+         * @param correct слово эталона
+         * @param user слово пользователя
+         * @param ordinal порядковый номер слова пользователя (см. {@link LengthBuckets#add})
+         * @param limit допустимое число опечаток
+         */
+        boolean test(String correct, String user, int ordinal, int limit);
+    }
+
+    /** Обход слов пользователя вместе с их порядковыми номерами */
+    @FunctionalInterface
+    private interface WordVisitor {
+        void accept(String word, int ordinal);
+    }
+
+    /**
+     * Неиспользованные слова пользователя, разложенные по корзинам длины
+     */
+    private static final class LengthBuckets {
+        private final List<List<String>> words = new ArrayList<>();
+        private final List<LongList> masks = new ArrayList<>();
+        private final List<LongList> ordinals = new ArrayList<>();
+        private int size;
+
+        void add(String w) {
+            add(w, TokenVocabulary.charMask(w));
+        }
+
+        /** Добавляет слово; его порядковый номер - количество слов, добавленных до него */
+        void add(String w, long mask) {
+            int len = w.length();
+            while (words.size() <= len) {
+                words.add(null);
+                masks.add(null);
+                ordinals.add(null);
+            }
+            if (words.get(len) == null) {
+                words.set(len, new ArrayList<>());
+                masks.set(len, new LongList());
+                ordinals.set(len, new LongList());
+            }
+            words.get(len).add(w);
+            masks.get(len).add(mask);
+            ordinals.get(len).add(size++);
+        }
+
+        /** Количество добавленных слов */
+        int size() {
+            return size;
+        }
+
+        /** Обходит все слова, еще лежащие в корзинах */
+        void forEach(WordVisitor visitor) {
+            for (int l = 0; l < words.size(); l++) {
+                List<String> bucket = words.get(l);
+                if (bucket == null) continue;
+                for (int i = 0; i < bucket.size(); i++) {
+                    visitor.accept(bucket.get(i), (int) ordinals.get(l).get(i));
+                }
+            }
+        }
+
+        /**
+         * Ищет похожее слово в корзинах длины {@code len ± limit}.
+         * Найденное слово удаляется из корзины (перестановкой с последним, O(1))
+         */
+        boolean takeSimilar(String w, long mask, SimilarityCheck check) {
+            int limit = typoLimit(w);
+            int len = w.length();
+            int from = Math.max(0, len - limit);
+            int to = Math.min(words.size() - 1, len + limit);
+
+            for (int l = from; l <= to; l++) {
+                List<String> bucket = words.get(l);
+                if (bucket == null) continue;
+                LongList bucketMasks = masks.get(l);
+                LongList bucketOrdinals = ordinals.get(l);
+
+                for (int i = 0; i < bucket.size(); i++) {
+                    // дешевый отсев по набору символов, затем ограниченный Левенштейн
+                    if (!TokenVocabulary.mayBeWithin(mask, bucketMasks.get(i), limit)) continue;
+                    if (check.test(w, bucket.get(i), (int) bucketOrdinals.get(i), limit)) {
+                        int last = bucket.size() - 1;
+                        bucket.set(i, bucket.get(last));
+                        bucket.remove(last);
+                        bucketMasks.removeSwap(i);
+                        bucketOrdinals.removeSwap(i);
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    private TokenMatcher() {}
+}
@@ -0,0 +1,178 @@
+package service.grading;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Словарь токенов сессии
+ * <p>
+ * Каждый токен эталонных ответов получает плотный номер ({@code int}), поэтому ответы
+ * карточек хранятся как {@code int[]}, а точное сравнение слов - это сравнение чисел.
+ * Для каждого номера заранее посчитаны длина и "маска символов" (64-битный набор хешей букв) -
+ * дешевый фильтр перед расчетом расстояния Левенштейна
+ * </p>
+ * <p>
+ * Потокобезопасен: чтение без блокировок, добавление новых токенов под монитором
+ * </p>
+ * <p>
+ * Для массовой проверки поверх словаря можно построить {@link DeletionIndex}
+ * (см. {@link #buildDeletionIndex()}). Индекс - снимок: токены, добавленные позже, в него не попадают
+ * </p>
+ */
+public final class TokenVocabulary {
+
+    /** Токен - > номер */
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    /** Номер - > текст токена */
+    private volatile String[] texts = new String[256];
+
+    /** Номер - > маска символов */
+    private volatile long[] masks = new long[256];
+
+    /** Количество токенов (изменяется только под монитором) */
+    private int size;
+
+    /** Индекс удалений для поиска слов с опечатками ({@code null} - еще не построен) */
+    private volatile DeletionIndex deletionIndex;
+
+    /**
+     * Номер токена; если токена еще нет, он добавляется в словарь
+     *
+     * @param token токен (см. {@link util.TextUtil#tokenize})
+     * @return номер токена
+     */
+    public int intern(String token) {
+        Integer id = ids.get(token);
+        if (id != null) return id;
+
+        synchronized (this) {
+            id = ids.get(token);
+            if (id != null) return id;
+
+            int next = size;
+            String[] t = texts;
+            long[] m = masks;
+            if (next == t.length) {
+                t = Arrays.copyOf(t, next * 2);
+                m = Arrays.copyOf(m, next * 2);
+            }
+            t[next] = token;
+            m[next] = charMask(token);
+            // публикуем массивы до того, как номер станет виден читателям через ids
+            masks = m;
+            texts = t;
+            ids.put(token, next);
+            size = next + 1;
+            return next;
+        }
+    }
+
+    /**
+     * Кодирует список токенов в номера (с добавлением новых токенов в словарь)
+     */
+    public int[] encode(List<String> tokens) {
+        int[] result = new int[tokens.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = intern(tokens.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Номер токена без добавления в словарь
+     *
+     * @return номер или {@code -1}, если токена нет
+     */
+    public int idOf(String token) {
+        Integer id = ids.get(token);
+        return id != null ? id : -1;
+    }
+
+    /** Текст токена по номеру */
+    public String text(int id) {
+        return texts[id];
+    }
+
+    /** Длина токена по номеру */
+    public int length(int id) {
+        return texts[id].length();
+    }
+
+    /** Маска символов токена по номеру */
+    public long mask(int id) {
+        return masks[id];
+    }
+
+    /**
+     * Отпечаток последовательности токенов по их тексту (не по номерам), поэтому не зависит
+     * от словаря: совпадает с {@link util.TokenBuffer#fingerprint()} тех же токенов
+     *
+     * @param tokenIds номера токенов этого словаря
+     */
+    public long fingerprint(int[] tokenIds) {
+        String[] t = texts;
+        long h = 0xcbf29ce484222325L;
+        for (int id : tokenIds) {
+            String token = t[id];
+            h = (h ^ token.length()) * 0x100000001b3L;
+            for (int j = 0; j < token.length(); j++) {
+                h = (h ^ token.charAt(j)) * 0x100000001b3L;
+            }
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /** Количество токенов в словаре */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Строит индекс удалений по текущему содержимому словаря
+     *
+     * @return построенный индекс
+     */
+    public DeletionIndex buildDeletionIndex() {
+        DeletionIndex index = DeletionIndex.build(this);
+        deletionIndex = index;
+        return index;
+    }
+
+    /**
+     * Индекс удалений
+     *
+     * @return индекс или {@code null}, если он еще не построен
+     */
+    public DeletionIndex getDeletionIndex() {
+        return deletionIndex;
+    }
+
+    /**
+     * Маска символов: по одному биту на символ (номер бита - младшие 6 бит кода символа)
+     * <p>
+     * Одна правка (вставка, удаление, замена) меняет набор символов слова не больше чем на 2 элемента,
+     * поэтому если {@code bitCount(maskA ^ maskB) > 2k}, расстояние между словами точно больше {@code k}
+     * </p>
+     */
+    public static long charMask(CharSequence s) {
+        long mask = 0L;
+        for (int i = 0; i < s.length(); i++) {
+            mask |= 1L << (s.charAt(i) & 63);
+        }
+        return mask;
+    }
+
+    /**
+     * Быстрый отсев: могут ли слова с такими масками быть на расстоянии не больше {@code k}
+     */
+    public static boolean mayBeWithin(long maskA, long maskB, int k) {
+        return Long.bitCount(maskA ^ maskB) <= 2 * k;
+    }
+}
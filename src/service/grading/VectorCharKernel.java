@@ -0,0 +1,72 @@
+package service.grading;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Векторная реализация {@link CharKernel} (Vector API, {@code jdk.incubator.vector})
+ * <p>
+ * Символы ({@code char}) загружаются в вектора {@code short} предпочтительной для процессора ширины
+ * (16 символов на AVX2, 32 на AVX-512) и сравниваются за одну инструкцию.
+ * Хвост короче вектора дорабатывается скалярно
+ * </p>
+ * <p>
+ * Класс загружается только через {@link CharKernels}, и только если модуль доступен
+ * (запуск с {@code --add-modules jdk.incubator.vector}). Напрямую на него не ссылаться!
+ * </p>
+ */
+final class VectorCharKernel implements CharKernel {
+
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    @Override
+    public int commonPrefix(char[] a, int aFrom, char[] b, int bFrom, int len) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(len); i < bound; i += LANES) {
+            ShortVector va = ShortVector.fromCharArray(SPECIES, a, aFrom + i);
+            ShortVector vb = ShortVector.fromCharArray(SPECIES, b, bFrom + i);
+            VectorMask<Short> diff = va.compare(VectorOperators.NE, vb);
+            if (diff.anyTrue()) return i + diff.firstTrue();
+        }
+        while (i < len && a[aFrom + i] == b[bFrom + i]) i++;
+        return i;
+    }
+
+    @Override
+    public int commonSuffix(char[] a, int aEnd, char[] b, int bEnd, int len) {
+        int i = 0;
+        for (; i + LANES <= len; i += LANES) {
+            ShortVector va = ShortVector.fromCharArray(SPECIES, a, aEnd - i - LANES);
+            ShortVector vb = ShortVector.fromCharArray(SPECIES, b, bEnd - i - LANES);
+            VectorMask<Short> diff = va.compare(VectorOperators.NE, vb);
+            // ближайшее к концу несовпадение - старшая полоса маски
+            if (diff.anyTrue()) return i + (LANES - 1 - diff.lastTrue());
+        }
+        while (i < len && a[aEnd - 1 - i] == b[bEnd - 1 - i]) i++;
+        return i;
+    }
+
+    @Override
+    public long equalityMask(char[] pattern, int from, int len, char c) {
+        ShortVector needle = ShortVector.broadcast(SPECIES, (short) c);
+        long mask = 0L;
+        int i = 0;
+        for (int bound = SPECIES.loopBound(len); i < bound; i += LANES) {
+            VectorMask<Short> eq = ShortVector.fromCharArray(SPECIES, pattern, from + i)
+                    .compare(VectorOperators.EQ, needle);
+            mask |= eq.toLong() << i;
+        }
+        for (; i < len; i++) {
+            if (pattern[from + i] == c) mask |= 1L << i;
+        }
+        return mask;
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return true;
+    }
+}
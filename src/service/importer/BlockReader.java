@@ -0,0 +1,113 @@
+package service.importer;
+
+import util.TextUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковое чтение файла импорта поблочно
+ * <p>
+ * Блок - строки между разделителями {@code ===}. В памяти держится только текущий блок.
+ * Правила совпадают с прежним разбором {@code import.txt}:
+ * <ul>
+ *     <li>непустой блок перед {@code ===} возвращается всегда (даже если он из пустых строк)</li>
+ *     <li>последний блок без {@code ===} возвращается, только если в нем есть непустые строки</li>
+ * </ul>
+ * </p>
+ */
+public final class BlockReader {
+
+    private final BufferedReader reader;
+
+    /** Количество прочитанных строк */
+    private long linesRead;
+
+    /** Прочитано байт (оценка: строки в UTF-8 плюс один байт перевода строки) */
+    private long bytesRead;
+
+    private boolean finished;
+
+    /** Блок, прочитанный через {@link #peek()} и еще не выданный */
+    private Block lookahead;
+
+    /**
+     * @param reader источник строк (закрывает вызывающий)
+     */
+    public BlockReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Следующий блок
+     *
+     * @return блок или {@code null}, если файл закончился
+     * @throws IOException при ошибке чтения
+     */
+    public Block next() throws IOException {
+        if (lookahead != null) {
+            Block b = lookahead;
+            lookahead = null;
+            return b;
+        }
+        return read();
+    }
+
+    /**
+     * Следующий блок без извлечения (следующий {@link #next()} вернет его же)
+     *
+     * @return блок или {@code null}, если файл закончился
+     * @throws IOException при ошибке чтения
+     */
+    public Block peek() throws IOException {
+        if (lookahead == null) lookahead = read();
+        return lookahead;
+    }
+
+    private Block read() throws IOException {
+        if (finished) return null;
+
+        List<String> lines = new ArrayList<>();
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            linesRead++;
+            bytesRead += TextUtil.utf8Length(line, 0, line.length()) + 1;
+            if (line.trim().equals("===")) {
+                // конец блока
+                if (!lines.isEmpty()) return new Block(lines, true);
+            } else {
+                lines.add(line);
+            }
+        }
+
+        // последний блока (если файл кончился не на "===")
+        finished = true;
+        if (lines.stream().anyMatch(s -> !s.trim().isEmpty())) return new Block(lines, false);
+        return null;
+    }
+
+    /** Количество прочитанных строк (0 - файл пуст) */
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    /**
+     * Прочитано байт файла (для индикатора хода импорта)
+     * <p>
+     * Оценка по прочитанным строкам: {@code \r\n} считается за один байт, BOM не учитывается
+     * </p>
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Блок файла импорта
+     *
+     * @param lines строки блока (без разделителя)
+     * @param terminated блок завершен разделителем {@code ===}
+     */
+    public record Block(List<String> lines, boolean terminated) {
+    }
+}
@@ -0,0 +1,123 @@
+package service.importer;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Формат CSV/TSV файла импорта: разделитель и соответствие колонок полям карточки
+ * <p>
+ * Колонка задается именем из строки заголовка (без учета регистра) или номером с 1
+ * ({@code "2"}). Без заголовка - только номером. Колонки категории и ID необязательны
+ * ({@code null}): без категории используется {@code defaultCategory}, без ID карточка создается новой
+ * </p>
+ *
+ * @param delimiter разделитель полей
+ * @param header первая запись - заголовок
+ * @param questionColumn колонка вопроса
+ * @param answerColumn колонка ответа
+ * @param categoryColumn колонка категории или {@code null}
+ * @param idColumn колонка ID или {@code null}
+ * @param defaultCategory категория, если колонки нет или значение пустое
+ */
+public record CsvFormat(char delimiter, boolean header,
+                        String questionColumn, String answerColumn,
+                        String categoryColumn, String idColumn,
+                        String defaultCategory) {
+
+    /** Категория по умолчанию */
+    public static final String DEFAULT_CATEGORY = "Import";
+
+    /** CSV с заголовком {@code question,answer,category,id} (порядок любой) */
+    public static CsvFormat csv() {
+        return new CsvFormat(',', true, "question", "answer", "category", "id", DEFAULT_CATEGORY);
+    }
+
+    /** То же с табуляцией в качестве разделителя */
+    public static CsvFormat tsv() {
+        return csv().withDelimiter('\t');
+    }
+
+    /**
+     * Формат по расширению файла: {@code .tsv} и {@code .tab} - TSV, остальное - CSV
+     */
+    public static CsvFormat forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".tsv") || name.endsWith(".tab") ? tsv() : csv();
+    }
+
+    public CsvFormat withDelimiter(char delimiter) {
+        return new CsvFormat(delimiter, header, questionColumn, answerColumn, categoryColumn, idColumn, defaultCategory);
+    }
+
+    public CsvFormat withHeader(boolean header) {
+        return new CsvFormat(delimiter, header, questionColumn, answerColumn, categoryColumn, idColumn, defaultCategory);
+    }
+
+    /**
+     * Другое соответствие колонок
+     *
+     * @param question колонка вопроса
+     * @param answer колонка ответа
+     * @param category колонка категории или {@code null}
+     * @param id колонка ID или {@code null}
+     */
+    public CsvFormat withColumns(String question, String answer, String category, String id) {
+        return new CsvFormat(delimiter, header, question, answer, category, id, defaultCategory);
+    }
+
+    public CsvFormat withDefaultCategory(String defaultCategory) {
+        return new CsvFormat(delimiter, header, questionColumn, answerColumn, categoryColumn, idColumn, defaultCategory);
+    }
+
+    /**
+     * Номера колонок (с 0) для конкретного файла
+     *
+     * @param headerRecord первая запись файла или {@code null}, если заголовка нет
+     * @return номера колонок; {@code -1} - колонки нет
+     * @throws IllegalArgumentException если не найдена колонка вопроса или ответа
+     */
+    public Columns resolve(List<String> headerRecord) {
+        List<String> names = new ArrayList<>();
+        if (headerRecord != null) {
+            for (String h : headerRecord) names.add(h.trim().toLowerCase(Locale.ROOT));
+        }
+        int question = column(questionColumn, names, true);
+        int answer = column(answerColumn, names, true);
+        int category = column(categoryColumn, names, false);
+        int id = column(idColumn, names, false);
+        return new Columns(question, answer, category, id);
+    }
+
+    private static int column(String spec, List<String> names, boolean required) {
+        if (spec == null || spec.isBlank()) {
+            if (required) throw new IllegalArgumentException("Не задана обязательная колонка");
+            return -1;
+        }
+        String s = spec.trim();
+        if (s.chars().allMatch(Character::isDigit)) {
+            int n = Integer.parseInt(s);
+            if (n < 1) throw new IllegalArgumentException("Номер колонки начинается с 1: " + s);
+            return n - 1;
+        }
+        int idx = names.indexOf(s.toLowerCase(Locale.ROOT));
+        if (idx < 0 && required) throw new IllegalArgumentException("Нет колонки " + s);
+        return idx;
+    }
+
+    /**
+     * Номера колонок записи (с 0); {@code -1} - колонки нет
+     */
+    public record Columns(int question, int answer, int category, int id) {
+
+        /**
+         * Значение колонки записи
+         *
+         * @return значение без пробелов по краям или пустая строка, если колонки нет
+         */
+        public static String value(List<String> record, int column) {
+            return column >= 0 && column < record.size() ? record.get(column).trim() : "";
+        }
+    }
+}
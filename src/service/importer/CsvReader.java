@@ -0,0 +1,213 @@
+package service.importer;
+
+import util.TextUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковое чтение CSV/TSV по записям (RFC 4180)
+ * <p>
+ * Поля в двойных кавычках могут содержать разделитель, переводы строк и кавычки
+ * (удвоенные: {@code ""}). Переводы строк {@code \r\n} и {@code \r} внутри полей приводятся к {@code \n}.
+ * Пустые строки между записями пропускаются, BOM в начале файла игнорируется
+ * </p>
+ * <p>
+ * Файл читается кусками по {@link #CHUNK} символов, в памяти - только текущая запись.
+ * Поле длиннее {@link #MAX_FIELD} символов (обычно незакрытая кавычка) - ошибка чтения,
+ * а не чтение всего остатка файла в память
+ * </p>
+ */
+public final class CsvReader implements Closeable {
+
+    /** Размер куска чтения */
+    static final int CHUNK = 64 * 1024;
+
+    /** Максимальная длина поля */
+    static final int MAX_FIELD = 1 << 20;
+
+    private static final int EOF = -1;
+    private static final char QUOTE = '"';
+    private static final char BOM = '\uFEFF';
+
+    private final Reader in;
+    private final char delimiter;
+    private final char[] buf = new char[CHUNK];
+    private int pos;
+    private int limit;
+    private boolean started;
+
+    private final StringBuilder field = new StringBuilder();
+
+    /** Номер текущей строки файла (с 1) */
+    private long line = 1;
+
+    /** Строка, с которой началась последняя запись */
+    private long recordLine;
+
+    /** Прочитано байт из источника (в UTF-8) */
+    private long bytesRead;
+
+    /** Последняя запись оборвалась внутри кавычек (конец файла) */
+    private boolean malformed;
+
+    /**
+     * @param in источник (закрывается в {@link #close()})
+     * @param delimiter разделитель полей ({@code ','}, {@code ';'}, {@code '\t'})
+     */
+    public CsvReader(Reader in, char delimiter) {
+        if (delimiter == QUOTE || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("Недопустимый разделитель: " + delimiter);
+        }
+        this.in = in;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Следующая запись
+     *
+     * @return поля записи или {@code null} в конце файла
+     * @throws IOException при ошибке чтения или слишком длинном поле
+     */
+    public List<String> next() throws IOException {
+        skipBom();
+        List<String> record = new ArrayList<>();
+        malformed = false;
+        while (true) {
+            recordLine = line;
+            if (readRecord(record)) return record;
+            // пустая строка - не запись
+            if (record.isEmpty()) return null;
+            record.clear();
+        }
+    }
+
+    /**
+     * Читает одну физическую запись
+     *
+     * @return {@code true}, если запись непустая; {@code false} - пустая строка
+     * (или конец файла, тогда {@code record} пуст)
+     */
+    private boolean readRecord(List<String> record) throws IOException {
+        field.setLength(0);
+        boolean quoted = false;     // внутри кавычек
+        boolean wasQuoted = false;  // текущее поле начиналось с кавычки
+
+        int c = read();
+        if (c == EOF) return false;
+        while (true) {
+            if (quoted) {
+                if (c == EOF) {
+                    malformed = true;
+                    break;
+                }
+                if (c == QUOTE) {
+                    if (peek() == QUOTE) {
+                        read();
+                        append(QUOTE);
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '\r' || c == '\n') {
+                    newLine(c);
+                    append('\n');
+                } else {
+                    append((char) c);
+                }
+            } else if (c == delimiter) {
+                record.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (c == QUOTE && field.isEmpty() && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == '\r' || c == '\n') {
+                newLine(c);
+                break;
+            } else if (c == EOF) {
+                break;
+            } else {
+                // в том числе текст после закрывающей кавычки - не по стандарту, но не теряется
+                append((char) c);
+            }
+            c = read();
+        }
+
+        if (record.isEmpty() && field.isEmpty() && !wasQuoted) {
+            // пустая строка; конец файла отличается от нее пустым record в вызывающем коде
+            record.add("");
+            return false;
+        }
+        record.add(field.toString());
+        return true;
+    }
+
+    /** Номер строки файла, с которой началась последняя прочитанная запись */
+    public long getRecordLine() {
+        return recordLine;
+    }
+
+    /**
+     * Прочитано байт файла (для индикатора хода импорта): длина прочитанных кусков в UTF-8,
+     * с опережением не больше одного куска
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /** Последняя запись оборвалась внутри незакрытой кавычки (в конце файла) */
+    public boolean isMalformed() {
+        return malformed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void append(char c) throws IOException {
+        if (field.length() >= MAX_FIELD) {
+            throw new IOException(String.format(
+                    "Поле записи со строки %d длиннее %d символов (незакрытая кавычка?)", recordLine, MAX_FIELD));
+        }
+        field.append(c);
+    }
+
+    /** Учитывает перевод строки; {@code \r\n} - один перевод */
+    private void newLine(int c) throws IOException {
+        if (c == '\r' && peek() == '\n') read();
+        line++;
+    }
+
+    private void skipBom() throws IOException {
+        if (started) return;
+        started = true;
+        if (peek() == BOM) read();
+    }
+
+    private int read() throws IOException {
+        if (pos >= limit && !fill()) return EOF;
+        return buf[pos++];
+    }
+
+    private int peek() throws IOException {
+        if (pos >= limit && !fill()) return EOF;
+        return buf[pos];
+    }
+
+    private boolean fill() throws IOException {
+        int n;
+        do {
+            n = in.read(buf, 0, buf.length);
+        } while (n == 0);
+        if (n < 0) return false;
+        pos = 0;
+        limit = n;
+        bytesRead += TextUtil.utf8Length(CharBuffer.wrap(buf, 0, n), 0, n);
+        return true;
+    }
+}
@@ -0,0 +1,73 @@
+package service.importer;
+
+import model.Card;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+
+/**
+ * Формат записи импортированных карточек в файлы колод
+ */
+public final class DeckEntries {
+
+    /** Заголовки полей в файле колоды */
+    private static final String[] MARKERS = {"ID:", "CATEGORY:", "QUESTION:", "ANSWER:"};
+
+    /**
+     * Файл колоды для категории карточки
+     *
+     * @param decksDir папка колод
+     * @param category категория (недопустимые для имени файла символы удаляются)
+     */
+    public static Path deckPath(Path decksDir, String category) {
+        // очистка имени файла от недопустимых символов
+        String safeName = category.replaceAll("[^a-zA-Z0-9а-яА-Я ._-]", "");
+        return decksDir.resolve(safeName + ".txt");
+    }
+
+    /**
+     * Текст карточки в формате файла колоды (завершается разделителем {@code ===})
+     */
+    public static String entry(Card card) {
+        return String.format("ID: %s%nCATEGORY: %s%nQUESTION:%n%s%nANSWER:%n%s%n===%n",
+                card.getId(),
+                card.getCategory(),
+                card.getQuestion(),
+                card.getAnswer());
+    }
+
+    /**
+     * Можно ли записать текст как значение поля колоды, не испортив разметку: в нем нет строк,
+     * которые разбор колоды примет за разделитель {@code ===} или заголовок поля
+     * ({@code ID:}, {@code CATEGORY:}, {@code QUESTION:}, {@code ANSWER:})
+     *
+     * @param text вопрос, ответ, категория или ID
+     * @param multiline допустимы ли переводы строк (вопрос и ответ)
+     */
+    public static boolean fits(String text, boolean multiline) {
+        if (!multiline && (text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0)) return false;
+        for (String line : text.split("\\R", -1)) {
+            String l = line.replace("\uFEFF", "").trim();
+            if (l.equals("===")) return false;
+            for (String marker : MARKERS) {
+                if (l.startsWith(marker)) return false;
+            }
+        }
+        return true;
+    }
+
+    /** Строка + системный разделитель (как в {@link data.FileService#appendLine}) */
+    public static void writeLine(Writer w, String line) throws IOException {
+        w.write(line);
+        w.write(System.lineSeparator());
+    }
+
+    /** Блок обратно в текст файла импорта (для отклоненных блоков) */
+    public static void writeBlock(Writer w, BlockReader.Block block) throws IOException {
+        for (String l : block.lines()) writeLine(w, l);
+        if (block.terminated()) writeLine(w, "===");
+    }
+
+    private DeckEntries() {}
+}
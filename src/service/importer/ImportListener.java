@@ -0,0 +1,27 @@
+package service.importer;
+
+/**
+ * Наблюдатель фонового импорта: получает ход выполнения и может попросить остановку
+ * <p>
+ * Вызывается из потока импорта (не из EDT), не чаще раза в {@link ProgressReporter#INTERVAL_MS} мс
+ * и один раз в конце. Отмена проверяется перед каждым блоком: уже обработанные блоки остаются
+ * в колодах, необработанные - в файле импорта
+ * </p>
+ */
+public interface ImportListener {
+
+    /** Наблюдатель, который ничего не делает */
+    ImportListener NONE = _ -> { };
+
+    /**
+     * Очередной снимок хода импорта
+     */
+    void onProgress(ImportProgress progress);
+
+    /**
+     * @return {@code true}, если импорт нужно остановить
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
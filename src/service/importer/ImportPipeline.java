@@ -0,0 +1,376 @@
+package service.importer;
+
+import data.FileService;
+import model.Card;
+import service.session.NearDuplicateIndex;
+import util.CardParser;
+import util.TextUtil;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Конвейерный (многопоточный) импорт карточек
+ * <p>
+ * Стадии:
+ * <ol>
+ *     <li>Чтение - отдельный поток делит файл на блоки ({@link BlockReader}) и нумерует их</li>
+ *     <li>Разбор - пул потоков разбирает блоки ({@link CardParser#parseSingleBlock}), считает отпечатки
+ *     вопросов ({@link TextUtil#fingerprintForId}) и отмечает в общей {@link ConcurrentHashMap}
+ *     наименьший номер блока для каждого отпечатка. Там же считаются слова вопроса
+ *     для поиска похожих ({@link NearDuplicateFilter})</li>
+ *     <li>Фиксация - вызывающий поток забирает результаты строго в порядке номеров, проверяет
+ *     похожие вопросы, считает итоги и пишет отклоненные блоки</li>
+ *     <li>Запись - у каждой колоды своя цепочка задач (один писатель на файл), разные колоды
+ *     пишутся параллельно</li>
+ * </ol>
+ * </p>
+ * <p>
+ * Результат совпадает с последовательным импортом: из одинаковых вопросов добавляется первый по файлу
+ * (номер блока равен наименьшему в карте), порядок карточек внутри колоды и порядок отклоненных
+ * блоков - как во входном файле. Память ограничена числом блоков «в полете»
+ * ({@link #IN_FLIGHT_PER_WORKER} на поток) плюс карта отпечатков импортируемых вопросов.
+ * Файлы колод остаются открытыми до конца импорта (без лимита последовательного режима)
+ * </p>
+ */
+public final class ImportPipeline {
+    private static final Logger LOGGER = Logger.getLogger(ImportPipeline.class.getName());
+
+    /** Сколько блоков (и записей в колоды) может ждать обработки на один поток разбора */
+    private static final int IN_FLIGHT_PER_WORKER = 64;
+
+    /** Максимум потоков записи колод (больше упирается в диск) */
+    private static final int MAX_WRITERS = 4;
+
+    /** Признак конца файла в очереди стадии чтения */
+    private static final Future<Parsed> END = CompletableFuture.completedFuture(null);
+
+    private final FileService fileService;
+    private final Path decksDir;
+    private final Path spillPath;
+    private final int workers;
+
+    /**
+     * @param fileService работа с файловой системой
+     * @param decksDir папка колод
+     * @param spillPath временный файл отклоненных блоков
+     * @param workers количество потоков разбора
+     */
+    public ImportPipeline(FileService fileService, Path decksDir, Path spillPath, int workers) {
+        this.fileService = fileService;
+        this.decksDir = decksDir;
+        this.spillPath = spillPath;
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * Прогоняет файл через конвейер
+     *
+     * @param blocks источник блоков (читается в отдельном потоке)
+     * @param existing есть ли вопрос с таким отпечатком в приложении (вызывается из потока фиксации)
+     * @param near проверка похожих вопросов (вызывается из потока фиксации)
+     * @param onAdded получает добавленные карточки в порядке файла ({@code sourceFile} - имя файла колоды)
+     * @return итоги импорта
+     * @throws IOException при ошибке чтения или записи (часть карточек могла быть уже записана)
+     */
+    public Result run(BlockReader blocks, LongPredicate existing, NearDuplicateFilter near,
+                      Consumer<Card> onAdded) throws IOException {
+        return run(blocks, existing, near, onAdded, ProgressReporter.none());
+    }
+
+    /**
+     * Прогоняет файл через конвейер с отчетами о ходе и возможностью отмены
+     * <p>
+     * После отмены чтение новых блоков останавливается, а блоки, уже прочитанные, но еще
+     * не зафиксированные, и остаток файла пишутся в файл отклоненных без изменений
+     * (считаются в {@link Result#unprocessed()}). Колоды содержат ровно зафиксированные карточки
+     * </p>
+     *
+     * @param progress отчеты о ходе и запрос отмены (вызывается из потока фиксации)
+     * @see #run(BlockReader, LongPredicate, NearDuplicateFilter, Consumer)
+     */
+    public Result run(BlockReader blocks, LongPredicate existing, NearDuplicateFilter near,
+                      Consumer<Card> onAdded, ProgressReporter progress) throws IOException {
+        int capacity = workers * IN_FLIGHT_PER_WORKER;
+        BlockingQueue<Future<Parsed>> pending = new ArrayBlockingQueue<>(capacity);
+        Map<Long, Long> firstSeen = new ConcurrentHashMap<>();
+
+        ExecutorService parsers = Executors.newFixedThreadPool(workers,
+                Thread.ofPlatform().name("import-parse-", 0).daemon().factory());
+        ExecutorService writers = Executors.newFixedThreadPool(Math.min(workers, MAX_WRITERS),
+                Thread.ofPlatform().name("import-write-", 0).daemon().factory());
+        DeckStage decks = new DeckStage(writers, capacity);
+        AtomicBoolean stop = new AtomicBoolean();
+
+        Thread reader = Thread.ofPlatform().name("import-read").daemon().start(() -> {
+            Future<Parsed> last = END;
+            try {
+                long seq = 0;
+                // после отмены остаток файла дочитывает поток фиксации
+                while (!stop.get()) {
+                    BlockReader.Block block = blocks.next();
+                    if (block == null) break;
+                    long n = seq++;
+                    long bytes = blocks.getBytesRead();
+                    pending.put(parsers.submit(() -> parse(n, block, bytes, firstSeen, near.isEnabled())));
+                }
+            } catch (IOException | RuntimeException e) {
+                last = CompletableFuture.failedFuture(e); // ошибка чтения - фиксация ее пробросит
+            } catch (InterruptedException e) {
+                return; // фиксация прервана
+            }
+            try {
+                pending.put(last);
+            } catch (InterruptedException ignored) {
+                // фиксация прервана
+            }
+        });
+
+        int added = 0, skipped = 0, errors = 0, flagged = 0, unprocessed = 0;
+        long processed = 0, bytesRead = 0;
+        boolean cancelled = false;
+        Writer spill = null;
+        try {
+            for (Future<Parsed> f = take(pending); f != END; f = take(pending)) {
+                Parsed p = await(f);
+                decks.checkFailure();
+
+                if (!cancelled && progress.isCancelled()) {
+                    cancelled = true;
+                    stop.set(true);
+                }
+                if (cancelled) {
+                    // прочитан, но не обработан - остается в файле импорта
+                    if (spill == null) spill = fileService.openWriter(spillPath, false);
+                    DeckEntries.writeBlock(spill, p.block());
+                    unprocessed++;
+                    continue;
+                }
+
+                if (p.card() == null) {
+                    // ошибка парсинга. Блок уходит в файл отклоненных в исходном порядке
+                    String preview = p.block().lines().stream().limit(3).collect(Collectors.joining(" | "));
+                    LOGGER.warning("Ошибка парсинга блока в импорте. Содержимое: " + preview);
+                    if (spill == null) spill = fileService.openWriter(spillPath, false);
+                    DeckEntries.writeBlock(spill, p.block());
+                    errors++;
+                } else if (existing.test(p.fingerprint())
+                        || firstSeen.get(p.fingerprint()) != p.seq()) {
+                    // уже есть в приложении или выше по файлу
+                    skipped++;
+                } else {
+                    NearDuplicateFilter.Verdict verdict = near.check(p.card(), p.shingles());
+                    if (verdict == NearDuplicateFilter.Verdict.SKIPPED) {
+                        skipped++;
+                    } else {
+                        if (verdict == NearDuplicateFilter.Verdict.FLAGGED) flagged++;
+
+                        Path deckPath = DeckEntries.deckPath(decksDir, p.card().getCategory());
+                        decks.write(deckPath, DeckEntries.entry(p.card()));
+                        p.card().setSourceFile(deckPath.getFileName().toString());
+                        onAdded.accept(p.card());
+                        added++;
+                    }
+                }
+                processed++;
+                bytesRead = p.bytesRead();
+                progress.report(processed, added, skipped, errors, bytesRead, false);
+            }
+
+            // поток чтения остановлен (END получен) - остаток файла читается здесь
+            if (cancelled) {
+                for (BlockReader.Block b = blocks.next(); b != null; b = blocks.next()) {
+                    if (spill == null) spill = fileService.openWriter(spillPath, false);
+                    DeckEntries.writeBlock(spill, b);
+                    unprocessed++;
+                }
+                bytesRead = blocks.getBytesRead();
+            }
+            decks.close();
+            progress.report(processed, added, skipped, errors, bytesRead, true);
+        } catch (IOException | RuntimeException e) {
+            reader.interrupt();
+            decks.closeQuietly();
+            throw e;
+        } finally {
+            parsers.shutdownNow();
+            writers.shutdown();
+            if (spill != null) spill.close();
+        }
+        return new Result(added, skipped, errors, flagged, unprocessed, cancelled);
+    }
+
+    /** Стадия разбора (в потоках пула) */
+    private static Parsed parse(long seq, BlockReader.Block block, long bytesRead,
+                                Map<Long, Long> firstSeen, boolean shingles) {
+        Card card = CardParser.parseSingleBlock(block.lines(), "import_temp");
+        if (card == null) return new Parsed(seq, block, null, 0, null, bytesRead);
+
+        long fingerprint = TextUtil.fingerprintForId(card.getQuestion());
+        firstSeen.merge(fingerprint, seq, Math::min);
+        return new Parsed(seq, block, card, fingerprint,
+                shingles ? NearDuplicateIndex.shingles(card.getQuestion()) : null, bytesRead);
+    }
+
+    private static Future<Parsed> take(BlockingQueue<Future<Parsed>> pending) throws IOException {
+        try {
+            return pending.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Импорт прерван", e);
+        }
+    }
+
+    private static Parsed await(Future<Parsed> f) throws IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Импорт прерван", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    /** Причина сбоя стадии как {@link IOException} (ошибки программы пробрасываются как есть) */
+    private static IOException unwrap(Throwable t) {
+        if (t instanceof CompletionException && t.getCause() != null) t = t.getCause();
+        if (t instanceof IOException io) return io;
+        if (t instanceof UncheckedIOException u) return u.getCause();
+        if (t instanceof RuntimeException r) throw r;
+        if (t instanceof Error err) throw err;
+        return new IOException(t);
+    }
+
+    /**
+     * Стадия записи: на каждую колоду - цепочка задач, выполняемых по одной
+     * <p>
+     * Вызывается только из потока фиксации, поэтому карта цепочек обычная.
+     * Число незаписанных карточек ограничено семафором
+     * </p>
+     */
+    private final class DeckStage {
+        private final ExecutorService pool;
+        private final Semaphore permits;
+        private final Map<Path, CompletableFuture<Writer>> tails = new HashMap<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        DeckStage(ExecutorService pool, int maxPending) {
+            this.pool = pool;
+            this.permits = new Semaphore(maxPending);
+        }
+
+        void write(Path deckPath, String entry) throws IOException {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Импорт прерван", e);
+            }
+
+            CompletableFuture<Writer> tail = tails.get(deckPath);
+            if (tail == null) tail = CompletableFuture.completedFuture(null);
+            tails.put(deckPath, tail.handleAsync((w, ex) -> {
+                try {
+                    if (ex != null) throw ex instanceof CompletionException ce ? ce : new CompletionException(ex);
+                    Writer out = w != null ? w : fileService.openWriter(deckPath, true);
+                    DeckEntries.writeLine(out, entry);
+                    return out;
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                    throw new CompletionException(e);
+                } finally {
+                    permits.release();
+                }
+            }, pool));
+        }
+
+        /** Пробрасывает первую ошибку записи, не дожидаясь конца файла */
+        void checkFailure() throws IOException {
+            Throwable t = failure.get();
+            if (t != null) throw unwrap(t);
+        }
+
+        /** Дожидается записи всех колод и закрывает файлы */
+        void close() throws IOException {
+            List<Throwable> failures = new ArrayList<>();
+            for (CompletableFuture<Writer> tail : tails.values()) {
+                try {
+                    Writer w = tail.join();
+                    if (w != null) w.close();
+                } catch (CompletionException | IOException e) {
+                    failures.add(e);
+                }
+            }
+            tails.clear();
+            if (!failures.isEmpty()) throw unwrap(failures.getFirst());
+        }
+
+        void closeQuietly() {
+            for (CompletableFuture<Writer> tail : tails.values()) {
+                tail.thenAccept(w -> {
+                    try {
+                        if (w != null) w.close();
+                    } catch (IOException e) {
+                        LOGGER.warning("Не удалось закрыть файл колоды: " + e.getMessage());
+                    }
+                });
+            }
+            tails.clear();
+        }
+    }
+
+    /**
+     * Результат стадии разбора
+     *
+     * @param seq номер блока в файле
+     * @param block исходный блок (для отклоненных и для возврата в файл при отмене)
+     * @param card карточка или {@code null} при ошибке разбора
+     * @param fingerprint отпечаток вопроса
+     * @param shingles слова вопроса (если ищутся похожие вопросы)
+     * @param bytesRead прочитано байт файла вместе с этим блоком
+     */
+    private record Parsed(long seq, BlockReader.Block block, Card card, long fingerprint, long[] shingles,
+                          long bytesRead) {
+    }
+
+    /**
+     * Итоги импорта
+     *
+     * @param added добавлено
+     * @param skipped пропущено как дубликаты
+     * @param errors отклонено (ошибки разбора)
+     * @param flagged из добавленных - с похожим вопросом ({@link service.session.NearDuplicatePolicy#FLAG})
+     * @param unprocessed не обработано из-за отмены (возвращены в файл импорта как есть)
+     * @param cancelled импорт отменен
+     */
+    public record Result(int added, int skipped, int errors, int flagged, int unprocessed, boolean cancelled) {
+
+        /** Итоги импорта, прошедшего до конца файла */
+        public Result(int added, int skipped, int errors, int flagged) {
+            this(added, skipped, errors, flagged, 0, false);
+        }
+    }
+}
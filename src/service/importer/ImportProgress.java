@@ -0,0 +1,20 @@
+package service.importer;
+
+/**
+ * Снимок хода импорта (для индикатора в интерфейсе)
+ *
+ * @param processed обработано блоков (записей CSV)
+ * @param added добавлено карточек
+ * @param skipped пропущено как дубликаты
+ * @param errors отклонено
+ * @param bytesRead прочитано байт файла (оценка по длине строк в UTF-8)
+ * @param totalBytes размер файла в байтах
+ */
+public record ImportProgress(long processed, int added, int skipped, int errors, long bytesRead, long totalBytes) {
+
+    /** Доля прочитанного файла, 0..100 */
+    public int percent() {
+        if (totalBytes <= 0) return 0;
+        return (int) Math.min(100, bytesRead * 100 / totalBytes);
+    }
+}
@@ -0,0 +1,183 @@
+package service.importer;
+
+import data.FileService;
+import model.Card;
+import util.LongHashSet;
+import util.TextUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.logging.Logger;
+
+/**
+ * Прием разобранных карточек импорта: проверка дубликатов и запись в файлы колод
+ * <p>
+ * Общая часть последовательного импорта из {@code import.txt} ({@link service.ImportService})
+ * и из CSV/TSV ({@link service.CsvImportService}):
+ * <ul>
+ *     <li>точные дубликаты - по отпечатку вопроса ({@link TextUtil#fingerprintForId}):
+ *     в приложении и среди уже принятых этим импортом</li>
+ *     <li>похожие вопросы - через {@link NearDuplicateFilter}</li>
+ *     <li>новая карточка дописывается в {@code decks/[CATEGORY].txt}. Файлы колод остаются открытыми
+ *     (буферизованными) до конца импорта, не больше {@link #MAX_OPEN_DECKS} одновременно</li>
+ * </ul>
+ * </p>
+ */
+public final class ImportSink implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(ImportSink.class.getName());
+
+    /** Сколько файлов колод держать открытыми одновременно */
+    static final int MAX_OPEN_DECKS = 32;
+
+    /** Что стало с карточкой */
+    public enum Outcome {
+        /** Записана в колоду */
+        ADDED,
+        /** Записана в колоду, но есть похожий вопрос */
+        FLAGGED,
+        /** Пропущена как дубликат (или похожий вопрос в режиме {@code SKIP}) */
+        DUPLICATE
+    }
+
+    private final FileService fileService;
+    private final Path decksDir;
+    private final LongPredicate existing;
+    private final NearDuplicateFilter near;
+    private final Consumer<Card> onAdded;
+
+    /** Отпечатки добавленных этим импортом вопросов (дубликаты внутри файла) */
+    private final LongHashSet imported = new LongHashSet();
+
+    /** Открытые файлы колод; при превышении лимита закрывается давно не использованный */
+    private final Map<Path, Writer> deckWriters = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Writer> eldest) {
+            if (size() <= MAX_OPEN_DECKS) return false;
+            try {
+                eldest.getValue().close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }
+    };
+
+    private int added;
+    private int skipped;
+    private int flagged;
+
+    /**
+     * @param fileService работа с файловой системой
+     * @param decksDir папка колод
+     * @param existing есть ли вопрос с таким отпечатком в приложении
+     * @param near проверка похожих вопросов
+     * @param onAdded получает добавленные карточки ({@code sourceFile} - имя файла колоды)
+     */
+    public ImportSink(FileService fileService, Path decksDir, LongPredicate existing,
+                      NearDuplicateFilter near, Consumer<Card> onAdded) {
+        this.fileService = fileService;
+        this.decksDir = decksDir;
+        this.existing = existing;
+        this.near = near;
+        this.onAdded = onAdded;
+    }
+
+    /**
+     * Проверяет карточку и, если она новая, записывает ее в файл колоды
+     *
+     * @param card разобранная карточка
+     * @return что стало с карточкой
+     * @throws IOException при ошибке записи
+     */
+    public Outcome accept(Card card) throws IOException {
+        // дубликат?
+        long contentHash = TextUtil.fingerprintForId(card.getQuestion());
+        if (existing.test(contentHash) || imported.contains(contentHash)) {
+            skipped++;
+            return Outcome.DUPLICATE;
+        }
+
+        // похожий вопрос?
+        NearDuplicateFilter.Verdict verdict = near.check(card, null);
+        if (verdict == NearDuplicateFilter.Verdict.SKIPPED) {
+            skipped++;
+            return Outcome.DUPLICATE;
+        }
+
+        // целевой файл на основе категории
+        Path deckPath = DeckEntries.deckPath(decksDir, card.getCategory());
+        DeckEntries.writeLine(deckWriter(deckPath), DeckEntries.entry(card));
+        card.setSourceFile(deckPath.getFileName().toString());
+        onAdded.accept(card);
+
+        // хеш в локальный сет, чтобы внутри одного импорта тоже ловить дубликаты
+        imported.add(contentHash);
+
+        added++;
+        if (verdict == NearDuplicateFilter.Verdict.FLAGGED) {
+            flagged++;
+            return Outcome.FLAGGED;
+        }
+        return Outcome.ADDED;
+    }
+
+    /** Добавлено карточек */
+    public int getAdded() {
+        return added;
+    }
+
+    /** Пропущено как дубликаты */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /** Из добавленных - с похожим вопросом */
+    public int getFlagged() {
+        return flagged;
+    }
+
+    private Writer deckWriter(Path deckPath) throws IOException {
+        Writer w = deckWriters.get(deckPath);
+        if (w == null) {
+            w = fileService.openWriter(deckPath, true);
+            try {
+                deckWriters.put(deckPath, w);
+            } catch (UncheckedIOException e) {
+                // не закрылся вытесняемый файл
+                throw e.getCause();
+            }
+        }
+        return w;
+    }
+
+    /** Сбрасывает и закрывает все файлы колод */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Writer w : deckWriters.values()) {
+            try {
+                w.close();
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        deckWriters.clear();
+        if (failure != null) throw failure;
+    }
+
+    /** Закрывает файлы, ошибки только в лог (путь ошибки импорта) */
+    public void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            LOGGER.warning("Не удалось закрыть файлы колод: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package service.importer;
+
+import model.Card;
+import service.session.NearDuplicateIndex;
+import service.session.NearDuplicatePolicy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Проверка похожих вопросов во время одного импорта
+ * <p>
+ * Похожий вопрос ищется сначала в сессии (индекс {@link NearDuplicateIndex} коллекции),
+ * затем среди карточек, уже принятых этим импортом (свой небольшой индекс).
+ * Вызывается в порядке файла из одного потока, поэтому результат детерминирован
+ * </p>
+ */
+public final class NearDuplicateFilter {
+    private static final Logger LOGGER = Logger.getLogger(NearDuplicateFilter.class.getName());
+
+    /** Решение по карточке */
+    public enum Verdict {
+        /** Похожих нет */
+        UNIQUE,
+        /** Похожий есть, карточка добавляется с предупреждением */
+        FLAGGED,
+        /** Похожий есть, карточка пропускается как дубликат */
+        SKIPPED
+    }
+
+    private final NearDuplicatePolicy policy;
+    private final Function<long[], Card> session;
+
+    /** Вопросы, принятые этим импортом (номер в списке = номер в {@link #imported}) */
+    private final List<String> importedQuestions = new ArrayList<>();
+    private final NearDuplicateIndex imported = new NearDuplicateIndex();
+
+    /**
+     * @param policy режим обработки похожих вопросов
+     * @param session поиск похожего вопроса в сессии по словам ({@link NearDuplicateIndex#shingles});
+     *                {@code null}, если похожих нет
+     */
+    public NearDuplicateFilter(NearDuplicatePolicy policy, Function<long[], Card> session) {
+        this.policy = policy;
+        this.session = session;
+    }
+
+    /** Фильтр, который ничего не ищет ({@link NearDuplicatePolicy#OFF}) */
+    public static NearDuplicateFilter none() {
+        return new NearDuplicateFilter(NearDuplicatePolicy.OFF, _ -> null);
+    }
+
+    /** Нужно ли вообще считать слова вопросов */
+    public boolean isEnabled() {
+        return policy != NearDuplicatePolicy.OFF;
+    }
+
+    /**
+     * Проверяет карточку (уже прошедшую точную дедупликацию) и, если она будет добавлена,
+     * запоминает ее для следующих проверок
+     *
+     * @param card карточка из файла импорта
+     * @param shingles слова вопроса или {@code null} (тогда считаются здесь)
+     * @return решение
+     */
+    public Verdict check(Card card, long[] shingles) {
+        if (!isEnabled()) return Verdict.UNIQUE;
+        if (shingles == null) shingles = NearDuplicateIndex.shingles(card.getQuestion());
+
+        String similar = findSimilar(shingles);
+        if (similar != null) {
+            LOGGER.warning(String.format("Похожий вопрос (%s): \"%s\" ~ \"%s\"",
+                    policy == NearDuplicatePolicy.SKIP ? "пропущен" : "добавлен",
+                    oneLine(card.getQuestion()), oneLine(similar)));
+            if (policy == NearDuplicatePolicy.SKIP) return Verdict.SKIPPED;
+        }
+
+        imported.add(importedQuestions.size(), shingles);
+        importedQuestions.add(card.getQuestion());
+        return similar != null ? Verdict.FLAGGED : Verdict.UNIQUE;
+    }
+
+    private String findSimilar(long[] shingles) {
+        Card inSession = session.apply(shingles);
+        if (inSession != null) return inSession.getQuestion();
+
+        int pos = imported.find(shingles, importedQuestions::get, NearDuplicateIndex.DEFAULT_THRESHOLD);
+        return pos >= 0 ? importedQuestions.get(pos) : null;
+    }
+
+    private static String oneLine(String text) {
+        return text.replace("\n", " ").trim();
+    }
+}
@@ -0,0 +1,50 @@
+package service.importer;
+
+/**
+ * Передача хода импорта наблюдателю с ограничением частоты
+ * <p>
+ * Импорт вызывает {@link #report} на каждом блоке, наблюдатель получает снимок не чаще
+ * раза в {@link #INTERVAL_MS} мс (интерфейсу больше не нужно, а снимок - лишний объект)
+ * </p>
+ */
+public final class ProgressReporter {
+
+    /** Минимальный интервал между снимками */
+    public static final long INTERVAL_MS = 100;
+
+    private final ImportListener listener;
+    private final long totalBytes;
+    private long lastReport = System.nanoTime();
+
+    /**
+     * @param listener наблюдатель
+     * @param totalBytes размер файла в байтах
+     */
+    public ProgressReporter(ImportListener listener, long totalBytes) {
+        this.listener = listener;
+        this.totalBytes = totalBytes;
+    }
+
+    /** Без наблюдателя */
+    public static ProgressReporter none() {
+        return new ProgressReporter(ImportListener.NONE, 0);
+    }
+
+    /** Просит ли наблюдатель остановить импорт */
+    public boolean isCancelled() {
+        return listener.isCancelled();
+    }
+
+    /**
+     * Отчет о ходе импорта
+     *
+     * @param force передать сразу (последний снимок)
+     */
+    public void report(long processed, int added, int skipped, int errors, long bytesRead, boolean force) {
+        long now = System.nanoTime();
+        if (!force && now - lastReport < INTERVAL_MS * 1_000_000) return;
+        lastReport = now;
+        listener.onProgress(new ImportProgress(processed, added, skipped, errors,
+                Math.min(bytesRead, totalBytes), totalBytes));
+    }
+}
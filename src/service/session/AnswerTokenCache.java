@@ -0,0 +1,126 @@
+package service.session;
+
+import model.Card;
+import service.grading.DeletionIndex;
+import service.grading.TokenVocabulary;
+import util.TextUtil;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Logger;
+
+/**
+ * Кеш токенов эталонных ответов
+ * <p>
+ * Текст ответа карточки не меняется между повторениями, поэтому результат
+ * {@link TextUtil#tokenize} для него считается один раз: лениво - при первой проверке,
+ * либо заранее - фоновым прогревом после загрузки. Ячейки кеша адресуются номером
+ * карточки в {@link CardIndex}
+ * </p>
+ * <p>
+ * Токены хранятся как номера в общем словаре сессии ({@link TokenVocabulary}):
+ * {@code int[]} вместо списка строк, одинаковые слова разных карточек не дублируются
+ * </p>
+ * <p>
+ * После прогрева по словарю строится {@link DeletionIndex} - он ускоряет
+ * нечеткий поиск слов при массовой проверке ответов
+ * </p>
+ * <p>
+ * Кеш живет ровно одну загрузку данных: {@link SessionManager#reload()} создает новый
+ * экземпляр, старый (вместе с возможным незавершенным прогревом) просто отбрасывается.
+ * При импорте кеш расширяется ({@link #extend}): посчитанные токены и словарь переносятся,
+ * прогреваются только новые карточки
+ * </p>
+ */
+public final class AnswerTokenCache {
+    private static final Logger LOGGER = Logger.getLogger(AnswerTokenCache.class.getName());
+
+    private final List<Card> cards;
+
+    /** Словарь, которым кодируются токены */
+    private final TokenVocabulary vocabulary;
+
+    /** Номера токенов ответа по номеру карточки ({@code null} - еще не посчитаны) */
+    private final AtomicReferenceArray<int[]> tokens;
+
+    /**
+     * @param cards карточки сессии (в порядке номеров индекса)
+     * @param vocabulary словарь токенов сессии
+     */
+    AnswerTokenCache(List<Card> cards, TokenVocabulary vocabulary) {
+        this.cards = cards;
+        this.vocabulary = vocabulary;
+        this.tokens = new AtomicReferenceArray<>(cards.size());
+    }
+
+    /**
+     * Токены ответа карточки
+     *
+     * @param pos номер карточки в индексе
+     * @return номера токенов в словаре (массив не изменять!)
+     */
+    public int[] get(int pos) {
+        int[] cached = tokens.get(pos);
+        if (cached == null) {
+            // гонка с прогревом безопасна: результат детерминирован, побеждает любой
+            cached = vocabulary.encode(TextUtil.tokenize(cards.get(pos).getAnswer()));
+            tokens.compareAndSet(pos, null, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Кеш для списка, дополненного новыми карточками в конце
+     *
+     * @param cards прежние карточки (в тех же позициях) + новые
+     * @return новый кеш с тем же словарем и уже посчитанными токенами прежних карточек
+     */
+    AnswerTokenCache extend(List<Card> cards) {
+        AnswerTokenCache extended = new AnswerTokenCache(cards, vocabulary);
+        int n = Math.min(tokens.length(), cards.size());
+        for (int i = 0; i < n; i++) {
+            int[] cached = tokens.get(i);
+            if (cached != null) extended.tokens.set(i, cached);
+        }
+        return extended;
+    }
+
+    /** Словарь, которым закодированы токены */
+    public TokenVocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * Запускает фоновое заполнение кеша для всех карточек и построение индекса удалений
+     *
+     * @return future завершения прогрева
+     */
+    public CompletableFuture<Void> warmUpAsync() {
+        return warmUpAsync(0);
+    }
+
+    /**
+     * Фоновое заполнение кеша начиная с указанной карточки и перестроение индекса удалений
+     * (индекс - снимок словаря, новые слова без перестроения в нем не ищутся)
+     *
+     * @param from номер первой карточки для прогрева
+     * @return future завершения прогрева
+     */
+    public CompletableFuture<Void> warmUpAsync(int from) {
+        return CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            for (int i = from; i < tokens.length(); i++) get(i);
+            LOGGER.fine(() -> String.format("Токены ответов подготовлены: %d карт за %d мс",
+                    tokens.length() - from, (System.nanoTime() - start) / 1_000_000));
+
+            DeletionIndex current = vocabulary.getDeletionIndex();
+            if (from > 0 && current != null && current.isCurrent(vocabulary)) return;
+
+            long indexStart = System.nanoTime();
+            DeletionIndex index = vocabulary.buildDeletionIndex();
+            LOGGER.fine(() -> String.format("Индекс опечаток построен: %d токенов, %d записей за %d мс",
+                    vocabulary.size(), index.entryCount(), (System.nanoTime() - indexStart) / 1_000_000));
+        });
+    }
+}
@@ -0,0 +1,135 @@
+package service.session;
+
+import model.Card;
+import model.dto.StatsRow;
+import util.TextUtil;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Общий каталог карточек для многих пользователей
+ * <p>
+ * Неизменяемое содержимое колод: снимок сессии ({@link SessionSnapshot}, карточки уже без дубликатов,
+ * с индексами и токенами ответов), загруженный один раз. Прогресс пользователей хранится отдельно
+ * ({@link UserProgress}) - массивом уровней по номеру карточки в каталоге. Уровни в самих объектах
+ * {@link Card} каталога пользователям не принадлежат и не меняются
+ * </p>
+ */
+public final class CardCatalog {
+
+    private final SessionSnapshot snapshot;
+
+    /** Номер карточки по идентификатору (для загрузки прогресса и карточек из других снимков) */
+    private final Map<String, Integer> positionsById;
+
+    /**
+     * Номер карточки по старому идентификатору (хеш вопроса, {@link TextUtil#legacyHashForId}).
+     * Нужен только для старых файлов прогресса - строится при первом обращении
+     */
+    private volatile Map<Integer, Integer> positionsByLegacyHash;
+
+    private CardCatalog(SessionSnapshot snapshot) {
+        this.snapshot = snapshot;
+        List<Card> cards = snapshot.getCards();
+        this.positionsById = new HashMap<>(cards.size() * 2);
+        for (int i = 0; i < cards.size(); i++) {
+            positionsById.putIfAbsent(cards.get(i).getId(), i);
+        }
+    }
+
+    /**
+     * Каталог из загруженного снимка сессии
+     *
+     * @param snapshot снимок ({@link SessionManager#getSnapshot()} после загрузки)
+     */
+    public static CardCatalog of(SessionSnapshot snapshot) {
+        return new CardCatalog(snapshot);
+    }
+
+    /** Снимок сессии, из которого собран каталог */
+    public SessionSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /** Количество карточек */
+    public int size() {
+        return snapshot.size();
+    }
+
+    /**
+     * Карточка по номеру
+     *
+     * @param pos номер карточки в каталоге
+     */
+    public Card cardAt(int pos) {
+        return snapshot.getCards().get(pos);
+    }
+
+    /**
+     * Номер карточки в каталоге: по ссылке, а для карточки из другого снимка - по идентификатору
+     *
+     * @param card карточка
+     * @return номер или {@code -1}, если такой карточки в каталоге нет
+     */
+    public int positionOf(Card card) {
+        int pos = snapshot.getIndex().positionOf(card);
+        return pos >= 0 ? pos : positionOf(card.getId());
+    }
+
+    /**
+     * Номер карточки по идентификатору
+     *
+     * @param id идентификатор карточки
+     * @return номер или {@code -1}
+     */
+    public int positionOf(String id) {
+        Integer pos = positionsById.get(id);
+        return pos != null ? pos : -1;
+    }
+
+    /**
+     * Номер карточки по старому идентификатору - хешу вопроса (файлы прогресса до UUID)
+     *
+     * @param legacyId идентификатор из файла прогресса
+     * @return номер или {@code -1}, если это не старый идентификатор или такого вопроса нет
+     */
+    public int positionOfLegacy(String legacyId) {
+        int hash;
+        try {
+            hash = Integer.parseInt(legacyId);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        Integer pos = legacyPositions().get(hash);
+        return pos != null ? pos : -1;
+    }
+
+    private Map<Integer, Integer> legacyPositions() {
+        Map<Integer, Integer> positions = positionsByLegacyHash;
+        if (positions != null) return positions;
+        synchronized (this) {
+            if (positionsByLegacyHash == null) {
+                List<Card> cards = snapshot.getCards();
+                Map<Integer, Integer> built = new HashMap<>(cards.size() * 2);
+                for (int i = 0; i < cards.size(); i++) {
+                    built.putIfAbsent(TextUtil.legacyHashForId(cards.get(i).getQuestion()), i);
+                }
+                positionsByLegacyHash = built;
+            }
+            return positionsByLegacyHash;
+        }
+    }
+
+    /**
+     * Статистика по категориям каталога с уровнями пользователя
+     *
+     * @param rawLevel уровень по номеру карточки ({@code -1} - новая)
+     * @param totalName подпись итоговой строки
+     */
+    List<StatsRow> statistics(IntUnaryOperator rawLevel, String totalName) {
+        return snapshot.statistics(rawLevel, totalName);
+    }
+}
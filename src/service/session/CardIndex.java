@@ -0,0 +1,363 @@
+package service.session;
+
+import data.repository.GroupRepository;
+import model.Card;
+import util.LongHashSet;
+import util.TextUtil;
+
+import java.util.*;
+
+/**
+ * Индекс карточек текущей сессии
+ * <p>
+ * Каждой карточке присваивается плотный номер - её позиция в списке {@code allCards}.
+ * Для каждой категории и каждой группы из {@code structure.txt} заранее строится {@link BitSet}
+ * с номерами входящих в неё карточек
+ * </p>
+ * <p>
+ * Индекс пересобирается целиком только в {@link SessionManager#reload()}, поэтому смена фильтра
+ * (в том числе объединение нескольких тем) сводится к операциям над битовыми масками,
+ * а активная колода - к представлению (view) поверх общего списка, без копирования карт
+ * </p>
+ * <p>
+ * Там же один раз готовятся списки карт по категориям и группам и отсортированные имена,
+ * чтобы выпадающий список тем, статистика и проверка фильтра были поиском, а не полным проходом
+ * </p>
+ * <p>
+ * Индекс неизменяем. Импорт новых карточек ({@link #append}) дает новый индекс, который делит
+ * с прежним маски и списки незатронутых категорий и групп
+ * </p>
+ * <p>
+ * Для каждой карточки хранится 64-битный отпечаток вопроса ({@link TextUtil#fingerprintForId}) -
+ * по нему проверяются дубликаты без хранения нормализованных строк
+ * </p>
+ */
+public final class CardIndex {
+
+    /** Все карточки сессии. Индекс карточки = позиция в этом списке */
+    private final List<Card> cards;
+
+    /** Категория - > номера карточек */
+    private final Map<String, BitSet> byCategory;
+
+    /** Группа (из structure.txt) - > номера карточек */
+    private final Map<String, BitSet> byGroup;
+
+    /** Категория - > список её карточек (отсортировано по имени категории) */
+    private final Map<String, List<Card>> cardsByCategory;
+
+    /** Группа - > список её карточек */
+    private final Map<String, List<Card>> cardsByGroup;
+
+    /** Отсортированные имена групп */
+    private final List<String> groupNames;
+
+    /** Отсортированные имена категорий */
+    private final List<String> categoryNames;
+
+    /**
+     * Обратный индекс: карточка - > номер.
+     * По ссылке, а не по equals: у {@link Card} equals/hashCode зависят от изменяемого уровня
+     */
+    private final IdentityHashMap<Card, Integer> positions;
+
+    /** Отпечатки вопросов по номеру карточки */
+    private final long[] fingerprints;
+
+    /** Множество отпечатков вопросов всех карточек */
+    private final LongHashSet questions;
+
+    private CardIndex(List<Card> cards, long[] fingerprints,
+                      Map<String, BitSet> byCategory, Map<String, BitSet> byGroup) {
+        this.cards = cards;
+        this.fingerprints = fingerprints;
+        this.questions = new LongHashSet(fingerprints.length);
+        for (long f : fingerprints) questions.add(f);
+        this.byCategory = byCategory;
+        this.byGroup = byGroup;
+
+        this.cardsByCategory = new TreeMap<>();
+        byCategory.forEach((name, bits) -> cardsByCategory.put(name, view(bits)));
+        this.cardsByGroup = new HashMap<>();
+        byGroup.forEach((name, bits) -> cardsByGroup.put(name, view(bits)));
+
+        this.groupNames = byGroup.keySet().stream().sorted().toList();
+        this.categoryNames = List.copyOf(cardsByCategory.keySet());
+
+        this.positions = new IdentityHashMap<>(cards.size());
+        for (int i = 0; i < cards.size(); i++) {
+            positions.put(cards.get(i), i);
+        }
+    }
+
+    /**
+     * Индекс, дополненный новыми карточками (см. {@link #append})
+     */
+    private CardIndex(CardIndex previous, List<Card> cards, long[] fingerprints, LongHashSet questions,
+                      Map<String, BitSet> byCategory, Map<String, BitSet> byGroup,
+                      Set<String> touchedCategories, Set<String> touchedGroups) {
+        this.cards = cards;
+        this.fingerprints = fingerprints;
+        this.questions = questions;
+        this.byCategory = byCategory;
+        this.byGroup = byGroup;
+
+        // представления незатронутых тем остаются прежними: позиции старых карточек не меняются
+        this.cardsByCategory = new TreeMap<>(previous.cardsByCategory);
+        for (String name : touchedCategories) cardsByCategory.put(name, view(byCategory.get(name)));
+        this.cardsByGroup = new HashMap<>(previous.cardsByGroup);
+        for (String name : touchedGroups) cardsByGroup.put(name, view(byGroup.get(name)));
+
+        this.groupNames = previous.groupNames;
+        this.categoryNames = List.copyOf(cardsByCategory.keySet());
+
+        @SuppressWarnings("unchecked")
+        IdentityHashMap<Card, Integer> copy = (IdentityHashMap<Card, Integer>) previous.positions.clone();
+        this.positions = copy;
+        for (int i = previous.size(); i < cards.size(); i++) {
+            positions.put(cards.get(i), i);
+        }
+    }
+
+    /**
+     * Пустой индекс (до первой загрузки данных)
+     */
+    public static CardIndex empty() {
+        return new CardIndex(List.of(), new long[0], Map.of(), Map.of());
+    }
+
+    /**
+     * Строит индекс по списку карточек и структуре групп.
+     * <p>
+     * Принадлежность к группе проверяется один раз на каждый уникальный файл-источник,
+     * а не на каждую карточку: сначала строятся маски файлов, затем маска группы
+     * собирается как объединение масок входящих в неё файлов
+     * </p>
+     *
+     * @param cards карточки сессии (после дедупликации)
+     * @param fingerprints отпечатки вопросов карточек (в том же порядке)
+     * @param groupRepo структура групп
+     * @return готовый индекс
+     */
+    static CardIndex build(List<Card> cards, long[] fingerprints, GroupRepository groupRepo) {
+        Map<String, BitSet> byCategory = new HashMap<>();
+        Map<String, BitSet> byFile = new HashMap<>();
+
+        for (int i = 0; i < cards.size(); i++) {
+            Card c = cards.get(i);
+            byCategory.computeIfAbsent(c.getCategory(), _ -> new BitSet()).set(i);
+            if (c.getSourceFile() != null) {
+                byFile.computeIfAbsent(c.getSourceFile(), _ -> new BitSet()).set(i);
+            }
+        }
+
+        Map<String, BitSet> byGroup = new HashMap<>();
+        for (String group : groupRepo.getGroupNames()) {
+            BitSet bits = new BitSet();
+            for (var entry : byFile.entrySet()) {
+                if (groupRepo.isCardInGroup(entry.getKey(), group)) {
+                    bits.or(entry.getValue());
+                }
+            }
+            byGroup.put(group, bits);
+        }
+
+        return new CardIndex(cards, fingerprints, byCategory, byGroup);
+    }
+
+    /**
+     * Индекс с добавленными в конец карточками (инкрементальный импорт)
+     * <p>
+     * Номера прежних карточек не меняются. Маски копируются только у категорий и групп,
+     * куда попали новые карточки; таблицы отпечатков и обратного индекса копируются целиком
+     * (копирование массива), без повторного разбора и хеширования всех карт
+     * </p>
+     *
+     * @param cards все карточки: прежний список этого индекса + новые в конце
+     * @param addedFingerprints отпечатки вопросов новых карточек (в том же порядке)
+     * @param groupRepo структура групп (состав групп не меняется, проверяются только новые файлы)
+     * @return новый индекс
+     */
+    CardIndex append(List<Card> cards, long[] addedFingerprints, GroupRepository groupRepo) {
+        int base = this.cards.size();
+        if (cards.size() != base + addedFingerprints.length) {
+            throw new IllegalArgumentException("Ожидалось " + (base + addedFingerprints.length)
+                    + " карточек, получено " + cards.size());
+        }
+
+        long[] allFingerprints = Arrays.copyOf(fingerprints, cards.size());
+        System.arraycopy(addedFingerprints, 0, allFingerprints, base, addedFingerprints.length);
+        LongHashSet allQuestions = questions.copy();
+        for (long f : addedFingerprints) allQuestions.add(f);
+
+        // маски затронутых категорий копируются один раз (прежние маски могут быть в чужих руках)
+        Map<String, BitSet> categories = new HashMap<>(byCategory);
+        Set<String> touchedCategories = new HashSet<>();
+        Map<String, BitSet> addedByFile = new HashMap<>();
+        for (int i = base; i < cards.size(); i++) {
+            Card c = cards.get(i);
+            String category = c.getCategory();
+            if (touchedCategories.add(category)) {
+                BitSet old = categories.get(category);
+                categories.put(category, old != null ? (BitSet) old.clone() : new BitSet());
+            }
+            categories.get(category).set(i);
+            if (c.getSourceFile() != null) {
+                addedByFile.computeIfAbsent(c.getSourceFile(), _ -> new BitSet()).set(i);
+            }
+        }
+
+        // группы: только файлы новых карточек
+        Map<String, BitSet> groups = new HashMap<>(byGroup);
+        Set<String> touchedGroups = new HashSet<>();
+        for (String group : byGroup.keySet()) {
+            for (var entry : addedByFile.entrySet()) {
+                if (!groupRepo.isCardInGroup(entry.getKey(), group)) continue;
+                if (touchedGroups.add(group)) groups.put(group, (BitSet) groups.get(group).clone());
+                groups.get(group).or(entry.getValue());
+            }
+        }
+
+        return new CardIndex(this, cards, allFingerprints, allQuestions,
+                categories, groups, touchedCategories, touchedGroups);
+    }
+
+    /**
+     * Количество проиндексированных карточек
+     */
+    public int size() {
+        return cards.size();
+    }
+
+    /**
+     * Номер карточки в индексе
+     *
+     * @param card карточка сессии
+     * @return номер или {@code -1}, если карточка не из этого индекса
+     */
+    public int positionOf(Card card) {
+        Integer pos = positions.get(card);
+        return pos != null ? pos : -1;
+    }
+
+    /**
+     * Отпечаток вопроса карточки
+     *
+     * @param pos номер карточки ({@link #positionOf})
+     */
+    public long fingerprintOf(int pos) {
+        return fingerprints[pos];
+    }
+
+    /**
+     * Есть ли в сессии карточка с таким вопросом (после нормализации)
+     *
+     * @param fingerprint отпечаток вопроса ({@link TextUtil#fingerprintForId})
+     */
+    public boolean containsQuestion(long fingerprint) {
+        return questions.contains(fingerprint);
+    }
+
+    /**
+     * Проверяет, входит ли карточка в группу или категорию
+     *
+     * @param pos номер карточки ({@link #positionOf})
+     * @param groupOrCategory название группы или категории
+     */
+    public boolean contains(int pos, String groupOrCategory) {
+        return pos >= 0 && bitsFor(groupOrCategory).get(pos);
+    }
+
+    /**
+     * Отсортированные имена групп из {@code structure.txt}
+     */
+    public List<String> getGroupNames() {
+        return groupNames;
+    }
+
+    /**
+     * Отсортированные уникальные имена категорий
+     */
+    public List<String> getCategoryNames() {
+        return categoryNames;
+    }
+
+    /**
+     * Карточки по категориям (в порядке имен категорий)
+     *
+     * @return неизменяемая карта: категория - > список карт
+     */
+    public Map<String, List<Card>> getCardsByCategory() {
+        return Collections.unmodifiableMap(cardsByCategory);
+    }
+
+    /**
+     * Карточки группы
+     *
+     * @param group название группы
+     * @return список карт или пустой список, если группы нет
+     */
+    public List<Card> getCardsInGroup(String group) {
+        return cardsByGroup.getOrDefault(group, List.of());
+    }
+
+    /**
+     * Маска карточек по одному фильтру.
+     * Как и в {@link SessionManager#isCardInGroup}, имя группы имеет приоритет над категорией
+     *
+     * @param groupOrCategory название группы или категории
+     * @return маска (только для чтения!) или пустая маска, если фильтр неизвестен
+     */
+    BitSet bitsFor(String groupOrCategory) {
+        BitSet bits = byGroup.get(groupOrCategory);
+        if (bits == null) bits = byCategory.get(groupOrCategory);
+        return bits != null ? bits : new BitSet(0);
+    }
+
+    /**
+     * Объединение нескольких фильтров (группы и/или категории)
+     *
+     * @param filters названия групп или категорий
+     * @return новая маска выбранных карточек
+     */
+    public BitSet select(Collection<String> filters) {
+        BitSet result = new BitSet(cards.size());
+        for (String f : filters) {
+            result.or(bitsFor(f));
+        }
+        return result;
+    }
+
+    /**
+     * Представление (view) карточек по маске, без копирования самих карт
+     *
+     * @param bits маска выбранных карточек
+     * @return неизменяемый список
+     */
+    public List<Card> view(BitSet bits) {
+        return new CardView(cards, bits.stream().toArray());
+    }
+
+    /**
+     * Неизменяемое представление списка карточек по их номерам в индексе
+     */
+    private static final class CardView extends AbstractList<Card> implements RandomAccess {
+        private final List<Card> source;
+        private final int[] positions;
+
+        CardView(List<Card> source, int[] positions) {
+            this.source = source;
+            this.positions = positions;
+        }
+
+        @Override
+        public Card get(int i) {
+            return source.get(positions[i]);
+        }
+
+        @Override
+        public int size() {
+            return positions.length;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package service.session;
+
+import util.TextUtil;
+import util.TokenBuffer;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Индекс похожих вопросов (MinHash + LSH)
+ * <p>
+ * Точная дедупликация ({@link TextUtil#fingerprintForId}) ловит только вопросы, совпадающие
+ * после удаления пробелов и регистра. Здесь вопрос - множество слов ({@link TextUtil#tokenize}),
+ * похожесть - коэффициент Жаккара двух множеств
+ * </p>
+ * <p>
+ * Для каждого вопроса считается MinHash-подпись из {@link #HASHES} значений, подпись режется
+ * на {@link #BANDS} полос по {@link #ROWS} значений. Вопросы с совпадающей хотя бы одной полосой
+ * попадают в одну корзину и становятся кандидатами, остальные не сравниваются вовсе.
+ * При пороге 0.8 пара с такой похожестью становится кандидатом с вероятностью ~98%,
+ * пара с похожестью 0.3 - ~6%. Кандидаты проверяются точным коэффициентом по словам
+ * (тексты берутся из сессии по номеру карточки), поэтому ложных срабатываний нет
+ * </p>
+ * <p>
+ * Корзины - открытая адресация по примитивным массивам ({@code int} ключ полосы - номер карточки),
+ * без объектов на запись. Поиск - {@link #BANDS} коротких цепочек, а не проход по коллекции
+ * </p>
+ * <p>
+ * Не потокобезопасен на запись: индекс сессии заполняется при загрузке, а при импорте
+ * дополняется копия ({@link #copy()}), которая затем публикуется целиком
+ * </p>
+ */
+public final class NearDuplicateIndex {
+
+    /** Порог похожести по умолчанию (коэффициент Жаккара по словам) */
+    public static final double DEFAULT_THRESHOLD = 0.8;
+
+    /** Размер подписи, количество полос и значений в полосе */
+    static final int HASHES = 32;
+    static final int BANDS = 8;
+    static final int ROWS = HASHES / BANDS;
+
+    /** Максимум кандидатов на точную проверку (защита от огромных корзин из шаблонных вопросов) */
+    private static final int MAX_CANDIDATES = 64;
+
+    /** Коэффициенты хеш-функций подписи: h_i(x) = старшие 32 бита (a_i * x + b_i), a_i нечетные */
+    private static final long[] MUL = new long[HASHES];
+    private static final long[] ADD = new long[HASHES];
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < HASHES; i++) {
+            seed = mix(seed + 0x9E3779B97F4A7C15L);
+            MUL[i] = seed | 1;
+            seed = mix(seed + 0x9E3779B97F4A7C15L);
+            ADD[i] = seed;
+        }
+    }
+
+    private static final ThreadLocal<TokenBuffer> BUFFER = ThreadLocal.withInitial(TokenBuffer::new);
+
+    /** Пустая ячейка (в массиве номеров карточек) */
+    private static final int EMPTY = -1;
+
+    /** Ключи корзин (хеш полосы вместе с ее номером) */
+    private int[] keys;
+
+    /** Номера карточек; {@link #EMPTY} - свободная ячейка */
+    private int[] positions;
+
+    private int entries;
+
+    /** Количество проиндексированных вопросов */
+    private int size;
+
+    /** Пустой индекс */
+    public NearDuplicateIndex() {
+        this(16);
+    }
+
+    /**
+     * @param expectedCards ожидаемое количество вопросов
+     */
+    public NearDuplicateIndex(int expectedCards) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedCards * BANDS * 2 - 1)) << 1;
+        keys = new int[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, EMPTY);
+    }
+
+    /**
+     * Множество слов вопроса как отсортированные уникальные 64-битные хеши
+     *
+     * @param question текст вопроса
+     * @return хеши слов (пустой массив, если слов нет)
+     */
+    public static long[] shingles(String question) {
+        TokenBuffer buffer = BUFFER.get();
+        TextUtil.tokenize(question, buffer);
+        long[] hashes = new long[buffer.size()];
+        for (int i = 0; i < hashes.length; i++) hashes[i] = buffer.tokenHash(i);
+        Arrays.sort(hashes);
+
+        int unique = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (i == 0 || hashes[i] != hashes[i - 1]) hashes[unique++] = hashes[i];
+        }
+        return unique == hashes.length ? hashes : Arrays.copyOf(hashes, unique);
+    }
+
+    /**
+     * Коэффициент Жаккара двух множеств слов ({@link #shingles})
+     */
+    public static double similarity(long[] a, long[] b) {
+        if (a.length == 0 || b.length == 0) return 0;
+        int i = 0, j = 0, common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) common / (a.length + b.length - common);
+    }
+
+    /**
+     * Ищет самый похожий из проиндексированных вопросов
+     *
+     * @param shingles слова вопроса ({@link #shingles})
+     * @param questionAt текст вопроса по номеру карточки (для точной проверки кандидатов)
+     * @param threshold минимальная похожесть
+     * @return номер карточки или {@code -1}, если похожих нет
+     */
+    public int find(long[] shingles, IntFunction<String> questionAt, double threshold) {
+        if (shingles.length == 0 || size == 0) return -1;
+
+        int[] bandKeys = bandKeys(signature(shingles));
+        int[] candidates = new int[MAX_CANDIDATES];
+        int count = 0;
+        int mask = keys.length - 1;
+        for (int key : bandKeys) {
+            for (int i = slot(key, mask); positions[i] != EMPTY && count < MAX_CANDIDATES; i = (i + 1) & mask) {
+                if (keys[i] != key) continue;
+                int pos = positions[i];
+                // одна карточка может совпасть по нескольким полосам
+                boolean seen = false;
+                for (int c = 0; c < count && !seen; c++) seen = candidates[c] == pos;
+                if (!seen) candidates[count++] = pos;
+            }
+        }
+
+        // самый похожий; при равенстве - более ранняя карточка
+        int best = -1;
+        double bestSimilarity = 0;
+        for (int c = 0; c < count; c++) {
+            double s = similarity(shingles, shingles(questionAt.apply(candidates[c])));
+            if (s < threshold) continue;
+            if (best < 0 || s > bestSimilarity || (s == bestSimilarity && candidates[c] < best)) {
+                best = candidates[c];
+                bestSimilarity = s;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Добавляет вопрос
+     *
+     * @param position номер карточки
+     * @param shingles слова вопроса ({@link #shingles}); пустой вопрос не индексируется
+     */
+    public void add(int position, long[] shingles) {
+        if (shingles.length == 0) return;
+        if ((entries + BANDS) * 2 > keys.length) rehash(keys.length * 2);
+
+        int mask = keys.length - 1;
+        for (int key : bandKeys(signature(shingles))) {
+            int i = slot(key, mask);
+            while (positions[i] != EMPTY) i = (i + 1) & mask;
+            keys[i] = key;
+            positions[i] = position;
+            entries++;
+        }
+        size++;
+    }
+
+    /** Количество проиндексированных вопросов */
+    public int size() {
+        return size;
+    }
+
+    /** Независимая копия (копируются массивы, без пересчета подписей) */
+    public NearDuplicateIndex copy() {
+        NearDuplicateIndex copy = new NearDuplicateIndex(0);
+        copy.keys = keys.clone();
+        copy.positions = positions.clone();
+        copy.entries = entries;
+        copy.size = size;
+        return copy;
+    }
+
+    /** MinHash-подпись: минимум каждой хеш-функции по словам */
+    static int[] signature(long[] shingles) {
+        int[] signature = new int[HASHES];
+        for (int h = 0; h < HASHES; h++) {
+            long min = Long.MAX_VALUE;
+            for (long s : shingles) {
+                long v = (MUL[h] * s + ADD[h]) >>> 32;
+                if (v < min) min = v;
+            }
+            signature[h] = (int) min;
+        }
+        return signature;
+    }
+
+    /** Ключ корзины для каждой полосы подписи (номер полосы входит в хеш) */
+    private static int[] bandKeys(int[] signature) {
+        int[] result = new int[BANDS];
+        for (int b = 0; b < BANDS; b++) {
+            long h = b;
+            for (int r = 0; r < ROWS; r++) {
+                h = h * 0x100000001b3L + (signature[b * ROWS + r] & 0xFFFFFFFFL);
+            }
+            result[b] = (int) mix(h);
+        }
+        return result;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldPositions = positions;
+        keys = new int[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, EMPTY);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldPositions[j] == EMPTY) continue;
+            int i = slot(oldKeys[j], mask);
+            while (positions[i] != EMPTY) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            positions[i] = oldPositions[j];
+        }
+    }
+
+    private static int slot(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
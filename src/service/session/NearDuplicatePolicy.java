@@ -0,0 +1,47 @@
+package service.session;
+
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * Что делать с похожими (но не совпадающими) вопросами при загрузке и импорте
+ * <p>
+ * Похожесть ищется по {@link NearDuplicateIndex} с порогом {@link NearDuplicateIndex#DEFAULT_THRESHOLD}.
+ * Режим задается свойством {@code -Djavaanki.dedup.near=off|flag|skip}, по умолчанию {@link #FLAG}
+ * </p>
+ */
+public enum NearDuplicatePolicy {
+
+    /** Не искать похожие вопросы */
+    OFF,
+
+    /** Оставить карточку, но записать предупреждение в лог (и посчитать в отчете импорта) */
+    FLAG,
+
+    /**
+     * Не добавлять карточку. При загрузке - как с точными дубликатами: карточка не попадает
+     * в сессию и при пересохранении колоды исчезает из файла
+     */
+    SKIP;
+
+    private static final Logger LOGGER = Logger.getLogger(NearDuplicatePolicy.class.getName());
+
+    /** Системное свойство режима */
+    static final String PROPERTY = "javaanki.dedup.near";
+
+    /**
+     * Режим из системного свойства {@link #PROPERTY}
+     *
+     * @return заданный режим или {@link #FLAG}, если свойство не задано или неверно
+     */
+    public static NearDuplicatePolicy configured() {
+        String value = System.getProperty(PROPERTY);
+        if (value == null || value.isBlank()) return FLAG;
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warning("Неизвестный режим похожих вопросов: " + value + ", используется FLAG");
+            return FLAG;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package service.session;
+
+import model.Card;
+import model.dto.StatsRow;
+import service.algorithm.CardProgress;
+
+import java.util.List;
+
+/**
+ * Хранилище прогресса одного ученика: уровни карточек, запись ответов, статистика
+ * <p>
+ * В приложении это {@link SessionManager}: прогресс хранится в снимке сессии,
+ * файлы {@code anki_stats.txt} и {@code history_log.txt}. В режиме сервера у каждого пользователя
+ * свое хранилище ({@link UserProgress}) поверх общего каталога карточек ({@link CardCatalog})
+ * </p>
+ */
+public interface ProgressStore extends CardProgress {
+
+    /**
+     * Записывает ответ: новый уровень карточки и строку журнала
+     *
+     * @param card карточка, на которую ответили
+     * @param level новый уровень (карточка больше не новая)
+     * @param answer ответ пользователя
+     * @param correct был ли ответ верным
+     */
+    void record(Card card, int level, String answer, boolean correct);
+
+    /**
+     * Статистика по категориям: всего / новые / в процессе / выученные (уровень >= 8)
+     *
+     * @param totalName подпись итоговой строки
+     * @return строки категорий и итоговая строка (последняя)
+     */
+    List<StatsRow> statistics(String totalName);
+}
@@ -2,11 +2,28 @@ package service.session;
 
 import data.repository.*;
 import lombok.Getter;
+import lombok.Setter;
 import model.Card;
+import model.dto.DataUpdate;
+import model.dto.StatsRow;
+import service.grading.GradingCache;
+import service.grading.TokenVocabulary;
 import util.EventBus;
+import util.LongHashSet;
+import util.LongList;
+import util.TaskScope;
+import util.TaskScope.Subtask;
 import util.TextUtil;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -26,8 +43,12 @@ import java.util.stream.Collectors;
  *     <li>Персистентность (сохранение прогресса на диск)</li>
  * </ul>
  * </p>
+ * <p>
+ * Прогресс единственного пользователя хранится в снимке сессии ({@link SessionSnapshot#levelOf}),
+ * на диске - {@code anki_stats.txt}; менеджер и есть его {@link ProgressStore}
+ * </p>
  */
-public class SessionManager {
+public class SessionManager implements ProgressStore {
     private static final Logger LOGGER = Logger.getLogger(SessionManager.class.getName());
 
     private final CardRepository cardRepo;
@@ -36,10 +57,35 @@ public class SessionManager {
     private final GroupRepository groupRepo;
 
     /**
-     * Кеш всех загруженных карточек в памяти, с этим списком работает приложение
+     * Текущий снимок сессии: карточки, индекс категорий и групп, токены ответов,
+     * индекс похожих вопросов и сводка по уровням ({@link SessionSnapshot})
+     * <p>
+     * Загрузка и импорт собирают новый снимок целиком и подменяют ссылку, ответы
+     * дают снимок с обновленным уровнем ({@link SessionSnapshot#withLevel}): уровни хранятся только
+     * в снимках. Читатели из любого потока не блокируются и всегда видят собранное состояние
+     * </p>
+     */
+    private final AtomicReference<SessionSnapshot> snapshot = new AtomicReference<>(SessionSnapshot.empty());
+
+    /**
+     * Идет поэтапная загрузка ({@link #reloadProgressively}): в сессии пока только часть колод
+     */
+    @Getter
+    private volatile boolean loading;
+
+    /**
+     * Что делать с похожими вопросами при загрузке (и импорте, см. {@link #findNearDuplicate})
+     */
+    @Getter
+    @Setter
+    private NearDuplicatePolicy nearDuplicatePolicy = NearDuplicatePolicy.configured();
+
+    /**
+     * Кеш оценок ответов. Переживает {@link #reload()}: сбрасываются только записи карточек,
+     * у которых изменился (или пропал) эталонный ответ
      */
     @Getter
-    private List<Card> allCards = new ArrayList<>();
+    private final GradingCache gradingCache = new GradingCache();
 
     /**
      * Конструктор с зависимостями
@@ -52,71 +98,397 @@ public class SessionManager {
         this.groupRepo = groupRepo;
     }
 
+    /**
+     * Текущий снимок сессии (согласованное состояние для чтения из любого потока)
+     */
+    public SessionSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Кеш всех загруженных карточек в памяти, с этим списком работает приложение
+     *
+     * @return неизменяемый список карточек текущего снимка
+     */
+    public List<Card> getAllCards() {
+        return snapshot.get().getCards();
+    }
+
+    /**
+     * Индекс категорий и групп текущего снимка. Пересобирается при каждом {@link #reload()}
+     */
+    public CardIndex getIndex() {
+        return snapshot.get().getIndex();
+    }
+
     /**
      * Полная перезагрузка состояния приложения.
      * <p>
      * Выполняет последовательность действий:
      * <ol>
-     *     <li>Загружает карточки из файлов</li>
-     *     <li>Загружает статистику (ID - > Level)</li>
-     *     <li>Объединяет их в методе {@link #processCards}, исключая дубликаты</li>
-     *     <li>Перезаписывает файлы карточек. Необходимо для того,
+     *     <li>Загружает карточки из файлов, статистику (ID - > Level) и структуру групп -
+     *     параллельно ({@link TaskScope}): время загрузки - как у самого медленного источника,
+     *     а не их сумма</li>
+     *     <li>Объединяет их ({@link CardMerger}), исключая дубликаты
+     *     и отмечая (или исключая) похожие вопросы ({@link NearDuplicatePolicy}).
+     *     Слияние идет по колодам, по мере их разбора, как только прочитана статистика</li>
+     *     <li>Строит индекс категорий и групп ({@link CardIndex}) и запускает
+     *     фоновую подготовку токенов ответов ({@link AnswerTokenCache})</li>
+     *     <li>Перезаписывает файлы карточек (параллельно, см. {@link #persistLoaded}). Необходимо для того,
      *     чтобы если у карточки появился новый UUID (сгенерированный в памяти),
      *     он сохранился в файл и зафиксировался</li>
      *     <li>Оповещает UI через EventBus, что данные готовы</li>
      * </ol>
      * </p>
+     * <p>
+     * Ошибка любого источника отменяет остальные подзадачи; текущая сессия при этом не меняется.
+     * Ошибка записи на диске после публикации только пишется в лог: новая сессия уже действует
+     * </p>
+     *
+     * @throws IllegalStateException если загрузка не удалась (причина - исключение источника)
      */
-    public void reload() {
+    public synchronized void reload() {
         LOGGER.info(">>>>>> SESSION MANAGER: RELOAD (Загрузка данных)...");
+        long start = System.nanoTime();
+        List<Card> previous = getAllCards();
+
+        CardMerger merger;
+        CardIndex index;
+        try (TaskScope scope = new TaskScope()) {
+            // загрузка из источников - параллельно
+            Subtask<Map<String, Integer>> stats = scope.fork(statsRepo::loadStats);
+            Subtask<Void> groups = scope.fork(groupRepo::loadStructure);
+            // слияние и дедупликация - по колодам, по мере разбора (как только готова статистика)
+            Subtask<CardMerger> merged = scope.fork(() -> {
+                CardMerger[] m = {null};
+                cardRepo.loadDecks(deck -> {
+                    if (m[0] == null) m[0] = new CardMerger(stats.get(), deck.size());
+                    m[0].accept(deck);
+                });
+                return m[0] != null ? m[0] : new CardMerger(stats.get(), 0);
+            });
+            // индекс - когда готовы карточки и структура групп
+            Subtask<CardIndex> built = scope.fork(() -> {
+                CardMerger m = merged.get();
+                groups.get();
+                return CardIndex.build(m.result, m.fingerprints.toArray(), groupRepo);
+            });
+            scope.join();
+            merger = merged.get();
+            index = built.get();
+        }
+        List<Card> cards = merger.result;
+
+        // старый кеш токенов (и словарь) отбрасывается, новый прогревается в фоне
+        AnswerTokenCache answerTokens = new AnswerTokenCache(cards, new TokenVocabulary());
+        publish(SessionSnapshot.build(cards, index, answerTokens, merger.near));
+        invalidateChangedAnswers(previous, cards);
+        answerTokens.warmUpAsync();
+        LOGGER.info(String.format("Сессия собрана за %d мс", (System.nanoTime() - start) / 1_000_000));
+
+        persistLoaded(cards);
+        // уведомление интерфейса
+        EventBus.publish(EventBus.Topic.DATA_UPDATED, new DataUpdate(DataUpdate.Kind.RELOAD, cards.size(), 0));
+    }
 
-        // загрузка из источников
-        List<Card> rawCards = cardRepo.loadAllCards();
-        Map<String, Integer> stats = statsRepo.loadStats();
-        groupRepo.loadStructure();
+    /**
+     * Поэтапная перезагрузка: сессия становится доступной после первых колод,
+     * остальные добавляются по мере чтения
+     * <p>
+     * Колоды читаются по одной ({@link CardRepository#loadDecks}) и проходят ту же обработку,
+     * что и в {@link #reload()} (дубликаты и похожие вопросы ищутся по всем уже прочитанным).
+     * Как только принято {@code firstBatch} карточек, они публикуются как сессия
+     * ({@link DataUpdate.Kind#PARTIAL}) - можно показывать первую карту. Дальше сессия
+     * обновляется порциями, каждая не меньше уже опубликованного (число обновлений растет
+     * как логарифм от размера коллекции, копирование списков - линейно). В конце - та же
+     * фиксация UUID и статистики, что и в {@link #reload()}, и событие {@link DataUpdate.Kind#RELOAD}
+     * </p>
+     * <p>
+     * Пока идет загрузка ({@link #isLoading()}), статистика на диск не пишется (см. {@link #record}):
+     * в сессии еще нет прогресса непрочитанных колод. Ответы переносятся из снимка в следующую
+     * порцию ({@link SessionSnapshot#withLevelsOf}) и попадают на диск при завершении.
+     * Похожие вопросы для импорта ({@link #findNearDuplicate}) до завершения не ищутся. Перезагрузка и импорт в сессию ждут окончания загрузки
+     * </p>
+     *
+     * @param firstBatch сколько карточек достаточно для первой публикации
+     */
+    public synchronized void reloadProgressively(int firstBatch) {
+        LOGGER.info(">>>>>> SESSION MANAGER: ПОЭТАПНАЯ ЗАГРУЗКА...");
+        loading = true;
+        List<Card> cards;
+        try (TaskScope scope = new TaskScope()) {
+            // статистика и структура групп читаются параллельно с первыми колодами
+            Subtask<Map<String, Integer>> stats = scope.fork(statsRepo::loadStats);
+            Subtask<Void> groups = scope.fork(groupRepo::loadStructure);
+
+            List<Card> previous = getAllCards();
+            CardMerger[] m = {null};
+            int[] published = {0};
+            try {
+                cardRepo.loadDecks(deck -> {
+                    if (m[0] == null) m[0] = new CardMerger(stats.get(), firstBatch);
+                    m[0].accept(deck);
+                    int size = m[0].result.size();
+                    if (size >= firstBatch && size - published[0] >= Math.max(firstBatch, published[0])) {
+                        groups.get();
+                        publishPartial(m[0], published[0]);
+                        published[0] = size;
+                    }
+                });
+            } catch (CancellationException e) {
+                // подзадача чтения упала - причина будет в join
+                scope.join();
+                throw e;
+            }
+            scope.join();
+            CardMerger merger = m[0] != null ? m[0] : new CardMerger(stats.get(), 0);
+
+            cards = merger.result;
+            CardIndex index = CardIndex.build(cards, merger.fingerprints.toArray(), groupRepo);
+            // токены опубликованной части уже могли прогреться - дополняем кеш
+            int warm = published[0];
+            AnswerTokenCache answerTokens = warm > 0
+                    ? snapshot.get().getAnswerTokens().extend(cards)
+                    : new AnswerTokenCache(cards, new TokenVocabulary());
+            SessionSnapshot built = SessionSnapshot.build(cards, index, answerTokens, merger.near);
+            if (warm > 0) publishExtension(built);
+            else publish(built);
+            invalidateChangedAnswers(previous, cards);
+            answerTokens.warmUpAsync(warm);
+        } finally {
+            loading = false;
+        }
+
+        persistLoaded(cards);
+        EventBus.publish(EventBus.Topic.DATA_UPDATED, new DataUpdate(DataUpdate.Kind.RELOAD, cards.size(), 0));
+    }
+
+    /**
+     * Публикует уже обработанную часть колод как текущую сессию
+     *
+     * @param published сколько карточек было опубликовано раньше (0 - первая публикация)
+     */
+    private void publishPartial(CardMerger merger, int published) {
+        // копия: список загрузки продолжает расти
+        List<Card> part = new ArrayList<>(merger.result);
+        CardIndex index = CardIndex.build(part, merger.fingerprints.toArray(), groupRepo);
+        AnswerTokenCache answerTokens = published == 0
+                ? new AnswerTokenCache(part, new TokenVocabulary())
+                : snapshot.get().getAnswerTokens().extend(part);
+        // индекс похожих до конца загрузки пуст: загрузчик продолжает его заполнять
+        SessionSnapshot built = SessionSnapshot.build(part, index, answerTokens, new NearDuplicateIndex());
+        if (published > 0) publishExtension(built);
+        else publish(built);
+        answerTokens.warmUpAsync(published);
 
-        // слияние и дедупликация
-        this.allCards = processCards(rawCards, stats);
+        LOGGER.info(String.format("Сессия доступна: %d карт (загрузка продолжается)", part.size()));
+        EventBus.publish(EventBus.Topic.DATA_UPDATED,
+                new DataUpdate(DataUpdate.Kind.PARTIAL, part.size(), part.size() - published));
+    }
 
+    /**
+     * Публикует новый снимок сессии из заново загруженных карточек (уровни - из статистики)
+     */
+    private void publish(SessionSnapshot next) {
+        snapshot.set(next);
+    }
+
+    /**
+     * Публикует снимок, который продолжает текущий (те же карточки плюс новые в конце)
+     * <p>
+     * Уровни прежних карточек берутся из текущего снимка, в том числе ответы, записанные,
+     * пока новый снимок собирался: при гонке с ответом перенос повторяется
+     * </p>
+     */
+    private void publishExtension(SessionSnapshot next) {
+        snapshot.updateAndGet(next::withLevelsOf);
+    }
+
+    /**
+     * Фиксирует загруженную сессию на диске (UUID в файлах колод, статистика) и пишет итог в лог
+     * <p>
+     * Файлы независимы и пишутся параллельно, но не в {@link TaskScope}: ошибка одного файла
+     * не прерывает запись остальных (прерванная запись - это недописанная колода). Ошибки
+     * собираются после завершения всех записей и пишутся в лог - сессия к этому моменту
+     * уже опубликована, исключение из перезагрузки ничего бы не отменило
+     * </p>
+     */
+    private void persistLoaded(List<Card> allCards) {
         // МИГРАЦИЯ / ФИКСАЦИЯ UUID
         // группируем карты обратно по файлам-источникам и перезаписываем их
-        // UUID, присвоенные в processCards, останутся навсегда.
+        // UUID, присвоенные в CardMerger, останутся навсегда.
         Map<String, List<Card>> byFile = allCards.stream()
                 .collect(Collectors.groupingBy(Card::getSourceFile));
 
+        List<Callable<Void>> writes = new ArrayList<>();
         for (var entry : byFile.entrySet()) {
-            cardRepo.saveDeck(entry.getKey(), entry.getValue());
+            writes.add(() -> {
+                cardRepo.saveDeck(entry.getKey(), entry.getValue());
+                return null;
+            });
         }
-
         // сохранение актуальной статистики (на случай удаления карт)
-        statsRepo.saveStats(allCards);
+        SessionSnapshot published = snapshot.get();
+        writes.add(() -> {
+            statsRepo.saveLevels(published.levelsById());
+            return null;
+        });
+
+        int failed = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Future<Void> write : executor.invokeAll(writes)) {
+                try {
+                    write.get();
+                } catch (ExecutionException e) {
+                    failed++;
+                    LOGGER.log(Level.SEVERE, "Ошибка записи сессии на диск", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warning("Запись сессии на диск прервана");
+        }
+        if (failed > 0) {
+            LOGGER.severe(String.format("Не записано файлов: %d из %d (сессия загружена)", failed, writes.size()));
+        }
 
         long total = allCards.size();
-        long newCards = allCards.stream().filter(Card::isNew).count();
-        long learned = allCards.stream().filter(c -> c.getLevel() >= 1).count();
+        long newCards = 0;
+        long learned = 0;
+        for (int pos = 0; pos < published.size(); pos++) {
+            if (published.isNew(pos)) newCards++;
+            else if (published.levelOf(pos) >= 1) learned++;
+        }
 
         LOGGER.info(String.format(
                 "Данные обновлены. Всего карт: %d (Новых: %d, В изучении: %d). Группировка по файлам выполнена",
                 total, newCards, learned
         ));
-        // уведомление интерфейса
-        EventBus.publish(EventBus.Topic.DATA_UPDATED);
     }
 
     /**
-     * Сохраняет результат взаимодействия с карточкой.
+     * Добавляет импортированные карточки в текущую сессию без полной перезагрузки
      * <p>
-     * Метод вызывается после того, как алгоритм SRS уже обновил поле {@code level} у объекта карточки.
-     * Здесь происходит только запись факта в историю и сброс состояния статистики на диск
+     * Карточки уже записаны в свои файлы колод (дописаны в конец), поэтому здесь:
+     * <ol>
+     *     <li>Отбрасываются вопросы, которые уже есть в сессии (по {@link CardIndex#containsQuestion}).
+     *     Похожие вопросы здесь не проверяются - это делает импорт ({@link #findNearDuplicate})</li>
+     *     <li>Индекс дополняется новыми карточками ({@link CardIndex#append}), прежние номера не меняются</li>
+     *     <li>Кеш токенов расширяется, прогреваются только новые ответы</li>
+     *     <li>Оповещает UI одним {@code DATA_UPDATED}</li>
+     * </ol>
+     * Файлы колод и статистика не перезаписываются: новые карточки без прогресса
+     * в статистику не попадают. Время зависит от размера импорта, а не всей коллекции
+     * (кроме копирования массивов индекса)
      * </p>
      *
-     * @param card карточка (уже с обновленным уровнем)
-     * @param answer ответ пользователя
-     * @param correct был ли ответ верным
+     * @param imported новые карточки ({@code sourceFile} - имя файла колоды, куда они записаны)
+     * @return карточки, действительно добавленные в сессию
+     */
+    public synchronized List<Card> mergeCards(Collection<Card> imported) {
+        if (imported.isEmpty()) return List.of();
+
+        SessionSnapshot current = snapshot.get();
+        CardIndex index = current.getIndex();
+        List<Card> added = new ArrayList<>(imported.size());
+        LongList fingerprints = new LongList(imported.size());
+        LongHashSet seen = new LongHashSet(imported.size());
+        for (Card c : imported) {
+            long fingerprint = TextUtil.fingerprintForId(c.getQuestion());
+            if (index.containsQuestion(fingerprint) || !seen.add(fingerprint)) continue;
+            added.add(c);
+            fingerprints.add(fingerprint);
+        }
+        if (added.isEmpty()) return List.of();
+
+        int base = current.size();
+        List<Card> merged = new ArrayList<>(base + added.size());
+        merged.addAll(current.getCards());
+        merged.addAll(added);
+
+        // копия индекса похожих: прежний снимок мог уже отдаваться на чтение
+        NearDuplicateIndex near = current.getNearDuplicates();
+        if (nearDuplicatePolicy != NearDuplicatePolicy.OFF) {
+            near = near.copy();
+            for (int i = 0; i < added.size(); i++) {
+                near.add(base + i, NearDuplicateIndex.shingles(added.get(i).getQuestion()));
+            }
+        }
+
+        AnswerTokenCache answerTokens = current.getAnswerTokens().extend(merged);
+        publishExtension(SessionSnapshot.build(merged, index.append(merged, fingerprints.toArray(), groupRepo),
+                answerTokens, near));
+        answerTokens.warmUpAsync(base);
+
+        LOGGER.info(String.format("Импортировано в сессию: %d карт (всего: %d)", added.size(), merged.size()));
+        EventBus.publish(EventBus.Topic.DATA_UPDATED,
+                new DataUpdate(DataUpdate.Kind.MERGE, merged.size(), added.size()));
+        return added;
+    }
+
+    /**
+     * Ищет в сессии вопрос, похожий на данный (коэффициент Жаккара по словам не ниже
+     * {@link NearDuplicateIndex#DEFAULT_THRESHOLD}). Не сравнивает со всеми карточками:
+     * кандидаты берутся из корзин LSH
+     *
+     * @param shingles слова вопроса ({@link NearDuplicateIndex#shingles})
+     * @return похожая карточка или {@code null} (в том числе при режиме {@link NearDuplicatePolicy#OFF})
+     */
+    public Card findNearDuplicate(long[] shingles) {
+        if (nearDuplicatePolicy == NearDuplicatePolicy.OFF) return null;
+        // индекс похожих и список - из одного снимка
+        SessionSnapshot current = snapshot.get();
+        List<Card> cards = current.getCards();
+        int pos = current.getNearDuplicates().find(shingles, p -> cards.get(p).getQuestion(),
+                NearDuplicateIndex.DEFAULT_THRESHOLD);
+        return pos >= 0 ? cards.get(pos) : null;
+    }
+
+    /**
+     * Уровень карточки в текущем снимке
      */
-    public void saveProgress(Card card, String answer, boolean correct) {
+    @Override
+    public int levelOf(Card card) {
+        return snapshot.get().levelOf(card);
+    }
+
+    /**
+     * Новая ли карточка в текущем снимке
+     */
+    @Override
+    public boolean isNew(Card card) {
+        return snapshot.get().isNew(card);
+    }
+
+    /**
+     * Записывает ответ: строка в историю, новый уровень - в снимок сессии, статистика - на диск
+     * <p>
+     * Сама карточка не меняется. Если ее уже нет в сессии (ответ на карточку,
+     * показанную до перезагрузки), записывается только история
+     * </p>
+     */
+    @Override
+    public void record(Card card, int level, String answer, boolean correct) {
         historyRepo.saveEntry(card.getQuestion(), answer, correct);
-        statsRepo.saveStats(allCards);
+        // новый уровень - в слой изменений снимка (без блокировок, с повтором при гонке)
+        SessionSnapshot updated = snapshot.updateAndGet(s -> {
+            int pos = s.getIndex().positionOf(card);
+            return pos >= 0 ? s.withLevel(pos, level) : s;
+        });
+        // во время поэтапной загрузки в сессии не вся статистика - она запишется по завершении
+        if (!loading) statsRepo.saveLevels(updated.levelsById());
+    }
+
+    /**
+     * Статистика из текущего снимка, без прохода по карточкам: сводка поправляется при каждом ответе,
+     * обе части таблицы - из одного снимка
+     */
+    @Override
+    public List<StatsRow> statistics(String totalName) {
+        SessionSnapshot current = snapshot.get();
+        List<StatsRow> rows = new ArrayList<>(current.categoryRows());
+        rows.add(current.totalRow(totalName));
+        return rows;
     }
 
     /**
@@ -127,24 +499,53 @@ public class SessionManager {
      *     <li>Сначала идут группы (из structure.txt)</li>
      *     <li>Затем категории</li>
      * </ul>
+     * Имена берутся из {@link CardIndex}, без прохода по всем карточкам
      * </p>
      */
     public List<String> getAllCategories() {
-        // группы
-        List<String> options = new ArrayList<>(groupRepo.getGroupNames());
-        Collections.sort(options); // Сортировка групп
-
-        // категории из карточек (distinct - уникальные)
-        List<String> cats = allCards.stream()
-                .map(Card::getCategory)
-                .distinct()
-                .sorted()
-                .toList();
-
-        options.addAll(cats);
+        // оба списка уже отсортированы при построении индекса
+        CardIndex index = getIndex();
+        List<String> options = new ArrayList<>(index.getGroupNames());
+        options.addAll(index.getCategoryNames());
         return options;
     }
 
+    /**
+     * Токены эталонного ответа карточки (из кеша текущего снимка)
+     * <p>
+     * Каждый вызов читает снимок заново: для проверки ответа токены и словарь нужно брать
+     * из одного снимка ({@link #getSnapshot()}, {@link SessionSnapshot#answerTokensOf})
+     * </p>
+     *
+     * @param card карточка
+     * @return номера токенов ответа в словаре {@link #getVocabulary()}
+     */
+    public int[] getAnswerTokens(Card card) {
+        return snapshot.get().answerTokensOf(card);
+    }
+
+    /**
+     * Словарь токенов текущей сессии
+     */
+    public TokenVocabulary getVocabulary() {
+        return snapshot.get().getAnswerTokens().getVocabulary();
+    }
+
+    /**
+     * Возвращает колоду по набору фильтров (объединение тем)
+     * <p>
+     * Выборка выполняется над заранее построенными битовыми масками {@link CardIndex},
+     * результат - представление поверх карточек текущего снимка, а не копия
+     * </p>
+     *
+     * @param filters названия групп и/или категорий
+     * @return неизменяемый список карточек, попавших хотя бы в один из фильтров
+     */
+    public List<Card> getDeck(Collection<String> filters) {
+        CardIndex index = getIndex();
+        return index.view(index.select(filters));
+    }
+
     /**
      * Подходит ли карточка под выбранный фильтр?
      *
@@ -153,6 +554,12 @@ public class SessionManager {
      * @return true, если карточку нужно включить в урок
      */
     public boolean isCardInGroup(Card c, String groupOrCategory) {
+        CardIndex index = getIndex();
+        int pos = index.positionOf(c);
+        if (pos >= 0) {
+            // карточка из текущей сессии: ответ берем из индекса
+            return index.contains(pos, groupOrCategory);
+        }
         // фильтр названиее группы (папки файлов)?
         if (groupRepo.getGroupNames().contains(groupOrCategory)) {
             return groupRepo.isCardInGroup(c.getSourceFile(), groupOrCategory);
@@ -161,55 +568,118 @@ public class SessionManager {
         return c.getCategory().equals(groupOrCategory);
     }
 
+    /**
+     * Освобождает в {@link #gradingCache} место от оценок карточек, эталон которых изменился после перезагрузки
+     * <p>
+     * Вызывается после публикации: такие оценки уже не совпадают с ключом (в нем отпечаток эталона),
+     * а проверка по старому снимку, закончившаяся раньше, успевает их сохранить до сброса
+     * </p>
+     */
+    private void invalidateChangedAnswers(List<Card> previous, List<Card> current) {
+        if (previous.isEmpty()) return;
+
+        Map<String, String> answers = new HashMap<>(current.size() * 2);
+        for (Card c : current) {
+            if (c.getId() != null) answers.put(c.getId(), c.getAnswer());
+        }
+
+        Set<String> changed = new HashSet<>();
+        for (Card c : previous) {
+            if (c.getId() != null && !Objects.equals(answers.get(c.getId()), c.getAnswer())) {
+                changed.add(c.getId());
+            }
+        }
+        gradingCache.invalidateCards(changed);
+    }
+
     /**
      * Основная логика слияния загруженных карт с сохраненной статистикой.
      * Также дедупликация и восстановление ID
+     * <p>
+     * Дубликаты ищутся по 64-битному отпечатку нормализованного вопроса
+     * ({@link TextUtil#fingerprintForId}) в примитивном множестве: нормализованные строки не создаются.
+     * Похожие вопросы - по индексу MinHash/LSH ({@link NearDuplicateIndex}), без попарного сравнения
+     * </p>
+     * <p>
+     * Карточки принимаются порциями ({@link #accept}): дубликаты и похожие вопросы ищутся
+     * среди всех принятых ранее, поэтому результат не зависит от того, как колоды разбиты на порции
+     * </p>
      */
-    private List<Card> processCards(List<Card> raw, Map<String, Integer> stats) {
-        Set<String> seenHashes = new HashSet<>();
-        List<Card> result = new ArrayList<>();
+    private final class CardMerger {
+        private final Map<String, Integer> stats;
+        private final LongHashSet seen;
+        /** Принятые карточки */
+        private final List<Card> result;
+        /** Отпечатки принятых карточек (в порядке {@link #result}) */
+        private final LongList fingerprints;
+        /** Вопросы принятых карточек (номер = позиция в {@link #result}) */
+        private final NearDuplicateIndex near;
 
-        for (Card c : raw) {
-            // ДЕДУПЛИКАЦИЯ
-            // удаляем пробелы, лишние символы
-            String h = TextUtil.normalizeForId(c.getQuestion());
+        CardMerger(Map<String, Integer> stats, int expectedCards) {
+            this.stats = stats;
+            this.seen = new LongHashSet(expectedCards);
+            this.result = new ArrayList<>(expectedCards);
+            this.fingerprints = new LongList(expectedCards);
+            this.near = new NearDuplicateIndex(expectedCards);
+        }
 
-            // вопрос уже был? пропускаем (защита от копипасты в файлах)
-            if (seenHashes.contains(h)) continue;
-            seenHashes.add(h);
+        void accept(List<Card> raw) {
+            for (Card c : raw) {
+                // ДЕДУПЛИКАЦИЯ
+                // отпечаток вопроса без учета пробелов и регистра
+                long fingerprint = TextUtil.fingerprintForId(c.getQuestion());
 
-            boolean found = false;
+                // вопрос уже был? пропускаем (защита от копипасты в файлах)
+                if (!seen.add(fingerprint)) continue;
 
-            // ВОССТАНОВЛЕНИЕ ПРОГРЕССА (MAPPING)
+                // ПОХОЖИЕ ВОПРОСЫ (переформулированные дубликаты)
+                if (nearDuplicatePolicy != NearDuplicatePolicy.OFF) {
+                    long[] shingles = NearDuplicateIndex.shingles(c.getQuestion());
+                    int similar = near.find(shingles, pos -> result.get(pos).getQuestion(),
+                            NearDuplicateIndex.DEFAULT_THRESHOLD);
+                    if (similar >= 0) {
+                        LOGGER.warning(String.format("Похожий вопрос (%s, %s): \"%s\" ~ \"%s\"",
+                                c.getSourceFile(), nearDuplicatePolicy == NearDuplicatePolicy.SKIP ? "пропущен" : "оставлен",
+                                c.getQuestion().replace("\n", " ").trim(),
+                                result.get(similar).getQuestion().replace("\n", " ").trim()));
+                        if (nearDuplicatePolicy == NearDuplicatePolicy.SKIP) continue;
+                    }
+                    near.add(result.size(), shingles);
+                }
 
-            // у карточки уже есть UUID (из файла) и он есть в статистике
-            if (c.getId() != null && stats.containsKey(c.getId())) {
-                c.setLevel(stats.get(c.getId()));
-                c.setNew(false);
-                found = true;
-            }
-            // Legacy Support (обратная совместимость)
-            // UUID нет? ищем по старому методу (хеш-код текста)
-            else {
-                String legacyId = String.valueOf(h.hashCode());
-                if (stats.containsKey(legacyId)) {
-                    // нашли по хешу, то восстанавливаем прогресс
-                    c.setLevel(stats.get(legacyId));
+                boolean found = false;
+
+                // ВОССТАНОВЛЕНИЕ ПРОГРЕССА (MAPPING)
+
+                // у карточки уже есть UUID (из файла) и он есть в статистике
+                if (c.getId() != null && stats.containsKey(c.getId())) {
+                    c.setLevel(stats.get(c.getId()));
                     c.setNew(false);
                     found = true;
-                    // при следующем сохранении (saveDeck) карточке присвоится новый UUID,
-                    // прогресс сохранится.
                 }
-            }
+                // Legacy Support (обратная совместимость)
+                // UUID нет? ищем по старому методу (хеш-код текста)
+                else {
+                    String legacyId = String.valueOf(TextUtil.legacyHashForId(c.getQuestion()));
+                    if (stats.containsKey(legacyId)) {
+                        // нашли по хешу, то восстанавливаем прогресс
+                        c.setLevel(stats.get(legacyId));
+                        c.setNew(false);
+                        found = true;
+                        // при следующем сохранении (saveDeck) карточке присвоится новый UUID,
+                        // прогресс сохранится.
+                    }
+                }
 
-            // статистики нет? новая карта
-            if (!found) {
-                c.setLevel(0);
-                c.setNew(true);
-            }
+                // статистики нет? новая карта
+                if (!found) {
+                    c.setLevel(0);
+                    c.setNew(true);
+                }
 
-            result.add(c);
+                result.add(c);
+                fingerprints.add(fingerprint);
+            }
         }
-        return result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,228 @@
+package service.session;
+
+import service.StudyService;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Пул сессий многих пользователей над одним каталогом карточек
+ * <p>
+ * Содержимое колод загружается один раз ({@link CardCatalog}), у пользователя - только
+ * {@link UserProgress} (байт на каждую карточку каталога) и свой {@link StudyService} (тема, текущая
+ * карточка; колода по теме - номера выбранных карточек, по 4 байта на карточку).
+ * Сессия создается при первом обращении ({@link #withSession}), прогресс читается из
+ * {@code <папка пользователей>/<id>/}. Сверх {@code maxResident} дольше всех не использованные
+ * сессии вытесняются с записью прогресса на диск; остальные сбрасываются фоном раз в {@code flushInterval}
+ * и при {@link #close()}. Между сбросами ответы живут только в памяти
+ * </p>
+ * <p>
+ * Запросы одного пользователя выполняются по очереди (блокировка сессии), разных - параллельно
+ * </p>
+ */
+public final class SessionPool implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(SessionPool.class.getName());
+
+    /** Допустимый идентификатор пользователя (он же имя папки; не начинается с точки) */
+    private static final Pattern USER_ID = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9_.-]{0,63}");
+
+    private final SessionManager sessionManager;
+    private final CardCatalog catalog;
+    private final Path usersDir;
+    private final int maxResident;
+
+    /** Сессии в памяти в порядке обращений (LRU). Под собственной блокировкой */
+    private final LinkedHashMap<String, UserSession> resident = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Вытесненные сессии, прогресс которых, возможно, еще пишется на диск: новая сессия того же
+     * пользователя сначала дожидается записи, иначе прочитала бы старый файл
+     */
+    private final Map<String, UserSession> evicting = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Действие с сессией пользователя
+     *
+     * @param <T> тип результата
+     * @param <E> проверяемое исключение действия
+     */
+    @FunctionalInterface
+    public interface SessionAction<T, E extends Exception> {
+        T apply(StudyService service) throws E;
+    }
+
+    /** Сессия пользователя. Действия и вытеснение - под ее блокировкой */
+    private final class UserSession {
+        private final String userId;
+
+        /** Вытесненная сессия того же пользователя, чью запись надо дождаться перед загрузкой */
+        private UserSession previous;
+
+        private volatile UserProgress progress;
+        private StudyService service;
+        private boolean evicted;
+
+        UserSession(String userId, UserSession previous) {
+            this.userId = userId;
+            this.previous = previous;
+        }
+
+        /** Загружает прогресс при первом действии (под блокировкой сессии) */
+        void ensureLoaded() {
+            if (service != null) return;
+            if (previous != null) {
+                previous.evict();
+                previous = null;
+            }
+            progress = UserProgress.load(catalog, usersDir.resolve(userId));
+            service = new StudyService(sessionManager, progress);
+        }
+
+        /** Вытесняет сессию: последняя запись прогресса, дальнейшие действия - в новой сессии */
+        synchronized void evict() {
+            if (evicted) return;
+            evicted = true;
+            // не загруженная сессия сама ничего не пишет, но ее предшественник может еще писать
+            if (previous != null) previous.evict();
+            if (progress != null) progress.flush();
+        }
+    }
+
+    /**
+     * Создает пул над загруженной сессией
+     *
+     * @param sessionManager сессия с загруженными колодами (каталог берется из текущего снимка)
+     * @param usersDir папка с папками пользователей
+     * @param maxResident сколько сессий держать в памяти
+     * @param flushInterval период фоновой записи прогресса на диск
+     */
+    public SessionPool(SessionManager sessionManager, Path usersDir, int maxResident, Duration flushInterval) {
+        if (maxResident < 1) throw new IllegalArgumentException("maxResident < 1");
+        this.sessionManager = sessionManager;
+        this.catalog = CardCatalog.of(sessionManager.getSnapshot());
+        this.usersDir = usersDir;
+        this.maxResident = maxResident;
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("session-flush").daemon().factory());
+        long period = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushAll, period, period, TimeUnit.MILLISECONDS);
+        LOGGER.info("Пул сессий: каталог " + catalog.size() + " карточек, в памяти до " + maxResident
+                + " пользователей");
+    }
+
+    /**
+     * Допустимый ли идентификатор пользователя (латиница, цифры, {@code _ . -}, до 64 символов,
+     * не начинается с точки)
+     */
+    public static boolean isValidUserId(String userId) {
+        return userId != null && USER_ID.matcher(userId).matches();
+    }
+
+    /**
+     * Выполняет действие в сессии пользователя (создает ее при необходимости)
+     *
+     * @param userId идентификатор пользователя ({@link #isValidUserId})
+     * @param action действие с сервисом пользователя
+     * @return результат действия
+     * @throws IllegalArgumentException если идентификатор недопустим
+     * @throws E исключение действия
+     */
+    public <T, E extends Exception> T withSession(String userId, SessionAction<T, E> action) throws E {
+        if (!isValidUserId(userId)) throw new IllegalArgumentException("Недопустимый идентификатор: " + userId);
+        while (true) {
+            UserSession session = acquire(userId);
+            synchronized (session) {
+                // вытеснена между acquire и блокировкой - берем новую
+                if (session.evicted) continue;
+                session.ensureLoaded();
+                return action.apply(session.service);
+            }
+        }
+    }
+
+    /** Количество сессий в памяти */
+    public int size() {
+        synchronized (resident) {
+            return resident.size();
+        }
+    }
+
+    /** Общий каталог карточек */
+    public CardCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Записывает на диск прогресс всех сессий в памяти, у которых есть новые ответы
+     */
+    public void flushAll() {
+        List<UserSession> sessions;
+        synchronized (resident) {
+            sessions = new ArrayList<>(resident.values());
+        }
+        int flushed = 0;
+        for (UserSession session : sessions) {
+            UserProgress progress = session.progress;
+            if (progress == null || !progress.isDirty()) continue;
+            try {
+                progress.flush();
+                flushed++;
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Ошибка записи прогресса " + session.userId, e);
+            }
+        }
+        if (flushed > 0) LOGGER.fine("Записан прогресс пользователей: " + flushed);
+    }
+
+    /**
+     * Останавливает фоновую запись и записывает весь прогресс
+     */
+    @Override
+    public void close() {
+        flusher.shutdownNow();
+        flushAll();
+        evicting.values().forEach(UserSession::evict);
+    }
+
+    private UserSession acquire(String userId) {
+        UserSession session;
+        List<UserSession> victims = new ArrayList<>();
+        synchronized (resident) {
+            session = resident.get(userId);
+            if (session == null) {
+                session = new UserSession(userId, evicting.get(userId));
+                resident.put(userId, session);
+                // вытесняем дольше всех не использованные
+                Iterator<UserSession> it = resident.values().iterator();
+                while (resident.size() > maxResident && it.hasNext()) {
+                    UserSession victim = it.next();
+                    if (victim == session) continue;
+                    it.remove();
+                    evicting.put(victim.userId, victim);
+                    victims.add(victim);
+                }
+            }
+        }
+        // запись на диск - вне общей блокировки
+        for (UserSession victim : victims) {
+            victim.evict();
+            evicting.remove(victim.userId, victim);
+        }
+        return session;
+    }
+}
@@ -0,0 +1,354 @@
+package service.session;
+
+import model.Card;
+import model.dto.StatsRow;
+import service.grading.TokenVocabulary;
+import util.TextUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Неизменяемый снимок сессии: карточки, индексы и сводка по уровням
+ * <p>
+ * {@link SessionManager} публикует снимки через {@code AtomicReference}: любое изменение
+ * (загрузка, импорт, ответ) дает новый снимок, прежний не меняется. Читатель берет снимок
+ * один раз и работает с согласованным состоянием - список, индекс, токены ответов
+ * и индекс похожих вопросов всегда от одной сборки. Читатели не блокируются
+ * и не видят недостроенного состояния, в том числе из фоновых потоков
+ * </p>
+ * <p>
+ * Уровни карточек копируются в снимок при сборке. Ответ не пересобирает снимок:
+ * новый уровень попадает в маленький слой изменений ({@link #withLevel}), сводка
+ * по категориям поправляется на одну карточку. Когда слой дорастает до {@link #MERGE_THRESHOLD},
+ * он вливается в массив уровней (слияние - копия массива, в среднем {@code n / MERGE_THRESHOLD}
+ * на ответ)
+ * </p>
+ * <p>
+ * Текущий уровень есть только в снимке ({@link #levelOf}, {@link #isNew}). Поля уровня
+ * в {@link Card} заполняются при загрузке (из статистики) и дальше не меняются: снимок
+ * берет из них начальные значения при сборке ({@link #build}), ответы карточки не трогают
+ * </p>
+ */
+public final class SessionSnapshot {
+
+    /** Размер слоя изменений уровней, после которого он вливается в основной массив */
+    static final int MERGE_THRESHOLD = 256;
+
+    /** Уровень новой карточки в массиве уровней */
+    static final int NEW = -1;
+
+    /** Корзины сводки: новые, в процессе, выученные (см. {@link #bucket}) */
+    private static final int BUCKETS = 3;
+
+    /** Уровень, с которого карточка считается выученной */
+    private static final int MASTER_LEVEL = 8;
+
+    private static final SessionSnapshot EMPTY = build(List.of(), CardIndex.empty(),
+            new AnswerTokenCache(List.of(), new TokenVocabulary()), new NearDuplicateIndex());
+
+    /** Карточки (неизменяемый список) */
+    private final List<Card> cards;
+    private final CardIndex index;
+    private final AnswerTokenCache answerTokens;
+    private final NearDuplicateIndex nearDuplicates;
+
+    /** Номер категории (в порядке {@link CardIndex#getCategoryNames()}) по номеру карточки */
+    private final int[] categoryOf;
+
+    /** Уровни на момент сборки или последнего слияния ({@link #NEW} - новая карточка) */
+    private final int[] levels;
+
+    /** Слой изменений: номер карточки - > уровень. Копируется при каждом изменении */
+    private final Map<Integer, Integer> delta;
+
+    /**
+     * Сводка с учетом слоя изменений: {@code [категория * BUCKETS + корзина]},
+     * последняя строка - итог по всем карточкам
+     */
+    private final int[] counts;
+
+    private SessionSnapshot(List<Card> cards, CardIndex index, AnswerTokenCache answerTokens,
+                            NearDuplicateIndex nearDuplicates, int[] categoryOf, int[] levels,
+                            Map<Integer, Integer> delta, int[] counts) {
+        this.cards = cards;
+        this.index = index;
+        this.answerTokens = answerTokens;
+        this.nearDuplicates = nearDuplicates;
+        this.categoryOf = categoryOf;
+        this.levels = levels;
+        this.delta = delta;
+        this.counts = counts;
+    }
+
+    /**
+     * Пустой снимок (до первой загрузки)
+     */
+    public static SessionSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Собирает снимок. Начальные уровни берутся из карточек (как их заполнила загрузка)
+     *
+     * @param cards карточки сессии; список не должен меняться после передачи
+     * @param index индекс по этим карточкам
+     * @param answerTokens кеш токенов ответов этих карточек
+     * @param nearDuplicates индекс похожих вопросов (номера - позиции в {@code cards})
+     */
+    static SessionSnapshot build(List<Card> cards, CardIndex index, AnswerTokenCache answerTokens,
+                                 NearDuplicateIndex nearDuplicates) {
+        List<String> categories = index.getCategoryNames();
+        Map<String, Integer> categoryIds = new HashMap<>(categories.size() * 2);
+        for (String name : categories) categoryIds.put(name, categoryIds.size());
+
+        int n = cards.size();
+        int[] categoryOf = new int[n];
+        int[] levels = new int[n];
+        for (int i = 0; i < n; i++) {
+            Card c = cards.get(i);
+            categoryOf[i] = categoryIds.get(c.getCategory());
+            levels[i] = c.isNew() ? NEW : c.getLevel();
+        }
+        return new SessionSnapshot(Collections.unmodifiableList(cards), index, answerTokens, nearDuplicates,
+                categoryOf, levels, Map.of(), count(categories.size(), categoryOf, levels));
+    }
+
+    /**
+     * Этот снимок с уровнями из предыдущего, если он - начало этого снимка
+     * (импорт в сессию, следующая порция поэтапной загрузки: те же карточки на тех же номерах
+     * плюс новые в конце). Так ответы, записанные в предыдущий снимок, пока собирался этот,
+     * не теряются
+     *
+     * @param previous снимок, который этот заменяет
+     * @return снимок с перенесенными уровнями или этот же, если {@code previous} - не его начало
+     */
+    SessionSnapshot withLevelsOf(SessionSnapshot previous) {
+        int n = previous.size();
+        if (n == 0 || n > size()) return this;
+        if (previous.cards.getFirst() != cards.getFirst() || previous.cards.get(n - 1) != cards.get(n - 1)) return this;
+
+        int[] carried = levels.clone();
+        for (int i = 0; i < n; i++) carried[i] = previous.rawLevel(i);
+        return new SessionSnapshot(cards, index, answerTokens, nearDuplicates, categoryOf, carried,
+                Map.of(), count(index.getCategoryNames().size(), categoryOf, carried));
+    }
+
+    /**
+     * Снимок с новым уровнем карточки (после ответа)
+     * <p>
+     * Повторный вызов с тем же уровнем ничего не меняет, поэтому его можно повторять
+     * при гонке ({@code AtomicReference#updateAndGet})
+     * </p>
+     *
+     * @param pos номер карточки в индексе
+     * @param level новый уровень ({@link #NEW} - снова новая)
+     * @return новый снимок или этот же, если менять нечего
+     */
+    SessionSnapshot withLevel(int pos, int level) {
+        int old = rawLevel(pos);
+        if (old == level) return this;
+
+        int[] newCounts = counts.clone();
+        int category = categoryOf[pos] * BUCKETS;
+        int total = newCounts.length - BUCKETS;
+        newCounts[category + bucket(old)]--;
+        newCounts[category + bucket(level)]++;
+        newCounts[total + bucket(old)]--;
+        newCounts[total + bucket(level)]++;
+
+        Map<Integer, Integer> newDelta = new HashMap<>(delta);
+        newDelta.put(pos, level);
+        if (newDelta.size() < MERGE_THRESHOLD) {
+            return new SessionSnapshot(cards, index, answerTokens, nearDuplicates, categoryOf, levels,
+                    Collections.unmodifiableMap(newDelta), newCounts);
+        }
+        // слияние слоя с основным массивом
+        int[] merged = levels.clone();
+        newDelta.forEach((p, l) -> merged[p] = l);
+        return new SessionSnapshot(cards, index, answerTokens, nearDuplicates, categoryOf, merged,
+                Map.of(), newCounts);
+    }
+
+    /** Карточки сессии (неизменяемый список) */
+    public List<Card> getCards() {
+        return cards;
+    }
+
+    /** Индекс категорий и групп */
+    public CardIndex getIndex() {
+        return index;
+    }
+
+    AnswerTokenCache getAnswerTokens() {
+        return answerTokens;
+    }
+
+    /**
+     * Токены эталонного ответа карточки из кеша этого снимка
+     * <p>
+     * Номера токенов имеют смысл только в словаре того же снимка ({@link #getVocabulary()}):
+     * для проверки ответа оба берутся из одного снимка
+     * </p>
+     *
+     * @param card карточка (не из этого снимка - ответ кодируется напрямую)
+     * @return номера токенов в словаре (массив не изменять!)
+     */
+    public int[] answerTokensOf(Card card) {
+        int pos = index.positionOf(card);
+        if (pos < 0) return answerTokens.getVocabulary().encode(TextUtil.tokenize(card.getAnswer()));
+        return answerTokens.get(pos);
+    }
+
+    /** Словарь токенов этого снимка */
+    public TokenVocabulary getVocabulary() {
+        return answerTokens.getVocabulary();
+    }
+
+    NearDuplicateIndex getNearDuplicates() {
+        return nearDuplicates;
+    }
+
+    /** Количество карточек */
+    public int size() {
+        return cards.size();
+    }
+
+    /**
+     * Уровень карточки в этом снимке
+     *
+     * @param pos номер карточки в индексе
+     */
+    public int levelOf(int pos) {
+        return Math.max(rawLevel(pos), 0);
+    }
+
+    /**
+     * Новая ли карточка в этом снимке
+     *
+     * @param pos номер карточки в индексе
+     */
+    public boolean isNew(int pos) {
+        return rawLevel(pos) == NEW;
+    }
+
+    /**
+     * Уровень карточки в этом снимке; у карточки не из этого снимка - уровень при ее загрузке
+     */
+    public int levelOf(Card card) {
+        int pos = index.positionOf(card);
+        return pos >= 0 ? levelOf(pos) : card.getLevel();
+    }
+
+    /**
+     * Новая ли карточка в этом снимке; у карточки не из этого снимка - как при ее загрузке
+     */
+    public boolean isNew(Card card) {
+        int pos = index.positionOf(card);
+        return pos >= 0 ? isNew(pos) : card.isNew();
+    }
+
+    /**
+     * Уровни для записи статистики ({@code anki_stats.txt}), в порядке карточек
+     *
+     * @return ID карточки - > уровень (только карточки не в статусе "новая")
+     */
+    Map<String, Integer> levelsById() {
+        Map<String, Integer> out = new LinkedHashMap<>();
+        for (int i = 0; i < cards.size(); i++) {
+            int level = rawLevel(i);
+            if (level != NEW) out.put(cards.get(i).getId(), level);
+        }
+        return out;
+    }
+
+    /** Размер слоя изменений (еще не влитых в основной массив) */
+    int deltaSize() {
+        return delta.size();
+    }
+
+    /**
+     * Статистика по категориям (в порядке имен категорий), без прохода по карточкам
+     *
+     * @return строки: всего / новые / в процессе / выученные
+     */
+    public List<StatsRow> categoryRows() {
+        List<String> categories = index.getCategoryNames();
+        List<StatsRow> rows = new ArrayList<>(categories.size());
+        for (int i = 0; i < categories.size(); i++) {
+            rows.add(row(counts, categories.get(i), i * BUCKETS));
+        }
+        return rows;
+    }
+
+    /**
+     * Итоговая строка статистики по всем карточкам
+     *
+     * @param name подпись строки
+     */
+    public StatsRow totalRow(String name) {
+        return row(counts, name, counts.length - BUCKETS);
+    }
+
+    /**
+     * Статистика по категориям этого снимка с уровнями из другого источника
+     * (прогресс пользователя, который хранится отдельно от карточек). Полный проход по карточкам
+     *
+     * @param rawLevel уровень по номеру карточки ({@link #NEW} - новая)
+     * @param totalName подпись итоговой строки
+     * @return строки категорий (в порядке имен) и итоговая строка
+     */
+    List<StatsRow> statistics(IntUnaryOperator rawLevel, String totalName) {
+        List<String> categories = index.getCategoryNames();
+        int[] sums = new int[(categories.size() + 1) * BUCKETS];
+        int total = categories.size() * BUCKETS;
+        for (int i = 0; i < categoryOf.length; i++) {
+            int bucket = bucket(rawLevel.applyAsInt(i));
+            sums[categoryOf[i] * BUCKETS + bucket]++;
+            sums[total + bucket]++;
+        }
+        List<StatsRow> rows = new ArrayList<>(categories.size() + 1);
+        for (int i = 0; i < categories.size(); i++) {
+            rows.add(row(sums, categories.get(i), i * BUCKETS));
+        }
+        rows.add(row(sums, totalName, total));
+        return rows;
+    }
+
+    /** Сводка по уровням: {@code [категория * BUCKETS + корзина]}, последняя строка - итог */
+    private static int[] count(int categories, int[] categoryOf, int[] levels) {
+        int[] counts = new int[(categories + 1) * BUCKETS];
+        int total = categories * BUCKETS;
+        for (int i = 0; i < levels.length; i++) {
+            counts[categoryOf[i] * BUCKETS + bucket(levels[i])]++;
+            counts[total + bucket(levels[i])]++;
+        }
+        return counts;
+    }
+
+    private static StatsRow row(int[] counts, String name, int offset) {
+        long fresh = counts[offset];
+        long learning = counts[offset + 1];
+        long master = counts[offset + 2];
+        return new StatsRow(name, fresh + learning + master, fresh, learning, master);
+    }
+
+    private int rawLevel(int pos) {
+        Integer changed = delta.get(pos);
+        return changed != null ? changed : levels[pos];
+    }
+
+    /**
+     * Корзина сводки: как в таблице статистики - новые, выученные (уровень от {@link #MASTER_LEVEL}),
+     * остальные в процессе
+     */
+    private static int bucket(int level) {
+        if (level == NEW) return 0;
+        return level >= MASTER_LEVEL ? 2 : 1;
+    }
+}
@@ -0,0 +1,185 @@
+package service.session;
+
+import data.repository.FileStatsRepository;
+import data.repository.HistoryRepository;
+import model.Card;
+import model.dto.StatsRow;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Прогресс одного пользователя поверх общего каталога карточек ({@link CardCatalog})
+ * <p>
+ * Уровни - массив {@code byte[catalog.size()]} по номеру карточки в каталоге ({@code -1} - новая):
+ * память пользователя растет с размером каталога, а не с числом его ответов (100 000 карточек -
+ * около 100 КБ на пользователя), содержимое карточек не копируется. Ответы копятся
+ * в памяти и записываются пачкой ({@link #flush()}): файлы {@code anki_stats.txt}
+ * и {@code history_log.txt} в папке пользователя, в тех же форматах, что у приложения.
+ * Когда сбрасывать - решает {@link SessionPool}
+ * </p>
+ * <p>
+ * Методы синхронизированы: запросы пользователя и фоновая запись могут идти из разных потоков
+ * </p>
+ */
+public final class UserProgress implements ProgressStore {
+    private static final Logger LOGGER = Logger.getLogger(UserProgress.class.getName());
+
+    /** Файл уровней в папке пользователя */
+    static final String STATS_FILE = "anki_stats.txt";
+
+    /** Журнал ответов в папке пользователя */
+    static final String HISTORY_FILE = "history_log.txt";
+
+    private static final byte NEW = SessionSnapshot.NEW;
+
+    private final CardCatalog catalog;
+    private final Path dir;
+    private final FileStatsRepository statsRepo;
+    private final HistoryRepository historyRepo;
+
+    /** Уровень по номеру карточки в каталоге ({@link #NEW} - новая) */
+    private final byte[] levels;
+
+    /**
+     * Уровни карточек, которых нет в каталоге (удалены из колод или появятся после перезагрузки):
+     * не теряются при записи
+     */
+    private final Map<String, Integer> orphans = new HashMap<>();
+
+    /** Строки журнала, еще не записанные в файл */
+    private final List<String> pendingHistory = new ArrayList<>();
+
+    /** Есть ответы, не записанные на диск */
+    private boolean dirty;
+
+    private UserProgress(CardCatalog catalog, Path dir) {
+        this.catalog = catalog;
+        this.dir = dir;
+        this.statsRepo = new FileStatsRepository(dir.resolve(STATS_FILE));
+        this.historyRepo = new HistoryRepository(dir.resolve(HISTORY_FILE));
+        this.levels = new byte[catalog.size()];
+        Arrays.fill(levels, NEW);
+    }
+
+    /**
+     * Загружает прогресс пользователя (папки может не быть - тогда все карточки новые)
+     * <p>
+     * Записи со старыми идентификаторами (хеш вопроса) переносятся на UUID карточки, как при
+     * загрузке сессии приложения: запись по UUID важнее, при следующей записи на диск старый
+     * идентификатор заменяется на UUID. Записи, которых нет в каталоге, хранятся как есть
+     * (см. {@link #orphans}); количество перенесенных и ненайденных пишется в лог
+     * </p>
+     *
+     * @param catalog общий каталог карточек
+     * @param dir папка пользователя
+     */
+    public static UserProgress load(CardCatalog catalog, Path dir) {
+        UserProgress progress = new UserProgress(catalog, dir);
+        Map<String, Integer> stats = progress.statsRepo.loadStats();
+        List<String> unmatched = new ArrayList<>();
+        stats.forEach((id, level) -> {
+            int pos = catalog.positionOf(id);
+            if (pos >= 0) {
+                progress.levels[pos] = (byte) Math.clamp(level, 0, Byte.MAX_VALUE);
+            } else {
+                unmatched.add(id);
+            }
+        });
+
+        // Legacy Support: идентификатор - хеш вопроса
+        int migrated = 0;
+        for (String id : unmatched) {
+            int pos = catalog.positionOfLegacy(id);
+            if (pos < 0) {
+                progress.orphans.put(id, stats.get(id));
+                continue;
+            }
+            if (progress.levels[pos] == NEW) {
+                progress.levels[pos] = (byte) Math.clamp(stats.get(id), 0, Byte.MAX_VALUE);
+            }
+            migrated++;
+        }
+        if (migrated > 0) {
+            // файл перепишется уже с UUID
+            progress.dirty = true;
+            LOGGER.info(String.format("Прогресс %s: перенесено со старых идентификаторов: %d", dir, migrated));
+        }
+        if (!progress.orphans.isEmpty()) {
+            LOGGER.info(String.format("Прогресс %s: нет в каталоге (сохраняются без изменений): %d",
+                    dir, progress.orphans.size()));
+        }
+        return progress;
+    }
+
+    @Override
+    public synchronized int levelOf(Card card) {
+        int pos = catalog.positionOf(card);
+        return pos < 0 ? orphans.getOrDefault(card.getId(), 0) : Math.max(levels[pos], 0);
+    }
+
+    @Override
+    public synchronized boolean isNew(Card card) {
+        int pos = catalog.positionOf(card);
+        return pos < 0 ? !orphans.containsKey(card.getId()) : levels[pos] == NEW;
+    }
+
+    @Override
+    public synchronized void record(Card card, int level, String answer, boolean correct) {
+        int pos = catalog.positionOf(card);
+        if (pos >= 0) {
+            levels[pos] = (byte) Math.clamp(level, 0, Byte.MAX_VALUE);
+        } else {
+            orphans.put(card.getId(), level);
+        }
+        pendingHistory.add(historyRepo.formatEntry(card.getQuestion(), answer, correct));
+        dirty = true;
+    }
+
+    /**
+     * Статистика пользователя по категориям каталога (проход по массиву уровней)
+     */
+    @Override
+    public synchronized List<StatsRow> statistics(String totalName) {
+        return catalog.statistics(pos -> levels[pos], totalName);
+    }
+
+    /** Есть ли ответы, не записанные на диск */
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Записывает накопленные ответы: файл уровней целиком, журнал - дописыванием.
+     * Если записывать нечего - ничего не делает
+     */
+    public synchronized void flush() {
+        if (!dirty) return;
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            // ответы остаются в памяти до следующей попытки
+            LOGGER.severe("Не удалось создать папку пользователя " + dir + ": " + e.getMessage());
+            return;
+        }
+
+        Map<String, Integer> out = new LinkedHashMap<>();
+        for (int pos = 0; pos < levels.length; pos++) {
+            if (levels[pos] != NEW) out.put(catalog.cardAt(pos).getId(), (int) levels[pos]);
+        }
+        orphans.forEach(out::putIfAbsent);
+        statsRepo.saveLevels(out);
+
+        historyRepo.saveEntries(pendingHistory);
+        pendingHistory.clear();
+        dirty = false;
+    }
+}
@@ -0,0 +1,364 @@
+package tools;
+
+import data.repository.FileDeckRepository;
+import data.repository.FileStatsRepository;
+import data.repository.GroupRepository;
+import data.repository.HistoryRepository;
+import model.Card;
+import service.StudyService;
+import service.session.SessionManager;
+import service.session.SessionPool;
+import util.LatencyHistogram;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Нагрузочный прогон сервисного слоя без интерфейса и сети
+ * <p>
+ * Генерирует колоды в папке прогона ({@code <dir>/decks}), загружает их и запускает N "учеников" -
+ * каждый в своем виртуальном потоке повторяет цикл {@code nextCard -> checkAnswer -> submitResult}:
+ * </p>
+ * <ul>
+ *     <li>{@code own} - у каждого свой {@link StudyService} и прогресс ({@link SessionPool}, как на сервере)</li>
+ *     <li>{@code shared} - все на одном {@link StudyService} (как в приложении); цикл ученика выполняется
+ *     под блокировкой сервиса, ожидание блокировки входит в задержку цикла</li>
+ * </ul>
+ * <p>
+ * Между циклами ученик "думает" - пауза со средним {@code --think-ms} (экспоненциальное распределение);
+ * {@code --think-ms 0} - прогон на насыщение. Задержки каждой операции и всего цикла пишутся
+ * в {@link LatencyHistogram}; первые {@code --warmup-s} секунд (прогрев JIT) не учитываются.
+ * Отчет: количество, пропускная способность, p50 / p99 / p999 и максимум по операциям.
+ * Ученик, упавший с исключением, выбывает из прогона - такие считаются в отчете отдельно
+ * ({@link Report#failedStudents()}), прогон с ними неуспешен
+ * </p>
+ * <pre>
+ * java tools.LoadDriver --students 1000 --seconds 20 --think-ms 0 --mode own
+ * </pre>
+ */
+public final class LoadDriver {
+    private static final Logger LOGGER = Logger.getLogger(LoadDriver.class.getName());
+
+    /** Операции, задержки которых измеряются */
+    public enum Op {
+        NEXT, CHECK, SUBMIT, CYCLE
+    }
+
+    /** Слова для генерации вопросов и ответов */
+    private static final String[] WORDS = {
+            "stream", "thread", "monitor", "heap", "stack", "class", "object", "method", "lambda", "record",
+            "interface", "module", "future", "lock", "queue", "buffer", "channel", "socket", "index", "query",
+            "table", "join", "commit", "rollback", "cache", "pool", "garbage", "collector", "compiler", "bytecode"
+    };
+
+    /** Доля верных ответов учеников; остальные - с опечатками или чужими словами */
+    private static final double CORRECT_SHARE = 0.6;
+
+    /**
+     * Параметры прогона
+     *
+     * @param students количество учеников
+     * @param duration длительность измерения
+     * @param warmup прогрев перед измерением
+     * @param thinkMillis средняя пауза между циклами, мс ({@code 0} - без пауз)
+     * @param shared {@code true} - один сервис на всех, {@code false} - у каждого свой
+     * @param decks количество файлов колод
+     * @param cardsPerDeck карточек в колоде
+     * @param dir папка прогона (колоды, прогресс)
+     */
+    public record Options(int students, Duration duration, Duration warmup, long thinkMillis, boolean shared,
+                          int decks, int cardsPerDeck, Path dir) {
+
+        /**
+         * Разбирает аргументы командной строки ({@code --students --seconds --warmup-s --think-ms --mode
+         * --decks --cards --dir}); не указанные - по умолчанию
+         *
+         * @throws IllegalArgumentException при неизвестном или неверном аргументе
+         * @throws IOException если не удалось создать временную папку прогона
+         */
+        public static Options parse(String[] args) throws IOException {
+            int students = 1000;
+            long seconds = 10;
+            long warmup = 2;
+            long think = 0;
+            boolean shared = false;
+            int decks = 20;
+            int cards = 250;
+            Path dir = null;
+            for (int i = 0; i < args.length; i += 2) {
+                if (i + 1 >= args.length) throw new IllegalArgumentException("Нет значения для " + args[i]);
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--students" -> students = Integer.parseInt(value);
+                    case "--seconds" -> seconds = Long.parseLong(value);
+                    case "--warmup-s" -> warmup = Long.parseLong(value);
+                    case "--think-ms" -> think = Long.parseLong(value);
+                    case "--mode" -> {
+                        if (!value.equals("own") && !value.equals("shared")) {
+                            throw new IllegalArgumentException("--mode: own или shared");
+                        }
+                        shared = value.equals("shared");
+                    }
+                    case "--decks" -> decks = Integer.parseInt(value);
+                    case "--cards" -> cards = Integer.parseInt(value);
+                    case "--dir" -> dir = Path.of(value);
+                    default -> throw new IllegalArgumentException("Неизвестный аргумент: " + args[i]);
+                }
+            }
+            if (dir == null) dir = Files.createTempDirectory("javaanki-load");
+            return new Options(students, Duration.ofSeconds(seconds), Duration.ofSeconds(warmup), think, shared,
+                    decks, cards, dir);
+        }
+    }
+
+    /**
+     * Результат прогона
+     *
+     * @param options параметры
+     * @param cards карточек в сессии
+     * @param measured фактическая длительность измерения
+     * @param histograms задержки по операциям, нс
+     * @param failedStudents сколько учеников завершились с исключением (их циклы до ошибки учтены)
+     * @param firstFailure первое из этих исключений ({@code null}, если ошибок нет)
+     */
+    public record Report(Options options, int cards, Duration measured, Map<Op, LatencyHistogram> histograms,
+                         int failedStudents, Throwable firstFailure) {
+
+        /** Прогон без ошибок учеников */
+        public boolean succeeded() {
+            return failedStudents == 0;
+        }
+
+        /** Пропускная способность операции, в секунду */
+        public double throughput(Op op) {
+            double seconds = measured.toNanos() / 1e9;
+            return seconds <= 0 ? 0 : histograms.get(op).getTotalCount() / seconds;
+        }
+
+        /** Отчет в виде таблицы */
+        public String format() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Учеников: %d, режим: %s, пауза: %d мс, карточек: %d, измерение: %.1f с%n",
+                    options.students(), options.shared() ? "shared" : "own", options.thinkMillis(), cards,
+                    measured.toNanos() / 1e9));
+            sb.append(String.format("%-8s %10s %10s %10s %10s %10s %10s%n",
+                    "op", "count", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+            for (Op op : Op.values()) {
+                LatencyHistogram h = histograms.get(op);
+                sb.append(String.format("%-8s %10d %10.0f %10.3f %10.3f %10.3f %10.3f%n",
+                        op.name().toLowerCase(), h.getTotalCount(), throughput(op),
+                        millis(h.valueAtPercentile(50)), millis(h.valueAtPercentile(99)),
+                        millis(h.valueAtPercentile(99.9)), millis(h.getMax())));
+            }
+            if (!succeeded()) {
+                sb.append(String.format("ОШИБКИ: учеников с исключением: %d из %d, первое: %s%n",
+                        failedStudents, options.students(), firstFailure));
+            }
+            return sb.toString();
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+
+    private final Options options;
+    private final Map<Op, LatencyHistogram> histograms = new EnumMap<>(Op.class);
+
+    /** Начало измерения ({@link System#nanoTime()}): циклы, начатые раньше, не учитываются */
+    private long measureFrom;
+
+    /** Конец прогона: новые циклы не начинаются */
+    private long deadline;
+
+    /**
+     * @param options параметры прогона
+     */
+    public LoadDriver(Options options) {
+        this.options = options;
+        for (Op op : Op.values()) histograms.put(op, new LatencyHistogram());
+    }
+
+    /**
+     * Генерирует колоды, загружает сессию и выполняет прогон
+     *
+     * @return задержки и пропускная способность
+     * @throws IOException если не удалось записать колоды
+     * @throws InterruptedException если прогон прерван
+     */
+    public Report run() throws IOException, InterruptedException {
+        Path decksDir = options.dir().resolve("decks");
+        generateDecks(decksDir, options.decks(), options.cardsPerDeck());
+
+        SessionManager sessionManager = new SessionManager(new FileDeckRepository(decksDir),
+                new FileStatsRepository(options.dir().resolve("anki_stats.txt")),
+                new HistoryRepository(options.dir().resolve("history_log.txt")),
+                new GroupRepository(decksDir.resolve("structure.txt")));
+        sessionManager.reload();
+        int cards = sessionManager.getAllCards().size();
+
+        long start = System.nanoTime();
+        measureFrom = start + options.warmup().toNanos();
+        deadline = measureFrom + options.duration().toNanos();
+
+        List<Future<?>> runs = new ArrayList<>(options.students());
+        try (SessionPool pool = options.shared() ? null
+                     : new SessionPool(sessionManager, options.dir().resolve("users"), options.students(),
+                     Duration.ofSeconds(5));
+             ExecutorService students = Executors.newVirtualThreadPerTaskExecutor()) {
+            StudyService shared = options.shared() ? new StudyService(sessionManager, false) : null;
+            for (int i = 0; i < options.students(); i++) {
+                String user = "student-" + i;
+                runs.add(students.submit(() -> {
+                    student(user, pool, shared);
+                    return null;
+                }));
+            }
+        }
+        Duration measured = Duration.ofNanos(Math.max(0, Math.min(System.nanoTime(), deadline) - measureFrom));
+
+        // все ученики уже завершились (close пула потоков ждет их) - собираем ошибки
+        int failed = 0;
+        Throwable firstFailure = null;
+        for (Future<?> run : runs) {
+            try {
+                run.get();
+            } catch (ExecutionException e) {
+                if (failed++ == 0) firstFailure = e.getCause();
+            }
+        }
+        if (failed > 0) {
+            LOGGER.log(Level.SEVERE, "Учеников с ошибкой: " + failed, firstFailure);
+        }
+        return new Report(options, cards, measured, histograms, failed, firstFailure);
+    }
+
+    /** Цикл одного ученика до конца прогона */
+    private void student(String user, SessionPool pool, StudyService shared) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            think(random);
+            long cycleStart = System.nanoTime();
+            if (cycleStart >= deadline) return;
+
+            if (shared != null) {
+                synchronized (shared) {
+                    step(shared, cycleStart, random);
+                }
+            } else {
+                pool.withSession(user, service -> {
+                    step(service, cycleStart, random);
+                    return null;
+                });
+            }
+            record(Op.CYCLE, cycleStart, System.nanoTime() - cycleStart);
+        }
+    }
+
+    /** Одна карточка: выбор, проверка ответа, запись результата */
+    private void step(StudyService service, long cycleStart, Random random) {
+        long t0 = System.nanoTime();
+        Card card = service.nextCard(false);
+        long t1 = System.nanoTime();
+        record(Op.NEXT, cycleStart, t1 - t0);
+        if (card == null) return;
+
+        String answer = answerFor(card, random);
+        long t2 = System.nanoTime();
+        StudyService.GradingResult result = service.checkAnswer(answer);
+        long t3 = System.nanoTime();
+        record(Op.CHECK, cycleStart, t3 - t2);
+
+        service.submitResult(answer, result.passed());
+        record(Op.SUBMIT, cycleStart, System.nanoTime() - t3);
+    }
+
+    private void record(Op op, long cycleStart, long nanos) {
+        if (cycleStart >= measureFrom) histograms.get(op).record(nanos);
+    }
+
+    private void think(Random random) throws InterruptedException {
+        if (options.thinkMillis() <= 0) return;
+        double millis = -options.thinkMillis() * Math.log(1 - random.nextDouble());
+        Thread.sleep(Duration.ofNanos((long) (millis * 1_000_000)));
+    }
+
+    /** Ответ ученика: верный, с опечаткой или из чужих слов */
+    private static String answerFor(Card card, Random random) {
+        double roll = random.nextDouble();
+        String answer = card.getAnswer();
+        if (roll < CORRECT_SHARE) return answer;
+        if (roll < CORRECT_SHARE + 0.2 && answer.length() > 2) {
+            int pos = random.nextInt(answer.length() - 1);
+            return answer.substring(0, pos) + answer.charAt(pos + 1) + answer.charAt(pos) + answer.substring(pos + 2);
+        }
+        return words(random, 3 + random.nextInt(6));
+    }
+
+    /**
+     * Записывает сгенерированные колоды ({@code load-NN.txt}) в формате файлов колод.
+     * Генерация детерминирована: одинаковые параметры - одинаковые колоды
+     *
+     * @param decksDir папка колод
+     * @param decks количество файлов
+     * @param cardsPerDeck карточек в файле
+     * @throws IOException если запись не удалась
+     */
+    public static void generateDecks(Path decksDir, int decks, int cardsPerDeck) throws IOException {
+        Files.createDirectories(decksDir);
+        Random random = new Random(42);
+        for (int d = 0; d < decks; d++) {
+            String category = String.format("Load topic %02d", d);
+            List<String> lines = new ArrayList<>();
+            for (int c = 0; c < cardsPerDeck; c++) {
+                lines.add(String.format("ID: load-%02d-%05d", d, c));
+                lines.add("CATEGORY: " + category);
+                lines.add("QUESTION:");
+                lines.add("Question " + d + "." + c + ": " + words(random, 6 + random.nextInt(10)) + "?");
+                lines.add("ANSWER:");
+                lines.add(words(random, 5 + random.nextInt(20)));
+                lines.add("===");
+            }
+            Files.write(decksDir.resolve(String.format("load-%02d.txt", d)), lines, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Запуск: {@code java tools.LoadDriver [--students N] [--seconds N] [--warmup-s N] [--think-ms N]
+     * [--mode own|shared] [--decks N] [--cards N] [--dir path]}
+     */
+    static void main(String[] args) throws IOException, InterruptedException {
+        // журнал каждого ответа исказил бы задержки
+        Logger.getLogger("").setLevel(Level.WARNING);
+
+        LoadDriver driver = new LoadDriver(Options.parse(args));
+        System.out.println("Папка прогона: " + driver.options.dir());
+        Report report = driver.run();
+        System.out.print(report.format());
+        if (!report.succeeded()) System.exit(1);
+    }
+}
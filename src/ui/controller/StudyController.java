@@ -4,6 +4,7 @@ import model.Card;
 import service.StudyService;
 import ui.ThemeManager;
 import ui.panels.StudyPanel;
+import util.StartupMetrics;
 
 import java.awt.Color;
 
@@ -105,6 +106,16 @@ public class StudyController {
         loadNextCard();
     }
 
+    /**
+     * Данные сессии изменились (поэтапная загрузка, импорт, перезагрузка).
+     * Обновляет список тем; если карточки на экране нет (колода была пуста
+     * или еще грузилась), берет новую. Начатый ответ не сбрасывается
+     */
+    public void onDataUpdated() {
+        view.setCategories(service.getAvailableCategories());
+        if (service.getCurrentCard() == null) loadNextCard();
+    }
+
     // ЛОГИКА УПРАВЛЕНИЯ
 
     /**
@@ -121,11 +132,14 @@ public class StudyController {
         view.resetUI();
 
         if (card == null) {
-            view.showEmptyState(); // заглушка "Карт нет"
+            // колоды еще читаются или заглушка "Карт нет"
+            if (service.isSessionLoading()) view.showLoadingState();
+            else view.showEmptyState();
             return;
         }
 
-        view.displayCard(card);
+        view.displayCard(card, service.isNewCard(card), service.levelOf(card));
+        StartupMetrics.mark(StartupMetrics.Stage.FIRST_CARD);
     }
 
     /**
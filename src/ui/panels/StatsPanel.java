@@ -2,7 +2,11 @@ package ui.panels;
 
 import model.dto.StatsRow;
 import service.StudyService;
+import service.CsvImportService;
 import service.ImportService;
+import service.importer.CsvFormat;
+import service.importer.ImportListener;
+import service.importer.ImportProgress;
 import ui.ThemeManager;
 import ui.components.UIFactory;
 import ui.dialogs.DialogFactory;
@@ -10,10 +14,18 @@ import util.EventBus;
 import data.FileService;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Панель статистики и управления данными
@@ -23,14 +35,29 @@ import java.nio.file.Path;
  * <ul>
  *     <li>Обновить: перезагрузка файлов</li>
  *     <li>Импорт: запуск процедуры добавления карт из import.txt</li>
+ *     <li>Импорт CSV/TSV: добавление карт из выбранной таблицы</li>
  * </ul>
+ * Импорт выполняется в фоне: окно не блокируется, ход виден в индикаторе, импорт можно отменить
  * </p>
  */
 public class StatsPanel extends JPanel {
+    private static final Logger LOGGER = Logger.getLogger(StatsPanel.class.getName());
+
+    /** Окно слияния событий обновления данных перед перерисовкой таблицы */
+    private static final long REFRESH_COALESCE_MS = 150;
+
     private final StudyService service;
     private final DefaultTableModel model;
     private final JTable table;
 
+    private final JButton importBtn;
+    private final JButton csvBtn;
+    private final JProgressBar progressBar;
+    private final JButton cancelBtn;
+
+    /** Флаг отмены текущего импорта ({@code null}, если импорт не идет). Только из EDT */
+    private AtomicBoolean importStop;
+
     /**
      * Создает панель статистики
      *
@@ -66,30 +93,126 @@ public class StatsPanel extends JPanel {
             // после reload сработает EventBus, и таблица обновится сама
         });
 
-        // импорт
-        var importBtn = UIFactory.createButton("Импорт из файла", _ -> {
-            FileService fs = new FileService() {
-                @Override
-                public void write(Path path, Iterable<? extends CharSequence> lines, OpenOption... options) {
+        FileService fs = new FileService() {
+            @Override
+            public void write(Path path, Iterable<? extends CharSequence> lines, OpenOption... options) {
 
-                }
-            };
+            }
+        };
+
+        // импорт (в фоне, с индикатором и отменой)
+        importBtn = UIFactory.createButton("Импорт из файла", _ -> {
             ImportService importer = new ImportService(service, fs);
-            String result = importer.performImport();
-            DialogFactory.showInfo(this, result);
+            startImport(listener -> importer.performImport(Runtime.getRuntime().availableProcessors(), listener));
         });
 
+        // импорт из CSV/TSV
+        csvBtn = UIFactory.createButton("Импорт CSV/TSV", _ -> {
+            JFileChooser chooser = new JFileChooser(Paths.get("").toAbsolutePath().toFile());
+            chooser.setFileFilter(new FileNameExtensionFilter("CSV/TSV (question, answer, category, id)",
+                    "csv", "tsv", "tab"));
+            if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+            Path file = chooser.getSelectedFile().toPath();
+            CsvImportService importer = new CsvImportService(service, fs);
+            startImport(listener -> importer.performImport(file, CsvFormat.forFile(file), listener));
+        });
+
+        // ход импорта
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
+        cancelBtn = UIFactory.createButton("Отмена", e -> {
+            if (importStop != null) importStop.set(true);
+            ((JButton) e.getSource()).setEnabled(false);
+            progressBar.setString("Отмена...");
+        });
+        cancelBtn.setVisible(false);
+
         btnPanel.add(refreshBtn);
         btnPanel.add(importBtn);
+        btnPanel.add(csvBtn);
+        btnPanel.add(progressBar);
+        btnPanel.add(cancelBtn);
         add(btnPanel, BorderLayout.SOUTH);
-        EventBus.subscribe(EventBus.Topic.DATA_UPDATED, () ->
-                SwingUtilities.invokeLater(this::refreshData)
-        );
+        // серия обновлений (перезагрузка, слияние импорта) - одна перерисовка в EDT
+        EventBus.subscribe(EventBus.Topic.DATA_UPDATED, _ -> refreshData(), EventBus.EDT, REFRESH_COALESCE_MS);
 
         // первичное заполнение
         refreshData();
     }
 
+    /**
+     * Запускает импорт в фоновом потоке ({@link SwingWorker}), чтобы окно не зависало
+     * <p>
+     * Пока импорт идет, кнопки импорта недоступны, а вместо них видны индикатор и кнопка отмены.
+     * Отмена не прерывает поток (прерывание посреди записи колоды оставило бы файлы несогласованными),
+     * а просит импорт остановиться перед следующим блоком ({@link ImportListener#isCancelled()})
+     * </p>
+     *
+     * @param job импорт; получает наблюдателя и возвращает текстовый отчет
+     */
+    private void startImport(Function<ImportListener, String> job) {
+        AtomicBoolean stop = new AtomicBoolean();
+        importStop = stop;
+        setImportRunning(true);
+
+        new SwingWorker<String, ImportProgress>() {
+            @Override
+            protected String doInBackground() {
+                return job.apply(new ImportListener() {
+                    @Override
+                    public void onProgress(ImportProgress progress) {
+                        publish(progress);
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return stop.get();
+                    }
+                });
+            }
+
+            @Override
+            protected void process(List<ImportProgress> chunks) {
+                if (!stop.get()) showProgress(chunks.getLast());
+            }
+
+            @Override
+            protected void done() {
+                importStop = null;
+                setImportRunning(false);
+                String result;
+                try {
+                    result = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                    LOGGER.log(Level.SEVERE, "Ошибка фонового импорта", cause);
+                    result = "Ошибка импорта: " + cause.getMessage();
+                }
+                DialogFactory.showInfo(StatsPanel.this, result);
+            }
+        }.execute();
+    }
+
+    private void setImportRunning(boolean running) {
+        importBtn.setEnabled(!running);
+        csvBtn.setEnabled(!running);
+        progressBar.setVisible(running);
+        progressBar.setValue(0);
+        progressBar.setString("Импорт...");
+        cancelBtn.setEnabled(running);
+        cancelBtn.setVisible(running);
+        revalidate();
+    }
+
+    private void showProgress(ImportProgress p) {
+        progressBar.setValue(p.percent());
+        progressBar.setString(String.format("%d%% (%.1f из %.1f МБ): обработано %d, добавлено %d, пропущено %d, ошибок %d",
+                p.percent(), p.bytesRead() / 1048576.0, p.totalBytes() / 1048576.0,
+                p.processed(), p.added(), p.skipped(), p.errors()));
+    }
+
     /**
      * Перерисовывает таблицу актуальными данными
      */
@@ -5,10 +5,12 @@ import service.StudyService;
 import ui.ThemeManager;
 import ui.components.UIFactory;
 import ui.controller.StudyController;
+import util.EventBus;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.util.List;
 
 /**
  * Основная панель обучения
@@ -19,6 +21,9 @@ import java.awt.event.ActionEvent;
  */
 public class StudyPanel extends JPanel {
 
+    /** Окно слияния обновлений данных: порции поэтапной загрузки - одно обновление панели */
+    private static final long REFRESH_COALESCE_MS = 100;
+
     /** Ссылка на контроллер, который управляет этой панелью */
     private final StudyController controller;
 
@@ -33,6 +38,9 @@ public class StudyPanel extends JPanel {
     private JButton checkBtn, yesBtn, noBtn;
     private JButton modeBtn;
 
+    /** Список тем перестраивается программно - выбор в комбобоксе не обрабатывается */
+    private boolean updatingCategories;
+
     /**
      * Создает панель обучения
      */
@@ -52,6 +60,9 @@ public class StudyPanel extends JPanel {
         setupKeys();
 
         controller.start();
+
+        // сессия пополняется в фоне (поэтапная загрузка, импорт)
+        EventBus.subscribe(EventBus.Topic.DATA_UPDATED, _ -> controller.onDataUpdated(), EventBus.EDT, REFRESH_COALESCE_MS);
     }
 
     /** Возвращает текст, введенный пользователем в поле ответа */
@@ -89,6 +100,33 @@ public class StudyPanel extends JPanel {
         inputArea.requestFocusInWindow();
     }
 
+    /**
+     * Заменяет список тем, сохраняя выбранную (если она осталась в списке)
+     *
+     * @param categories группы и категории сессии
+     */
+    public void setCategories(List<String> categories) {
+        updatingCategories = true;
+        try {
+            Object selected = categoryBox.getSelectedItem();
+            categoryBox.removeAllItems();
+            categoryBox.addItem("ВСЕ ТЕМЫ");
+            for (String c : categories) categoryBox.addItem(c);
+            categoryBox.setSelectedItem(selected);
+        } finally {
+            updatingCategories = false;
+        }
+    }
+
+    /** Отображает состояние "Колоды загружаются" */
+    public void showLoadingState() {
+        questionArea.setText("Загрузка колод...");
+        checkBtn.setEnabled(false);
+        infoLabel.setText("Загрузка");
+        infoLabel.setBackground(Color.GRAY);
+        buttonPanel.revalidate(); buttonPanel.repaint();
+    }
+
     /** Отображает состояние "Колода пуста" */
     public void showEmptyState() {
         questionArea.setText("Нет карт в этой категории или все выучено");
@@ -100,19 +138,23 @@ public class StudyPanel extends JPanel {
 
     /**
      * Отображает данные карточки (вопрос, категорию, уровень)
+     *
+     * @param card карточка
+     * @param isNew новая ли карточка (прогресс - из сессии, а не из полей карточки)
+     * @param level текущий уровень
      */
-    public void displayCard(Card card) {
+    public void displayCard(Card card, boolean isNew, int level) {
         checkBtn.setEnabled(true);
         questionArea.setText(card.getQuestion());
 
-        String status = card.isNew() ? "НОВОЕ" : "LVL " + card.getLevel();
+        String status = isNew ? "НОВОЕ" : "LVL " + level;
         infoLabel.setText(String.format("[%s] %s", card.getCategory(), status));
 
         // цветовое кодирование статуса
         infoLabel.setOpaque(true);
-        if (card.isNew()) infoLabel.setBackground(config.ThemeColors.STATUS_NEW);
-        else if (card.getLevel() == 0) infoLabel.setBackground(config.ThemeColors.STATUS_ERROR);
-        else if (card.getLevel() < 8) infoLabel.setBackground(config.ThemeColors.STATUS_LEARNING);
+        if (isNew) infoLabel.setBackground(config.ThemeColors.STATUS_NEW);
+        else if (level == 0) infoLabel.setBackground(config.ThemeColors.STATUS_ERROR);
+        else if (level < 8) infoLabel.setBackground(config.ThemeColors.STATUS_LEARNING);
         else infoLabel.setBackground(config.ThemeColors.STATUS_MASTER);
 
         infoLabel.setForeground(Color.WHITE);
@@ -157,9 +199,9 @@ public class StudyPanel extends JPanel {
         noBtn.addActionListener(_ -> controller.onSubmitError());
         modeBtn.addActionListener(_ -> controller.onToggleMode());
 
-        categoryBox.addActionListener(_ ->
-                controller.onCategorySelected((String) categoryBox.getSelectedItem())
-        );
+        categoryBox.addActionListener(_ -> {
+            if (!updatingCategories) controller.onCategorySelected((String) categoryBox.getSelectedItem());
+        });
     }
 
     /**
@@ -1,7 +1,17 @@
 package util;
 
-import java.util.ArrayList;
+import model.dto.DataUpdate;
+
+import javax.swing.SwingUtilities;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -13,50 +23,187 @@ import java.util.logging.Logger;
  * Позволяет компонентам (например, {@code StatsPanel}) узнавать об изменениях в системе
  * (например, завершение импорта) без жесткой связности с источником изменений
  * </p>
+ * <p>
+ * Потокобезопасна: подписчики хранятся по темам ({@link ConcurrentHashMap} списков
+ * {@link CopyOnWriteArrayList}), публиковать и подписываться можно из любого потока.
+ * Каждый подписчик сам выбирает:
+ * <ul>
+ *     <li>где выполняется обработчик - {@link #SYNC} (в потоке публикации), {@link #EDT}
+ *     (в потоке Swing), {@link #ASYNC} (фоновый поток) или любой свой {@link Executor}.
+ *     Порядок событий гарантирован для {@link #SYNC} и {@link #EDT}</li>
+ *     <li>слияние серии: события темы, пришедшие в течение окна {@code coalesceMillis} после первого,
+ *     доставляются один раз с последними данными. Импорт, перезагрузка и слияние подряд
+ *     дают одно обновление интерфейса, а не несколько</li>
+ * </ul>
+ * </p>
  */
 public class EventBus {
     private static final Logger LOGGER = Logger.getLogger(EventBus.class.getName());
 
-    /** Темы событий */
-    public enum Topic {
+    /**
+     * Тема события с типом передаваемых данных
+     *
+     * @param <T> тип данных события
+     */
+    public static final class Topic<T> {
+
         /** Данные (карты, статистика) обновились. Нужно перерисовать UI */
-        DATA_UPDATED
+        public static final Topic<DataUpdate> DATA_UPDATED = new Topic<>("DATA_UPDATED");
+
+        private final String name;
+
+        /**
+         * @param name имя темы (для лога)
+         */
+        public Topic(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
     }
 
-    private static final List<Subscriber> subscribers = new ArrayList<>();
+    /** Доставка в потоке публикации */
+    public static final Executor SYNC = Runnable::run;
+
+    /** Доставка в потоке обработки событий Swing */
+    public static final Executor EDT = SwingUtilities::invokeLater;
+
+    /** Доставка в фоновом потоке (порядок событий не гарантирован) */
+    public static final Executor ASYNC = Executors.newCachedThreadPool(
+            Thread.ofPlatform().name("eventbus-async-", 0).daemon().factory());
+
+    /** Таймер отложенной доставки для слияния серий */
+    private static final ScheduledExecutorService COALESCER = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("eventbus-coalesce").daemon().factory());
 
-    // структура для хранения подписки
-    private record Subscriber(Topic topic, Consumer<Object> action) {}
+    /** Подписчики по темам */
+    private static final Map<Topic<?>, List<Subscription<?>>> subscribers = new ConcurrentHashMap<>();
 
     /**
-     * Подписаться на событие определенного типа
+     * Подписка. {@link #close()} отменяет ее (уже запланированная доставка не выполнится)
+     *
+     * @param <T> тип данных события
+     */
+    public static final class Subscription<T> implements AutoCloseable {
+        /** Нет отложенного события */
+        private static final Object NONE = new Object();
+        /** Отложенное событие без данных */
+        private static final Object NULL = new Object();
+
+        private final Topic<T> topic;
+        private final Consumer<? super T> handler;
+        private final Executor executor;
+        private final long coalesceMillis;
+
+        /** Последние данные серии, ожидающие доставки, или {@link #NONE} */
+        private final AtomicReference<Object> pending = new AtomicReference<>(NONE);
+        private volatile boolean active = true;
+
+        private Subscription(Topic<T> topic, Consumer<? super T> handler, Executor executor, long coalesceMillis) {
+            this.topic = topic;
+            this.handler = handler;
+            this.executor = executor;
+            this.coalesceMillis = coalesceMillis;
+        }
+
+        private void post(T payload) {
+            if (coalesceMillis <= 0) {
+                dispatch(payload);
+                return;
+            }
+            // первое событие серии запускает таймер, остальные только заменяют данные
+            if (pending.getAndSet(payload == null ? NULL : payload) == NONE) {
+                COALESCER.schedule(this::flush, coalesceMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void flush() {
+            Object p = pending.getAndSet(NONE);
+            if (p != NONE) dispatch(p == NULL ? null : (T) p);
+        }
+
+        private void dispatch(T payload) {
+            executor.execute(() -> {
+                if (!active) return;
+                try {
+                    handler.accept(payload);
+                } catch (Exception e) {
+                    // ловим исключения подписчиков, чтобы не поломать основной поток
+                    LOGGER.log(Level.SEVERE, "Ошибка при обработке события [" + topic + "]", e);
+                }
+            });
+        }
+
+        /** Отменяет подписку */
+        @Override
+        public void close() {
+            active = false;
+            List<Subscription<?>> list = subscribers.get(topic);
+            if (list != null) list.remove(this);
+        }
+    }
+
+    /**
+     * Подписаться на событие определенного типа (доставка в потоке публикации, без слияния)
      *
      * @param topic тип события
      * @param action действие, которое нужно выполнить (обычно обновление UI)
+     * @return подписка
+     */
+    public static Subscription<?> subscribe(Topic<?> topic, Runnable action) {
+        return subscribe(topic, _ -> action.run(), SYNC, 0);
+    }
+
+    /**
+     * Подписаться на событие с данными
+     *
+     * @param topic тип события
+     * @param handler обработчик (получает данные события, может получить {@code null})
+     * @param executor где выполнять обработчик: {@link #SYNC}, {@link #EDT}, {@link #ASYNC} или свой
+     * @param coalesceMillis окно слияния серии событий в мс (0 - доставлять каждое)
+     * @param <T> тип данных события
+     * @return подписка
      */
-    public static void subscribe(Topic topic, Runnable action) {
-        // Runnable в Consumer, так как пока не передаем данные (payload)
-        subscribers.add(new Subscriber(topic, (_) -> action.run()));
+    public static <T> Subscription<T> subscribe(Topic<T> topic, Consumer<? super T> handler,
+                                                Executor executor, long coalesceMillis) {
+        Subscription<T> s = new Subscription<>(topic, handler, executor, coalesceMillis);
+        subscribers.computeIfAbsent(topic, _ -> new CopyOnWriteArrayList<>()).add(s);
+        return s;
+    }
+
+    /**
+     * Опубликовать событие без данных
+     *
+     * @param topic тип события
+     */
+    public static void publish(Topic<?> topic) {
+        publishRaw(topic, null);
     }
 
     /**
      * Опубликовать событие.
-     * Все подписчики этой темы получат уведомление синхронно
+     * Подписчики с {@link #SYNC} без слияния получат уведомление синхронно, остальные -
+     * через свой {@link Executor} и/или после окна слияния
      *
      * @param topic тип события
+     * @param payload данные события
      */
-    public static void publish(Topic topic) {
-        for (Subscriber s : subscribers) {
-            if (s.topic == topic) {
-                try {
-                    s.action.accept(null);
-                } catch (Exception e) {
-                    // ловим исключения подписчиков, чтобы не поломать основной поток
-                    LOGGER.log(Level.SEVERE, "Ошибка при обработке события [" + topic + "]", e);
-                }
-            }
+    public static <T> void publish(Topic<T> topic, T payload) {
+        publishRaw(topic, payload);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void publishRaw(Topic<?> topic, Object payload) {
+        List<Subscription<?>> list = subscribers.get(topic);
+        if (list == null) return;
+        for (Subscription<?> s : list) {
+            ((Subscription<Object>) s).post(payload);
         }
     }
 
     private EventBus() {}
-}
\ No newline at end of file
+}
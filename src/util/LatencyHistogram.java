@@ -0,0 +1,113 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма задержек в духе HdrHistogram (лог-линейные корзины)
+ * <p>
+ * Значения до {@code 2^SUB_BITS} хранятся точно, дальше каждая октава {@code [2^m, 2^(m+1))} делится
+ * на {@code 2^(SUB_BITS-1)} равных корзин: относительная погрешность не больше {@code 1/128}
+ * на всем диапазоне {@code long}, а размер фиксирован (несколько тысяч счетчиков) и не зависит
+ * от количества записей. Запись - один атомарный инкремент, без блокировок: одну гистограмму
+ * могут заполнять тысячи потоков. Перцентили считаются по верхней границе корзины, как в HdrHistogram
+ * </p>
+ */
+public final class LatencyHistogram {
+
+    /** Точность: значений на октаву - {@code 2^(SUB_BITS-1)} */
+    private static final int SUB_BITS = 8;
+
+    /** Корзин в октаве */
+    private static final int HALF = 1 << (SUB_BITS - 1);
+
+    /** Значения меньше этого хранятся точно */
+    private static final int LINEAR = 1 << SUB_BITS;
+
+    /** Счетчики корзин: точные значения, затем по {@link #HALF} корзин на октаву до {@code 2^63} */
+    private final AtomicLongArray counts = new AtomicLongArray((65 - SUB_BITS) * HALF);
+
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Записывает значение
+     *
+     * @param value задержка (например, в наносекундах); отрицательные считаются нулем
+     */
+    public void record(long value) {
+        long v = Math.max(value, 0);
+        counts.incrementAndGet(indexOf(v));
+        total.increment();
+        sum.add(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    /**
+     * Добавляет все записи другой гистограммы
+     *
+     * @param other гистограмма (не должна заполняться во время сложения)
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length(); i++) {
+            long c = other.counts.get(i);
+            if (c != 0) counts.addAndGet(i, c);
+        }
+        total.add(other.total.sum());
+        sum.add(other.sum.sum());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    /** Количество записей */
+    public long getTotalCount() {
+        return total.sum();
+    }
+
+    /** Наибольшее записанное значение (точно) */
+    public long getMax() {
+        return max.get();
+    }
+
+    /** Среднее (точно) */
+    public double getMean() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Значение, не больше которого {@code percentile} процентов записей
+     *
+     * @param percentile перцентиль, {@code 0..100} (например, {@code 99.9})
+     * @return верхняя граница корзины (не больше {@link #getMax()}); {@code 0}, если записей нет
+     */
+    public long valueAtPercentile(double percentile) {
+        long n = 0;
+        for (int i = 0; i < counts.length(); i++) n += counts.get(i);
+        if (n == 0) return 0;
+
+        long target = Math.max(1, (long) Math.ceil(Math.clamp(percentile, 0.0, 100.0) / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) return Math.min(highestEquivalent(i), getMax());
+        }
+        return getMax();
+    }
+
+    /** Номер корзины значения */
+    static int indexOf(long value) {
+        if (value < LINEAR) return (int) value;
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    /** Наибольшее значение, попадающее в корзину */
+    static long highestEquivalent(int index) {
+        if (index < LINEAR) return index;
+        int shift = index / HALF - 1;
+        long sub = index - (long) shift * HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,119 @@
+package util;
+
+/**
+ * Множество примитивных {@code long} (открытая адресация, линейное пробирование)
+ * <p>
+ * Не создает объект на каждый элемент: 8 байт на ячейку таблицы (16-32 байта на элемент
+ * при заполнении 25-50%) вместо ~80 у {@code HashSet<Long>} (узел карты + объект {@code Long}).
+ * Используется для дедупликации карточек
+ * по 64-битным отпечаткам вопросов ({@link TextUtil#fingerprintForId})
+ * </p>
+ * <p>
+ * Не потокобезопасен
+ * </p>
+ */
+public final class LongHashSet {
+
+    /** Пустая ячейка. Сам ноль хранится отдельным флагом */
+    private static final long EMPTY = 0L;
+
+    private long[] table;
+    private int size;
+    private boolean hasZero;
+
+    /** Пустое множество */
+    public LongHashSet() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize ожидаемое количество элементов (без перестроений до этого размера)
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        table = new long[capacity];
+    }
+
+    /**
+     * Добавляет значение
+     *
+     * @return {@code true}, если значения еще не было
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (hasZero) return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+
+        int mask = table.length - 1;
+        int i = slot(value, mask);
+        while (table[i] != EMPTY) {
+            if (table[i] == value) return false;
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+        size++;
+        // заполнение не больше 50%
+        if (size * 2 > table.length) rehash(table.length * 2);
+        return true;
+    }
+
+    /** Есть ли значение в множестве */
+    public boolean contains(long value) {
+        if (value == EMPTY) return hasZero;
+
+        int mask = table.length - 1;
+        int i = slot(value, mask);
+        while (table[i] != EMPTY) {
+            if (table[i] == value) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Независимая копия (копируется таблица целиком, без перехеширования)
+     */
+    public LongHashSet copy() {
+        LongHashSet copy = new LongHashSet(0);
+        copy.table = table.clone();
+        copy.size = size;
+        copy.hasZero = hasZero;
+        return copy;
+    }
+
+    /** Количество элементов */
+    public int size() {
+        return size;
+    }
+
+    /** Пусто ли множество */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = table;
+        table = new long[capacity];
+        int mask = capacity - 1;
+        for (long v : old) {
+            if (v == EMPTY) continue;
+            int i = slot(v, mask);
+            while (table[i] != EMPTY) i = (i + 1) & mask;
+            table[i] = v;
+        }
+    }
+
+    /** Номер ячейки: старшие биты перемешаны с младшими (значения могут быть не хешами) */
+    private static int slot(long value, int mask) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    @Override
+    public String toString() {
+        return "LongHashSet[size=" + size + ", capacity=" + table.length + "]";
+    }
+}
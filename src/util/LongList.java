@@ -0,0 +1,64 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Минимальный растущий список примитивных {@code long} (без упаковки в {@code Long})
+ * <p>
+ * Используется для отпечатков принятых карточек при слиянии сессии и для масок
+ * и порядковых номеров слов в корзинах длины при проверке ответа
+ * </p>
+ * <p>
+ * Не потокобезопасен
+ * </p>
+ */
+public final class LongList {
+
+    private long[] data;
+    private int size;
+
+    /** Пустой список */
+    public LongList() {
+        this(8);
+    }
+
+    /**
+     * @param capacity ожидаемое количество элементов (без перевыделений до этого размера)
+     */
+    public LongList(int capacity) {
+        data = new long[Math.max(capacity, 8)];
+    }
+
+    /** Добавляет значение в конец */
+    public void add(long value) {
+        if (size == data.length) data = Arrays.copyOf(data, size * 2);
+        data[size++] = value;
+    }
+
+    /** Значение по индексу */
+    public long get(int index) {
+        return data[index];
+    }
+
+    /**
+     * Удаляет элемент, ставя на его место последний (O(1), порядок не сохраняется)
+     */
+    public void removeSwap(int index) {
+        data[index] = data[--size];
+    }
+
+    /** Количество элементов */
+    public int size() {
+        return size;
+    }
+
+    /** Копия содержимого */
+    public long[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    @Override
+    public String toString() {
+        return "LongList[size=" + size + "]";
+    }
+}
@@ -0,0 +1,68 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+/**
+ * Метрики запуска приложения: время от старта JVM до ключевых этапов
+ * <p>
+ * Главная метрика - {@link Stage#FIRST_CARD}: сколько пользователь ждет первую карточку.
+ * Каждый этап фиксируется один раз (первым вызовом {@link #mark}), повторные вызовы
+ * ничего не стоят. Значения пишутся в лог и доступны через {@link #millis}
+ * </p>
+ */
+public final class StartupMetrics {
+    private static final Logger LOGGER = Logger.getLogger(StartupMetrics.class.getName());
+
+    /** Этапы запуска */
+    public enum Stage {
+        /** Главное окно показано */
+        FRAME_SHOWN("окно показано"),
+        /** Первая карточка на экране */
+        FIRST_CARD("первая карточка"),
+        /** Все колоды загружены */
+        FULL_LOAD("все колоды загружены");
+
+        private final String title;
+
+        Stage(String title) {
+            this.title = title;
+        }
+    }
+
+    /** Время старта JVM (мс от эпохи) - начало отсчета */
+    private static final long JVM_START = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    /** Время этапов от старта JVM, мс (-1 - этап еще не наступил) */
+    private static final AtomicLongArray marks = new AtomicLongArray(Stage.values().length);
+
+    static {
+        for (int i = 0; i < marks.length(); i++) marks.set(i, -1);
+    }
+
+    /**
+     * Фиксирует наступление этапа (только первый раз)
+     *
+     * @param stage этап
+     */
+    public static void mark(Stage stage) {
+        if (marks.get(stage.ordinal()) >= 0) return;
+        long elapsed = System.currentTimeMillis() - JVM_START;
+        if (marks.compareAndSet(stage.ordinal(), -1, elapsed)) {
+            LOGGER.info(String.format("Запуск: %s через %d мс", stage.title, elapsed));
+        }
+    }
+
+    /**
+     * Время этапа от старта JVM
+     *
+     * @param stage этап
+     * @return мс или -1, если этап еще не наступил
+     */
+    public static long millis(Stage stage) {
+        return marks.get(stage.ordinal());
+    }
+
+    private StartupMetrics() {}
+}
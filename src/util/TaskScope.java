@@ -0,0 +1,160 @@
+package util;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Группа параллельных подзадач с общим временем жизни (структурная конкурентность)
+ * <p>
+ * Аналог {@code StructuredTaskScope} с политикой "отмена при первой ошибке" на обычных
+ * {@link Future}: подзадачи запускаются ({@link #fork}) в виртуальных потоках, {@link #join()}
+ * ждет всех; первая ошибка прерывает остальные подзадачи и пробрасывается из {@link #join()}.
+ * Из блока {@code try-with-resources} не выходит ни одна подзадача: {@link #close()}
+ * отменяет незавершенные и дожидается их остановки
+ * </p>
+ * <p>
+ * Подзадача может ждать результат соседней ({@link Subtask#get()}) - так этап начинается,
+ * как только готовы его входные данные, а не после всех подзадач
+ * </p>
+ * <pre>
+ * try (TaskScope scope = new TaskScope()) {
+ *     Subtask&lt;A&gt; a = scope.fork(this::loadA);
+ *     Subtask&lt;B&gt; b = scope.fork(() -&gt; merge(a.get(), loadB()));
+ *     scope.join();
+ *     use(b.get());
+ * }
+ * </pre>
+ */
+public final class TaskScope implements AutoCloseable {
+
+    /** Виртуальный поток на каждую подзадачу: подзадачи в основном ждут диск */
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final List<Future<?>> tasks = new CopyOnWriteArrayList<>();
+    private final List<Subtask<?>> subtasks = new CopyOnWriteArrayList<>();
+
+    /** Первая ошибка подзадачи */
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * Результат подзадачи
+     *
+     * @param <T> тип результата
+     */
+    public static final class Subtask<T> {
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Subtask() {}
+
+        /**
+         * Результат подзадачи; ждет ее завершения (можно вызывать из соседней подзадачи)
+         *
+         * @return результат
+         * @throws CancellationException если подзадача не завершилась из-за ошибки соседней или отмены
+         */
+        public T get() {
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Ожидание подзадачи прервано");
+            } catch (ExecutionException e) {
+                CancellationException ce = new CancellationException("Подзадача завершилась с ошибкой");
+                ce.initCause(e.getCause());
+                throw ce;
+            } catch (CancellationException e) {
+                throw new CancellationException("Подзадача отменена");
+            }
+        }
+    }
+
+    /**
+     * Запускает подзадачу
+     *
+     * @param task подзадача
+     * @param <T> тип результата
+     * @return дескриптор результата
+     */
+    public <T> Subtask<T> fork(Callable<? extends T> task) {
+        Subtask<T> subtask = new Subtask<>();
+        subtasks.add(subtask);
+        Future<?> future = executor.submit(() -> {
+            try {
+                subtask.result.complete(task.call());
+            } catch (Throwable e) {
+                // сначала ошибка группы: ждущие этот результат не должны стать "первой ошибкой"
+                fail(e);
+                subtask.result.completeExceptionally(e);
+            }
+            return null;
+        });
+        tasks.add(future);
+        // группа уже отменена - новая подзадача тоже
+        if (failure.get() != null) {
+            future.cancel(true);
+            subtask.result.cancel(false);
+        }
+        return subtask;
+    }
+
+    /**
+     * Запускает подзадачу без результата
+     *
+     * @param task подзадача
+     * @return дескриптор (для ожидания из соседних подзадач)
+     */
+    public Subtask<Void> fork(Runnable task) {
+        return fork(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Ждет завершения всех подзадач
+     *
+     * @throws IllegalStateException если какая-то подзадача завершилась ошибкой (причина - ее исключение,
+     * остальные подзадачи к этому моменту отменены) или ожидание прервано
+     */
+    public void join() {
+        try {
+            // по номеру, а не итератором: подзадачи могут запускать новые подзадачи
+            for (int i = 0; i < tasks.size(); i++) {
+                try {
+                    tasks.get(i).get();
+                } catch (CancellationException | ExecutionException _) {
+                    // ошибка уже записана в failure
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        }
+        Throwable cause = failure.get();
+        if (cause != null) throw new IllegalStateException("Подзадача завершилась с ошибкой: " + cause, cause);
+    }
+
+    /** Записывает первую ошибку, прерывает остальные подзадачи и будит ждущих их результат */
+    private void fail(Throwable e) {
+        if (!failure.compareAndSet(null, e)) return;
+        for (Future<?> f : tasks) f.cancel(true);
+        for (Subtask<?> s : subtasks) s.result.cancel(false);
+    }
+
+    /**
+     * Отменяет незавершенные подзадачи и ждет их остановки
+     */
+    @Override
+    public void close() {
+        for (Future<?> f : tasks) f.cancel(true);
+        executor.close();
+    }
+}
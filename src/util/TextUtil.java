@@ -3,8 +3,8 @@ package util;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Утилиты для обработки текста
@@ -24,6 +24,12 @@ public class TextUtil {
             "и","в","на","с","для","а","но","to","the","of","is","are","что","это","как"
     ));
 
+    /** Длина самого длинного стоп-слова: более длинные токены не проверяются */
+    private static final int MAX_STOP_WORD_LENGTH = 3;
+
+    /** Буфер токенизатора на поток (для {@link #tokenize(String)}) */
+    private static final ThreadLocal<TokenBuffer> BUFFER = ThreadLocal.withInitial(TokenBuffer::new);
+
     /**
      * Базовая очистка: trim + lowercase
      */
@@ -34,13 +40,116 @@ public class TextUtil {
 
     /**
      * Строгая нормализация для генерации Legacy-ID
+     * <p>
+     * Эквивалент {@code basicClean(text).replaceAll("\\s+", "")}, но за один проход без регулярных выражений:
+     * обрезка краев как у {@link String#trim()}, нижний регистр по символам и пропуск пробельных символов
+     * (набор {@code \s} регулярных выражений Java: пробел, {@code \t \n \u000B \f \r})
+     * </p>
      *
      * @param text исходный текст вопроса
      * @return строка без пробелов в нижнем регистре
      */
     public static String normalizeForId(String text) {
         if (text == null) return "";
-        // удаляем все пробельные символы (\s+)
+        // редкие случаи с контекстным нижним регистром - через старую реализацию
+        if (needsLocaleAwareLowerCase() || hasSpecialCasing(text)) {
+            return legacyNormalize(text);
+        }
+
+        StringBuilder sb = new StringBuilder(text.length());
+        scanNormalized(text, sb::append);
+        return sb.toString();
+    }
+
+    /**
+     * 64-битный отпечаток нормализованного вопроса (для дедупликации)
+     * <p>
+     * Равен хешу строки {@link #normalizeForId(String)}, но считается за один проход
+     * по исходному тексту без создания нормализованной строки. Хеш в стиле MurmurHash3:
+     * символы собираются по 4 в {@code long} и перемешиваются блоками
+     * </p>
+     *
+     * @param text исходный текст вопроса
+     * @return отпечаток (одинаковый для вопросов, совпадающих после нормализации)
+     */
+    public static long fingerprintForId(String text) {
+        IdHasher hasher = new IdHasher();
+        if (text != null) scanNormalized(text, hasher);
+        return hasher.fingerprint();
+    }
+
+    /**
+     * Legacy-хеш вопроса: {@code normalizeForId(text).hashCode()} без создания строки
+     * <p>
+     * Нужен только для восстановления прогресса старых карточек без UUID
+     * (в статистике они записаны под этим числом)
+     * </p>
+     */
+    public static int legacyHashForId(String text) {
+        IdHasher hasher = new IdHasher();
+        if (text != null) scanNormalized(text, hasher);
+        return hasher.legacyHash();
+    }
+
+    /**
+     * Длина текста в байтах UTF-8 (без кодирования в массив)
+     * <p>
+     * Суррогатная пара - 4 байта, одиночный суррогат считается как 3 байта
+     * </p>
+     *
+     * @param text текст
+     * @param from начало (включительно)
+     * @param to конец (не включительно)
+     */
+    public static long utf8Length(CharSequence text, int from, int to) {
+        long bytes = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) bytes++;
+            else if (c < 0x800) bytes += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else bytes += 3;
+        }
+        return bytes;
+    }
+
+    /**
+     * Передает символы нормализованной строки (как в {@link #normalizeForId}) получателю
+     */
+    private static void scanNormalized(String text, CharSink sink) {
+        if (needsLocaleAwareLowerCase() || hasSpecialCasing(text)) {
+            String normalized = legacyNormalize(text);
+            for (int i = 0; i < normalized.length(); i++) sink.accept(normalized.charAt(i));
+            return;
+        }
+
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') start++;
+        while (end > start && text.charAt(end - 1) <= ' ') end--;
+
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (isRegexSpace(c)) continue;
+
+            if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int lower = Character.toLowerCase(Character.toCodePoint(c, text.charAt(++i)));
+                if (Character.isBmpCodePoint(lower)) {
+                    sink.accept((char) lower);
+                } else {
+                    sink.accept(Character.highSurrogate(lower));
+                    sink.accept(Character.lowSurrogate(lower));
+                }
+            } else {
+                sink.accept(Character.toLowerCase(c));
+            }
+        }
+    }
+
+    /** Прежняя нормализация на регулярном выражении (для особых случаев регистра) */
+    private static String legacyNormalize(String text) {
         return basicClean(text).replaceAll("\\s+", "");
     }
 
@@ -52,15 +161,177 @@ public class TextUtil {
      * 3. Разбивает по пробелам.<br>
      * 4. Удаляет стоп-слова и слова короче 2 символов
      * </p>
+     * <p>
+     * Все шаги выполняются за один проход по символам, без регулярных выражений и стримов
+     * </p>
      *
      * @param text текст ответа
      * @return список токенов
      */
     public static List<String> tokenize(String text) {
-        return Arrays.stream(basicClean(text).replaceAll("[^a-zа-я0-9]", " ").split("\\s+"))
-                .filter(w -> w.length() > 1 && !STOP_WORDS.contains(w))
-                .collect(Collectors.toList());
+        TokenBuffer buffer = BUFFER.get();
+        tokenize(text, buffer);
+        return buffer.toList();
+    }
+
+    /**
+     * Токенизация в переиспользуемый буфер (без создания строк на каждое слово)
+     * <p>
+     * Результат совпадает с {@link #tokenize(String)}. Токен - максимальная последовательность
+     * символов {@code [a-zа-я0-9]} после приведения к нижнему регистру (буква {@code ё},
+     * как и раньше, считается разделителем)
+     * </p>
+     *
+     * @param text текст ответа (может быть {@code null})
+     * @param out буфер, будет предварительно очищен
+     */
+    public static void tokenize(CharSequence text, TokenBuffer out) {
+        out.clear();
+        if (text == null) return;
+
+        // в турецкой/литовской локали нижний регистр зависит от локали - приводим целиком, как раньше
+        CharSequence src = needsLocaleAwareLowerCase() ? text.toString().toLowerCase() : text;
+
+        int len = src.length();
+        for (int i = 0; i < len; i++) {
+            char c = src.charAt(i);
+
+            if (c == '\u0130') {
+                // 'İ' в нижнем регистре - "i" + комбинируемая точка (разделитель)
+                handleSpecialLowerCase(String.valueOf(c), out);
+                continue;
+            }
+
+            char lc = Character.isSurrogate(c) ? ' ' : Character.toLowerCase(c);
+            if (isTokenChar(lc)) {
+                out.append(lc);
+            } else {
+                closeToken(out);
+            }
+        }
+        closeToken(out);
+    }
+
+    /** Символ допустим внутри токена: {@code [a-zа-я0-9]} */
+    private static boolean isTokenChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'а' && c <= 'я') || (c >= '0' && c <= '9');
+    }
+
+    /** Пробельный символ в смысле {@code \s} регулярных выражений Java */
+    private static boolean isRegexSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Закрывает текущий токен: оставляет его, только если он длиннее 1 символа и не стоп-слово
+     */
+    private static void closeToken(TokenBuffer out) {
+        int len = out.pendingLength();
+        if (len > 1 && !isPendingStopWord(out, len)) {
+            out.commit();
+        } else {
+            out.discard();
+        }
+    }
+
+    /** Сравнение незакрытого токена со стоп-словами без создания строки */
+    private static boolean isPendingStopWord(TokenBuffer out, int len) {
+        if (len > MAX_STOP_WORD_LENGTH) return false;
+        for (String w : STOP_WORDS) {
+            if (w.length() != len) continue;
+            int j = 0;
+            while (j < len && out.pendingCharAt(j) == w.charAt(j)) j++;
+            if (j == len) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Символы, нижний регистр которых зависит от контекста или дает несколько символов
+     */
+    private static void handleSpecialLowerCase(String s, TokenBuffer out) {
+        String lower = s.toLowerCase();
+        for (int k = 0; k < lower.length(); k++) {
+            char lc = lower.charAt(k);
+            if (isTokenChar(lc)) {
+                out.append(lc);
+            } else {
+                closeToken(out);
+            }
+        }
+    }
+
+    /** Текст содержит символы с особыми правилами нижнего регистра ('İ', 'Σ') */
+    private static boolean hasSpecialCasing(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\u0130' || c == '\u03A3') return true;
+        }
+        return false;
+    }
+
+    /** Локали, где {@link String#toLowerCase()} отличается от посимвольного (tr, az, lt) */
+    private static boolean needsLocaleAwareLowerCase() {
+        String lang = Locale.getDefault().getLanguage();
+        return lang.equals("tr") || lang.equals("az") || lang.equals("lt");
+    }
+
+    /** Получатель символов нормализованной строки */
+    @FunctionalInterface
+    private interface CharSink {
+        void accept(char c);
+    }
+
+    /**
+     * Считает за один проход 64-битный отпечаток и legacy-хеш ({@link String#hashCode()})
+     */
+    private static final class IdHasher implements CharSink {
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private long hash = 0x9E3779B97F4A7C15L;
+        private long block;
+        private int blockChars;
+        private int length;
+        private int legacy;
+
+        @Override
+        public void accept(char c) {
+            legacy = 31 * legacy + c;
+            block |= (long) c << (blockChars << 4);
+            length++;
+            if (++blockChars == 4) {
+                hash ^= mixBlock(block);
+                hash = Long.rotateLeft(hash, 27) * 5 + 0x52dce729;
+                block = 0;
+                blockChars = 0;
+            }
+        }
+
+        long fingerprint() {
+            long h = hash;
+            if (blockChars > 0) h ^= mixBlock(block);
+            h ^= length;
+            // fmix64
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+
+        int legacyHash() {
+            return legacy;
+        }
+
+        private static long mixBlock(long k) {
+            k *= C1;
+            k = Long.rotateLeft(k, 31);
+            k *= C2;
+            return k;
+        }
     }
 
     private TextUtil() {}
-}
\ No newline at end of file
+}
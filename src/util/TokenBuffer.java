@@ -0,0 +1,148 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Переиспользуемый буфер токенов
+ * <p>
+ * Хранит токены одной строки подряд в общем массиве символов (+ массив смещений),
+ * без создания объекта {@link String} на каждое слово. Заполняется методом
+ * {@link TextUtil#tokenize(CharSequence, TokenBuffer)} и может использоваться повторно
+ * (например, один буфер на поток при массовой проверке ответов)
+ * </p>
+ */
+public final class TokenBuffer {
+
+    /** Символы всех токенов подряд */
+    private char[] chars = new char[64];
+
+    /** Смещение начала каждого токена; {@code offsets[count]} - конец последнего */
+    private int[] offsets = new int[17];
+
+    /** Количество токенов */
+    private int count;
+
+    /** Длина текущего, еще не закрытого токена */
+    private int pendingLength;
+
+    /**
+     * Очищает буфер (память не освобождается)
+     */
+    public void clear() {
+        count = 0;
+        pendingLength = 0;
+        offsets[0] = 0;
+    }
+
+    /** Количество токенов */
+    public int size() {
+        return count;
+    }
+
+    /** Длина i-го токена */
+    public int length(int i) {
+        return offsets[i + 1] - offsets[i];
+    }
+
+    /** Символ j i-го токена */
+    public char charAt(int i, int j) {
+        return chars[offsets[i] + j];
+    }
+
+    /**
+     * Сравнивает i-й токен со строкой без создания объектов
+     */
+    public boolean tokenEquals(int i, String s) {
+        int start = offsets[i];
+        int len = offsets[i + 1] - start;
+        if (len != s.length()) return false;
+        for (int j = 0; j < len; j++) {
+            if (chars[start + j] != s.charAt(j)) return false;
+        }
+        return true;
+    }
+
+    /** i-й токен как строка (создает объект) */
+    public String token(int i) {
+        return new String(chars, offsets[i], length(i));
+    }
+
+    /** Все токены списком строк */
+    public List<String> toList() {
+        List<String> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) list.add(token(i));
+        return list;
+    }
+
+    /**
+     * 64-битный отпечаток последовательности токенов (FNV-1a с финальным перемешиванием).
+     * Учитывает порядок токенов и границы между ними, объектов не создает
+     */
+    public long fingerprint() {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < count; i++) {
+            // длина перед каждым токеном: "ab c" и "a bc" дают разные отпечатки
+            h = (h ^ length(i)) * 0x100000001b3L;
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                h = (h ^ chars[j]) * 0x100000001b3L;
+            }
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 64-битный хеш i-го токена (FNV-1a с финальным перемешиванием), объектов не создает
+     */
+    public long tokenHash(int i) {
+        long h = 0xcbf29ce484222325L;
+        for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+            h = (h ^ chars[j]) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // ЗАПОЛНЕНИЕ (используется токенизатором)
+
+    /** Дописывает символ к текущему (незакрытому) токену */
+    void append(char c) {
+        int pos = offsets[count] + pendingLength;
+        if (pos == chars.length) chars = Arrays.copyOf(chars, chars.length * 2);
+        chars[pos] = c;
+        pendingLength++;
+    }
+
+    /** Длина текущего незакрытого токена */
+    int pendingLength() {
+        return pendingLength;
+    }
+
+    /** Символ j текущего незакрытого токена */
+    char pendingCharAt(int j) {
+        return chars[offsets[count] + j];
+    }
+
+    /** Закрывает текущий токен и добавляет его в буфер */
+    void commit() {
+        if (count + 2 > offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        offsets[count + 1] = offsets[count] + pendingLength;
+        count++;
+        pendingLength = 0;
+    }
+
+    /** Отбрасывает текущий незакрытый токен */
+    void discard() {
+        pendingLength = 0;
+    }
+}
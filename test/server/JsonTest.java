@@ -0,0 +1,56 @@
+package server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты минимального JSON: запись и строгое чтение
+ */
+@DisplayName("Тестирование Json")
+class JsonTest {
+
+    @Test
+    @DisplayName("Запись и чтение обратно: объекты, массивы, строки с escape, числа")
+    void testRoundTrip() {
+        Map<String, Object> value = Map.of("text", "кавычка \" и\nперевод\u0001", "list", List.of(1.5, true));
+        assertEquals(value, Json.parse(Json.write(value)));
+        assertEquals(List.of(-0.0, 10.0, 0.25, 1.0e-3, 2.0E10), Json.parse(" [-0, 10, 0.25, 1e-3, 2E+10]\r\n"));
+        assertEquals("é/", Json.parse("\"\\u00e9\\/\""));
+    }
+
+    @Test
+    @DisplayName("Числа вне грамматики JSON отклоняются")
+    void testStrictNumbers() {
+        for (String bad : List.of("+1", ".5", "1.", "01", "-", "1e", "1e+", "0x10", "Infinity", "NaN")) {
+            assertThrows(IllegalArgumentException.class, () -> Json.parse(bad), bad);
+        }
+    }
+
+    @Test
+    @DisplayName("Управляющие символы в строке - только через escape, \\u - только 4 hex-цифры")
+    void testStrictStrings() {
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("\"a\nb\""));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("\"a\tb\""));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("\"\\u+1ab\""));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("\"\\u12\""));
+        // пробелы JSON - только пробел, табуляция, переводы строк
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("\u00a0{}"));
+    }
+
+    @Test
+    @DisplayName("Вложенность ограничена MAX_DEPTH, глубокий текст - ошибка разбора, а не переполнение стека")
+    void testDepthLimit() {
+        String limit = "[".repeat(Json.MAX_DEPTH) + "]".repeat(Json.MAX_DEPTH);
+        assertInstanceOf(List.class, Json.parse(limit));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("[" + limit + "]"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("{\"a\":".repeat(1_000_000)));
+        // после закрытых уровней глубина снова доступна
+        String siblings = "[" + (limit.substring(1, limit.length() - 1) + ",").repeat(3) + "[]]";
+        assertInstanceOf(List.class, Json.parse(siblings));
+    }
+}
@@ -0,0 +1,204 @@
+package server;
+
+import data.repository.*;
+import model.Card;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import service.session.SessionManager;
+import service.session.SessionPool;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты HTTP API: операции повторения, разделение состояния и прогресса пользователей,
+ * ошибки запросов, одновременные клиенты
+ */
+@DisplayName("Тестирование ReviewServer")
+class ReviewServerTest {
+
+    @TempDir
+    Path dir;
+
+    private SessionPool pool;
+    private ReviewServer server;
+    private HttpClient client;
+    private AtomicInteger statsSaves;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            cards.add(new Card("id-" + i, i % 2 == 0 ? "Java" : "SQL", "Question number " + i,
+                    "answer " + i, "deck.txt", 0, true));
+        }
+        statsSaves = new AtomicInteger();
+        SessionManager sessionManager = new SessionManager(new CardRepository() {
+            @Override public List<Card> loadAllCards() { return cards; }
+            @Override public void saveDeck(String fileName, List<Card> deck) {}
+        }, new StatsRepository() {
+            @Override public Map<String, Integer> loadStats() { return Map.of(); }
+            @Override public void saveLevels(Map<String, Integer> levels) { statsSaves.incrementAndGet(); }
+        }, new HistoryRepository() {
+            @Override public void saveEntry(String q, String a, boolean c) {}
+        }, new GroupRepository() {
+            @Override public void loadStructure() {}
+            @Override public Set<String> getGroupNames() { return new HashSet<>(); }
+            @Override public boolean isCardInGroup(String f, String g) { return false; }
+        });
+        sessionManager.reload();
+        // загрузка записывает статистику один раз
+        statsSaves.set(0);
+
+        pool = new SessionPool(sessionManager, dir, 1000, Duration.ofMinutes(10));
+        server = new ReviewServer(pool, new InetSocketAddress("127.0.0.1", 0));
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("Цикл повторения: тема, карточка, проверка, запись результата, статистика")
+    void testReviewCycle() throws Exception {
+        assertEquals(List.of("Java", "SQL"), Json.parse(get("alice", "/api/categories").body()));
+
+        HttpResponse<String> next = get("alice", "/api/next?category=SQL");
+        assertEquals(200, next.statusCode());
+        Map<String, Object> card = Json.parseObject(next.body());
+        assertEquals("SQL", card.get("category"));
+        assertEquals(Boolean.TRUE, card.get("new"));
+
+        String number = ((String) card.get("id")).substring(3);
+        Map<String, Object> check = Json.parseObject(post("alice", "/api/check",
+                "{\"answer\": \"answer " + number + "\"}").body());
+        assertEquals(Boolean.TRUE, check.get("passed"));
+        assertEquals("answer " + number, check.get("answer"));
+
+        HttpResponse<String> submit = post("alice", "/api/submit", "{\"answer\": \"x\", \"correct\": true}");
+        assertEquals(200, submit.statusCode());
+        assertEquals(2.0, Json.parseObject(submit.body()).get("level"));
+
+        Map<String, Object> total = stats("alice").getLast();
+        assertEquals(20.0, total.get("total"));
+        assertEquals(19.0, total.get("new"));
+
+        // прогресс пользователя - в его папке, общий файл статистики не трогается
+        pool.flushAll();
+        assertEquals(0, statsSaves.get());
+        assertEquals(List.of(card.get("id") + "|2"), Files.readAllLines(dir.resolve("alice").resolve("anki_stats.txt")));
+        assertEquals(1, Files.readAllLines(dir.resolve("alice").resolve("history_log.txt")).size());
+    }
+
+    @Test
+    @DisplayName("Состояние повторения у каждого пользователя свое")
+    void testUsersAreIsolated() throws Exception {
+        get("alice", "/api/next?category=Java");
+        // у bob еще нет текущей карточки
+        HttpResponse<String> check = post("bob", "/api/check", "{\"answer\": \"a\"}");
+        assertEquals(409, check.statusCode());
+        assertTrue(Json.parseObject(check.body()).containsKey("error"));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("Java", Json.parseObject(get("alice", "/api/next?category=Java").body()).get("category"));
+            assertEquals("SQL", Json.parseObject(get("bob", "/api/next?category=SQL").body()).get("category"));
+        }
+        post("alice", "/api/submit", "{\"answer\": \"x\", \"correct\": true}");
+
+        // прогресс у каждого свой
+        assertEquals(19.0, stats("alice").getLast().get("new"));
+        assertEquals(20.0, stats("bob").getLast().get("new"));
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    @DisplayName("Ошибки запроса: нет пользователя, неверный метод, неверный JSON, неизвестный путь, слишком большой запрос")
+    void testBadRequests() throws Exception {
+        HttpResponse<String> noUser = client.send(HttpRequest.newBuilder(uri("/api/next")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, noUser.statusCode());
+
+        assertEquals(405, get("alice", "/api/submit").statusCode());
+        get("alice", "/api/next");
+        assertEquals(400, post("alice", "/api/check", "{\"answer\": ").statusCode());
+        assertEquals(400, post("alice", "/api/submit", "{\"answer\": \"a\"}").statusCode());
+        assertEquals(404, get("alice", "/api/nextx").statusCode());
+        // вход из сети ограничен: размер тела и вложенность JSON
+        String big = "{\"answer\": \"" + "a".repeat(ReviewServer.MAX_BODY) + "\"}";
+        assertEquals(413, post("alice", "/api/check", big).statusCode());
+        String deep = "{\"answer\": " + "[".repeat(10_000) + "]".repeat(10_000) + "}";
+        assertEquals(400, post("alice", "/api/check", deep).statusCode());
+        assertEquals(400, get("..", "/api/next").statusCode());
+        pool.flushAll();
+        assertFalse(Files.exists(dir.resolve("alice")), "Ответов не было - записывать нечего");
+    }
+
+    @Test
+    @DisplayName("Сотни одновременных клиентов: каждый запрос обработан")
+    void testConcurrentClients() throws Exception {
+        int users = 200;
+        int rounds = 3;
+        List<Future<Integer>> results = new ArrayList<>();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int u = 0; u < users; u++) {
+                String user = "user-" + u;
+                results.add(clients.submit(() -> {
+                    int ok = 0;
+                    for (int r = 0; r < rounds; r++) {
+                        if (get(user, "/api/next?shuffle=true").statusCode() == 200) ok++;
+                        if (post(user, "/api/check", "{\"answer\": \"answer\"}").statusCode() == 200) ok++;
+                        if (post(user, "/api/submit", "{\"answer\": \"answer\", \"correct\": false}")
+                                .statusCode() == 200) ok++;
+                    }
+                    return ok;
+                }));
+            }
+            for (Future<Integer> f : results) assertEquals(rounds * 3, (int) f.get());
+        }
+        assertEquals(users, pool.size());
+        pool.flushAll();
+        for (int u = 0; u < users; u++) {
+            assertEquals(rounds, Files.readAllLines(dir.resolve("user-" + u).resolve("history_log.txt")).size());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> stats(String user) throws Exception {
+        return (List<Map<String, Object>>) Json.parse(get(user, "/api/stats").body());
+    }
+
+    private HttpResponse<String> get(String user, String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).header(ReviewServer.USER_HEADER, user).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String user, String path, String json) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).header(ReviewServer.USER_HEADER, user)
+                        .POST(HttpRequest.BodyPublishers.ofString(json)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+}
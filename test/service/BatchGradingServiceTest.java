@@ -0,0 +1,63 @@
+package service;
+
+import model.Card;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import service.StudyService.GradingResult;
+import service.session.SessionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты пакетной проверки ответов
+ */
+@DisplayName("Тестирование BatchGradingService")
+class BatchGradingServiceTest {
+
+    private static final String[] WORDS = {
+            "поток", "данных", "коллекция", "интерфейс", "stream", "collector", "lambda", "map", "filter"
+    };
+
+    @Test
+    @DisplayName("Параллельный результат совпадает с последовательной проверкой")
+    void testBatchEqualsSequential() {
+        Random rnd = new Random(34);
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            cards.add(new Card("id" + i, "Java", "Вопрос " + i, randomText(rnd, 8), "java.txt", 0, true));
+        }
+
+        List<BatchGradingService.Submission> submissions = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            submissions.add(new BatchGradingService.Submission(cards.get(rnd.nextInt(cards.size())), randomText(rnd, 6)));
+        }
+
+        SessionManager sessionManager = new SessionManager(null, null, null, null);
+        List<GradingResult> results = new BatchGradingService(sessionManager).gradeAll(submissions);
+
+        GradingService grading = new GradingService();
+        assertEquals(submissions.size(), results.size());
+        for (int i = 0; i < submissions.size(); i++) {
+            var s = submissions.get(i);
+            double expected = grading.calculateSimilarity(s.userAnswer(), s.card().getAnswer());
+            assertEquals(expected, results.get(i).score(), 1e-9);
+            assertEquals(expected > GradingService.PASS_THRESHOLD, results.get(i).passed());
+        }
+    }
+
+    @Test
+    @DisplayName("Пустой пакет")
+    void testEmptyBatch() {
+        assertTrue(new BatchGradingService(new SessionManager(null, null, null, null)).gradeAll(List.of()).isEmpty());
+    }
+
+    private static String randomText(Random rnd, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) sb.append(WORDS[rnd.nextInt(WORDS.length)]).append(' ');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,115 @@
+package service;
+
+import model.Card;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import service.importer.CsvFormat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты импорта из CSV/TSV: исходный файл читается с диска, колоды пишутся в память
+ */
+@DisplayName("Тестирование импорта CSV/TSV")
+class CsvImportServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private ImportServiceTest.MemoryFileService fileService;
+    private ImportServiceTest.StubStudyService studyService;
+    private CsvImportService csvImport;
+
+    @BeforeEach
+    void setUp() {
+        fileService = new ImportServiceTest.MemoryFileService();
+        studyService = new ImportServiceTest.StubStudyService();
+        studyService.reloads = 0;
+        csvImport = new CsvImportService(studyService, fileService);
+    }
+
+    @Test
+    @DisplayName("CSV с заголовком: многострочные поля, дубликаты, отклоненные записи")
+    void testImportCsv() throws IOException {
+        Card existing = new Card();
+        existing.setQuestion("Что такое JDK?");
+        studyService.existingCards.add(existing);
+
+        Path csv = write("cards.csv", """
+                category,question,answer
+                Java,"Что такое JVM?","Виртуальная машина,
+                исполняет байткод"
+                SQL,Что такое JOIN?,Соединение таблиц
+                Java,что такое  jvm?,дубликат внутри файла
+                Java,Что такое JDK?,дубликат из сессии
+                Java,,нет вопроса
+                Java,"QUESTION: ломает колоду",ответ
+                """);
+
+        String result = csvImport.performImport(csv, CsvFormat.csv());
+
+        assertTrue(result.contains("Добавлено: 2"), result);
+        assertTrue(result.contains("Пропущено (дубликаты): 2"), result);
+        assertTrue(result.contains("Ошибок: 2"), result);
+        assertEquals(0, studyService.reloads, "Сессия не перечитывается");
+
+        List<String> java = fileService.files.get(Paths.get("decks", "Java.txt").toString());
+        assertTrue(java.containsAll(List.of("Что такое JVM?", "Виртуальная машина,", "исполняет байткод")));
+        assertTrue(fileService.files.containsKey(Paths.get("decks", "SQL.txt").toString()));
+
+        assertEquals(List.of("Что такое JVM?", "Что такое JOIN?"),
+                studyService.mergedCards.stream().map(Card::getQuestion).toList());
+        assertEquals("Java.txt", studyService.mergedCards.getFirst().getSourceFile());
+
+        // отклоненные - с заголовком, исходный файл не тронут
+        assertEquals(List.of("category,question,answer", "Java,,нет вопроса", "Java,QUESTION: ломает колоду,ответ"),
+                fileService.files.get(csv.resolveSibling("cards.csv.rejected").toString()));
+        assertTrue(Files.readString(csv).contains("дубликат внутри файла"));
+    }
+
+    @Test
+    @DisplayName("TSV без заголовка: колонки по номерам, категория по умолчанию")
+    void testImportTsvByColumnNumbers() throws IOException {
+        Path tsv = write("cards.tsv", "id-1\tответ 1\tвопрос 1\nid-2\tответ 2\tвопрос 2\n");
+        CsvFormat format = CsvFormat.forFile(tsv)
+                .withHeader(false)
+                .withColumns("3", "2", null, "1")
+                .withDefaultCategory("Misc");
+
+        String result = csvImport.performImport(tsv, format);
+
+        assertTrue(result.contains("Добавлено: 2"), result);
+        assertTrue(result.contains("Ошибок: 0"), result);
+        Card first = studyService.mergedCards.getFirst();
+        assertEquals("id-1", first.getId());
+        assertEquals("вопрос 1", first.getQuestion());
+        assertEquals("ответ 1", first.getAnswer());
+        assertEquals("Misc", first.getCategory());
+        assertTrue(fileService.files.containsKey(Paths.get("decks", "Misc.txt").toString()));
+    }
+
+    @Test
+    @DisplayName("Нет обязательной колонки - ошибка без изменений")
+    void testMissingColumn() throws IOException {
+        Path csv = write("bad.csv", "q,a\nвопрос,ответ\n");
+
+        String result = csvImport.performImport(csv, CsvFormat.csv());
+
+        assertTrue(result.startsWith("Ошибка импорта"), result);
+        assertTrue(studyService.mergedCards.isEmpty());
+        assertFalse(fileService.files.containsKey(Paths.get("decks", "Import.txt").toString()));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(dir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+}
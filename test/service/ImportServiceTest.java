@@ -5,7 +5,17 @@ import model.Card;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import service.importer.ImportListener;
+import service.importer.ImportProgress;
+import service.session.NearDuplicateIndex;
+import service.session.NearDuplicatePolicy;
+import util.TextUtil;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -97,6 +107,102 @@ class ImportServiceTest {
                 "Невалидный блок должен остаться в памяти");
     }
 
+    @Test
+    @DisplayName("Импорт: новые карты добавляются в сессию без перезагрузки колод")
+    void testImportMergesIntoSession() {
+        fileService.files.put("import.txt", new ArrayList<>(Arrays.asList(
+                "CATEGORY: Java",
+                "QUESTION:", "Q1",
+                "ANSWER:", "A1",
+                "===",
+                "CATEGORY: Java",
+                "QUESTION:", "q1",
+                "ANSWER:", "A2",
+                "==="
+        )));
+
+        studyService.reloads = 0; // конструктор StudyService уже загрузил сессию
+        importService.performImport();
+
+        assertEquals(0, studyService.reloads, "Успешный импорт не должен перезагружать сессию");
+        assertEquals(1, studyService.mergedCards.size());
+        Card merged = studyService.mergedCards.getFirst();
+        assertEquals("Q1", merged.getQuestion().trim());
+        assertEquals("Java.txt", merged.getSourceFile(), "Источник - файл колоды, куда записана карта");
+    }
+
+    @Test
+    @DisplayName("Похожие вопросы: SKIP пропускает, FLAG добавляет с пометкой в отчете")
+    void testImportNearDuplicates() {
+        Card existingCard = new Card();
+        existingCard.setQuestion("Как работает полиморфизм подтипов в языке Java?");
+        studyService.existingCards.add(existingCard);
+        List<String> content = Arrays.asList(
+                "CATEGORY: OOP",
+                "QUESTION:", "Как работает полиморфизм подтипов в Java?",
+                "ANSWER:", "A",
+                "===",
+                "CATEGORY: OOP",
+                "QUESTION:", "Что такое инкапсуляция?",
+                "ANSWER:", "B",
+                "==="
+        );
+
+        studyService.nearPolicy = NearDuplicatePolicy.SKIP;
+        fileService.files.put("import.txt", new ArrayList<>(content));
+        String skipped = importService.performImport();
+        assertTrue(skipped.contains("Добавлено: 1"), skipped);
+        assertTrue(skipped.contains("Пропущено (дубликаты): 1"), skipped);
+
+        studyService.nearPolicy = NearDuplicatePolicy.FLAG;
+        studyService.mergedCards.clear();
+        fileService.files.put("import.txt", new ArrayList<>(content.subList(0, 6)));
+        String flagged = importService.performImport();
+        assertTrue(flagged.contains("Добавлено: 1"), flagged);
+        assertTrue(flagged.contains("похожими вопросами (см. лог): 1"), flagged);
+    }
+
+    @Test
+    @DisplayName("Отмена: обработанные блоки в колодах, необработанные остаются в import.txt")
+    void testImportCancelled() {
+        List<String> content = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            content.addAll(List.of("CATEGORY: Java", "QUESTION:", "Вопрос " + i, "ANSWER:", "Ответ " + i, "==="));
+        }
+        fileService.files.put("import.txt", content);
+
+        // отмена запрашивается при проверке перед третьим блоком
+        List<ImportProgress> progress = new ArrayList<>();
+        ImportListener listener = new ImportListener() {
+            int checks;
+
+            @Override
+            public void onProgress(ImportProgress p) {
+                progress.add(p);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return ++checks >= 3;
+            }
+        };
+
+        String result = importService.performImport(1, listener);
+
+        assertTrue(result.startsWith("Импорт отменен"), result);
+        assertTrue(result.contains("Добавлено: 2"), result);
+        assertTrue(result.contains("Не обработано (остались в файле): 3"), result);
+        assertEquals(List.of("Вопрос 1", "Вопрос 2"),
+                studyService.mergedCards.stream().map(Card::getQuestion).toList());
+
+        List<String> rest = fileService.files.get("import.txt");
+        assertEquals(content.subList(12, 30), rest, "Необработанные блоки возвращаются в файл без изменений");
+
+        ImportProgress last = progress.getLast();
+        assertEquals(2, last.processed());
+        assertEquals(2, last.added());
+    }
+
     // =============================================================================================
     // --- ЗАГЛУШКИ ---
     // =============================================================================================
@@ -124,6 +230,39 @@ class ImportServiceTest {
             files.put(path.toString(), new ArrayList<>(lines));
         }
 
+        /** Файлы из памяти - по тексту строк, остальные (например, CSV во временной папке) - с диска */
+        @Override
+        public long size(Path path) {
+            List<String> lines = files.get(path.toString());
+            if (lines == null) return super.size(path);
+            return String.join("\n", lines).getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        @Override
+        public BufferedReader openReader(Path path) {
+            return new BufferedReader(new StringReader(String.join("\n", readAllLines(path))));
+        }
+
+        @Override
+        public BufferedWriter openWriter(Path path, boolean append) {
+            List<String> target = append
+                    ? files.computeIfAbsent(path.toString(), _ -> new ArrayList<>())
+                    : new ArrayList<>();
+            files.put(path.toString(), target);
+            // при закрытии записанный текст раскладывается на строки файла
+            return new BufferedWriter(new StringWriter() {
+                @Override
+                public void close() {
+                    toString().lines().forEach(target::add);
+                }
+            });
+        }
+
+        @Override
+        public void replace(Path source, Path target) {
+            files.put(target.toString(), files.remove(source.toString()));
+        }
+
         @Override
         public void write(Path path, Iterable<? extends CharSequence> lines, OpenOption... options) {
 
@@ -132,8 +271,22 @@ class ImportServiceTest {
 
     static class StubStudyService extends StudyService {
         public List<Card> existingCards = new ArrayList<>();
+        public List<Card> mergedCards = new ArrayList<>();
+        public int reloads;
+        public NearDuplicatePolicy nearPolicy = NearDuplicatePolicy.FLAG;
         public StubStudyService() { super(null); }
-        @Override public void reloadSession() {}
+        @Override public void reloadSession() { reloads++; }
         @Override public List<Card> getAllCards() { return existingCards; }
+        @Override public boolean containsQuestion(long fingerprint) {
+            return existingCards.stream().anyMatch(c -> TextUtil.fingerprintForId(c.getQuestion()) == fingerprint);
+        }
+        @Override public NearDuplicatePolicy getNearDuplicatePolicy() { return nearPolicy; }
+        @Override public Card findNearDuplicate(long[] shingles) {
+            return existingCards.stream()
+                    .filter(c -> NearDuplicateIndex.similarity(shingles, NearDuplicateIndex.shingles(c.getQuestion()))
+                            >= NearDuplicateIndex.DEFAULT_THRESHOLD)
+                    .findFirst().orElse(null);
+        }
+        @Override public int mergeImportedCards(List<Card> cards) { mergedCards.addAll(cards); return cards.size(); }
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -62,4 +63,22 @@ class SpacedRepetitionAlgorithmTest {
         Card result = algorithm.selectNextCard(new ArrayList<>(), null, false);
         assertNull(result, "Метод должен вернуть null для пустого списка");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Выборка: текущая карта не выпадает подряд, колода (неизменяемая) не копируется и не меняется")
+    void testSelectNextCard_SkipsCurrent() {
+        Card a = new Card("a", "C", "Q", "A", "f.txt", 0, true);
+        // b равна a по значению, но это другая карточка
+        Card b = new Card("a", "C", "Q", "A", "f.txt", 0, true);
+        Card c = new Card("c", "C", "Q3", "A", "f.txt", 5, false);
+        List<Card> deck = List.of(a, b, c);
+
+        Card current = a;
+        for (int i = 0; i < 200; i++) {
+            Card next = algorithm.selectNextCard(deck, current, i % 2 == 0);
+            assertNotSame(current, next);
+            current = next;
+        }
+        assertSame(a, algorithm.selectNextCard(List.of(a), a, false), "В колоде одна карта - она и выпадает");
+    }
+}
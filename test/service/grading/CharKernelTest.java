@@ -0,0 +1,98 @@
+package service.grading;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты ядер сравнения символов.
+ * <p>
+ * Векторное ядро проверяется, только если тесты запущены с {@code --add-modules jdk.incubator.vector}
+ * </p>
+ */
+@DisplayName("Тестирование CharKernel")
+class CharKernelTest {
+
+    /** Есть символы вне таблицы масок бит-параллельного режима (заглавная кириллица, ё, скобки) */
+    private static final String ALPHABET = "ab{}();=.ЁёЖжx";
+
+    @Test
+    @DisplayName("Векторное ядро совпадает со скалярным")
+    void testVectorMatchesScalar() {
+        CharKernel vector = CharKernels.vector();
+        if (vector == null) return;
+        CharKernel scalar = CharKernels.scalar();
+
+        Random rnd = new Random(35);
+        for (int n = 0; n < 3000; n++) {
+            char[] a = randomChars(rnd, rnd.nextInt(150));
+            char[] b = rnd.nextBoolean() ? mutate(rnd, a) : randomChars(rnd, rnd.nextInt(150));
+            int len = Math.min(a.length, b.length);
+
+            assertEquals(scalar.commonPrefix(a, 0, b, 0, len), vector.commonPrefix(a, 0, b, 0, len));
+            assertEquals(scalar.commonSuffix(a, a.length, b, b.length, len),
+                    vector.commonSuffix(a, a.length, b, b.length, len));
+
+            int patternLen = Math.min(a.length, 64);
+            char c = ALPHABET.charAt(rnd.nextInt(ALPHABET.length()));
+            assertEquals(scalar.equalityMask(a, 0, patternLen, c), vector.equalityMask(a, 0, patternLen, c));
+        }
+    }
+
+    @Test
+    @DisplayName("Расстояние через любое ядро совпадает с обычным расчетом")
+    void testBoundedWithKernels() {
+        CharKernel vector = CharKernels.vector();
+        Random rnd = new Random(350);
+        for (int n = 0; n < 2000; n++) {
+            String a = new String(randomChars(rnd, 20 + rnd.nextInt(100)));
+            String b = new String(mutate(rnd, a.toCharArray()));
+            int k = rnd.nextInt(4);
+
+            int expected = Math.min(reference(a, b), k + 1);
+            assertEquals(expected, EditDistance.bounded(a, b, k, CharKernels.scalar()), a + " / " + b);
+            if (vector != null) {
+                assertEquals(expected, EditDistance.bounded(a, b, k, vector), a + " / " + b);
+            }
+        }
+    }
+
+    private static char[] randomChars(Random rnd, int len) {
+        char[] result = new char[len];
+        for (int i = 0; i < len; i++) result[i] = ALPHABET.charAt(rnd.nextInt(ALPHABET.length()));
+        return result;
+    }
+
+    /** Копия с 0..3 случайными правками */
+    private static char[] mutate(Random rnd, char[] s) {
+        StringBuilder sb = new StringBuilder(new String(s));
+        int edits = rnd.nextInt(4);
+        for (int e = 0; e < edits && !sb.isEmpty(); e++) {
+            int pos = rnd.nextInt(sb.length());
+            char c = ALPHABET.charAt(rnd.nextInt(ALPHABET.length()));
+            switch (rnd.nextInt(3)) {
+                case 0 -> sb.insert(pos, c);
+                case 1 -> sb.deleteCharAt(pos);
+                default -> sb.setCharAt(pos, c);
+            }
+        }
+        return sb.toString().toCharArray();
+    }
+
+    /** Классический алгоритм с полной матрицей (эталон) */
+    private static int reference(String a, String b) {
+        int[][] dp = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) dp[i][0] = i;
+        for (int j = 0; j <= b.length(); j++) dp[0][j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                dp[i][j] = Math.min(Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1), dp[i - 1][j - 1] + cost);
+            }
+        }
+        return dp[a.length()][b.length()];
+    }
+}
@@ -0,0 +1,91 @@
+package service.grading;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты индекса удалений
+ */
+@DisplayName("Тестирование DeletionIndex")
+class DeletionIndexTest {
+
+    private static final String ALPHABET = "abcdeжзикл";
+
+    @Test
+    @DisplayName("Индекс находит все слова в пределах порога опечаток")
+    void testCandidatesAreComplete() {
+        Random rnd = new Random(33);
+        TokenVocabulary vocabulary = new TokenVocabulary();
+        for (int i = 0; i < 2000; i++) vocabulary.intern(randomWord(rnd, 2, 12));
+        DeletionIndex index = vocabulary.buildDeletionIndex();
+
+        for (int n = 0; n < 300; n++) {
+            String user = randomWord(rnd, 2, 14);
+            Set<Integer> candidates = new HashSet<>();
+            index.forEachCandidate(user, candidates::add);
+
+            for (int id = 0; id < vocabulary.size(); id++) {
+                String correct = vocabulary.text(id);
+                if (EditDistance.withinDistance(correct, user, TokenMatcher.typoLimit(correct))) {
+                    assertTrue(candidates.contains(id), correct + " / " + user);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Сопоставление через индекс дает тот же результат, что и без него")
+    void testIndexedMatchingIsEquivalent() {
+        Random rnd = new Random(7);
+        for (int n = 0; n < 50; n++) {
+            TokenVocabulary plain = new TokenVocabulary();
+            TokenVocabulary indexed = new TokenVocabulary();
+
+            List<String> correct = new ArrayList<>();
+            for (int i = 0; i < 40; i++) correct.add(randomWord(rnd, 2, 10));
+            int[] plainIds = plain.encode(correct);
+            int[] indexedIds = indexed.encode(correct);
+            indexed.buildDeletionIndex();
+
+            List<String> user = new ArrayList<>();
+            for (String w : correct) {
+                if (rnd.nextInt(4) > 0) user.add(mutate(rnd, w));
+            }
+            for (int i = 0; i < 10; i++) user.add(randomWord(rnd, 2, 10));
+
+            assertEquals(TokenMatcher.countMatches(plainIds, user, plain),
+                    TokenMatcher.countMatches(indexedIds, user, indexed));
+        }
+    }
+
+    private static String randomWord(Random rnd, int min, int max) {
+        int len = min + rnd.nextInt(max - min + 1);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < len; i++) sb.append(ALPHABET.charAt(rnd.nextInt(ALPHABET.length())));
+        return sb.toString();
+    }
+
+    /** Одна-две случайные правки */
+    private static String mutate(Random rnd, String w) {
+        StringBuilder sb = new StringBuilder(w);
+        int edits = 1 + rnd.nextInt(2);
+        for (int e = 0; e < edits && sb.length() > 1; e++) {
+            int pos = rnd.nextInt(sb.length());
+            char c = ALPHABET.charAt(rnd.nextInt(ALPHABET.length()));
+            switch (rnd.nextInt(3)) {
+                case 0 -> sb.setCharAt(pos, c);
+                case 1 -> sb.insert(pos, c);
+                default -> sb.deleteCharAt(pos);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,100 @@
+package service.grading;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты ограниченного расстояния Левенштейна.
+ * <p>
+ * Оба движка (ленточный и бит-параллельный) сверяются с классической полной матрицей DP
+ * </p>
+ */
+@DisplayName("Тестирование EditDistance")
+class EditDistanceTest {
+
+    private static final String ALPHABET = "abcxyz01абвгдя";
+
+    @Test
+    @DisplayName("Простые случаи: совпадение, замена, вставка, удаление")
+    void testBasicCases() {
+        assertEquals(0, EditDistance.bounded("system", "system", 2));
+        assertEquals(1, EditDistance.bounded("system", "sistem", 2));
+        assertEquals(1, EditDistance.bounded("system", "systems", 2));
+        assertEquals(1, EditDistance.bounded("system", "sytem", 2));
+        assertEquals(2, EditDistance.bounded("полиморфизм", "палиморфизн", 2));
+        assertTrue(EditDistance.withinDistance("", "a", 1));
+    }
+
+    @Test
+    @DisplayName("Отсечка: при превышении порога возвращается k + 1")
+    void testThresholdCutoff() {
+        assertEquals(2, EditDistance.bounded("apple", "banana", 1));
+        assertEquals(3, EditDistance.bounded("abc", "xyzw", 2), "Разница длин больше порога");
+        assertFalse(EditDistance.withinDistance("инкапсуляция", "наследование", 2));
+    }
+
+    @Test
+    @DisplayName("Бит-параллельный режим совпадает с полной матрицей")
+    void testMyersMatchesReference() {
+        Random rnd = new Random(42);
+        for (int n = 0; n < 2000; n++) {
+            String a = randomWord(rnd, 1 + rnd.nextInt(64));
+            String b = randomWord(rnd, rnd.nextInt(70));
+            assertEquals(reference(a, b), EditDistance.myers(a, b), a + " / " + b);
+        }
+    }
+
+    @Test
+    @DisplayName("Ленточный режим совпадает с полной матрицей в пределах порога")
+    void testBoundedMatchesReference() {
+        Random rnd = new Random(7);
+        for (int n = 0; n < 5000; n++) {
+            // длинные слова (> 64) и символы вне алфавита масок идут через ленточный DP
+            String a = randomWord(rnd, rnd.nextInt(90)) + (rnd.nextBoolean() ? "ё" : "");
+            String b = rnd.nextBoolean() ? mutate(rnd, a) : randomWord(rnd, rnd.nextInt(90));
+            int k = rnd.nextInt(4);
+            int expected = Math.min(reference(a, b), k + 1);
+            assertEquals(expected, EditDistance.bounded(a, b, k), a + " / " + b + " k=" + k);
+        }
+    }
+
+    private static String randomWord(Random rnd, int len) {
+        StringBuilder sb = new StringBuilder(len);
+        for (int i = 0; i < len; i++) sb.append(ALPHABET.charAt(rnd.nextInt(ALPHABET.length())));
+        return sb.toString();
+    }
+
+    /** Слово с 0..3 случайными правками */
+    private static String mutate(Random rnd, String s) {
+        StringBuilder sb = new StringBuilder(s);
+        int edits = rnd.nextInt(4);
+        for (int e = 0; e < edits; e++) {
+            int pos = sb.isEmpty() ? 0 : rnd.nextInt(sb.length());
+            char c = ALPHABET.charAt(rnd.nextInt(ALPHABET.length()));
+            switch (rnd.nextInt(3)) {
+                case 0 -> sb.insert(pos, c);
+                case 1 -> { if (!sb.isEmpty()) sb.deleteCharAt(pos); }
+                default -> { if (!sb.isEmpty()) sb.setCharAt(pos, c); }
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Классический алгоритм с полной матрицей (эталон) */
+    private static int reference(String a, String b) {
+        int[][] dp = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) dp[i][0] = i;
+        for (int j = 0; j <= b.length(); j++) dp[0][j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                dp[i][j] = Math.min(Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1), dp[i - 1][j - 1] + cost);
+            }
+        }
+        return dp[a.length()][b.length()];
+    }
+}
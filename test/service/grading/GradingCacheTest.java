@@ -0,0 +1,117 @@
+package service.grading;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import service.GradingService;
+import util.TextUtil;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты LRU-кеша оценок
+ */
+@DisplayName("Тестирование GradingCache")
+class GradingCacheTest {
+
+    @Test
+    @DisplayName("Счетчики попаданий и промахов")
+    void testHitsAndMisses() {
+        GradingCache cache = new GradingCache();
+        assertTrue(Double.isNaN(cache.get("card", 0L, 1L)));
+        cache.put("card", 0L, 1L, 75.0);
+        assertEquals(75.0, cache.get("card", 0L, 1L));
+        assertTrue(Double.isNaN(cache.get("card", 0L, 2L)));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    @DisplayName("Вытеснение давно не использованных записей по количеству")
+    void testEvictionByCount() {
+        GradingCache cache = new GradingCache(2, Long.MAX_VALUE);
+        cache.put("a", 0L, 1L, 10.0);
+        cache.put("b", 0L, 1L, 20.0);
+        cache.get("a", 0L, 1L); // "a" становится свежей
+        cache.put("c", 0L, 1L, 30.0);
+
+        assertEquals(2, cache.size());
+        assertEquals(10.0, cache.get("a", 0L, 1L));
+        assertTrue(Double.isNaN(cache.get("b", 0L, 1L)));
+    }
+
+    @Test
+    @DisplayName("Вытеснение по объему памяти")
+    void testEvictionByWeight() {
+        GradingCache cache = new GradingCache(1000, 1000);
+        for (int i = 0; i < 100; i++) cache.put("card-" + i, 0L, i, i);
+
+        assertTrue(cache.weightBytes() <= 1000);
+        assertTrue(cache.size() < 100);
+        assertEquals(99.0, cache.get("card-99", 0L, 99L));
+    }
+
+    @Test
+    @DisplayName("Сброс записей отдельных карточек")
+    void testInvalidateCards() {
+        GradingCache cache = new GradingCache();
+        cache.put("a", 0L, 1L, 10.0);
+        cache.put("a", 0L, 2L, 20.0);
+        cache.put("b", 0L, 1L, 30.0);
+        long weight = cache.weightBytes();
+
+        cache.invalidateCards(List.of("a"));
+        assertEquals(1, cache.size());
+        assertTrue(cache.weightBytes() < weight);
+        assertEquals(30.0, cache.get("b", 0L, 1L));
+    }
+
+    @Test
+    @DisplayName("Проверка через кеш: та же оценка, повтор нормализованного ответа - попадание")
+    void testGradingServiceWithCache() {
+        GradingCache cache = new GradingCache();
+        GradingService cached = new GradingService(cache);
+        GradingService plain = new GradingService();
+
+        TokenVocabulary vocabulary = new TokenVocabulary();
+        int[] ids = vocabulary.encode(TextUtil.tokenize("Stream API - ленивые операции над коллекциями"));
+
+        String answer = "stream api ленивые операции";
+        double expected = plain.calculateSimilarity(answer, ids, vocabulary);
+        assertEquals(expected, cached.calculateSimilarity("id1", answer, ids, vocabulary));
+        assertEquals(expected, cached.calculateSimilarity("id1", "Stream, API: ленивые  операции!", ids, vocabulary));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    @DisplayName("Оценка по старому эталону не подходит к новому, даже сохраненная после перезагрузки")
+    void testStaleReferenceNeverMatches() {
+        GradingCache cache = new GradingCache();
+        GradingService service = new GradingService(cache);
+        String answer = "ленивые операции";
+
+        // проверка по старому снимку: эталон и словарь до перезагрузки
+        TokenVocabulary before = new TokenVocabulary();
+        int[] oldIds = before.encode(TextUtil.tokenize("ленивые операции над коллекциями"));
+        double oldScore = service.calculateSimilarity("id1", answer, oldIds, before);
+
+        // новый снимок: эталон карточки изменился, словарь новый
+        TokenVocabulary after = new TokenVocabulary();
+        int[] newIds = after.encode(TextUtil.tokenize("ленивые операции"));
+        assertArrayEquals(new int[]{0, 1}, newIds); // номера те же, что у начала старого эталона
+        assertNotEquals(oldScore, service.calculateSimilarity("id1", answer, newIds, after));
+        assertEquals(0, cache.getHits());
+
+        // отпечаток эталона считается по тексту: тот же ответ в другом словаре дает тот же ключ
+        TokenVocabulary other = new TokenVocabulary();
+        other.intern("лишний");
+        int[] sameIds = other.encode(TextUtil.tokenize("Ленивые операции!"));
+        assertEquals(after.fingerprint(newIds), other.fingerprint(sameIds));
+        service.calculateSimilarity("id1", answer, sameIds, other);
+        assertEquals(1, cache.getHits());
+    }
+}
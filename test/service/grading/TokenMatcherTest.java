@@ -0,0 +1,70 @@
+package service.grading;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты двухфазного сопоставления слов
+ */
+@DisplayName("Тестирование TokenMatcher")
+class TokenMatcherTest {
+
+    @Test
+    @DisplayName("Точные совпадения не зависят от порядка слов")
+    void testExactMatchesIgnoreOrder() {
+        int matches = TokenMatcher.countMatches(
+                List.of("инкапсуляция", "наследование", "полиморфизм"),
+                List.of("полиморфизм", "инкапсуляция", "наследование"));
+        assertEquals(3, matches);
+    }
+
+    @Test
+    @DisplayName("Слово пользователя засчитывается только один раз")
+    void testUserWordUsedOnce() {
+        assertEquals(1, TokenMatcher.countMatches(List.of("list", "list"), List.of("list")));
+        assertEquals(2, TokenMatcher.countMatches(List.of("list", "list"), List.of("list", "list", "list")));
+    }
+
+    @Test
+    @DisplayName("Опечатки прощаются по порогу длины слова")
+    void testFuzzyMatches() {
+        // короткое слово - 1 опечатка, длинное - 2
+        assertEquals(0, TokenMatcher.countMatches(List.of("stream"), List.of("straem")), "Перестановка = 2 правки, для короткого слова много");
+        assertEquals(1, TokenMatcher.countMatches(List.of("stream"), List.of("strem")));
+        assertEquals(1, TokenMatcher.countMatches(List.of("наследование"), List.of("наследовние")));
+        assertEquals(0, TokenMatcher.countMatches(List.of("apple"), List.of("banana")));
+    }
+
+    @Test
+    @DisplayName("Точное совпадение не отдается нечеткому раньше времени")
+    void testExactPhaseFirst() {
+        // "java" могло бы нечетко забрать "jave", но "jave" точно совпадает со вторым словом эталона
+        assertEquals(2, TokenMatcher.countMatches(List.of("java", "jave"), List.of("jave", "javo")));
+    }
+
+    @Test
+    @DisplayName("Вариант по номерам словаря совпадает со строковым")
+    void testIdBasedMatchesStringBased() {
+        TokenVocabulary vocabulary = new TokenVocabulary();
+        List<String> correct = List.of("поток", "данных", "поток", "lambda", "collector", "immutable");
+        int[] ids = vocabulary.encode(correct);
+
+        List<String> user = List.of("collectr", "поток", "лямбда", "imutable", "данных", "поток", "поток");
+        assertEquals(TokenMatcher.countMatches(correct, user), TokenMatcher.countMatches(ids, user, vocabulary));
+        assertEquals(5, TokenMatcher.countMatches(ids, user, vocabulary));
+    }
+
+    @Test
+    @DisplayName("Длинные ответы: полное совпадение большого набора слов")
+    void testLongAnswer() {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) words.add("token" + i);
+        List<String> user = new ArrayList<>(words.reversed());
+        assertEquals(5000, TokenMatcher.countMatches(words, user));
+    }
+}
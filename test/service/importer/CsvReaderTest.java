@@ -0,0 +1,112 @@
+package service.importer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты потокового чтения CSV/TSV
+ */
+@DisplayName("Тестирование CsvReader")
+class CsvReaderTest {
+
+    @Test
+    @DisplayName("Кавычки: разделитель, перевод строки и удвоенная кавычка внутри поля")
+    void testQuotedFields() throws IOException {
+        String text = "question,answer\r\n"
+                + "\"Что такое \"\"JVM\"\"?\",\"Виртуальная машина,\r\nисполняет байткод\"\r\n"
+                + "simple,\"\"\n";
+        CsvReader csv = new CsvReader(new StringReader(text), ',');
+
+        assertEquals(List.of("question", "answer"), csv.next());
+        assertEquals(List.of("Что такое \"JVM\"?", "Виртуальная машина,\nисполняет байткод"), csv.next());
+        assertEquals(2, csv.getRecordLine());
+        assertEquals(List.of("simple", ""), csv.next());
+        assertEquals(4, csv.getRecordLine());
+        assertNull(csv.next());
+        assertNull(csv.next());
+    }
+
+    @Test
+    @DisplayName("TSV, BOM, пустые строки и запись без перевода строки в конце")
+    void testTsvBomAndBlankLines() throws IOException {
+        String text = "\uFEFFq\ta\tc\n\n  \t\n1\t2\t\n\n3\t4\t5";
+        List<List<String>> records = readAll(new StringReader(text), '\t');
+
+        assertEquals(List.of(
+                List.of("q", "a", "c"),
+                List.of("  ", ""),
+                List.of("1", "2", ""),
+                List.of("3", "4", "5")), records);
+    }
+
+    @Test
+    @DisplayName("Незакрытая кавычка в конце файла помечает запись как некорректную")
+    void testUnterminatedQuote() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("a,b\nx,\"oops\ny"), ',');
+
+        assertEquals(List.of("a", "b"), csv.next());
+        assertFalse(csv.isMalformed());
+        assertEquals(List.of("x", "oops\ny"), csv.next());
+        assertTrue(csv.isMalformed());
+        assertNull(csv.next());
+    }
+
+    @Test
+    @DisplayName("Запись на границе куска чтения и много записей без накопления в памяти")
+    void testChunkBoundaries() throws IOException {
+        int rows = 20_000;
+        // читатель отдает по 7 символов, чтобы "" и \r\n попадали на границы кусков
+        Reader slow = new Reader() {
+            final Reader in = new StringReader(generate(rows));
+
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                return in.read(cbuf, off, Math.min(len, 7));
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        CsvReader csv = new CsvReader(slow, ',');
+        int count = 0;
+        for (List<String> r = csv.next(); r != null; r = csv.next()) {
+            assertEquals(List.of("q" + count, "a \"" + count + "\"\nline"), r);
+            count++;
+        }
+        assertEquals(rows, count);
+    }
+
+    @Test
+    @DisplayName("Слишком длинное поле - ошибка, а не чтение файла в память")
+    void testFieldLimit() {
+        String text = "\"" + "x".repeat(CsvReader.MAX_FIELD + 1);
+        CsvReader csv = new CsvReader(new StringReader(text), ',');
+        assertThrows(IOException.class, csv::next);
+    }
+
+    private static String generate(int rows) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            sb.append('q').append(i).append(",\"a \"\"").append(i).append("\"\"\r\nline\"\r\n");
+        }
+        return sb.toString();
+    }
+
+    private static List<List<String>> readAll(Reader reader, char delimiter) throws IOException {
+        List<List<String>> result = new ArrayList<>();
+        try (CsvReader csv = new CsvReader(reader, delimiter)) {
+            for (List<String> r = csv.next(); r != null; r = csv.next()) result.add(r);
+        }
+        return result;
+    }
+}
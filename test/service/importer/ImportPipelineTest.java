@@ -0,0 +1,197 @@
+package service.importer;
+
+import data.FileService;
+import model.Card;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import util.LongHashSet;
+import util.TextUtil;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты конвейерного импорта: итоги и порядок записей совпадают с последовательным
+ */
+@DisplayName("Тестирование ImportPipeline")
+class ImportPipelineTest {
+
+    private static final Path DECKS = Paths.get("decks");
+    private static final Path SPILL = Paths.get("import.txt.rejected");
+
+    @Test
+    @DisplayName("Дубликаты внутри файла: добавляется первый, порядок колод как во входном файле")
+    void testDeterministicOrderAndDedup() throws IOException {
+        StringBuilder input = new StringBuilder();
+        List<String> expectedJava = new ArrayList<>();
+        List<String> expectedSql = new ArrayList<>();
+        int expectedErrors = 0;
+        for (int i = 0; i < 3000; i++) {
+            if (i % 97 == 0) {
+                input.append("CATEGORY: Broken\nno question here ").append(i).append("\n===\n");
+                expectedErrors++;
+                continue;
+            }
+            String category = i % 3 == 0 ? "SQL" : "Java";
+            // каждый 10-й вопрос повторяет вопрос на 5 блоков выше (другая категория/ответ)
+            int q = i % 10 == 9 ? i - 5 : i;
+            input.append("CATEGORY: ").append(category)
+                    .append("\nQUESTION:\nВопрос номер ").append(q)
+                    .append("\nANSWER:\nОтвет ").append(i).append("\n===\n");
+            if (q == i || q % 97 == 0) {
+                (category.equals("SQL") ? expectedSql : expectedJava).add("Вопрос номер " + q);
+            }
+        }
+
+        LongHashSet existing = new LongHashSet();
+        existing.add(TextUtil.fingerprintForId("Вопрос номер 1"));
+        expectedJava.remove("Вопрос номер 1");
+
+        ConcurrentFileService fs = new ConcurrentFileService();
+        ImportPipeline.Result result = new ImportPipeline(fs, DECKS, SPILL, 4)
+                .run(blocks(input.toString()), existing::contains, NearDuplicateFilter.none(), _ -> {});
+
+        int total = 3000 - expectedErrors;
+        assertEquals(expectedErrors, result.errors());
+        assertEquals(expectedJava.size() + expectedSql.size(), result.added());
+        assertEquals(total - result.added(), result.skipped());
+
+        assertEquals(expectedJava, questions(fs.content(DECKS.resolve("Java.txt"))));
+        assertEquals(expectedSql, questions(fs.content(DECKS.resolve("SQL.txt"))));
+
+        String spill = fs.content(SPILL);
+        assertTrue(spill.indexOf("no question here 0") < spill.indexOf("no question here 97"));
+        assertTrue(spill.indexOf("no question here 97") < spill.indexOf("no question here 2910"));
+    }
+
+    @Test
+    @DisplayName("Результат не зависит от числа потоков")
+    void testSameResultForAnyWorkerCount() throws IOException {
+        String input = """
+                CATEGORY: A
+                QUESTION:
+                Q1
+                ANSWER:
+                A1
+                ===
+                CATEGORY: B
+                QUESTION:
+                q 1
+                ANSWER:
+                другой ответ
+                ===
+                мусор
+                ===
+                CATEGORY: B
+                QUESTION:
+                Q2
+                ANSWER:
+                A2
+                """;
+
+        ConcurrentFileService single = new ConcurrentFileService();
+        ConcurrentFileService many = new ConcurrentFileService();
+        ImportPipeline.Result r1 = new ImportPipeline(single, DECKS, SPILL, 1)
+                .run(blocks(input), _ -> false, NearDuplicateFilter.none(), _ -> {});
+        List<Card> added = new ArrayList<>();
+        ImportPipeline.Result r8 = new ImportPipeline(many, DECKS, SPILL, 8)
+                .run(blocks(input), _ -> false, NearDuplicateFilter.none(), added::add);
+
+        assertEquals(new ImportPipeline.Result(2, 1, 1, 0), r1);
+        assertEquals(r1, r8);
+        assertEquals(List.of("Q1"), questions(many.content(DECKS.resolve("A.txt"))));
+        assertEquals(List.of("Q2"), questions(many.content(DECKS.resolve("B.txt"))));
+        assertEquals(single.content(SPILL), many.content(SPILL));
+        assertEquals(List.of("A.txt", "B.txt"), added.stream().map(Card::getSourceFile).toList());
+    }
+
+    @Test
+    @DisplayName("Отмена: каждый блок либо обработан, либо возвращен в файл в исходном порядке")
+    void testCancel() throws IOException {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            input.append("CATEGORY: Java\nQUESTION:\nВопрос ").append(i).append("\nANSWER:\nОтвет\n===\n");
+        }
+
+        // отмена запрашивается при проверке перед 501-м блоком
+        List<ImportProgress> reports = new ArrayList<>();
+        ImportListener listener = new ImportListener() {
+            int checks;
+
+            @Override
+            public void onProgress(ImportProgress p) {
+                reports.add(p);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return ++checks > 500;
+            }
+        };
+        ProgressReporter progress = new ProgressReporter(listener, input.length());
+
+        ConcurrentFileService fs = new ConcurrentFileService();
+        ImportPipeline.Result result = new ImportPipeline(fs, DECKS, SPILL, 4)
+                .run(blocks(input.toString()), _ -> false, NearDuplicateFilter.none(), _ -> {}, progress);
+
+        assertTrue(result.cancelled());
+        assertEquals(500, result.added());
+        assertEquals(1500, result.unprocessed());
+
+        List<String> expectedDeck = new ArrayList<>();
+        for (int i = 0; i < 500; i++) expectedDeck.add("Вопрос " + i);
+        assertEquals(expectedDeck, questions(fs.content(DECKS.resolve("Java.txt"))));
+
+        List<String> expectedSpill = new ArrayList<>();
+        for (int i = 500; i < 2000; i++) expectedSpill.add("Вопрос " + i);
+        assertEquals(expectedSpill, questions(fs.content(SPILL)));
+
+        assertEquals(500, reports.getLast().processed());
+    }
+
+    private static BlockReader blocks(String text) {
+        return new BlockReader(new BufferedReader(new StringReader(text)));
+    }
+
+    /** Вопросы из текста колоды (строка после {@code QUESTION:}) */
+    private static List<String> questions(String deck) {
+        List<String> result = new ArrayList<>();
+        String[] lines = deck.split("\\R");
+        for (int i = 0; i + 1 < lines.length; i++) {
+            if (lines[i].equals("QUESTION:")) result.add(lines[i + 1]);
+        }
+        return result;
+    }
+
+    /** Файлы в памяти; писатели разных файлов могут работать из разных потоков */
+    static class ConcurrentFileService extends FileService {
+        final Map<Path, StringWriter> files = new ConcurrentHashMap<>();
+
+        String content(Path path) {
+            StringWriter w = files.get(path);
+            return w == null ? "" : w.toString();
+        }
+
+        @Override
+        public BufferedWriter openWriter(Path path, boolean append) {
+            StringWriter target = files.compute(path, (_, old) -> append && old != null ? old : new StringWriter());
+            return new BufferedWriter(target);
+        }
+
+        @Override
+        public void write(Path path, Iterable<? extends CharSequence> lines, OpenOption... options) {
+        }
+    }
+}
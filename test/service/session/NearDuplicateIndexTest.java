@@ -0,0 +1,106 @@
+package service.session;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты индекса похожих вопросов (MinHash + LSH)
+ */
+@DisplayName("Тестирование NearDuplicateIndex")
+class NearDuplicateIndexTest {
+
+    private static final double T = NearDuplicateIndex.DEFAULT_THRESHOLD;
+
+    @Test
+    @DisplayName("Переформулированный вопрос находится, непохожий - нет")
+    void testFindReworded() {
+        List<String> questions = List.of(
+                "Что такое полиморфизм в языке Java?",
+                "Чем отличается ArrayList от LinkedList?",
+                "Как работает сборщик мусора G1?");
+        NearDuplicateIndex index = build(questions);
+
+        assertEquals(0, index.find(NearDuplicateIndex.shingles("Java: что такое полиморфизм в языке"), questions::get, T));
+        assertEquals(1, index.find(NearDuplicateIndex.shingles("Чем  отличается LinkedList от ArrayList"), questions::get, T));
+        assertEquals(-1, index.find(NearDuplicateIndex.shingles("Что такое инкапсуляция?"), questions::get, T));
+        assertEquals(-1, index.find(NearDuplicateIndex.shingles("?!"), questions::get, T));
+    }
+
+    @Test
+    @DisplayName("Коэффициент Жаккара по словам")
+    void testSimilarity() {
+        long[] a = NearDuplicateIndex.shingles("alpha beta gamma delta");
+        long[] b = NearDuplicateIndex.shingles("beta gamma delta epsilon epsilon");
+        assertEquals(3.0 / 5, NearDuplicateIndex.similarity(a, b), 1e-9);
+        assertEquals(1.0, NearDuplicateIndex.similarity(a, NearDuplicateIndex.shingles("DELTA gamma, beta: alpha")), 1e-9);
+        assertEquals(0.0, NearDuplicateIndex.similarity(a, new long[0]));
+    }
+
+    @Test
+    @DisplayName("Поиск совпадает с полным перебором (почти всегда) и не путает непохожие")
+    void testAgainstBruteForce() {
+        Random rnd = new Random(41);
+        List<String> questions = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) questions.add(randomQuestion(rnd, 8 + rnd.nextInt(6)));
+        NearDuplicateIndex index = build(questions);
+
+        int expectedFound = 0, found = 0;
+        for (int i = 0; i < 500; i++) {
+            // вопрос с одним замененным словом (похожесть 0.8-0.86) или совсем новый
+            String base = questions.get(rnd.nextInt(questions.size()));
+            String query = rnd.nextBoolean() ? replaceOneWord(base, rnd) : randomQuestion(rnd, 10);
+            long[] q = NearDuplicateIndex.shingles(query);
+
+            boolean exists = questions.stream()
+                    .anyMatch(s -> NearDuplicateIndex.similarity(q, NearDuplicateIndex.shingles(s)) >= T);
+            int pos = index.find(q, questions::get, T);
+            if (pos >= 0) {
+                assertTrue(NearDuplicateIndex.similarity(q, NearDuplicateIndex.shingles(questions.get(pos))) >= T);
+                found++;
+            }
+            if (exists) expectedFound++;
+        }
+        assertTrue(expectedFound > 100);
+        assertTrue(found >= expectedFound * 0.9, "Найдено " + found + " из " + expectedFound);
+    }
+
+    @Test
+    @DisplayName("Копия не зависит от исходного индекса")
+    void testCopy() {
+        List<String> questions = new ArrayList<>(List.of("один два три четыре пять"));
+        NearDuplicateIndex index = build(questions);
+        NearDuplicateIndex copy = index.copy();
+
+        questions.add("шесть семь восемь девять десять");
+        copy.add(1, NearDuplicateIndex.shingles(questions.get(1)));
+
+        assertEquals(1, index.size());
+        assertEquals(2, copy.size());
+        assertEquals(-1, index.find(NearDuplicateIndex.shingles(questions.get(1)), questions::get, T));
+        assertEquals(1, copy.find(NearDuplicateIndex.shingles(questions.get(1)), questions::get, T));
+    }
+
+    private static NearDuplicateIndex build(List<String> questions) {
+        NearDuplicateIndex index = new NearDuplicateIndex();
+        for (int i = 0; i < questions.size(); i++) index.add(i, NearDuplicateIndex.shingles(questions.get(i)));
+        return index;
+    }
+
+    private static String randomQuestion(Random rnd, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) sb.append("w").append(rnd.nextInt(3000)).append(' ');
+        return sb.toString();
+    }
+
+    private static String replaceOneWord(String question, Random rnd) {
+        String[] words = question.trim().split(" ");
+        words[rnd.nextInt(words.length)] = "x" + rnd.nextInt(1_000_000);
+        return String.join(" ", words);
+    }
+}
@@ -2,12 +2,19 @@ package service.session;
 
 import data.repository.*;
 import model.Card;
+import model.dto.DataUpdate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import util.EventBus;
 import util.TextUtil;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -93,18 +100,248 @@ class SessionManagerTest {
         assertEquals(8, loadedCard.getLevel(), "Уровень должен восстановиться по UUID");
     }
 
+    @Test
+    @DisplayName("Фильтр: Колода по нескольким категориям - объединение без копирования")
+    void testDeckByCategoryUnion() {
+        cardRepo.cardsToReturn.add(new Card("1", "OOP", "Q1", "A", "file.txt", 0, true));
+        cardRepo.cardsToReturn.add(new Card("2", "Streams", "Q2", "A", "file.txt", 0, true));
+        cardRepo.cardsToReturn.add(new Card("3", "Collections", "Q3", "A", "file.txt", 0, true));
+
+        sessionManager.reload();
+        List<Card> deck = sessionManager.getDeck(List.of("OOP", "Collections"));
+
+        assertEquals(2, deck.size(), "В колоду должны попасть карты обеих категорий");
+        assertSame(sessionManager.getAllCards().get(2), deck.get(1), "Колода должна ссылаться на те же объекты карт");
+        assertTrue(sessionManager.getDeck(List.of("Unknown")).isEmpty(), "Неизвестный фильтр - пустая колода");
+    }
+
+    @Test
+    @DisplayName("Импорт: новые карты добавляются в сессию и индекс без перезагрузки")
+    void testMergeCards() {
+        cardRepo.cardsToReturn.add(new Card("1", "OOP", "Q1", "A", "file.txt", 0, true));
+        cardRepo.cardsToReturn.add(new Card("2", "Streams", "Q2", "A", "file.txt", 0, true));
+        sessionManager.reload();
+        List<Card> before = sessionManager.getDeck(List.of("OOP"));
+
+        Card fresh = new Card("3", "OOP", "Q3", "A3", "OOP.txt", 0, true);
+        Card duplicate = new Card("4", "Other", " q1 ", "A", "Other.txt", 0, true);
+        List<Card> added = sessionManager.mergeCards(List.of(fresh, duplicate));
+
+        assertEquals(List.of(fresh), added, "Вопрос, который уже есть в сессии, не добавляется");
+        assertEquals(3, sessionManager.getAllCards().size());
+        assertEquals(2, sessionManager.getIndex().positionOf(fresh));
+        assertTrue(sessionManager.getIndex().containsQuestion(TextUtil.fingerprintForId("Q3")));
+        assertEquals(2, sessionManager.getDeck(List.of("OOP")).size());
+        assertEquals(1, sessionManager.getDeck(List.of("Streams")).size());
+        assertFalse(sessionManager.getAllCategories().contains("Other"));
+        assertEquals(1, before.size(), "Ранее выданная колода не меняется");
+        assertArrayEquals(sessionManager.getVocabulary().encode(TextUtil.tokenize("A3")),
+                sessionManager.getAnswerTokens(fresh));
+    }
+
+    @Test
+    @DisplayName("Похожие вопросы при загрузке: FLAG оставляет обе карты, SKIP - только первую")
+    void testNearDuplicatesOnReload() {
+        cardRepo.cardsToReturn.add(new Card("1", "OOP", "Как работает полиморфизм подтипов в языке Java?", "A", "a.txt", 0, true));
+        cardRepo.cardsToReturn.add(new Card("2", "OOP", "Как работает полиморфизм подтипов в Java", "A", "b.txt", 0, true));
+        cardRepo.cardsToReturn.add(new Card("3", "OOP", "Как работает инкапсуляция в языке Java?", "A", "b.txt", 0, true));
+
+        sessionManager.setNearDuplicatePolicy(NearDuplicatePolicy.FLAG);
+        sessionManager.reload();
+        assertEquals(3, sessionManager.getAllCards().size());
+        Card similar = sessionManager.findNearDuplicate(NearDuplicateIndex.shingles("Работает полиморфизм подтипов, в языке Java"));
+        assertNotNull(similar);
+        assertEquals("1", similar.getId());
+
+        sessionManager.setNearDuplicatePolicy(NearDuplicatePolicy.SKIP);
+        sessionManager.reload();
+        assertEquals(List.of("1", "3"), sessionManager.getAllCards().stream().map(Card::getId).toList());
+
+        sessionManager.setNearDuplicatePolicy(NearDuplicatePolicy.OFF);
+        assertNull(sessionManager.findNearDuplicate(NearDuplicateIndex.shingles("Работает полиморфизм подтипов, в языке Java")));
+    }
+
+    @Test
+    @DisplayName("Поэтапная загрузка: сессия доступна после первых колод, дубликаты ищутся между колодами")
+    void testReloadProgressively() {
+        cardRepo.decks.add(List.of(new Card("1", "A", "Q1", "A", "a.txt", 0, true),
+                new Card("2", "A", "Q2", "A", "a.txt", 0, true)));
+        cardRepo.decks.add(List.of(new Card("3", "B", "q1", "A", "b.txt", 0, true),
+                new Card("4", "B", "Q4", "A", "b.txt", 0, true),
+                new Card("5", "B", "Q5", "A", "b.txt", 0, true)));
+        cardRepo.decks.add(List.of(new Card("6", "C", "Q6", "A", "c.txt", 0, true),
+                new Card("7", "C", "Q7", "A", "c.txt", 0, true)));
+        statsRepo.statsToReturn.put("7", 4);
+
+        List<DataUpdate> updates = new ArrayList<>();
+        List<Boolean> loadingFlags = new ArrayList<>();
+        List<Integer> sessionSizes = new ArrayList<>();
+        List<Integer> savesDuringLoad = new ArrayList<>();
+        try (var _ = EventBus.subscribe(EventBus.Topic.DATA_UPDATED, update -> {
+            updates.add(update);
+            loadingFlags.add(sessionManager.isLoading());
+            sessionSizes.add(sessionManager.getAllCards().size());
+            if (update.kind() == DataUpdate.Kind.PARTIAL) {
+                // ответ во время загрузки: статистика на диск не пишется
+                sessionManager.record(sessionManager.getAllCards().getFirst(), 3, "A", true);
+                savesDuringLoad.add(statsRepo.saves);
+            }
+        }, EventBus.SYNC, 0)) {
+            sessionManager.reloadProgressively(2);
+        }
+
+        // 2 карты (первая публикация), затем порция не меньше опубликованного: 4, дальше - конец
+        assertEquals(List.of(DataUpdate.Kind.PARTIAL, DataUpdate.Kind.PARTIAL, DataUpdate.Kind.RELOAD),
+                updates.stream().map(DataUpdate::kind).toList());
+        assertEquals(List.of(2, 4, 6), sessionSizes);
+        assertEquals(2, updates.get(1).addedCards());
+        assertEquals(List.of(true, true, false), loadingFlags);
+        assertEquals(List.of(0, 0), savesDuringLoad);
+        assertEquals(1, statsRepo.saves, "Статистика сохраняется по завершении");
+
+        assertFalse(sessionManager.isLoading());
+        assertEquals(List.of("1", "2", "4", "5", "6", "7"),
+                sessionManager.getAllCards().stream().map(Card::getId).toList());
+        assertEquals(4, sessionManager.getAllCards().getLast().getLevel());
+        // ответы во время загрузки перешли в следующие порции, сама карточка не менялась
+        Card answered = sessionManager.getAllCards().getFirst();
+        assertEquals(3, sessionManager.levelOf(answered));
+        assertFalse(sessionManager.isNew(answered));
+        assertTrue(answered.isNew());
+        assertEquals(List.of("A", "B", "C"), sessionManager.getAllCategories());
+        assertTrue(sessionManager.getIndex().containsQuestion(TextUtil.fingerprintForId("Q7")));
+    }
+
+    @Test
+    @DisplayName("Перезагрузка: колоды, статистика и структура групп читаются одновременно")
+    void testReloadLoadsSourcesInParallel() {
+        // барьер пройдут только три одновременно работающих источника (последовательно - таймаут)
+        CyclicBarrier barrier = new CyclicBarrier(3);
+        cardRepo.cardsToReturn.add(new Card("1", "A", "Q1", "A", "a.txt", 0, true));
+        statsRepo.statsToReturn.put("1", 3);
+        SessionManager manager = new SessionManager(new StubCardRepo() {
+            @Override public List<Card> loadAllCards() { await(barrier); return cardRepo.cardsToReturn; }
+        }, new StubStatsRepo() {
+            @Override public Map<String, Integer> loadStats() { await(barrier); return statsRepo.statsToReturn; }
+        }, new DummyHistoryRepo(), new GroupRepository() {
+            // первый вызов - из конструктора GroupRepository (поле без инициализатора не сбрасывается)
+            int calls;
+            @Override public void loadStructure() { if (calls++ > 0) await(barrier); }
+        });
+
+        manager.reload();
+
+        assertEquals(1, manager.getAllCards().size());
+        assertEquals(3, manager.getAllCards().getFirst().getLevel());
+    }
+
+    @Test
+    @DisplayName("Ошибка источника отменяет чтение колод; прежняя сессия не меняется")
+    void testReloadFailureCancelsSiblings() throws InterruptedException {
+        cardRepo.cardsToReturn.add(new Card("1", "A", "Q1", "A", "a.txt", 0, true));
+        sessionManager.reload();
+        SessionSnapshot before = sessionManager.getSnapshot();
+
+        CountDownLatch deckStarted = new CountDownLatch(1);
+        CountDownLatch deckStopped = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        SessionManager manager = new SessionManager(new StubCardRepo() {
+            @Override public List<Card> loadAllCards() {
+                deckStarted.countDown();
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                } finally {
+                    deckStopped.countDown();
+                }
+                return List.of();
+            }
+        }, new StubStatsRepo() {
+            @Override public Map<String, Integer> loadStats() {
+                await(deckStarted);
+                throw new IllegalStateException("файл статистики поврежден");
+            }
+        }, new DummyHistoryRepo(), new DummyGroupRepo());
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, manager::reload);
+        assertEquals("файл статистики поврежден", e.getCause().getMessage());
+        assertTrue(deckStopped.await(2, TimeUnit.SECONDS));
+        assertTrue(interrupted.get(), "Чтение колод прервано");
+        assertTrue(manager.getAllCards().isEmpty());
+        assertSame(before, sessionManager.getSnapshot());
+    }
+
+    @Test
+    @DisplayName("Ошибка записи колоды после публикации: остальные колоды дописываются, перезагрузка не падает")
+    void testDeckWriteFailureAfterPublish() throws InterruptedException {
+        CountDownLatch failed = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        StubCardRepo repo = new StubCardRepo() {
+            @Override public void saveDeck(String fileName, List<Card> cards) {
+                if (fileName.equals("a.txt")) {
+                    failed.countDown();
+                    throw new IllegalStateException("диск переполнен");
+                }
+                // медленная запись: не должна прерываться из-за ошибки соседней
+                await(failed);
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+                written.add(fileName);
+            }
+        };
+        repo.cardsToReturn.add(new Card("1", "A", "Q1", "A", "a.txt", 0, true));
+        repo.cardsToReturn.add(new Card("2", "B", "Q2", "B", "b.txt", 0, true));
+        repo.cardsToReturn.add(new Card("3", "C", "Q3", "C", "c.txt", 0, true));
+        SessionManager manager = new SessionManager(repo, statsRepo, new DummyHistoryRepo(), new DummyGroupRepo());
+
+        assertDoesNotThrow(manager::reload);
+
+        assertEquals(3, manager.getAllCards().size());
+        assertFalse(interrupted.get(), "Запись соседних колод не прерывается");
+        assertEquals(Set.of("b.txt", "c.txt"), new HashSet<>(written));
+        assertEquals(1, statsRepo.saves);
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(2, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException("Источники читаются не одновременно", e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(2, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     static class StubCardRepo implements CardRepository {
         public List<Card> cardsToReturn = new ArrayList<>();
+        /** Колоды для поэтапной загрузки (если пусто - одна порция из cardsToReturn) */
+        public List<List<Card>> decks = new ArrayList<>();
 
         @Override public List<Card> loadAllCards() { return cardsToReturn; }
+        @Override public void loadDecks(Consumer<List<Card>> deckConsumer) {
+            if (decks.isEmpty()) CardRepository.super.loadDecks(deckConsumer);
+            else decks.forEach(deckConsumer);
+        }
         @Override public void saveDeck(String fileName, List<Card> cards) { /* Имитация сохранения */ }
     }
 
     static class StubStatsRepo implements StatsRepository {
         public Map<String, Integer> statsToReturn = new HashMap<>();
+        public int saves;
 
         @Override public Map<String, Integer> loadStats() { return statsToReturn; }
-        @Override public void saveStats(List<Card> cards) { /* Имитация сохранения */ }
+        @Override public void saveLevels(Map<String, Integer> levels) { saves++; /* Имитация сохранения */ }
     }
 
     // просто заглушки, чтобы код компилировался
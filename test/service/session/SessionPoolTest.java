@@ -0,0 +1,167 @@
+package service.session;
+
+import model.Card;
+import model.dto.StatsRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.TextUtil;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты пула сессий: прогресс пользователей отдельно от карточек, запись и загрузка,
+ * вытеснение, одновременные запросы
+ */
+@DisplayName("Тестирование SessionPool")
+class SessionPoolTest {
+
+    @TempDir
+    Path dir;
+
+    private SessionManager sessionManager;
+
+    @BeforeEach
+    void setUp() {
+        SessionManagerTest.StubCardRepo cardRepo = new SessionManagerTest.StubCardRepo();
+        for (int i = 0; i < 30; i++) {
+            cardRepo.cardsToReturn.add(new Card("id-" + i, "Cat" + (i % 3), "Question " + i, "A" + i,
+                    "a.txt", 0, true));
+        }
+        sessionManager = new SessionManager(cardRepo, new SessionManagerTest.StubStatsRepo(),
+                new SessionManagerTest.DummyHistoryRepo(), new SessionManagerTest.DummyGroupRepo());
+        sessionManager.reload();
+    }
+
+    @Test
+    @DisplayName("Прогресс пользователя: отдельно от карточек каталога, переживает новый пул")
+    void testProgressRoundTrip() {
+        Card answered;
+        try (SessionPool pool = new SessionPool(sessionManager, dir, 10, Duration.ofMinutes(10))) {
+            answered = pool.withSession("alice", service -> {
+                Card card = service.nextCard(false);
+                service.submitResult("A", true);
+                service.nextCard(false);
+                return card;
+            });
+            assertEquals(2, (int) pool.withSession("alice", service -> service.levelOf(answered)));
+            boolean newForBob = pool.withSession("bob", service -> service.isNewCard(answered));
+            assertTrue(newForBob);
+
+            // карточки каталога общие и не меняются
+            assertEquals(0, answered.getLevel());
+            assertTrue(answered.isNew());
+            assertSame(answered, sessionManager.getAllCards().get(sessionManager.getIndex().positionOf(answered)));
+        }
+
+        try (SessionPool pool = new SessionPool(sessionManager, dir, 10, Duration.ofMinutes(10))) {
+            assertEquals(2, (int) pool.withSession("alice", service -> service.levelOf(answered)));
+            List<StatsRow> stats = pool.withSession("alice", service -> service.getStatistics());
+            assertEquals(new StatsRow("<<<<<< ИТОГО >>>>>>", 30, 29, 1, 0), stats.getLast());
+            assertEquals(3, stats.size() - 1);
+        }
+        assertFalse(Files.exists(dir.resolve("bob")), "Без ответов файлы не создаются");
+    }
+
+    @Test
+    @DisplayName("Старые идентификаторы (хеш вопроса) переносятся на UUID, неизвестные сохраняются")
+    void testLegacyIdsMigrated() throws Exception {
+        Card legacy = sessionManager.getAllCards().get(3);
+        Card both = sessionManager.getAllCards().get(4);
+        Path alice = Files.createDirectories(dir.resolve("alice"));
+        Files.write(alice.resolve(UserProgress.STATS_FILE), List.of(
+                TextUtil.legacyHashForId(legacy.getQuestion()) + "|4",
+                // запись по UUID важнее записи по хешу
+                both.getId() + "|6",
+                TextUtil.legacyHashForId(both.getQuestion()) + "|1",
+                "ghost|2"));
+
+        try (SessionPool pool = new SessionPool(sessionManager, dir, 10, Duration.ofMinutes(10))) {
+            assertEquals(4, (int) pool.withSession("alice", service -> service.levelOf(legacy)));
+            assertEquals(6, (int) pool.withSession("alice", service -> service.levelOf(both)));
+            boolean newLegacy = pool.withSession("alice", service -> service.isNewCard(legacy));
+            assertFalse(newLegacy);
+        }
+
+        // при закрытии пула файл переписан с UUID, неизвестная запись осталась
+        assertEquals(Set.of(legacy.getId() + "|4", both.getId() + "|6", "ghost|2"),
+                new HashSet<>(Files.readAllLines(alice.resolve(UserProgress.STATS_FILE))));
+    }
+
+    @Test
+    @DisplayName("Сверх лимита вытесняется дольше всех не использованный, с записью на диск")
+    void testEviction() throws Exception {
+        try (SessionPool pool = new SessionPool(sessionManager, dir, 2, Duration.ofMinutes(10))) {
+            answer(pool, "u1", 3);
+            Card u2Card = answer(pool, "u2", 1);
+            answer(pool, "u1", 1);
+            assertFalse(Files.exists(dir.resolve("u1")));
+
+            // u2 - дольше всех без обращений
+            answer(pool, "u3", 1);
+            assertEquals(2, pool.size());
+            assertTrue(Files.exists(dir.resolve("u2").resolve(UserProgress.STATS_FILE)));
+            assertFalse(Files.exists(dir.resolve("u1")));
+
+            // вытесненный возвращается со своим прогрессом
+            assertEquals(2, (int) pool.withSession("u2", service -> service.levelOf(u2Card)));
+            boolean newForU2 = pool.withSession("u2", service -> service.isNewCard(u2Card));
+            assertFalse(newForU2);
+            assertEquals(1, Files.readAllLines(dir.resolve("u2").resolve(UserProgress.HISTORY_FILE)).size());
+        }
+        assertEquals(4, Files.readAllLines(dir.resolve("u1").resolve(UserProgress.HISTORY_FILE)).size());
+    }
+
+    @Test
+    @DisplayName("Одновременные запросы при постоянном вытеснении: ни один ответ не теряется")
+    void testConcurrentChurn() throws Exception {
+        int users = 40;
+        int rounds = 25;
+        try (SessionPool pool = new SessionPool(sessionManager, dir, 4, Duration.ofMillis(5))) {
+            List<Future<?>> tasks = new ArrayList<>();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int u = 0; u < users; u++) {
+                    String user = "user-" + u;
+                    tasks.add(executor.submit(() -> {
+                        for (int r = 0; r < rounds; r++) answer(pool, user, 1);
+                        return null;
+                    }));
+                }
+                for (Future<?> f : tasks) f.get();
+            }
+            assertTrue(pool.size() <= 4);
+        }
+        for (int u = 0; u < users; u++) {
+            assertEquals(rounds, Files.readAllLines(dir.resolve("user-" + u).resolve(UserProgress.HISTORY_FILE)).size(),
+                    "user-" + u);
+        }
+    }
+
+    /**
+     * Пользователь отвечает верно на {@code count} карточек
+     *
+     * @return последняя карточка
+     */
+    private static Card answer(SessionPool pool, String user, int count) {
+        return pool.withSession(user, service -> {
+            Card card = null;
+            for (int i = 0; i < count; i++) {
+                card = service.nextCard(false);
+                service.submitResult("A", true);
+            }
+            return card;
+        });
+    }
+}
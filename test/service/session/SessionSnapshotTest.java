@@ -0,0 +1,171 @@
+package service.session;
+
+import model.Card;
+import model.dto.StatsRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты снимков сессии: неизменяемость, слой изменений уровней, согласованность для фоновых читателей
+ */
+@DisplayName("Тестирование SessionSnapshot")
+class SessionSnapshotTest {
+
+    private SessionManagerTest.StubCardRepo cardRepo;
+    private SessionManager sessionManager;
+
+    @BeforeEach
+    void setUp() {
+        cardRepo = new SessionManagerTest.StubCardRepo();
+        sessionManager = new SessionManager(cardRepo, new SessionManagerTest.StubStatsRepo(),
+                new SessionManagerTest.DummyHistoryRepo(), new SessionManagerTest.DummyGroupRepo());
+    }
+
+    @Test
+    @DisplayName("Токены ответа и словарь берутся из одного снимка и после перезагрузки")
+    void testAnswerTokensMatchSnapshotVocabulary() {
+        Card card = new Card("1", "A", "Q1", "alpha beta", "a.txt", 0, true);
+        cardRepo.cardsToReturn.add(card);
+        sessionManager.reload();
+        SessionSnapshot before = sessionManager.getSnapshot();
+
+        // перезагрузка с другими ответами - новый словарь, другие номера токенов
+        cardRepo.cardsToReturn.addFirst(new Card("0", "A", "Q0", "gamma delta", "a.txt", 0, true));
+        sessionManager.reload();
+        assertNotSame(before.getVocabulary(), sessionManager.getVocabulary());
+
+        int[] tokens = before.answerTokensOf(before.getCards().getFirst());
+        assertEquals(List.of("alpha", "beta"),
+                List.of(before.getVocabulary().text(tokens[0]), before.getVocabulary().text(tokens[1])));
+        SessionSnapshot after = sessionManager.getSnapshot();
+        int[] current = after.answerTokensOf(after.getCards().getLast());
+        assertEquals("alpha", after.getVocabulary().text(current[0]));
+    }
+
+    @Test
+    @DisplayName("Ответ дает новый снимок; прежний снимок и его сводка не меняются")
+    void testWithLevelKeepsOldSnapshot() {
+        cardRepo.cardsToReturn.add(new Card("1", "A", "Q1", "A", "a.txt", 0, true));
+        cardRepo.cardsToReturn.add(new Card("2", "B", "Q2", "A", "b.txt", 0, true));
+        sessionManager.reload();
+
+        SessionSnapshot before = sessionManager.getSnapshot();
+        Card card = before.getCards().getFirst();
+        sessionManager.record(card, 9, "A", true);
+
+        SessionSnapshot after = sessionManager.getSnapshot();
+        assertNotSame(before, after);
+        assertSame(before.getIndex(), after.getIndex(), "Индекс не пересобирается");
+
+        assertTrue(before.isNew(0));
+        assertEquals(1, before.categoryRows().getFirst().getNewCards());
+        assertEquals(2, before.totalRow("Итого").getNewCards());
+
+        assertFalse(after.isNew(0));
+        assertEquals(9, after.levelOf(0));
+        assertEquals(9, sessionManager.levelOf(card));
+        assertTrue(card.isNew(), "Карточка не меняется - уровень только в снимке");
+        StatsRow a = after.categoryRows().getFirst();
+        assertEquals("A", a.getCategory());
+        assertEquals(0, a.getNewCards());
+        assertEquals(1, a.getMaster());
+        assertEquals(new StatsRow("Итого", 2, 1, 0, 1), after.totalRow("Итого"));
+
+        // тот же уровень повторно - снимок не меняется
+        sessionManager.record(card, 9, "A", true);
+        assertSame(after, sessionManager.getSnapshot());
+    }
+
+    @Test
+    @DisplayName("Импорт в сессию сохраняет уровни из текущего снимка, перезагрузка берет их из статистики")
+    void testLevelsCarriedOnMerge() {
+        SessionManagerTest.StubStatsRepo statsRepo = new SessionManagerTest.StubStatsRepo();
+        sessionManager = new SessionManager(cardRepo, statsRepo,
+                new SessionManagerTest.DummyHistoryRepo(), new SessionManagerTest.DummyGroupRepo());
+        cardRepo.cardsToReturn.add(new Card("1", "A", "Q1", "A", "a.txt", 0, true));
+        sessionManager.reload();
+        Card card = sessionManager.getAllCards().getFirst();
+        sessionManager.record(card, 5, "A", true);
+
+        sessionManager.mergeCards(List.of(new Card("2", "B", "Q2", "A", "b.txt", 0, true)));
+        SessionSnapshot merged = sessionManager.getSnapshot();
+        assertEquals(2, merged.size());
+        assertEquals(5, merged.levelOf(0));
+        assertTrue(merged.isNew(1));
+        assertEquals(new StatsRow("Итого", 2, 1, 1, 0), merged.totalRow("Итого"));
+
+        // перезагрузка собирает снимок заново: уровень - из статистики на диске
+        statsRepo.statsToReturn.put("1", 7);
+        sessionManager.reload();
+        assertEquals(7, sessionManager.levelOf(sessionManager.getAllCards().getFirst()));
+    }
+
+    @Test
+    @DisplayName("Слой изменений вливается в массив уровней по достижении порога")
+    void testDeltaMerge() {
+        int n = SessionSnapshot.MERGE_THRESHOLD + 10;
+        for (int i = 0; i < n; i++) {
+            cardRepo.cardsToReturn.add(new Card("id-" + i, "A", "Question " + i, "A", "a.txt", 0, true));
+        }
+        sessionManager.reload();
+
+        List<Card> cards = sessionManager.getAllCards();
+        for (int i = 0; i < n; i++) {
+            sessionManager.record(cards.get(i), i % 8 + 1, "A", true);
+        }
+
+        SessionSnapshot snapshot = sessionManager.getSnapshot();
+        assertEquals(10, snapshot.deltaSize(), "После слияния в слое - только последние изменения");
+        for (int i = 0; i < n; i++) {
+            assertEquals(i % 8 + 1, snapshot.levelOf(i));
+            assertFalse(snapshot.isNew(i));
+        }
+        long master = IntStream.range(0, n).filter(i -> i % 8 + 1 >= 8).count();
+        assertEquals(new StatsRow("Итого", n, 0, n - master, master), snapshot.totalRow("Итого"));
+    }
+
+    @Test
+    @DisplayName("Фоновый читатель видит только собранные снимки во время перезагрузок и импорта")
+    void testConcurrentReaders() throws InterruptedException {
+        for (int i = 0; i < 300; i++) {
+            cardRepo.cardsToReturn.add(new Card("id-" + i, "Cat" + (i % 7), "Question " + i, "A", "a.txt", 0, true));
+        }
+        sessionManager.reload();
+
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = Thread.ofPlatform().start(() -> {
+            while (!stop.get() && failure.get() == null) {
+                SessionSnapshot s = sessionManager.getSnapshot();
+                long byCategories = s.categoryRows().stream().mapToLong(StatsRow::getTotal).sum();
+                if (s.getIndex().size() != s.size() || s.totalRow("").getTotal() != s.size()
+                        || byCategories != s.size()) {
+                    failure.set("Несогласованный снимок: " + s.size() + " / " + s.getIndex().size()
+                            + " / " + byCategories);
+                }
+                for (int pos = 0; pos < s.size(); pos += 37) {
+                    if (s.getIndex().positionOf(s.getCards().get(pos)) != pos) failure.set("Позиция " + pos);
+                }
+            }
+        });
+
+        for (int round = 0; round < 30; round++) {
+            sessionManager.mergeCards(List.of(
+                    new Card("m-" + round, "Merged", "Merged question " + round, "A", "m.txt", 0, true)));
+            sessionManager.record(sessionManager.getAllCards().get(round), round % 10, "A", true);
+            if (round % 10 == 9) sessionManager.reload();
+        }
+        stop.set(true);
+        reader.join();
+
+        assertNull(failure.get(), failure.get());
+    }
+}
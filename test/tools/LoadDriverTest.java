@@ -0,0 +1,98 @@
+package tools;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.LatencyHistogram;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты нагрузочного прогона: короткие прогоны в обоих режимах на сгенерированных колодах
+ */
+@DisplayName("Тестирование LoadDriver")
+class LoadDriverTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Свой сервис у каждого ученика: все операции измерены, прогресс по папкам учеников")
+    void testOwnServices() throws Exception {
+        LoadDriver.Report report = new LoadDriver(options(false, 0)).run();
+
+        assertEquals(3 * 40, report.cards());
+        assertTrue(report.succeeded(), String.valueOf(report.firstFailure()));
+        long submits = count(report, LoadDriver.Op.SUBMIT);
+        assertTrue(submits > 0);
+        assertEquals(submits, count(report, LoadDriver.Op.CHECK));
+        assertEquals(submits, count(report, LoadDriver.Op.NEXT));
+        assertEquals(submits, count(report, LoadDriver.Op.CYCLE));
+        assertTrue(report.throughput(LoadDriver.Op.CYCLE) > 0);
+
+        // прогресс записан при закрытии пула: у каждого ученика своя папка с журналом
+        long lines = 0;
+        try (Stream<Path> users = Files.list(dir.resolve("users"))) {
+            for (Path user : users.toList()) lines += Files.readAllLines(user.resolve("history_log.txt")).size();
+        }
+        assertEquals(submits, lines);
+
+        String table = report.format();
+        for (String op : List.of("next", "check", "submit", "cycle", "p999")) assertTrue(table.contains(op), op);
+    }
+
+    @Test
+    @DisplayName("Один сервис на всех, с паузами: каждый ответ записан в общий журнал")
+    void testSharedService() throws Exception {
+        LoadDriver.Report report = new LoadDriver(options(true, 5)).run();
+
+        assertTrue(report.succeeded(), String.valueOf(report.firstFailure()));
+        long submits = count(report, LoadDriver.Op.SUBMIT);
+        assertTrue(submits > 0);
+        assertEquals(submits, Files.readAllLines(dir.resolve("history_log.txt")).size());
+        LatencyHistogram cycle = report.histograms().get(LoadDriver.Op.CYCLE);
+        assertTrue(cycle.valueAtPercentile(50) <= cycle.valueAtPercentile(99.9));
+    }
+
+    @Test
+    @DisplayName("Ошибки учеников видны в отчете")
+    void testReportFailures() {
+        Map<LoadDriver.Op, LatencyHistogram> histograms = new EnumMap<>(LoadDriver.Op.class);
+        for (LoadDriver.Op op : LoadDriver.Op.values()) histograms.put(op, new LatencyHistogram());
+        LoadDriver.Report report = new LoadDriver.Report(options(false, 0), 120, Duration.ofSeconds(1), histograms,
+                2, new IllegalStateException("сессия не найдена"));
+
+        assertFalse(report.succeeded());
+        assertTrue(report.format().contains("ОШИБКИ: учеников с исключением: 2 из 50"), report.format());
+        assertTrue(report.format().contains("сессия не найдена"));
+    }
+
+    @Test
+    @DisplayName("Разбор аргументов")
+    void testParse() throws Exception {
+        LoadDriver.Options o = LoadDriver.Options.parse(new String[]{
+                "--students", "5", "--mode", "shared", "--think-ms", "10", "--dir", dir.toString()});
+        assertEquals(5, o.students());
+        assertTrue(o.shared());
+        assertEquals(10, o.thinkMillis());
+        assertEquals(dir, o.dir());
+        assertThrows(IllegalArgumentException.class, () -> LoadDriver.Options.parse(new String[]{"--mode", "x"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadDriver.Options.parse(new String[]{"--students"}));
+    }
+
+    private LoadDriver.Options options(boolean shared, long thinkMillis) {
+        return new LoadDriver.Options(50, Duration.ofMillis(700), Duration.ZERO, thinkMillis, shared, 3, 40, dir);
+    }
+
+    private static long count(LoadDriver.Report report, LoadDriver.Op op) {
+        return report.histograms().get(op).getTotalCount();
+    }
+}
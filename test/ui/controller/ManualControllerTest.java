@@ -144,7 +144,7 @@ public class ManualControllerTest {
             super(service);
         }
 
-        @Override public void displayCard(Card card) { this.lastDisplayedQuestion = card.getQuestion(); }
+        @Override public void displayCard(Card card, boolean isNew, int level) { this.lastDisplayedQuestion = card.getQuestion(); }
         @Override public void showAnswer(String answer) { this.lastShownAnswer = answer; }
         @Override public void setFeedback(boolean passed, Color color, String msg) { }
         @Override public void resetUI() { this.wasReset = true; }
@@ -0,0 +1,90 @@
+package util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты шины событий: данные, способы доставки, слияние серий, отписка
+ * <p>
+ * Каждый тест использует свою тему, чтобы не задевать подписчиков приложения
+ * </p>
+ */
+@DisplayName("Тестирование EventBus")
+class EventBusTest {
+
+    @Test
+    @DisplayName("SYNC: данные доставляются сразу и по порядку; после отписки - нет")
+    void testSyncDeliveryAndUnsubscribe() {
+        EventBus.Topic<String> topic = new EventBus.Topic<>("test-sync");
+        List<String> received = new CopyOnWriteArrayList<>();
+        AtomicInteger plain = new AtomicInteger();
+
+        EventBus.Subscription<String> sub = EventBus.subscribe(topic, received::add, EventBus.SYNC, 0);
+        try (var _ = EventBus.subscribe(topic, plain::incrementAndGet)) {
+            EventBus.publish(topic, "a");
+            EventBus.publish(topic, "b");
+            EventBus.publish(topic);
+        }
+        assertEquals(Arrays.asList("a", "b", null), received);
+        assertEquals(3, plain.get());
+
+        sub.close();
+        EventBus.publish(topic, "c");
+        assertEquals(3, received.size());
+        assertEquals(3, plain.get());
+    }
+
+    @Test
+    @DisplayName("Серия событий в окне слияния - одна доставка с последними данными")
+    void testCoalescing() throws InterruptedException {
+        EventBus.Topic<Integer> topic = new EventBus.Topic<>("test-coalesce");
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        CountDownLatch first = new CountDownLatch(1);
+
+        try (var _ = EventBus.subscribe(topic, v -> {
+            received.add(v);
+            first.countDown();
+        }, EventBus.SYNC, 200)) {
+            for (int i = 1; i <= 50; i++) EventBus.publish(topic, i);
+
+            assertTrue(first.await(2, TimeUnit.SECONDS));
+            Thread.sleep(400);
+            assertEquals(List.of(50), received);
+
+            // следующая серия - новая доставка
+            EventBus.publish(topic, 51);
+            Thread.sleep(600);
+            assertEquals(List.of(50, 51), received);
+        }
+    }
+
+    @Test
+    @DisplayName("Доставка через исполнитель - не в потоке публикации; ошибка подписчика не мешает другим")
+    void testExecutorDelivery() throws InterruptedException {
+        EventBus.Topic<String> topic = new EventBus.Topic<>("test-async");
+        AtomicReference<Thread> handlerThread = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        try (var _ = EventBus.subscribe(topic, _ -> {
+                 throw new IllegalStateException("сбой подписчика");
+             }, EventBus.SYNC, 0);
+             var _ = EventBus.subscribe(topic, _ -> {
+                 handlerThread.set(Thread.currentThread());
+                 done.countDown();
+             }, EventBus.ASYNC, 0)) {
+            EventBus.publish(topic, "x");
+            assertTrue(done.await(2, TimeUnit.SECONDS));
+            assertNotSame(Thread.currentThread(), handlerThread.get());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты гистограммы задержек: точность перцентилей, границы корзин, сложение, запись из многих потоков
+ */
+@DisplayName("Тестирование LatencyHistogram")
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("Перцентили с погрешностью меньше 1% на всем диапазоне")
+    void testPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) h.record(v * 1000);
+
+        assertEquals(100_000, h.getTotalCount());
+        assertEquals(100_000_000, h.getMax());
+        assertEquals(50_000_500.0, h.getMean(), 1e-6);
+        assertWithin(50_000_000, h.valueAtPercentile(50));
+        assertWithin(99_000_000, h.valueAtPercentile(99));
+        assertWithin(99_900_000, h.valueAtPercentile(99.9));
+        assertEquals(100_000_000, h.valueAtPercentile(100));
+        assertWithin(1000, h.valueAtPercentile(0));
+    }
+
+    @Test
+    @DisplayName("Малые значения - точно, корзины упорядочены и идут без пропусков")
+    void testBuckets() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int v = 0; v < 10; v++) h.record(v);
+        assertEquals(4, h.valueAtPercentile(50));
+        assertEquals(9, h.valueAtPercentile(100));
+
+        long previous = -1;
+        for (long v : new long[]{0, 1, 255, 256, 257, 511, 512, 1L << 40, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(v);
+            long high = LatencyHistogram.highestEquivalent(index);
+            assertTrue(high >= v, "Верхняя граница корзины " + v);
+            assertTrue(high - v <= Math.max(1, v / 128), "Ширина корзины " + v);
+            assertTrue(index >= previous, "Порядок корзин " + v);
+            previous = index;
+        }
+        for (int index = 1; index < 3000; index++) {
+            assertEquals(index, LatencyHistogram.indexOf(LatencyHistogram.highestEquivalent(index - 1) + 1));
+        }
+    }
+
+    @Test
+    @DisplayName("Сложение и запись из многих потоков без потерь")
+    void testConcurrentRecordAndAdd() throws Exception {
+        LatencyHistogram shared = new LatencyHistogram();
+        List<Future<?>> tasks = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int t = 0; t < 100; t++) {
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) shared.record(i % 500);
+                }));
+            }
+            for (Future<?> f : tasks) f.get();
+        }
+        assertEquals(100_000, shared.getTotalCount());
+        assertEquals(499, shared.getMax());
+
+        LatencyHistogram total = new LatencyHistogram();
+        total.record(1_000_000);
+        total.add(shared);
+        assertEquals(100_001, total.getTotalCount());
+        assertEquals(1_000_000, total.getMax());
+        assertEquals(250, total.valueAtPercentile(50));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 100,
+                "Ожидалось около " + expected + ", получено " + actual);
+    }
+}
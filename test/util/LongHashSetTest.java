@@ -0,0 +1,47 @@
+package util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты множества примитивных long
+ */
+@DisplayName("Тестирование LongHashSet")
+class LongHashSetTest {
+
+    @Test
+    @DisplayName("Поведение совпадает с HashSet<Long>")
+    void testMatchesHashSet() {
+        Random rnd = new Random(64);
+        LongHashSet set = new LongHashSet();
+        Set<Long> reference = new HashSet<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            // маленький диапазон - много повторов, плюс произвольные 64-битные значения
+            long v = rnd.nextBoolean() ? rnd.nextInt(5000) - 2500 : rnd.nextLong();
+            assertEquals(reference.add(v), set.add(v));
+        }
+        assertEquals(reference.size(), set.size());
+        for (int i = 0; i < 10_000; i++) {
+            long v = rnd.nextInt(10_000) - 5000;
+            assertEquals(reference.contains(v), set.contains(v));
+        }
+    }
+
+    @Test
+    @DisplayName("Ноль хранится наравне с другими значениями")
+    void testZero() {
+        LongHashSet set = new LongHashSet();
+        assertFalse(set.contains(0L));
+        assertTrue(set.add(0L));
+        assertFalse(set.add(0L));
+        assertTrue(set.contains(0L));
+        assertEquals(1, set.size());
+    }
+}
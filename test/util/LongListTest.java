@@ -0,0 +1,41 @@
+package util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты списка примитивных long
+ */
+@DisplayName("Тестирование LongList")
+class LongListTest {
+
+    @Test
+    @DisplayName("Рост за пределы начальной емкости, копия содержимого")
+    void testGrowAndToArray() {
+        LongList list = new LongList(2);
+        for (long v = 0; v < 100; v++) list.add(v * v);
+
+        assertEquals(100, list.size());
+        assertEquals(81L, list.get(9));
+        long[] copy = list.toArray();
+        assertEquals(100, copy.length);
+        assertEquals(99L * 99, copy[99]);
+    }
+
+    @Test
+    @DisplayName("Удаление перестановкой с последним")
+    void testRemoveSwap() {
+        LongList list = new LongList();
+        list.add(10);
+        list.add(20);
+        list.add(30);
+
+        list.removeSwap(0);
+        assertEquals(2, list.size());
+        assertArrayEquals(new long[]{30, 20}, list.toArray());
+        list.removeSwap(1);
+        assertArrayEquals(new long[]{30}, list.toArray());
+    }
+}
@@ -0,0 +1,73 @@
+package util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты группы подзадач: параллельность, зависимость подзадач, отмена соседей при ошибке
+ */
+@DisplayName("Тестирование TaskScope")
+class TaskScopeTest {
+
+    @Test
+    @DisplayName("Подзадачи идут одновременно; подзадача может ждать результат соседней")
+    void testParallelAndDependent() {
+        // барьер пройдут только одновременно работающие подзадачи
+        CyclicBarrier barrier = new CyclicBarrier(3);
+        try (TaskScope scope = new TaskScope()) {
+            TaskScope.Subtask<Integer> a = scope.fork(() -> {
+                barrier.await(2, TimeUnit.SECONDS);
+                return 20;
+            });
+            TaskScope.Subtask<Integer> b = scope.fork(() -> {
+                barrier.await(2, TimeUnit.SECONDS);
+                return 22;
+            });
+            TaskScope.Subtask<Integer> sum = scope.fork(() -> {
+                barrier.await(2, TimeUnit.SECONDS);
+                return a.get() + b.get();
+            });
+            scope.join();
+            assertEquals(42, (int) sum.get());
+        }
+    }
+
+    @Test
+    @DisplayName("Ошибка подзадачи прерывает соседние и пробрасывается из join")
+    void testFailureCancelsSiblings() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch siblingStopped = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+
+        IllegalStateException e;
+        try (TaskScope scope = new TaskScope()) {
+            scope.fork(() -> {
+                started.countDown();
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException ie) {
+                    interrupted.set(true);
+                } finally {
+                    siblingStopped.countDown();
+                }
+            });
+            TaskScope.Subtask<String> waiting = scope.fork(() -> "ждет: " + scope.fork(() -> {
+                started.await();
+                throw new IllegalArgumentException("сбой источника");
+            }).get());
+            e = assertThrows(IllegalStateException.class, scope::join);
+            assertThrows(java.util.concurrent.CancellationException.class, waiting::get);
+        }
+
+        assertInstanceOf(IllegalArgumentException.class, e.getCause(), "Причина - первая ошибка");
+        assertTrue(siblingStopped.await(2, TimeUnit.SECONDS));
+        assertTrue(interrupted.get(), "Соседняя подзадача прервана");
+    }
+}
@@ -0,0 +1,142 @@
+package util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты однопроходного токенизатора и нормализатора.
+ * <p>
+ * Новая реализация {@link TextUtil} должна давать ровно тот же результат,
+ * что и прежняя версия на регулярных выражениях (она продублирована ниже как эталон)
+ * </p>
+ */
+@DisplayName("Тестирование TextUtil")
+class TextUtilTest {
+
+    /** Символы для случайных строк: латиница, кириллица, цифры, пробелы, пунктуация и "особые" символы */
+    private static final String ALPHABET =
+            "abcXYZ019 абвЯЮЁё\t\n\r\u000B\f\u0001.,;:-_()[]{}<>\"'İΣσςK  ßÀ";
+
+    @Test
+    @DisplayName("Токенизация: типичные ответы")
+    void testTokenizeExamples() {
+        assertEquals(List.of("hashmap", "хранит", "пары", "ключ", "значение"),
+                TextUtil.tokenize("HashMap хранит пары \"ключ-значение\"."));
+        assertEquals(List.of("list", "add"), TextUtil.tokenize("  the List.add() is a "));
+        assertEquals(List.of(), TextUtil.tokenize(null));
+    }
+
+    @Test
+    @DisplayName("Токенизация совпадает со старой реализацией")
+    void testTokenizeEquivalence() {
+        Random rnd = new Random(2025);
+        for (int n = 0; n < 20_000; n++) {
+            String s = randomText(rnd);
+            assertEquals(legacyTokenize(s), TextUtil.tokenize(s), "Текст: [" + s + "]");
+        }
+    }
+
+    @Test
+    @DisplayName("Нормализация для ID совпадает со старой реализацией")
+    void testNormalizeEquivalence() {
+        Random rnd = new Random(17);
+        for (int n = 0; n < 20_000; n++) {
+            String s = randomText(rnd);
+            assertEquals(legacyNormalize(s), TextUtil.normalizeForId(s), "Текст: [" + s + "]");
+        }
+        assertEquals("", TextUtil.normalizeForId(null));
+        assertEquals("𐐨x", TextUtil.normalizeForId(" 𐐀 X "), "Суррогатные пары");
+    }
+
+    @Test
+    @DisplayName("Отпечаток и legacy-хеш вопроса считаются без нормализованной строки")
+    void testFingerprintForId() {
+        Random rnd = new Random(37);
+        Map<String, Long> byNormalized = new HashMap<>();
+        for (int n = 0; n < 20_000; n++) {
+            String s = randomText(rnd);
+            String normalized = TextUtil.normalizeForId(s);
+            assertEquals(normalized.hashCode(), TextUtil.legacyHashForId(s), "Текст: [" + s + "]");
+
+            long fingerprint = TextUtil.fingerprintForId(s);
+            Long previous = byNormalized.putIfAbsent(normalized, fingerprint);
+            if (previous != null) assertEquals(previous.longValue(), fingerprint, "Текст: [" + s + "]");
+        }
+        // разные нормализованные строки - разные отпечатки
+        assertEquals(byNormalized.size(), new HashSet<>(byNormalized.values()).size());
+
+        assertEquals(TextUtil.fingerprintForId("Что такое JVM?"), TextUtil.fingerprintForId("  что  такое\tjvm? "));
+        assertNotEquals(TextUtil.fingerprintForId("Что такое JVM?"), TextUtil.fingerprintForId("Что такое JDK?"));
+    }
+
+    @Test
+    @DisplayName("Турецкая локаль: результат как у старой реализации")
+    void testLocaleSensitiveEquivalence() {
+        Locale saved = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+            Random rnd = new Random(3);
+            for (int n = 0; n < 2_000; n++) {
+                String s = randomText(rnd);
+                assertEquals(legacyTokenize(s), TextUtil.tokenize(s), "Текст: [" + s + "]");
+                assertEquals(legacyNormalize(s), TextUtil.normalizeForId(s), "Текст: [" + s + "]");
+                assertEquals(legacyNormalize(s).hashCode(), TextUtil.legacyHashForId(s), "Текст: [" + s + "]");
+            }
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+
+    @Test
+    @DisplayName("Буфер токенов переиспользуется между вызовами")
+    void testReusableBuffer() {
+        TokenBuffer buffer = new TokenBuffer();
+        TextUtil.tokenize("first call with many words", buffer);
+        TextUtil.tokenize("Второй вызов", buffer);
+
+        assertEquals(2, buffer.size());
+        assertTrue(buffer.tokenEquals(0, "второй"));
+        assertEquals("вызов", buffer.token(1));
+        assertEquals(5, buffer.length(1));
+    }
+
+    private static String randomText(Random rnd) {
+        int len = rnd.nextInt(40);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < len; i++) {
+            if (rnd.nextInt(50) == 0) {
+                sb.append("𐐀"); // заглавная буква Deseret (суррогатная пара)
+            } else {
+                sb.append(ALPHABET.charAt(rnd.nextInt(ALPHABET.length())));
+            }
+        }
+        return sb.toString();
+    }
+
+    // ЭТАЛОН: прежняя реализация на регулярных выражениях
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "и","в","на","с","для","а","но","to","the","of","is","are","что","это","как"
+    ));
+
+    private static String legacyBasicClean(String text) {
+        if (text == null) return "";
+        return text.trim().toLowerCase();
+    }
+
+    private static String legacyNormalize(String text) {
+        if (text == null) return "";
+        return legacyBasicClean(text).replaceAll("\\s+", "");
+    }
+
+    private static List<String> legacyTokenize(String text) {
+        return Arrays.stream(legacyBasicClean(text).replaceAll("[^a-zа-я0-9]", " ").split("\\s+"))
+                .filter(w -> w.length() > 1 && !STOP_WORDS.contains(w))
+                .collect(Collectors.toList());
+    }
+}